@@ -0,0 +1,24 @@
+package props.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler attached, so that every result
+ * includes the allocation rate (gc.alloc.rate.norm is bytes per operation).
+ * All of the usual JMH command line options are accepted.
+ */
+public class BenchmarkRunner
+{
+    public static void main( String[] args ) throws Exception {
+        Options options = new OptionsBuilder()
+            .parent( new CommandLineOptions( args ) )
+            .addProfiler( GCProfiler.class )
+            .build();
+        
+        new Runner( options ).run();
+    }
+}
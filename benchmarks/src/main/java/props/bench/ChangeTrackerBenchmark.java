@@ -0,0 +1,95 @@
+package props.bench;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import props.ChangeTracker;
+import props.Prop;
+
+/**
+ * Finds the changed Props of 1000 entities with 20 Props each, after 10
+ * writes, by comparing every Prop's timestamp and by draining the
+ * ChangeTrackers of the entities that were queued as dirty.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@State( Scope.Thread )
+public class ChangeTrackerBenchmark
+{
+    private static final int ENTITIES = 1000;
+    private static final int FIELDS = 20;
+    private static final int WRITES = 10;
+    
+    private Prop<Integer>[][] entities;
+    private final Queue<ChangeTracker> dirty = new ArrayDeque();
+    private long lastSync;
+    private int next;
+    
+    @Setup
+    public void setup(){
+        Consumer<ChangeTracker> queue = new Consumer<ChangeTracker>(){
+            public void accept( ChangeTracker tracker ) {
+                dirty.add( tracker );
+            }
+        };
+        
+        entities = new Prop[ ENTITIES ][ FIELDS ];
+        for( int e = 0; e < ENTITIES; e++ ){
+            Object parent = new Object();
+            ChangeTracker tracker = new ChangeTracker( parent, queue );
+            for( int f = 0; f < FIELDS; f++ ){
+                entities[ e ][ f ] = new Prop( parent, 0, false );
+                tracker.track( entities[ e ][ f ] );
+            }
+        }
+    }
+    
+    private void write(){
+        for( int i = 0; i < WRITES; i++ ){
+            next = ( next + 7919 ) % ( ENTITIES * FIELDS );
+            entities[ next / FIELDS ][ next % FIELDS ].set( i, ++lastSync );
+        }
+    }
+    
+    @Benchmark
+    public List<Prop<?>> scan(){
+        long since = lastSync;
+        write();
+        List<Prop<?>> changed = new ArrayList();
+        for( Prop<Integer>[] entity : entities ){
+            for( Prop<Integer> prop : entity ){
+                if( prop.timestamp() > since ){
+                    changed.add( prop );
+                }
+            }
+        }
+        return changed;
+    }
+    
+    @Benchmark
+    public List<Prop<?>> tracked(){
+        write();
+        List<Prop<?>> changed = new ArrayList();
+        ChangeTracker tracker;
+        while( ( tracker = dirty.poll() ) != null ){
+            changed.addAll( tracker.drainDirty() );
+        }
+        return changed;
+    }
+}
@@ -0,0 +1,82 @@
+package props.bench;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import props.CoarseClock;
+import props.HybridLogicalClock;
+import props.Prop;
+import props.PropClock;
+
+/**
+ * Reads each clock, and sets a Prop that takes its timestamps from it. The
+ * date clock is the previous default, which allocated a Date for every
+ * write that did not specify a timestamp.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@State( Scope.Thread )
+public class ClockBenchmark
+{
+    @Param( { "date", "system", "coarse", "hlc" } )
+    public String clock;
+    
+    private PropClock source;
+    private Prop<String> prop;
+    private String[] values = { "a", "b" };
+    private int i;
+    
+    @Setup( Level.Trial )
+    public void setup(){
+        if( clock.equals( "date" ) ){
+            source = new PropClock(){
+                public long now(){
+                    return new Date().getTime();
+                }
+            };
+        }
+        else if( clock.equals( "system" ) ){
+            source = PropClock.system();
+        }
+        else if( clock.equals( "coarse" ) ){
+            source = PropClock.coarse( 1, TimeUnit.MILLISECONDS );
+        }
+        else{
+            source = new HybridLogicalClock( 1 );
+        }
+        prop = new Prop( null, null, false );
+        prop.clock( source );
+    }
+    
+    @TearDown( Level.Trial )
+    public void tearDown(){
+        if( source instanceof CoarseClock ){
+            ((CoarseClock)source).close();
+        }
+    }
+    
+    @Benchmark
+    public long now(){
+        return source.now();
+    }
+    
+    @Benchmark
+    public void set(){
+        prop.set( values[ i++ & 1 ] );
+    }
+}
@@ -0,0 +1,118 @@
+package props.bench;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import props.Prop;
+import props.PropDecoder;
+import props.PropEncoder;
+import props.ValueCodecs;
+import props.Version;
+
+/**
+ * Compares encoding and decoding a Prop&lt;String&gt; with PropEncoder and
+ * PropDecoder against Java serialization of the same state. The encoded
+ * sizes are printed during setup.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@State( Scope.Thread )
+public class CodecBenchmark
+{
+    @Param( { "0", "100" } )
+    public int versions;
+    
+    private Prop<String> prop;
+    private Snapshot snapshot;
+    private ByteBuffer buffer;
+    private ByteBuffer encoded;
+    private byte[] serialized;
+    
+    @Setup
+    public void setup() throws Exception {
+        prop = new Prop( null, null, true );
+        long timestamp = 1500000000000L;
+        for( int i = 0; i <= versions; i++ ){
+            timestamp += 1000 + i % 7;
+            prop.set( "value " + i, "user" + ( i % 4 ), timestamp );
+        }
+        snapshot = new Snapshot( prop );
+        
+        buffer = ByteBuffer.allocateDirect( 1 << 20 );
+        encoded = ByteBuffer.allocateDirect( 1 << 20 );
+        new PropEncoder( encoded ).write( prop, ValueCodecs.STRING );
+        encoded.flip();
+        serialized = serialize();
+        
+        System.out.println( "\nPropEncoder: " + encoded.remaining() + " bytes, serialization: " + serialized.length + " bytes" );
+    }
+    
+    @Benchmark
+    public int encode() throws Exception {
+        buffer.clear();
+        new PropEncoder( buffer ).write( prop, ValueCodecs.STRING );
+        return buffer.position();
+    }
+    
+    @Benchmark
+    public Prop<String> decode() throws Exception {
+        return new PropDecoder( encoded.duplicate() ).read( ValueCodecs.STRING );
+    }
+    
+    @Benchmark
+    public byte[] serialize() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream( 4096 );
+        ObjectOutputStream out = new ObjectOutputStream( bytes );
+        out.writeObject( new Snapshot( prop ) );
+        out.close();
+        return bytes.toByteArray();
+    }
+    
+    @Benchmark
+    public Object deserialize() throws Exception {
+        ObjectInputStream in = new ObjectInputStream( new ByteArrayInputStream( serialized ) );
+        return in.readObject();
+    }
+    
+    //the state of a Prop, as it would be written with Java serialization
+    static class Snapshot implements Serializable
+    {
+        private static final long serialVersionUID = 1L;
+        
+        final String uuid;
+        final Object value;
+        final boolean set;
+        final long timestamp;
+        final String modifiedBy;
+        final ArrayList<Version> versions;
+        
+        Snapshot( Prop<?> prop ){
+            uuid = prop.uuid();
+            value = prop.get();
+            set = prop.set();
+            timestamp = prop.timestamp();
+            modifiedBy = prop.modifiedBy();
+            versions = new ArrayList( (List)prop.versions() );
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package props.bench;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import props.ComputedProp;
+import props.Prop;
+import props.PropChangedEvent;
+import props.PropListener;
+
+/**
+ * Writes to the input of a diamond, where b and c are computed from a and
+ * d from b and c, with a listener on d. Compares hand-written listeners
+ * that recompute eagerly, which compute d twice per write, with
+ * ComputedProps.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@State( Scope.Thread )
+public class ComputedPropBenchmark
+{
+    private Prop<Integer> eagerA;
+    private Prop<Integer> computedA;
+    private int value;
+    
+    @Setup
+    public void setup(){
+        eagerA = new Prop( null, 0, false );
+        final Prop<Integer> eagerB = new Prop( null, 0, false );
+        final Prop<Integer> eagerC = new Prop( null, 0, false );
+        final Prop<Integer> eagerD = new Prop( null, 0, false );
+        eagerA.addListener( new PropListener(){
+            public void propertyChanged( PropChangedEvent event ) {
+                eagerB.set( eagerA.get() * 2 );
+                eagerC.set( eagerA.get() + 10 );
+            }
+        } );
+        PropListener recomputeD = new PropListener(){
+            public void propertyChanged( PropChangedEvent event ) {
+                eagerD.set( eagerB.get() + eagerC.get() );
+            }
+        };
+        eagerB.addListener( recomputeD );
+        eagerC.addListener( recomputeD );
+        eagerD.addListener( new NoOpListener() );
+        
+        computedA = new Prop( null, 0, false );
+        final ComputedProp<Integer> b = new ComputedProp( new Supplier<Integer>(){
+            public Integer get() {
+                return computedA.get() * 2;
+            }
+        }, computedA );
+        final ComputedProp<Integer> c = new ComputedProp( new Supplier<Integer>(){
+            public Integer get() {
+                return computedA.get() + 10;
+            }
+        }, computedA );
+        ComputedProp<Integer> d = new ComputedProp( new Supplier<Integer>(){
+            public Integer get() {
+                return b.get() + c.get();
+            }
+        }, b, c );
+        d.addListener( new NoOpListener() );
+    }
+    
+    @Benchmark
+    public void eager(){
+        eagerA.set( value++ & 1023 );
+    }
+    
+    @Benchmark
+    public void computed(){
+        computedA.set( value++ & 1023 );
+    }
+}
@@ -0,0 +1,48 @@
+package props.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import props.Prop;
+
+/**
+ * Measures the cost of creating Prop instances. Run with -prof gc to see
+ * the number of bytes allocated per Prop (gc.alloc.rate.norm).
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@State( Scope.Thread )
+public class ConstructionBenchmark
+{
+    private final Object parent = new Object();
+    
+    @Benchmark
+    public Prop<String> empty(){
+        return new Prop();
+    }
+    
+    @Benchmark
+    public Prop<String> withParentAndValue(){
+        return new Prop( parent, "value" );
+    }
+    
+    @Benchmark
+    public Prop<String> withoutRecordChanges(){
+        return new Prop( parent, "value", false );
+    }
+    
+    @Benchmark
+    public String withUuid(){
+        return new Prop( parent, "value" ).uuid();
+    }
+}
@@ -0,0 +1,96 @@
+package props.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.annotations.Param;
+import props.ConcurrentProp;
+import props.Prop;
+
+/**
+ * Measures a ConcurrentProp shared by several reading and writing threads.
+ * A plain Prop is not thread-safe, so with Prop each thread reads and
+ * writes a property of its own, which gives the cost of the same work
+ * without contention. Version history is disabled so that the
+ * measurement is not dominated by the growth of the history list.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@State( Scope.Group )
+public class ContentionBenchmark
+{
+    @Param( { "Prop", "ConcurrentProp" } )
+    public String type;
+    
+    //the property shared by the group, or null if each thread has its own
+    private Prop<String> shared;
+    
+    @Setup( Level.Iteration )
+    public void setup(){
+        if( "ConcurrentProp".equals( type ) ){
+            shared = new ConcurrentProp( null, "value", false );
+            shared.addListener( new NoOpListener() );
+        }
+        else{
+            shared = null;
+        }
+    }
+    
+    @State( Scope.Thread )
+    public static class Local
+    {
+        private Prop<String> prop;
+        
+        @Setup( Level.Iteration )
+        public void setup(){
+            prop = new Prop( null, "value", false );
+            prop.addListener( new NoOpListener() );
+        }
+    }
+    
+    private Prop<String> prop( Local local ){
+        return shared != null ? shared : local.prop;
+    }
+    
+    @Benchmark
+    @Group( "readHeavy" )
+    @GroupThreads( 3 )
+    public String readHeavyGet( Local local ){
+        return prop( local ).get();
+    }
+    
+    @Benchmark
+    @Group( "readHeavy" )
+    @GroupThreads( 1 )
+    public void readHeavySet( Local local ){
+        prop( local ).set( "value", "writer", 1L );
+    }
+    
+    @Benchmark
+    @Group( "writeHeavy" )
+    @GroupThreads( 1 )
+    public String writeHeavyGet( Local local ){
+        return prop( local ).get();
+    }
+    
+    @Benchmark
+    @Group( "writeHeavy" )
+    @GroupThreads( 3 )
+    public void writeHeavySet( Local local ){
+        prop( local ).set( "value", "writer", 1L );
+    }
+}
@@ -0,0 +1,57 @@
+package props.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import props.EqualityPolicy;
+import props.Prop;
+
+/**
+ * Repeatedly writes an equal value to a Prop with ten listeners and a
+ * full version history, as a polling adapter would, under each equality
+ * policy. Under none every write records a version and notifies the
+ * listeners; under equality and touching they are skipped.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@State( Scope.Thread )
+public class EqualityBenchmark
+{
+    @Param( { "none", "equality", "touching" } )
+    public String policy;
+    
+    private Prop<String> prop;
+    private long timestamp;
+    
+    @Setup( Level.Iteration )
+    public void setup(){
+        prop = new Prop( null, "value", true );
+        if( policy.equals( "equality" ) ){
+            prop.equality( EqualityPolicy.equality() );
+        }
+        else if( policy.equals( "touching" ) ){
+            prop.equality( EqualityPolicy.equality().touching() );
+        }
+        for( int i = 0; i < 10; i++ ){
+            prop.addListener( new NoOpListener() );
+        }
+    }
+    
+    @Benchmark
+    public void set(){
+        prop.set( new String( "value" ), "user", timestamp++ );
+    }
+}
@@ -0,0 +1,49 @@
+package props.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import props.Prop;
+
+/**
+ * Measures the cost of reading a Prop's value and metadata.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@State( Scope.Thread )
+public class GetBenchmark
+{
+    private Prop<String> prop;
+    
+    @Setup
+    public void setup(){
+        prop = new Prop( "value" );
+        prop.set( "value", "user", 1L );
+    }
+    
+    @Benchmark
+    public String get(){
+        return prop.get();
+    }
+    
+    @Benchmark
+    public long timestamp(){
+        return prop.timestamp();
+    }
+    
+    @Benchmark
+    public String modifiedBy(){
+        return prop.modifiedBy();
+    }
+}
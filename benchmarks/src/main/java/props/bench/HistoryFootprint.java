@@ -0,0 +1,101 @@
+package props.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import props.IntProp;
+import props.Prop;
+import props.Version;
+
+/**
+ * Measures the heap used by version histories, comparing a plain
+ * ArrayList of Version objects (how Prop used to store its history) with
+ * Prop and IntProp.
+ * 
+ * Each modifiedBy is a separate String instance drawn from a small set of
+ * user IDs, as happens when they are read from a database or the network.
+ * Values come from the Integer cache so that only the history itself is
+ * measured.
+ * 
+ * Run with: java -cp target/benchmarks.jar props.bench.HistoryFootprint
+ */
+public class HistoryFootprint
+{
+    private static final int PROPS = 1000;
+    private static final int VERSIONS = 1000;
+    private static final int USERS = 100;
+    
+    public static void main( String[] args ) throws Exception {
+        report( "ArrayList<Version>", measureArrayList() );
+        report( "Prop<Integer>", measureProp() );
+        report( "IntProp", measureIntProp() );
+    }
+    
+    private static long measureArrayList(){
+        long before = usedHeap();
+        List<List<Version<Integer>>> histories = new ArrayList();
+        for( int p = 0; p < PROPS; p++ ){
+            List<Version<Integer>> versions = new ArrayList();
+            for( int v = 0; v < VERSIONS; v++ ){
+                versions.add( new Version( v % 100, v, user( v ) ) );
+            }
+            histories.add( versions );
+        }
+        long used = usedHeap() - before;
+        keep( histories );
+        return used;
+    }
+    
+    private static long measureProp(){
+        long before = usedHeap();
+        List<Prop<Integer>> props = new ArrayList();
+        for( int p = 0; p < PROPS; p++ ){
+            Prop<Integer> prop = new Prop();
+            for( int v = 0; v <= VERSIONS; v++ ){
+                prop.set( v % 100, user( v ), v );
+            }
+            props.add( prop );
+        }
+        long used = usedHeap() - before;
+        keep( props );
+        return used;
+    }
+    
+    private static long measureIntProp(){
+        long before = usedHeap();
+        List<IntProp> props = new ArrayList();
+        for( int p = 0; p < PROPS; p++ ){
+            IntProp prop = new IntProp();
+            for( int v = 0; v <= VERSIONS; v++ ){
+                prop.set( v % 100, user( v ), v );
+            }
+            props.add( prop );
+        }
+        long used = usedHeap() - before;
+        keep( props );
+        return used;
+    }
+    
+    private static String user( int version ){
+        return new String( "user-" + ( version % USERS ) );
+    }
+    
+    private static long usedHeap(){
+        Runtime runtime = Runtime.getRuntime();
+        for( int i = 0; i < 5; i++ ){
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+    
+    private static void report( String name, long bytes ){
+        long versions = (long)PROPS * VERSIONS;
+        System.out.printf( "%-20s %,12d bytes  %6.1f bytes/version%n", name, bytes, (double)bytes / versions );
+    }
+    
+    private static volatile Object sink;
+    
+    private static void keep( Object object ){
+        sink = object;
+        sink = null;
+    }
+}
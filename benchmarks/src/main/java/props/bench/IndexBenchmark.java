@@ -0,0 +1,118 @@
+package props.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import props.Prop;
+import props.PropIndex;
+
+/**
+ * Finds orders by status and by total among 100,000 orders. The scan
+ * benchmarks check the value of every property; the index benchmarks ask
+ * a hash index on the status and a sorted index on the total. set and
+ * setIndexed write a property that is in no index and one that is in both
+ * kinds of index, to show what keeping the indexes up to date costs.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@State( Scope.Thread )
+public class IndexBenchmark
+{
+    private static final int ORDERS = 100000;
+    private static final String[] STATUSES = new String[ 1000 ];
+    
+    static{
+        for( int i = 0; i < STATUSES.length; i++ ){
+            STATUSES[ i ] = "status" + i;
+        }
+    }
+    
+    private List<Prop<String>> statuses;
+    private List<Prop<Double>> totals;
+    private PropIndex<String> byStatus;
+    private PropIndex<Double> byTotal;
+    private Prop<Double> plain;
+    private Prop<Double> indexed;
+    private int i;
+    
+    @Setup( Level.Trial )
+    public void setup(){
+        statuses = new ArrayList();
+        totals = new ArrayList();
+        byStatus = PropIndex.hash();
+        byTotal = PropIndex.sorted();
+        for( int i = 0; i < ORDERS; i++ ){
+            Prop<String> status = new Prop( null, STATUSES[ i % STATUSES.length ], false );
+            Prop<Double> total = new Prop( null, (double)i, false );
+            statuses.add( status );
+            totals.add( total );
+            byStatus.add( status );
+            byTotal.add( total );
+        }
+        
+        plain = new Prop( null, 0.0, false );
+        indexed = totals.get( 0 );
+        PropIndex<Double> hash = PropIndex.hash();
+        hash.add( indexed );
+    }
+    
+    @Benchmark
+    public List<Prop<String>> scanEqual(){
+        List<Prop<String>> result = new ArrayList();
+        String status = STATUSES[ 42 ];
+        for( Prop<String> prop : statuses ){
+            if( status.equals( prop.get() ) ){
+                result.add( prop );
+            }
+        }
+        return result;
+    }
+    
+    @Benchmark
+    public List<Prop<? extends String>> indexEqual(){
+        return byStatus.equalTo( STATUSES[ 42 ] );
+    }
+    
+    @Benchmark
+    public List<Prop<Double>> scanRange(){
+        List<Prop<Double>> result = new ArrayList();
+        for( Prop<Double> prop : totals ){
+            Double total = prop.get();
+            if( total != null && total >= 5000.0 && total < 5100.0 ){
+                result.add( prop );
+            }
+        }
+        return result;
+    }
+    
+    @Benchmark
+    public List<Prop<? extends Double>> indexRange(){
+        return byTotal.range( 5000.0, 5100.0 );
+    }
+    
+    @Benchmark
+    public Prop<Double> set(){
+        plain.set( (double)( ORDERS + ( i++ & 1023 ) ) );
+        return plain;
+    }
+    
+    @Benchmark
+    public Prop<Double> setIndexed(){
+        indexed.set( (double)( ORDERS + ( i++ & 1023 ) ) );
+        return indexed;
+    }
+}
@@ -0,0 +1,78 @@
+package props.bench;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import props.Prop;
+import props.PropJournal;
+import props.RetentionPolicy;
+import props.ValueCodecs;
+
+/**
+ * Compares writing a Prop&lt;String&gt; whose history is on the heap with
+ * one attached to a PropJournal, and reading a version back from each.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@State( Scope.Thread )
+public class JournalBenchmark
+{
+    @Param( { "false", "true" } )
+    public boolean journaled;
+    
+    private Path directory;
+    private PropJournal journal;
+    private Prop<String> prop;
+    private int value;
+    
+    @Setup( Level.Iteration )
+    public void setup() throws Exception {
+        directory = Files.createTempDirectory( "journal" );
+        journal = new PropJournal( directory );
+        
+        prop = new Prop( null, "initial", true );
+        prop.retention( RetentionPolicy.lastVersions( 1000 ) );
+        if( journaled ){
+            journal.attach( prop, ValueCodecs.STRING );
+        }
+        for( int i = 0; i < 1000; i++ ){
+            prop.set( "value " + i, "user", i );
+        }
+    }
+    
+    @TearDown( Level.Iteration )
+    public void tearDown() throws Exception {
+        journal.close();
+        for( File file : directory.toFile().listFiles() ){
+            file.delete();
+        }
+        Files.delete( directory );
+    }
+    
+    @Benchmark
+    public void set(){
+        prop.set( "value", "user", value++ );
+    }
+    
+    @Benchmark
+    public String versionAt(){
+        return prop.versionAt( 500 ).value();
+    }
+}
@@ -0,0 +1,136 @@
+package props.bench;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import props.Prop;
+import props.PropMerge;
+import props.RetentionPolicy;
+import props.Version;
+
+/**
+ * Merges replicas of properties. mergeWrite writes to one replica of a
+ * property with a history of the given size and merges it into the other
+ * with Prop.merge(), which appends the new version; sortWrite instead
+ * concatenates and sorts both histories and replays them into a new
+ * property. sync brings two replicas of 1000 properties, ten
+ * of which have been written on one side, back together by comparing
+ * digests; mergeAll merges every property in both directions instead.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@State( Scope.Thread )
+public class MergeBenchmark
+{
+    private static final int PROPS = 1000;
+    
+    @Param( { "100", "10000" } )
+    public int versions;
+    
+    private Prop<Integer> a;
+    private Prop<Integer> b;
+    private List<Prop<?>> local;
+    private List<Prop<?>> remote;
+    private long timestamp;
+    
+    @Setup( Level.Trial )
+    public void setup(){
+        a = new Prop( null, null, true );
+        b = new Prop( null, null, true );
+        a.retention( RetentionPolicy.lastVersions( versions ) );
+        b.retention( RetentionPolicy.lastVersions( versions ) );
+        for( int i = 0; i <= versions; i++ ){
+            a.set( i, "a", i );
+            b.set( i, "a", i );
+        }
+        
+        local = new ArrayList();
+        remote = new ArrayList();
+        for( int i = 0; i < PROPS; i++ ){
+            Prop<Integer> mine = new Prop( null, null, true );
+            Prop<Integer> theirs = new Prop( null, null, true );
+            mine.retention( RetentionPolicy.lastVersions( 8 ) );
+            theirs.retention( RetentionPolicy.lastVersions( 8 ) );
+            mine.set( i, "a", 0 );
+            theirs.set( i, "a", 0 );
+            local.add( mine );
+            remote.add( theirs );
+        }
+        timestamp = versions + 1;
+    }
+    
+    @Benchmark
+    public Prop<Integer> mergeWrite(){
+        b.set( (int)timestamp, "b", timestamp++ );
+        a.merge( b );
+        return a;
+    }
+    
+    @Benchmark
+    public Prop<Integer> sortWrite(){
+        b.set( (int)timestamp, "b", timestamp++ );
+        List<Version<Integer>> all = new ArrayList( a.versions() );
+        all.add( a.asOf( Long.MAX_VALUE ) );
+        all.addAll( b.versions() );
+        all.add( b.asOf( Long.MAX_VALUE ) );
+        all.sort( new Comparator<Version<Integer>>(){
+            public int compare( Version<Integer> x, Version<Integer> y ){
+                return PropMerge.compare( x, y );
+            }
+        } );
+        Prop<Integer> target = new Prop( null, null, true );
+        target.retention( RetentionPolicy.lastVersions( versions ) );
+        Version<Integer> previous = null;
+        for( Version<Integer> version : all ){
+            if( !version.equals( previous ) ){
+                target.set( version.value(), version.modifiedBy(), version.timestamp() );
+            }
+            previous = version;
+        }
+        return target;
+    }
+    
+    @Benchmark
+    public int sync(){
+        write();
+        return PropMerge.sync( local, remote );
+    }
+    
+    @Benchmark
+    public int mergeAll(){
+        write();
+        int merged = 0;
+        for( int i = 0; i < PROPS; i++ ){
+            Prop mine = local.get( i );
+            Prop theirs = remote.get( i );
+            if( mine.merge( theirs ) ){
+                merged++;
+            }
+            theirs.merge( mine );
+        }
+        return merged;
+    }
+    
+    private void write(){
+        timestamp++;
+        for( int i = 0; i < 10; i++ ){
+            ((Prop<Integer>)remote.get( i * 97 )).set( (int)timestamp, "b", timestamp );
+        }
+    }
+}
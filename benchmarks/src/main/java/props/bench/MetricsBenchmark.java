@@ -0,0 +1,52 @@
+package props.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import props.Prop;
+import props.PropMetrics;
+import props.RetentionPolicy;
+
+/**
+ * Measures Prop.set(T, String, long) with one listener and a history of the
+ * last 100 versions, with and without a PropMetrics.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@State( Scope.Thread )
+public class MetricsBenchmark
+{
+    @Param( { "false", "true" } )
+    public boolean metrics;
+    
+    private Prop<String> prop;
+    private long timestamp;
+    
+    @Setup( Level.Iteration )
+    public void setup(){
+        prop = new Prop( null, "value", true );
+        prop.retention( RetentionPolicy.lastVersions( 100 ) );
+        prop.addListener( new NoOpListener() );
+        if( metrics ){
+            prop.metrics( new PropMetrics( 1, TimeUnit.MILLISECONDS ) );
+        }
+    }
+    
+    @Benchmark
+    public void set(){
+        prop.set( "value", "user", timestamp++ );
+    }
+}
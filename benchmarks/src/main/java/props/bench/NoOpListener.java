@@ -0,0 +1,21 @@
+package props.bench;
+
+import props.PropChangedEvent;
+import props.PropListener;
+
+/**
+ * A listener that does as little as possible, so that benchmarks measure
+ * the cost of dispatch rather than the cost of the listener.
+ */
+public class NoOpListener implements PropListener
+{
+    private Object last;
+    
+    public void propertyChanged( PropChangedEvent event ) {
+        last = event.value();
+    }
+    
+    public Object last(){
+        return last;
+    }
+}
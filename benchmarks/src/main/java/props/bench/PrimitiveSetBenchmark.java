@@ -0,0 +1,73 @@
+package props.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import props.IntProp;
+import props.IntPropListener;
+import props.Prop;
+import props.RetentionPolicy;
+
+/**
+ * Compares writing an int through Prop&lt;Integer&gt; and IntProp, with a
+ * bounded version history and one listener of the appropriate kind.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@State( Scope.Thread )
+public class PrimitiveSetBenchmark
+{
+    @Param( { "true", "false" } )
+    public boolean recordChanges;
+    
+    private Prop<Integer> boxed;
+    private IntProp primitive;
+    private int value;
+    
+    @Setup( Level.Iteration )
+    public void setup(){
+        boxed = new Prop( null, 0, recordChanges );
+        boxed.retention( RetentionPolicy.lastVersions( 100 ) );
+        boxed.addListener( new NoOpListener() );
+        
+        primitive = new IntProp( null, 0, recordChanges );
+        primitive.retention( RetentionPolicy.lastVersions( 100 ) );
+        primitive.addListener( new IntPropListener(){
+            public void propertyChanged( IntProp property, int value, int previousValue ) {
+            }
+        } );
+    }
+    
+    @Benchmark
+    public void boxed(){
+        boxed.set( value++ * 1000, "user", 1L );
+    }
+    
+    @Benchmark
+    public void primitive(){
+        primitive.set( value++ * 1000, "user", 1L );
+    }
+    
+    @Benchmark
+    public int boxedGet(){
+        return boxed.get();
+    }
+    
+    @Benchmark
+    public int primitiveGet(){
+        return primitive.getAsInt();
+    }
+}
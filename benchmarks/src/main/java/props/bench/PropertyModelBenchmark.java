@@ -0,0 +1,86 @@
+package props.bench;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import props.Prop;
+import props.PropertyModel;
+
+/**
+ * Compares setting the parent of every Prop field of an object by
+ * reflecting over its class, through a PropertyModel, and by hand.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@State( Scope.Thread )
+public class PropertyModelBenchmark
+{
+    private Entity entity;
+    private PropertyModel<Entity> model;
+    
+    @Setup
+    public void setup(){
+        entity = new Entity();
+        model = PropertyModel.of( Entity.class );
+    }
+    
+    @Benchmark
+    public void reflection() throws Exception {
+        for( Field field : entity.getClass().getDeclaredFields() ){
+            if( Prop.class.isAssignableFrom( field.getType() ) ){
+                field.setAccessible( true );
+                ((Prop)field.get( entity )).parent( entity );
+            }
+        }
+    }
+    
+    @Benchmark
+    public void model(){
+        PropertyModel.of( Entity.class ).wireParent( entity );
+    }
+    
+    @Benchmark
+    public void cachedModel(){
+        model.wireParent( entity );
+    }
+    
+    @Benchmark
+    public void direct(){
+        entity.wireParent();
+    }
+    
+    public static class Entity
+    {
+        public final Prop<String> a = new Prop();
+        public final Prop<String> b = new Prop();
+        public final Prop<String> c = new Prop();
+        public final Prop<String> d = new Prop();
+        public final Prop<Integer> e = new Prop();
+        public final Prop<Integer> f = new Prop();
+        public final Prop<Integer> g = new Prop();
+        public final Prop<Integer> h = new Prop();
+        
+        void wireParent(){
+            a.parent( this );
+            b.parent( this );
+            c.parent( this );
+            d.parent( this );
+            e.parent( this );
+            f.parent( this );
+            g.parent( this );
+            h.parent( this );
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package props.bench;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import props.BackpressurePolicy;
+import props.Prop;
+import props.PropChangedEvent;
+
+/**
+ * Measures Prop.set(T, String, long) with one PropPublisher subscriber that
+ * has stopped requesting events, so its queue is always full. With
+ * COALESCE the subscriber only ever holds the latest event, and with
+ * DROP_OLDEST it holds the last capacity events; either way set() does not
+ * wait for the subscriber and the queue does not grow.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@State( Scope.Thread )
+public class PublisherBenchmark
+{
+    @Param( { "COALESCE", "DROP_OLDEST" } )
+    public BackpressurePolicy policy;
+    
+    private ExecutorService executor;
+    private Prop<String> prop;
+    private long timestamp;
+    
+    @Setup
+    public void setup(){
+        executor = Executors.newSingleThreadExecutor();
+        prop = new Prop( null, "value", false );
+        prop.publisher( executor, 16, policy ).subscribe( new Flow.Subscriber<PropChangedEvent<String>>(){
+            public void onSubscribe( Flow.Subscription subscription ){
+                subscription.request( 16 );
+            }
+            
+            public void onNext( PropChangedEvent<String> event ){
+            }
+            
+            public void onError( Throwable error ){
+            }
+            
+            public void onComplete(){
+            }
+        } );
+    }
+    
+    @TearDown
+    public void tearDown(){
+        executor.shutdownNow();
+    }
+    
+    @Benchmark
+    public void set(){
+        prop.set( "value", "user", timestamp++ );
+    }
+}
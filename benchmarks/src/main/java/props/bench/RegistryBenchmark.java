@@ -0,0 +1,130 @@
+package props.bench;
+
+import java.lang.ref.WeakReference;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import props.Prop;
+import props.PropRegistry;
+
+/**
+ * Looks up 100,000 registered properties by uuid, one at a time and 1000
+ * at a time, with a PropRegistry and with a ConcurrentHashMap of
+ * WeakReferences keyed by the uuid String, as the sync and audit layers
+ * did. registryGetBits looks up uuids that arrive as two longs, as they do
+ * in binary protocols. Four threads read at once.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@Threads( 4 )
+@State( Scope.Benchmark )
+public class RegistryBenchmark
+{
+    private static final int PROPS = 100000;
+    private static final int BATCH = 1000;
+    
+    private Prop<?>[] props;
+    private String[] uuids;
+    private long[] bits;
+    private PropRegistry registry;
+    private ConcurrentHashMap<String, WeakReference<Prop<?>>> map;
+    
+    @State( Scope.Thread )
+    public static class Cursor
+    {
+        int next;
+    }
+    
+    @Setup( Level.Trial )
+    public void setup(){
+        props = new Prop<?>[ PROPS ];
+        uuids = new String[ PROPS ];
+        bits = new long[ PROPS * 2 ];
+        registry = new PropRegistry();
+        map = new ConcurrentHashMap();
+        for( int i = 0; i < PROPS; i++ ){
+            props[ i ] = new Prop( null, i, false );
+            //uuids as they would arrive from the network, not the props' own Strings
+            uuids[ i ] = new String( props[ i ].uuid() );
+            UUID uuid = UUID.fromString( uuids[ i ] );
+            bits[ i * 2 ] = uuid.getMostSignificantBits();
+            bits[ i * 2 + 1 ] = uuid.getLeastSignificantBits();
+            registry.register( props[ i ] );
+            map.put( props[ i ].uuid(), new WeakReference( props[ i ] ) );
+        }
+    }
+    
+    @Benchmark
+    public Prop<?> registryGet( Cursor cursor ){
+        return registry.get( uuids[ next( cursor ) ] );
+    }
+    
+    @Benchmark
+    public Prop<?> registryGetBits( Cursor cursor ){
+        int index = next( cursor );
+        return registry.get( bits[ index * 2 ], bits[ index * 2 + 1 ] );
+    }
+    
+    @Benchmark
+    public Prop<?> mapGet( Cursor cursor ){
+        WeakReference<Prop<?>> reference = map.get( uuids[ next( cursor ) ] );
+        return reference == null ? null : reference.get();
+    }
+    
+    @Benchmark
+    public Prop<?>[] registryResolve( Cursor cursor ){
+        String[] batch = batch( cursor );
+        return registry.resolve( batch );
+    }
+    
+    @Benchmark
+    public Prop<?>[] registryResolveBits( Cursor cursor ){
+        long[] batch = new long[ BATCH * 2 ];
+        for( int i = 0; i < BATCH; i++ ){
+            int index = next( cursor );
+            batch[ i * 2 ] = bits[ index * 2 ];
+            batch[ i * 2 + 1 ] = bits[ index * 2 + 1 ];
+        }
+        return registry.resolve( batch );
+    }
+    
+    @Benchmark
+    public Prop<?>[] mapResolve( Cursor cursor ){
+        String[] batch = batch( cursor );
+        Prop<?>[] result = new Prop<?>[ batch.length ];
+        for( int i = 0; i < batch.length; i++ ){
+            WeakReference<Prop<?>> reference = map.get( batch[ i ] );
+            result[ i ] = reference == null ? null : reference.get();
+        }
+        return result;
+    }
+    
+    private static int next( Cursor cursor ){
+        int index = cursor.next;
+        cursor.next = index + 7919 < PROPS ? index + 7919 : index + 7919 - PROPS;
+        return index;
+    }
+    
+    private String[] batch( Cursor cursor ){
+        String[] batch = new String[ BATCH ];
+        for( int i = 0; i < BATCH; i++ ){
+            batch[ i ] = uuids[ next( cursor ) ];
+        }
+        return batch;
+    }
+}
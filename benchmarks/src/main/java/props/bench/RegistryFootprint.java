@@ -0,0 +1,72 @@
+package props.bench;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import props.Prop;
+import props.PropRegistry;
+
+/**
+ * Measures the heap used to index properties by uuid, comparing a
+ * ConcurrentHashMap of WeakReferences keyed by the uuid String with a
+ * PropRegistry. The properties themselves are created first, so only the
+ * index is measured. The map's keys are the properties' own uuid Strings,
+ * which are not counted, so this is the smallest the map can be.
+ * 
+ * Run with: java -cp target/benchmarks.jar props.bench.RegistryFootprint
+ */
+public class RegistryFootprint
+{
+    private static final int PROPS = 1000000;
+    
+    public static void main( String[] args ) throws Exception {
+        Prop<?>[] props = new Prop<?>[ PROPS ];
+        for( int i = 0; i < PROPS; i++ ){
+            props[ i ] = new Prop( null, null, false );
+            props[ i ].uuid();
+        }
+        report( "ConcurrentHashMap", measureMap( props ) );
+        report( "PropRegistry", measureRegistry( props ) );
+        keep( props );
+    }
+    
+    private static long measureMap( Prop<?>[] props ){
+        long before = usedHeap();
+        ConcurrentHashMap<String, WeakReference<Prop<?>>> map = new ConcurrentHashMap();
+        for( Prop<?> prop : props ){
+            map.put( prop.uuid(), new WeakReference( prop ) );
+        }
+        long used = usedHeap() - before;
+        keep( map );
+        return used;
+    }
+    
+    private static long measureRegistry( Prop<?>[] props ){
+        long before = usedHeap();
+        PropRegistry registry = new PropRegistry();
+        for( Prop<?> prop : props ){
+            registry.register( prop );
+        }
+        long used = usedHeap() - before;
+        keep( registry );
+        return used;
+    }
+    
+    private static long usedHeap(){
+        Runtime runtime = Runtime.getRuntime();
+        for( int i = 0; i < 5; i++ ){
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+    
+    private static void report( String name, long bytes ){
+        System.out.printf( "%-20s %,12d bytes  %6.1f bytes/prop%n", name, bytes, (double)bytes / PROPS );
+    }
+    
+    private static volatile Object sink;
+    
+    private static void keep( Object object ){
+        sink = object;
+        sink = null;
+    }
+}
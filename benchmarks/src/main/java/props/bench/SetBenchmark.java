@@ -0,0 +1,69 @@
+package props.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import props.Prop;
+import props.RetentionPolicy;
+
+/**
+ * Measures the cost of Prop.set(T, String, long) with varying numbers of
+ * listeners, with and without version history. The Prop is recreated for
+ * each iteration, and every RESET writes within an iteration, so that the
+ * history never grows past RESET versions and the benchmark measures
+ * writes rather than the growth of an ever larger history. A lastVersions
+ * of 0 keeps every version since the last reset.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@State( Scope.Thread )
+public class SetBenchmark
+{
+    private static final int RESET = 1 << 16;
+    
+    @Param( { "0", "1", "10", "100" } )
+    public int listeners;
+    
+    @Param( { "true", "false" } )
+    public boolean recordChanges;
+    
+    @Param( { "0", "100" } )
+    public int lastVersions;
+    
+    private Prop<String> prop;
+    private long timestamp;
+    private int writes;
+    
+    @Setup( Level.Iteration )
+    public void setup(){
+        writes = 0;
+        prop = new Prop( null, "value", recordChanges );
+        if( lastVersions > 0 ){
+            prop.retention( RetentionPolicy.lastVersions( lastVersions ) );
+        }
+        for( int i = 0; i < listeners; i++ ){
+            prop.addListener( new NoOpListener() );
+        }
+    }
+    
+    @Benchmark
+    public void set(){
+        if( ++writes == RESET ){
+            setup();
+        }
+        prop.set( "value", "user", timestamp++ );
+    }
+}
@@ -0,0 +1,105 @@
+package props.bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import props.ConcurrentProp;
+import props.EntitySnapshot;
+import props.Prop;
+import props.PropertyModel;
+import props.RetentionPolicy;
+import props.Version;
+
+/**
+ * Reads an entity of eight props, each with 10,000 versions, as of a point
+ * in the middle of its history: by copying and scanning versions(), as
+ * callers had to before, and with PropertyModel.snapshotAsOf(). Also
+ * captures the current state of the entity, from scratch and against an
+ * earlier snapshot when one prop has changed.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@State( Scope.Thread )
+public class SnapshotBenchmark
+{
+    private static final int VERSIONS = 10000;
+    
+    private final PropertyModel<Entity> model = PropertyModel.of( Entity.class );
+    private Entity entity;
+    private EntitySnapshot<Entity> previous;
+    private long timestamp;
+    
+    @Setup
+    public void setup(){
+        entity = new Entity();
+        //captureShared keeps writing to a
+        entity.a.retention( RetentionPolicy.lastVersions( VERSIONS ) );
+        for( int i = 0; i <= VERSIONS; i++ ){
+            for( Prop<?> prop : model.props( entity ) ){
+                ((Prop<Integer>)prop).set( i, "user", i * 10L );
+            }
+        }
+        timestamp = VERSIONS * 5L + 3;
+        previous = model.capture( entity );
+    }
+    
+    @Benchmark
+    public Object linearScan(){
+        Object[] values = new Object[ model.size() ];
+        List<Prop<?>> props = model.props( entity );
+        for( int i = 0; i < values.length; i++ ){
+            Prop<?> prop = props.get( i );
+            if( prop.timestamp() <= timestamp ){
+                values[ i ] = prop.get();
+                continue;
+            }
+            for( Version<?> version : prop.versions() ){
+                if( version.timestamp() > timestamp ){
+                    break;
+                }
+                values[ i ] = version.value();
+            }
+        }
+        return values;
+    }
+    
+    @Benchmark
+    public EntitySnapshot<Entity> snapshotAsOf(){
+        return model.snapshotAsOf( entity, timestamp );
+    }
+    
+    @Benchmark
+    public EntitySnapshot<Entity> capture(){
+        return model.capture( entity );
+    }
+    
+    @Benchmark
+    public EntitySnapshot<Entity> captureShared(){
+        entity.a.set( entity.a.get() );
+        return model.capture( entity, previous );
+    }
+    
+    public static class Entity
+    {
+        final Prop<Integer> a = new Prop( null, null, true );
+        final Prop<Integer> b = new Prop( null, null, true );
+        final Prop<Integer> c = new Prop( null, null, true );
+        final Prop<Integer> d = new Prop( null, null, true );
+        final ConcurrentProp<Integer> e = new ConcurrentProp( null, null, true );
+        final ConcurrentProp<Integer> f = new ConcurrentProp( null, null, true );
+        final ConcurrentProp<Integer> g = new ConcurrentProp( null, null, true );
+        final ConcurrentProp<Integer> h = new ConcurrentProp( null, null, true );
+    }
+}
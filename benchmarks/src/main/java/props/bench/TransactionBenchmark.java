@@ -0,0 +1,94 @@
+package props.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import props.ConcurrentProp;
+import props.PropTransaction;
+
+/**
+ * Transfers between random accounts from four threads. Each transfer reads
+ * the balances of two accounts and writes both balances and the last
+ * transaction of the source account. transaction does it in a
+ * PropTransaction; locked does it while holding one lock shared by every
+ * account, the coarse synchronized block callers use without
+ * transactions. With 2 accounts every transfer touches the same
+ * properties; with 1024, most transfers touch disjoint properties.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@Threads( 4 )
+@State( Scope.Benchmark )
+public class TransactionBenchmark
+{
+    @Param( { "2", "1024" } )
+    public int accounts;
+    
+    private ConcurrentProp<Long>[] balances;
+    private ConcurrentProp<Long>[] lastTransactions;
+    private final Object lock = new Object();
+    
+    @Setup( Level.Trial )
+    public void setup(){
+        balances = new ConcurrentProp[ accounts ];
+        lastTransactions = new ConcurrentProp[ accounts ];
+        for( int i = 0; i < accounts; i++ ){
+            balances[ i ] = new ConcurrentProp( null, 1000000L, false );
+            lastTransactions[ i ] = new ConcurrentProp( null, 0L, false );
+        }
+    }
+    
+    @State( Scope.Thread )
+    public static class Transfer
+    {
+        private final Random random = new Random();
+        private int from;
+        private int to;
+        private long id;
+        
+        void next( int accounts ){
+            from = random.nextInt( accounts );
+            to = ( from + 1 + random.nextInt( accounts - 1 ) ) % accounts;
+            id++;
+        }
+    }
+    
+    @Benchmark
+    public void transaction( final Transfer transfer ){
+        transfer.next( accounts );
+        PropTransaction.run( new Consumer<PropTransaction>(){
+            @Override
+            public void accept( PropTransaction tx ){
+                tx.set( balances[ transfer.from ], tx.get( balances[ transfer.from ] ) - 1 );
+                tx.set( balances[ transfer.to ], tx.get( balances[ transfer.to ] ) + 1 );
+                tx.set( lastTransactions[ transfer.from ], transfer.id );
+            }
+        } );
+    }
+    
+    @Benchmark
+    public void locked( Transfer transfer ){
+        transfer.next( accounts );
+        synchronized( lock ){
+            balances[ transfer.from ].set( balances[ transfer.from ].get() - 1 );
+            balances[ transfer.to ].set( balances[ transfer.to ].get() + 1 );
+            lastTransactions[ transfer.from ].set( transfer.id );
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package props.bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import props.Prop;
+import props.Version;
+
+/**
+ * Measures the cost of reading the version history of a Prop with a
+ * short, medium and long history. Version timestamps are 0, 1, 2...
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@State( Scope.Thread )
+public class VersionsBenchmark
+{
+    @Param( { "10", "1000", "100000" } )
+    public int history;
+    
+    private Prop<Integer> prop;
+    
+    @Setup
+    public void setup(){
+        prop = new Prop();
+        for( int i = 0; i <= history; i++ ){
+            prop.set( i, "user", i );
+        }
+    }
+    
+    @Benchmark
+    public List<Version<Integer>> versions(){
+        return prop.versions();
+    }
+    
+    @Benchmark
+    public Version<Integer> latest20(){
+        List<Version<Integer>> latest = prop.latestVersions( 20 );
+        return latest.get( latest.size() - 1 );
+    }
+    
+    @Benchmark
+    public int versionsBetween(){
+        return prop.versionsBetween( history / 2, history / 2 + 20 ).size();
+    }
+}
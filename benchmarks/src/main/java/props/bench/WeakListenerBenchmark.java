@@ -0,0 +1,56 @@
+package props.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import props.Prop;
+import props.PropListener;
+
+/**
+ * Measures Prop.set(T, String, long) with ten listeners added strongly or
+ * weakly. The benchmark keeps the weak listeners reachable, so this is the
+ * cost of dispatching through the weak references.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@State( Scope.Thread )
+public class WeakListenerBenchmark
+{
+    @Param( { "true", "false" } )
+    public boolean weak;
+    
+    private final PropListener[] listeners = new PropListener[ 10 ];
+    private Prop<String> prop;
+    private long timestamp;
+    
+    @Setup
+    public void setup(){
+        prop = new Prop( null, "value", false );
+        for( int i = 0; i < listeners.length; i++ ){
+            listeners[i] = new NoOpListener();
+            if( weak ){
+                prop.addWeakListener( listeners[i] );
+            }
+            else{
+                prop.addListener( listeners[i] );
+            }
+        }
+    }
+    
+    @Benchmark
+    public void set(){
+        prop.set( "value", "user", timestamp++ );
+    }
+}
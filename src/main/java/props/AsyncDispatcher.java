@@ -0,0 +1,139 @@
+package props;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Delivers PropChangedEvents to listeners on an Executor, rather than on the
+ * thread that changed the property.
+ * 
+ * ```java
+ * AsyncDispatcher dispatcher = new AsyncDispatcher( executor, 1000, BackpressurePolicy.BLOCK );
+ * pojo.name.dispatcher( dispatcher );
+ * ```
+ * 
+ * Any Executor can be used, including a thread pool or a virtual thread per
+ * task executor. A dispatcher uses at most one of the executor's threads at
+ * a time, and delivers events in the order in which they were queued, so
+ * every property that uses the dispatcher has its events delivered in
+ * order. Properties that do not need to be delivered in order relative to
+ * each other can use separate dispatchers that share an executor.
+ * 
+ * Listeners are isolated from each other: an exception thrown by one
+ * listener is passed to the error handler, and the remaining listeners are
+ * still notified. By default the error handler is the uncaught exception
+ * handler of the executor's thread.
+ * 
+ * The BackpressurePolicy decides what happens when a property changes
+ * while capacity events are queued. With BLOCK or COALESCE the writer
+ * waits, but only once it holds no lock: a ConcurrentProp queues its
+ * event under its lock and waits after releasing it, so a listener may
+ * read or write the property while a writer is waiting. The queue can
+ * therefore hold one event beyond capacity for each waiting writer. A
+ * listener that changes a property using the same dispatcher never
+ * waits, since the dispatcher is waiting for that listener to return.
+ */
+public class AsyncDispatcher
+{
+    private final Thread.UncaughtExceptionHandler errorHandler;
+    private final EventQueue<EventQueue.Pending> queue;
+    
+    /**
+     * Creates a new AsyncDispatcher.
+     * @param executor the executor on which listeners are notified
+     * @param capacity the maximum number of undelivered events
+     * @param policy what to do when a property changes while the queue is full
+     */
+    public AsyncDispatcher( Executor executor, int capacity, BackpressurePolicy policy ){
+        this( executor, capacity, policy, null );
+    }
+    
+    /**
+     * Creates a new AsyncDispatcher.
+     * @param executor the executor on which listeners are notified
+     * @param capacity the maximum number of undelivered events
+     * @param policy what to do when a property changes while the queue is full
+     * @param errorHandler receives exceptions thrown by listeners. If this is
+     *                     null, the executor thread's uncaught exception
+     *                     handler is used.
+     */
+    public AsyncDispatcher( Executor executor, int capacity, BackpressurePolicy policy, Thread.UncaughtExceptionHandler errorHandler ){
+        this.errorHandler = errorHandler;
+        this.queue = new EventQueue<EventQueue.Pending>( executor, capacity, policy ){
+            boolean ready(){
+                return !isEmpty();
+            }
+            
+            EventQueue.Pending take(){
+                return poll();
+            }
+            
+            void deliver( EventQueue.Pending pending ){
+                AsyncDispatcher.this.deliver( pending.event, pending.listeners );
+            }
+        };
+    }
+    
+    /**
+     * Returns the number of events that have been discarded because the
+     * queue was full. Coalesced events are not counted.
+     * @return the number of discarded events
+     */
+    public long dropped(){
+        return queue.dropped();
+    }
+    
+    /**
+     * Returns the number of events waiting to be delivered.
+     * @return the number of undelivered events
+     */
+    public int pending(){
+        return queue.size();
+    }
+    
+    /**
+     * Waits until every queued event has been delivered.
+     * @param timeout the maximum time to wait
+     * @param unit the unit of the timeout
+     * @return true if every event was delivered, false if the timeout elapsed
+     * @throws InterruptedException if the thread was interrupted while waiting
+     */
+    public boolean awaitIdle( long timeout, TimeUnit unit ) throws InterruptedException {
+        return queue.awaitIdle( unit.toNanos( timeout ) );
+    }
+    
+    /**
+     * Queues an event for delivery to the given listeners.
+     * @param event the event
+     * @param listeners the listeners, in the order they should be notified
+     */
+    void dispatch( PropChangedEvent event, PropListener[] listeners ){
+        queue.enqueue( event, listeners );
+    }
+    
+    /**
+     * Waits until the queue is back within its capacity, if the policy
+     * makes writers wait. Must not be called while holding a property's
+     * lock.
+     */
+    void throttle(){
+        queue.throttle();
+    }
+    
+    private void deliver( PropChangedEvent event, PropListener[] listeners ){
+        PropMetrics metrics = event.property().metrics();
+        for( PropListener listener : listeners ){
+            try{
+                if( metrics != null ){
+                    metrics.deliver( listener, event );
+                }
+                else{
+                    listener.propertyChanged( event );
+                }
+            }
+            catch( Throwable t ){
+                EventQueue.report( errorHandler, t );
+            }
+        }
+    }
+}
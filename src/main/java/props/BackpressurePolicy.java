@@ -0,0 +1,30 @@
+package props;
+
+/**
+ * Determines what an AsyncDispatcher does when a property changes while its
+ * queue of undelivered events is full.
+ */
+public enum BackpressurePolicy
+{
+    /**
+     * The thread that changed the property queues its event and then, once
+     * it has released any property lock, waits until the queue is back
+     * within its capacity. No events are lost.
+     */
+    BLOCK,
+    
+    /**
+     * The oldest undelivered event is discarded to make room.
+     */
+    DROP_OLDEST,
+    
+    /**
+     * The new event is merged with the undelivered event for the same
+     * property, if there is one, so that listeners receive a single event
+     * with the earlier previous value and the latest value. If there is no
+     * undelivered event for the same property, the event is queued and the
+     * thread that changed the property waits as for BLOCK. No final values
+     * are lost.
+     */
+    COALESCE;
+}
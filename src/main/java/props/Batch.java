@@ -0,0 +1,179 @@
+package props;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Defers change notifications until the end of a group of changes.
+ * 
+ * While a batch is open, changing a property on the same thread updates
+ * its value and history as usual, but its listeners are not notified.
+ * When the batch is closed, each property that changed notifies its
+ * listeners once, with the value it had before the batch as the previous
+ * value and its final value as the value.
+ * 
+ * ```java
+ * try( Batch batch = Prop.batch() ){
+ *     pojo.name.set( "Sue" );
+ *     pojo.age.set( 36 );
+ * }
+ * ```
+ * 
+ * A property whose final value is the same as its value before the
+ * batch, under its equality policy, does not notify its listeners at all.
+ * A listener that throws does not keep the other properties from
+ * notifying theirs; the first exception is rethrown by close() once every
+ * notification has been sent, with the others added as suppressed.
+ * 
+ * Batches may be nested; notifications are sent when the outermost batch
+ * is closed. ComputedProps that depend on the changed properties and have
+ * listeners are recomputed once, when the batch is closed. A batch only
+ * affects changes made by the thread that opened it, and must be closed
+ * by that thread.
+ */
+public final class Batch implements AutoCloseable
+{
+    private static final ThreadLocal<Batch> CURRENT = new ThreadLocal();
+    //the number of open batches on all threads, so that set() only looks
+    //for a batch when there might be one
+    private static final AtomicInteger OPEN = new AtomicInteger();
+    
+    private final Thread owner = Thread.currentThread();
+    private final Map<Prop, Deferred> deferred = new IdentityHashMap();
+    private final List<Deferred> order = new ArrayList();
+    private int depth = 1;
+    
+    private Batch(){
+    }
+    
+    /**
+     * Opens a batch on the current thread, or joins the batch that is
+     * already open.
+     * @return the batch, which must be closed
+     */
+    static Batch open(){
+        Batch batch = CURRENT.get();
+        if( batch != null ){
+            batch.depth++;
+            return batch;
+        }
+        
+        batch = new Batch();
+        CURRENT.set( batch );
+        OPEN.incrementAndGet();
+        return batch;
+    }
+    
+    /**
+     * Returns true if a batch is open on the current thread.
+     * @return true if a batch is open
+     */
+    static boolean isOpen(){
+        return OPEN.get() != 0 && CURRENT.get() != null;
+    }
+    
+    /**
+     * Records a change to be notified when the batch that is open on the
+     * current thread is closed.
+     * @return true if the change was deferred, false if there is no batch open
+     */
+    static <T> boolean defer( Prop<T> prop, T oldValue, T newValue, long timestamp ){
+        if( OPEN.get() == 0 ){
+            return false;
+        }
+        
+        Batch batch = CURRENT.get();
+        if( batch == null ){
+            return false;
+        }
+        
+        Deferred change = batch.deferred.get( prop );
+        if( change == null ){
+            change = new Deferred( prop, oldValue );
+            batch.deferred.put( prop, change );
+            batch.order.add( change );
+        }
+        change.newValue = newValue;
+        change.timestamp = timestamp;
+        return true;
+    }
+    
+    /**
+     * Closes this batch. If this is the outermost batch, every property that
+     * changed while it was open notifies its listeners, in the order in
+     * which the properties were first changed.
+     * @throws RuntimeException the first exception thrown by a listener, after
+     *         every property has notified its listeners
+     */
+    @Override
+    public void close(){
+        if( Thread.currentThread() != owner ){
+            throw new IllegalStateException( "A batch must be closed by the thread that opened it" );
+        }
+        if( depth == 0 ){
+            return;
+        }
+        if( --depth > 0 ){
+            return;
+        }
+        
+        CURRENT.remove();
+        OPEN.decrementAndGet();
+        
+        Throwable failure = null;
+        for( Deferred change : order ){
+            //a property that was changed and changed back has nothing to report
+            if( change.prop.unchanged( change.oldValue, change.newValue ) ){
+                continue;
+            }
+            try{
+                change.prop.notifyListeners( change.oldValue, change.newValue, change.timestamp );
+            }
+            catch( RuntimeException | Error ex ){
+                failure = fail( failure, ex );
+            }
+        }
+        //observed ComputedProps are recomputed once for the whole batch
+        try{
+            ComputedProp.propagate();
+        }
+        catch( RuntimeException | Error ex ){
+            failure = fail( failure, ex );
+        }
+        
+        if( failure instanceof Error ){
+            throw (Error)failure;
+        }
+        if( failure != null ){
+            throw (RuntimeException)failure;
+        }
+    }
+    
+    //keeps the first exception, suppressing the later ones
+    private static Throwable fail( Throwable failure, Throwable ex ){
+        if( failure == null ){
+            return ex;
+        }
+        if( failure != ex ){
+            failure.addSuppressed( ex );
+        }
+        return failure;
+    }
+    
+    private static final class Deferred
+    {
+        private final Prop prop;
+        private final Object oldValue;
+        private Object newValue;
+        //the timestamp of the last change
+        private long timestamp;
+        
+        Deferred( Prop prop, Object oldValue ){
+            this.prop = prop;
+            this.oldValue = oldValue;
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package props;
+
+import java.util.List;
+
+/**
+ * A Prop that holds a boolean without boxing it.
+ * 
+ * getAsBoolean() and set(boolean) read and write the value directly, the version
+ * history stores values in primitive arrays, and BooleanPropListeners receive
+ * the new and previous values as booleans. Nothing is allocated when the value
+ * is read or written, unless PropListeners are registered; they receive
+ * boxed values in a PropChangedEvent as usual.
+ * 
+ * BooleanPropListeners are always notified on the thread that changes the
+ * property, before any PropListeners, and are not deferred by a Batch or
+ * an AsyncDispatcher.
+ */
+public class BooleanProp extends Prop<Boolean>
+{
+    private static final BooleanPropListener[] NO_LISTENERS = new BooleanPropListener[0];
+    
+    private boolean value;
+    private transient volatile BooleanPropListener[] booleanListeners = NO_LISTENERS;
+    
+    /**
+     * Creates a new BooleanProp with no initial value or parent, and record changes enabled.
+     */
+    public BooleanProp(){
+        this( null, null, true );
+    }
+    
+    /**
+     * Creates a new BooleanProp with an initial value, no parent, and record changes enabled.
+     * @param value the initial value
+     */
+    public BooleanProp( boolean value ){
+        this( null, value );
+    }
+    
+    /**
+     * Creates a new BooleanProp with a parent, an initial value, and record changes enabled.
+     * @param parent the parent object
+     * @param value the initial value
+     */
+    public BooleanProp( Object parent, boolean value ){
+        this( parent, Boolean.valueOf( value ), true );
+    }
+    
+    /**
+     * Constructs a new BooleanProp instance.
+     * @param parent the parent object of this property.
+     * @param value the initial value of the property. If this is null, set() 
+     *              will return false
+     * @param recordChanges if true, this property will make a historical
+     *                      record of modifications, including values,
+     *                      the user making the change, and the timestamp.
+     */
+    public BooleanProp( Object parent, Boolean value, boolean recordChanges ){
+        this( parent, value, recordChanges, -1, null );
+    }
+    
+    /**
+     * Constructs a new BooleanProp instance.
+     * @param parent the parent object of this property.
+     * @param value the initial value of the property. If this is null, set() 
+     *              will return false
+     * @param recordChanges if true, this property will make a historical
+     *                      record of modifications, including values,
+     *                      the user making the change, and the timestamp.
+     * @param timestamp the timestamp to record for this version
+     * @param modifiedBy the modifying user's ID to record for this version
+     */
+    public BooleanProp( Object parent, Boolean value, boolean recordChanges, long timestamp, String modifiedBy ){
+        super( parent, null, recordChanges, timestamp, modifiedBy );
+        if( value != null ){
+            this.value = value;
+            update( modifiedBy, timestamp );
+        }
+    }
+    
+    /**
+     * Returns the current value of the property, or false if the property
+     * has not been set.
+     * @return the current value of the property.
+     */
+    public boolean getAsBoolean(){
+        return value;
+    }
+    
+    /**
+     * Returns the current value of the property, boxed, or null if the
+     * property has not been set. Use getAsBoolean() to avoid boxing.
+     * @return the current value of the property.
+     */
+    @Override
+    public Boolean get(){
+        return set() ? Boolean.valueOf( value ) : null;
+    }
+    
+    /**
+     * Sets the value of the property. This will cause set() to return true,
+     * update timestamp(), notify any listeners, and record a version if 
+     * record changes is enabled.
+     * @param value The new value of the property.
+     */
+    public void set( boolean value ){
+        set( value, null );
+    }
+    
+    /**
+     * Sets the value of the property. The value of modifiedBy will be recorded
+     * in the historical version that is created, if record changes is enabled.
+     * @param value the new value of the property
+     * @param modifiedBy an identifier for the person who made this modification
+     */
+    public void set( boolean value, String modifiedBy ){
+        set( value, modifiedBy, now() );
+    }
+    
+    /**
+     * Sets the value of the property. The value of timestamp will be
+     * recorded, rather than the current time.
+     * @param value the new value of the property
+     * @param timestamp the timestamp of the modification
+     */
+    public void set( boolean value, long timestamp ){
+        set( value, null, timestamp );
+    }
+    
+    /**
+     * Sets the value of the property. This will cause set() to return true,
+     * update timestamp(), notify any listeners, and record a version if 
+     * record changes is enabled.
+     * @param newValue the new value of the property
+     * @param modifiedBy an identifier for the person who made this modification
+     * @param timestamp the timestamp of the modification
+     */
+    public void set( boolean newValue, String modifiedBy, long timestamp ){
+        if( unchangedBits( value ? 1 : 0, newValue ? 1 : 0 ) ){
+            if( equality().touches() ){
+                update( modifiedBy, timestamp );
+            }
+            suppressed();
+            return;
+        }
+        
+        if( recordChanges() && set() ){
+            recordBits( value ? 1 : 0, timestamp(), modifiedBy() );
+        }
+        
+        boolean oldValue = value;
+        value = newValue;
+        update( modifiedBy, timestamp );
+        writtenBits( newValue ? 1 : 0, timestamp, modifiedBy );
+        invalidateDependents();
+        
+        for( BooleanPropListener listener : booleanListeners ){
+            listener.propertyChanged( this, newValue, oldValue );
+        }
+        if( hasListeners() ){
+            changed( oldValue, newValue, timestamp );
+        }
+    }
+    
+    /**
+     * Sets the value of the property from a boxed value.
+     * @param newValue the new value of the property, which must not be null
+     * @param modifiedBy an identifier for the person who made this modification
+     * @param timestamp the timestamp of the modification
+     */
+    @Override
+    public void set( Boolean newValue, String modifiedBy, long timestamp ){
+        if( newValue == null ){
+            throw new IllegalArgumentException( "BooleanProp values must not be null" );
+        }
+        set( newValue.booleanValue(), modifiedBy, timestamp );
+    }
+    
+    /**
+     * Returns the value of one of the previous versions of this property,
+     * without boxing it.
+     * @param index the index of the version, where 0 is the oldest
+     * @return the value of the version at the given index
+     * @throws IndexOutOfBoundsException if there is no version at the index
+     */
+    public boolean valueAt( int index ){
+        if( index < 0 || index >= versionCount() ){
+            throw new IndexOutOfBoundsException( "Index: " + index + ", Size: " + versionCount() );
+        }
+        long bits = history().bits( index );
+        return bits != 0;
+    }
+    
+    /**
+     * Adds a listener that receives the values of this property as booleans.
+     * @param listener the listener
+     */
+    public void addListener( BooleanPropListener listener ){
+        booleanListeners = Listeners.add( booleanListeners, listener );
+    }
+    
+    /**
+     * Removes a listener that receives the values of this property as booleans.
+     * @param listener the listener
+     */
+    public void removeListener( BooleanPropListener listener ){
+        booleanListeners = Listeners.remove( booleanListeners, listener );
+    }
+    
+    /**
+     * Removes all listeners from this property, including BooleanPropListeners.
+     */
+    @Override
+    public void removeListeners(){
+        super.removeListeners();
+        booleanListeners = NO_LISTENERS;
+    }
+    
+    @Override
+    void restore( Boolean value, boolean set, long timestamp, String modifiedBy, List<Version<Boolean>> history ){
+        super.restore( null, set, timestamp, modifiedBy, history );
+        this.value = value == null ? false : value;
+    }
+    
+    @Override
+    void replace( Boolean value, long timestamp, String modifiedBy ){
+        this.value = value == null ? false : value;
+        update( modifiedBy, timestamp );
+    }
+    
+    @Override
+    void merged( Boolean oldValue, Boolean newValue, long timestamp ){
+        boolean previous = oldValue == null ? false : oldValue;
+        for( BooleanPropListener listener : booleanListeners ){
+            listener.propertyChanged( this, value, previous );
+        }
+        if( hasListeners() ){
+            changed( oldValue, newValue, timestamp );
+        }
+    }
+    
+    @Override
+    VersionHistory<Boolean> newHistory( RetentionPolicy retention ){
+        return new RingHistory( retention, PrimitiveType.BOOLEAN );
+    }
+}
@@ -0,0 +1,6 @@
+package props;
+
+public interface BooleanPropListener
+{
+    public void propertyChanged( BooleanProp property, boolean value, boolean previousValue );
+}
@@ -0,0 +1,406 @@
+package props;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+/**
+ * Tracks which Props of an object have been written, so that only the
+ * changed Props need to be sent when the object is replicated.
+ * 
+ * Each tracked Prop gets an index, in the order in which it was tracked.
+ * Writing to a tracked Prop sets its bit in a dirty bitset and stamps it
+ * with the tracker's sequence number, without notifying listeners or
+ * allocating. The dirty Props can be drained, or listed since a watermark,
+ * and a delta holding only the dirty Props can be written to a ByteBuffer
+ * and applied to a replica of the object with the same tracked Props.
+ * 
+ * ```java
+ * ChangeTracker tracker = new ChangeTracker( pojo );
+ * tracker.track( pojo.name, ValueCodecs.STRING );
+ * tracker.track( pojo.age, ValueCodecs.INTEGER );
+ * ...
+ * tracker.writeDelta( buffer );
+ * ...
+ * replicaTracker.applyDelta( buffer );
+ * ```
+ * 
+ * An onDirty callback can be given, which is called when the tracker goes
+ * from clean to dirty, so that a replicator can queue the objects that
+ * have changed rather than checking every object.
+ * 
+ * Props are tracked by a single tracker, and must be tracked before they
+ * are written from other threads. Marking, draining and writing deltas
+ * are thread-safe, and the Props already tracked may be written while
+ * another is being tracked. A drain or dirtySince() that runs while a
+ * Prop is being tracked may miss a concurrent write, which is then
+ * reported by the next one.
+ */
+public class ChangeTracker
+{
+    static final byte DELTA_FORMAT = 1;
+    static final int FLAG_VALUE = 1;
+    static final int FLAG_MODIFIED_BY = 2;
+    
+    private final Object parent;
+    private final Consumer<ChangeTracker> onDirty;
+    private final AtomicBoolean pending = new AtomicBoolean();
+    private final AtomicLong sequence = new AtomicLong();
+    
+    //replaced, never resized, when Props are tracked
+    private volatile Prop<?>[] props = new Prop<?>[ 0 ];
+    private volatile ValueCodec<?>[] codecs = new ValueCodec<?>[ 0 ];
+    private volatile AtomicLongArray dirty = new AtomicLongArray( 1 );
+    private volatile AtomicLongArray changedAt = new AtomicLongArray( 0 );
+    
+    /**
+     * Creates a tracker for the Props of an object.
+     * @param parent the object whose Props are tracked
+     */
+    public ChangeTracker( Object parent ){
+        this( parent, null );
+    }
+    
+    /**
+     * Creates a tracker for the Props of an object.
+     * @param parent the object whose Props are tracked
+     * @param onDirty called with this tracker when a Prop is written while
+     *                no Props are dirty, on the writing thread. May be null.
+     */
+    public ChangeTracker( Object parent, Consumer<ChangeTracker> onDirty ){
+        this.parent = parent;
+        this.onDirty = onDirty;
+    }
+    
+    /**
+     * Returns the object whose Props are tracked.
+     * @return the parent
+     */
+    public Object parent(){
+        return parent;
+    }
+    
+    /**
+     * Tracks a Prop, which cannot be included in deltas.
+     * @param prop the Prop, whose parent must be this tracker's parent
+     * @return the index of the Prop
+     * @throws IllegalArgumentException if the Prop has a different parent
+     * @throws IllegalStateException if the Prop is already tracked
+     */
+    public int track( Prop<?> prop ){
+        return add( prop, null );
+    }
+    
+    /**
+     * Tracks a Prop, which can be included in deltas.
+     * @param prop the Prop, whose parent must be this tracker's parent
+     * @param codec the codec for the Prop's values
+     * @return the index of the Prop
+     * @throws IllegalArgumentException if the Prop has a different parent
+     * @throws IllegalStateException if the Prop is already tracked
+     */
+    public <T> int track( Prop<T> prop, ValueCodec<T> codec ){
+        return add( prop, codec );
+    }
+    
+    /**
+     * Returns the number of tracked Props.
+     * @return the number of tracked Props
+     */
+    public int size(){
+        return props.length;
+    }
+    
+    /**
+     * Returns a tracked Prop.
+     * @param index the index of the Prop
+     * @return the Prop
+     */
+    public Prop<?> prop( int index ){
+        return props[ index ];
+    }
+    
+    /**
+     * Returns true if any tracked Prop has been written since the dirty
+     * Props were last drained.
+     * @return true if any Prop is dirty
+     */
+    public boolean isDirty(){
+        AtomicLongArray dirty = this.dirty;
+        for( int i = 0; i < dirty.length(); i++ ){
+            if( dirty.get( i ) != 0 ){
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Returns true if a tracked Prop has been written since the dirty Props
+     * were last drained.
+     * @param index the index of the Prop
+     * @return true if the Prop is dirty
+     */
+    public boolean isDirty( int index ){
+        return ( dirty.get( index >>> 6 ) & ( 1L << index ) ) != 0;
+    }
+    
+    /**
+     * Returns the current watermark, which can be passed to dirtySince()
+     * to find the Props written after this call.
+     * @return the watermark
+     */
+    public long watermark(){
+        return sequence.get();
+    }
+    
+    /**
+     * Returns the Props that have been written since a watermark was taken,
+     * whether or not they have been drained since.
+     * @param watermark a watermark returned by watermark()
+     * @return the Props written since the watermark, in index order
+     */
+    public List<Prop<?>> dirtySince( long watermark ){
+        Prop<?>[] props = this.props;
+        AtomicLongArray changedAt = this.changedAt;
+        List<Prop<?>> changed = new ArrayList();
+        for( int i = 0; i < props.length; i++ ){
+            if( changedAt.get( i ) > watermark ){
+                changed.add( props[ i ] );
+            }
+        }
+        return changed;
+    }
+    
+    /**
+     * Returns the dirty Props and marks them clean.
+     * @return the Props written since the last drain, in index order
+     */
+    public List<Prop<?>> drainDirty(){
+        List<Prop<?>> drained = new ArrayList();
+        pending.set( false );
+        
+        Prop<?>[] props = this.props;
+        AtomicLongArray dirty = this.dirty;
+        for( int word = 0; word < dirty.length(); word++ ){
+            long bits = dirty.getAndSet( word, 0 );
+            while( bits != 0 ){
+                drained.add( props[ word << 6 | Long.numberOfTrailingZeros( bits ) ] );
+                bits &= bits - 1;
+            }
+        }
+        return drained;
+    }
+    
+    /**
+     * Drains the dirty Props and writes their current values, timestamps
+     * and modifiedBys to a buffer. If the buffer is too small, nothing is
+     * written and the Props stay dirty.
+     * @param buffer the buffer to write to
+     * @return the number of Props written
+     * @throws IllegalStateException if a dirty Prop was tracked without a codec
+     * @throws BufferOverflowException if the buffer is too small
+     */
+    public int writeDelta( ByteBuffer buffer ){
+        List<Prop<?>> drained = drainDirty();
+        int start = buffer.position();
+        try{
+            buffer.put( DELTA_FORMAT );
+            Encoding.writeVarLong( buffer, drained.size() );
+            for( Prop<?> prop : drained ){
+                write( buffer, prop );
+            }
+            return drained.size();
+        }
+        catch( RuntimeException ex ){
+            buffer.position( start );
+            for( Prop<?> prop : drained ){
+                prop.tracked().mark();
+            }
+            throw ex;
+        }
+    }
+    
+    /**
+     * Applies a delta written by the tracker of another copy of the parent,
+     * by setting each Prop in the delta. Listeners are notified and versions
+     * recorded as for any other write, and the Props become dirty in this
+     * tracker.
+     * @param buffer the buffer to read the delta from
+     * @return the number of Props set
+     * @throws IllegalArgumentException if the delta is malformed, or does
+     *                                  not match the tracked Props
+     */
+    public int applyDelta( ByteBuffer buffer ){
+        try{
+            byte format = buffer.get();
+            if( format != DELTA_FORMAT ){
+                throw new IllegalArgumentException( "Unsupported delta format: " + format );
+            }
+            
+            int count = Encoding.readVarInt( buffer );
+            for( int i = 0; i < count; i++ ){
+                read( buffer );
+            }
+            return count;
+        }
+        catch( BufferUnderflowException | IllegalStateException ex ){
+            throw new IllegalArgumentException( "Malformed delta", ex );
+        }
+    }
+    
+    private <T> void write( ByteBuffer buffer, Prop<T> prop ){
+        int index = prop.tracked().index;
+        ValueCodec<T> codec = (ValueCodec<T>)codecs[ index ];
+        if( codec == null ){
+            throw new IllegalStateException( "Prop " + index + " was tracked without a codec" );
+        }
+        
+        Version<T> current = prop instanceof ConcurrentProp ? ((ConcurrentProp<T>)prop).current() :
+                             new Version( prop.get(), prop.timestamp(), prop.modifiedBy() );
+        T value = current.value();
+        String modifiedBy = current.modifiedBy();
+        
+        Encoding.writeVarLong( buffer, index );
+        buffer.put( (byte)( ( value != null ? FLAG_VALUE : 0 ) | ( modifiedBy != null ? FLAG_MODIFIED_BY : 0 ) ) );
+        Encoding.writeSignedVarLong( buffer, current.timestamp() );
+        if( modifiedBy != null ){
+            Encoding.writeString( buffer, modifiedBy );
+        }
+        if( value != null ){
+            int size = codec.size( value );
+            Encoding.writeVarLong( buffer, size );
+            if( buffer.remaining() < size ){
+                throw new BufferOverflowException();
+            }
+            codec.write( value, buffer );
+        }
+    }
+    
+    private void read( ByteBuffer buffer ){
+        int index = Encoding.readVarInt( buffer );
+        if( index >= props.length || codecs[ index ] == null ){
+            throw new IllegalArgumentException( "Delta refers to an untracked Prop: " + index );
+        }
+        Prop<Object> prop = (Prop<Object>)props[ index ];
+        ValueCodec<Object> codec = (ValueCodec<Object>)codecs[ index ];
+        
+        int flags = buffer.get();
+        long timestamp = Encoding.readSignedVarLong( buffer );
+        String modifiedBy = ( flags & FLAG_MODIFIED_BY ) != 0 ? Encoding.readString( buffer ) : null;
+        Object value = null;
+        if( ( flags & FLAG_VALUE ) != 0 ){
+            int size = Encoding.readVarInt( buffer );
+            int end = buffer.position() + size;
+            value = codec.read( buffer, size );
+            buffer.position( end );
+        }
+        prop.set( value, modifiedBy, timestamp );
+    }
+    
+    private synchronized int add( Prop<?> prop, ValueCodec<?> codec ){
+        if( prop.parent() != parent ){
+            throw new IllegalArgumentException( "The Prop's parent is not this tracker's parent" );
+        }
+        if( prop.tracked() != null ){
+            throw new IllegalStateException( "The Prop is already tracked" );
+        }
+        
+        int index = props.length;
+        Prop<?>[] props = Arrays.copyOf( this.props, index + 1 );
+        props[ index ] = prop;
+        ValueCodec<?>[] codecs = Arrays.copyOf( this.codecs, index + 1 );
+        codecs[ index ] = codec;
+        
+        //the grown arrays are published before the old ones are copied into
+        //them. A mark() that still finds an old array has written to it
+        //before it is copied; one that finds it replaced writes again to
+        //the new one, which the copy only adds to
+        AtomicLongArray previous = this.changedAt;
+        AtomicLongArray changedAt = new AtomicLongArray( index + 1 );
+        this.changedAt = changedAt;
+        for( int i = 0; i < index; i++ ){
+            raise( changedAt, i, previous.get( i ) );
+        }
+        if( ( index >>> 6 ) >= dirty.length() ){
+            previous = this.dirty;
+            AtomicLongArray dirty = new AtomicLongArray( previous.length() * 2 );
+            this.dirty = dirty;
+            for( int i = 0; i < previous.length(); i++ ){
+                or( dirty, i, previous.get( i ) );
+            }
+        }
+        
+        this.codecs = codecs;
+        this.props = props;
+        prop.tracked( new Slot( this, index ) );
+        return index;
+    }
+    
+    private void mark( int index ){
+        long stamp = sequence.incrementAndGet();
+        AtomicLongArray changedAt = this.changedAt;
+        changedAt.set( index, stamp );
+        //repeated if add() replaced the array meanwhile
+        while( changedAt != this.changedAt ){
+            changedAt = this.changedAt;
+            raise( changedAt, index, stamp );
+        }
+        
+        AtomicLongArray dirty = this.dirty;
+        boolean marked = or( dirty, index >>> 6, 1L << index );
+        while( dirty != this.dirty ){
+            dirty = this.dirty;
+            marked |= or( dirty, index >>> 6, 1L << index );
+        }
+        if( marked && onDirty != null && !pending.get() && pending.compareAndSet( false, true ) ){
+            onDirty.accept( this );
+        }
+    }
+    
+    //sets bits in a word, returning true if any of them was clear
+    private static boolean or( AtomicLongArray array, int word, long bits ){
+        long current = array.get( word );
+        while( ( current & bits ) != bits ){
+            if( array.compareAndSet( word, current, current | bits ) ){
+                return true;
+            }
+            current = array.get( word );
+        }
+        return false;
+    }
+    
+    //raises a stamp to at least the given value
+    private static void raise( AtomicLongArray array, int index, long stamp ){
+        long current = array.get( index );
+        while( current < stamp && !array.compareAndSet( index, current, stamp ) ){
+            current = array.get( index );
+        }
+    }
+    
+    /**
+     * The position of a Prop in its tracker, which the Prop keeps so that
+     * writes can mark it dirty.
+     */
+    static final class Slot
+    {
+        final ChangeTracker tracker;
+        final int index;
+        
+        Slot( ChangeTracker tracker, int index ){
+            this.tracker = tracker;
+            this.index = index;
+        }
+        
+        void mark(){
+            tracker.mark( index );
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package props;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A listener that passes on at most one event per time window to another
+ * listener.
+ * 
+ * The first change starts a window. Further changes during the window are
+ * merged, and at the end of the window the delegate receives a single event
+ * with the value from before the first change as the previous value, and
+ * the latest value. The delegate is notified on the scheduler's thread.
+ * 
+ * ```java
+ * prop.addListener( new CoalescingListener( renderer, scheduler, 100, TimeUnit.MILLISECONDS ) );
+ * ```
+ * 
+ * A CoalescingListener should only be added to a single property.
+ */
+public class CoalescingListener implements PropListener
+{
+    private final PropListener delegate;
+    private final ScheduledExecutorService scheduler;
+    private final long window;
+    private final TimeUnit unit;
+    
+    private PropChangedEvent pending;
+    
+    private final Runnable flush = new Runnable(){
+        public void run(){
+            flush();
+        }
+    };
+    
+    /**
+     * Creates a new CoalescingListener.
+     * @param delegate the listener that receives the merged events
+     * @param scheduler the scheduler used to end each window
+     * @param window the length of the window
+     * @param unit the unit of the window
+     */
+    public CoalescingListener( PropListener delegate, ScheduledExecutorService scheduler, long window, TimeUnit unit ){
+        if( delegate == null || scheduler == null || unit == null ){
+            throw new IllegalArgumentException( "Delegate, scheduler and unit must not be null" );
+        }
+        
+        this.delegate = delegate;
+        this.scheduler = scheduler;
+        this.window = window;
+        this.unit = unit;
+    }
+    
+    public void propertyChanged( PropChangedEvent event ) {
+        synchronized( this ){
+            if( pending != null ){
+                pending = new PropChangedEvent( event.property(), event.value(), pending.previousValue(), event.timestamp(), false );
+                return;
+            }
+            pending = event;
+        }
+        scheduler.schedule( flush, window, unit );
+    }
+    
+    private void flush(){
+        PropChangedEvent event;
+        synchronized( this ){
+            event = pending;
+            pending = null;
+        }
+        
+        if( event != null ){
+            delegate.propertyChanged( event );
+        }
+    }
+}
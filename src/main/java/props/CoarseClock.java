@@ -0,0 +1,81 @@
+package props;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A PropClock that returns a time cached in a volatile field, which a
+ * daemon ticker thread refreshes from System.currentTimeMillis() at a fixed
+ * resolution. Reading it costs a single volatile read, which suits writers
+ * that set properties millions of times a second, at the price of
+ * timestamps that lag the wall clock by up to the resolution.
+ * 
+ * A CoarseClock can be shared by any number of properties. Its ticker runs
+ * until close() is called; a closed clock keeps returning the last time it
+ * read.
+ */
+public class CoarseClock implements PropClock, AutoCloseable
+{
+    private final long resolutionNanos;
+    private final Thread ticker;
+    private volatile long time = System.currentTimeMillis();
+    private volatile boolean closed;
+    
+    /**
+     * Creates a new CoarseClock and starts its ticker.
+     * @param resolution how often the cached time is updated
+     * @param unit the unit of the resolution
+     */
+    public CoarseClock( long resolution, TimeUnit unit ){
+        if( resolution < 1 ){
+            throw new IllegalArgumentException( "Resolution must be positive: " + resolution );
+        }
+        this.resolutionNanos = unit.toNanos( resolution );
+        
+        ticker = new Thread( "CoarseClock ticker" ){
+            public void run(){
+                tick();
+            }
+        };
+        ticker.setDaemon( true );
+        ticker.start();
+    }
+    
+    public long now(){
+        return time;
+    }
+    
+    /**
+     * Returns the resolution of this clock.
+     * @param unit the unit to return the resolution in
+     * @return the resolution
+     */
+    public long resolution( TimeUnit unit ){
+        return unit.convert( resolutionNanos, TimeUnit.NANOSECONDS );
+    }
+    
+    /**
+     * Stops the ticker.
+     */
+    public void close(){
+        closed = true;
+        ticker.interrupt();
+    }
+    
+    private void tick(){
+        while( !closed ){
+            time = System.currentTimeMillis();
+            try{
+                TimeUnit.NANOSECONDS.sleep( resolutionNanos );
+            }
+            catch( InterruptedException ex ){
+                //closed
+                return;
+            }
+        }
+    }
+    
+    @Override
+    public String toString(){
+        return "CoarseClock[" + resolutionNanos + "ns]";
+    }
+}
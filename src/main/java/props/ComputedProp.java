@@ -0,0 +1,262 @@
+package props;
+
+import java.util.Comparator;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.function.Supplier;
+
+/**
+ * A property whose value is computed from other properties.
+ * 
+ * ```java
+ * ComputedProp<String> fullName = new ComputedProp( 
+ *     () -> first.get() + " " + last.get(), first, last );
+ * ```
+ * 
+ * Writing to a dependency only marks the ComputedProp, and any ComputedProps
+ * that depend on it, as dirty. A dirty ComputedProp is recomputed when it is
+ * read, so a ComputedProp that nobody reads is never computed, and reading
+ * it repeatedly without changes computes it once.
+ * 
+ * A ComputedProp with listeners, or in a PropIndex, is recomputed as
+ * soon as a dependency changes, so that its listeners can be notified
+ * and its indexes updated, and only notifies them if the computed value
+ * changed. Dirty ComputedProps are recomputed in order of their depth
+ * in the dependency graph, after all the marking for a write is done,
+ * so each is recomputed at most once per write and never sees a mix of
+ * old and new inputs; when one ComputedProp is shared by two others
+ * that a third depends on, it is computed once. Inside a Batch,
+ * recomputation waits until the batch is closed, so that changes to
+ * several dependencies cause one recomputation.
+ * 
+ * A ComputedProp's value cannot be set directly. It records changes like
+ * any other Prop when its value changes, with a null modifiedBy, and can
+ * itself be a dependency of other ComputedProps. The function must only
+ * read properties that were given as dependencies.
+ * 
+ * Like Prop, a ComputedProp is not thread-safe. Dependencies that are
+ * ConcurrentProps invalidate it on the thread that wrote them, once
+ * their lock is released. Dependencies keep a reference to the ComputedProp
+ * until dispose() is called.
+ * @param <T> The class of the computed value.
+ */
+public class ComputedProp<T> extends Prop<T>
+{
+    private static final ThreadLocal<Propagation> PROPAGATION = new ThreadLocal<Propagation>(){
+        @Override
+        protected Propagation initialValue(){
+            return new Propagation();
+        }
+    };
+    
+    private final Supplier<T> function;
+    private final Prop<?>[] dependencies;
+    //one more than the deepest dependency; plain Props have rank 0
+    private final int rank;
+    private boolean dirty = true;
+    private boolean queued;
+    
+    /**
+     * Creates a ComputedProp with no parent, which does not record changes.
+     * @param function computes the value from the dependencies
+     * @param dependencies the properties the function reads
+     */
+    public ComputedProp( Supplier<T> function, Prop<?>... dependencies ){
+        this( null, false, function, dependencies );
+    }
+    
+    /**
+     * Creates a ComputedProp.
+     * @param parent the object this property belongs to
+     * @param recordChanges true if a version should be recorded each time
+     *                      the computed value changes
+     * @param function computes the value from the dependencies
+     * @param dependencies the properties the function reads
+     */
+    public ComputedProp( Object parent, boolean recordChanges, Supplier<T> function, Prop<?>... dependencies ){
+        super( parent, null, recordChanges );
+        if( function == null ){
+            throw new IllegalArgumentException( "Function must not be null" );
+        }
+        this.function = function;
+        this.dependencies = dependencies.clone();
+        
+        int deepest = 0;
+        for( Prop<?> dependency : this.dependencies ){
+            if( dependency instanceof ComputedProp ){
+                deepest = Math.max( deepest, ((ComputedProp<?>)dependency).rank );
+            }
+        }
+        this.rank = deepest + 1;
+        
+        for( Prop<?> dependency : this.dependencies ){
+            dependency.addDependent( this );
+        }
+    }
+    
+    /**
+     * Returns the current value, recomputing it if a dependency has changed.
+     * @return the current value
+     */
+    @Override
+    public T get(){
+        refresh();
+        return super.get();
+    }
+    
+    /**
+     * Returns the time the computed value last changed, recomputing it if a
+     * dependency has changed.
+     * @return the timestamp of the current value
+     */
+    @Override
+    public long timestamp(){
+        refresh();
+        return super.timestamp();
+    }
+    
+    /**
+     * Returns true once the value has been computed.
+     * @return true if the value has been computed
+     */
+    @Override
+    public boolean set(){
+        refresh();
+        return super.set();
+    }
+    
+    /**
+     * Always throws, as the value is computed.
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public void set( T newValue, String modifiedBy, long timestamp ){
+        throw new UnsupportedOperationException( "The value of a ComputedProp cannot be set" );
+    }
+    
+    /**
+     * Adds a listener, computing the value first if necessary, so that the
+     * listener is notified of every later change.
+     * @param listener the listener
+     */
+    @Override
+    public void addListener( PropListener listener ){
+        refresh();
+        super.addListener( listener );
+    }
+    
+    /**
+     * Returns true if a dependency has changed since the value was last
+     * computed.
+     * @return true if the value needs to be recomputed
+     */
+    public boolean isDirty(){
+        return dirty;
+    }
+    
+    /**
+     * Stops this property from depending on its dependencies, so that it can
+     * be garbage collected. It is not recomputed again.
+     */
+    public void dispose(){
+        for( Prop<?> dependency : dependencies ){
+            dependency.removeDependent( this );
+        }
+    }
+    
+    //recomputes the value if it is dirty, refreshing the dependencies first
+    private void refresh(){
+        if( !dirty ){
+            return;
+        }
+        
+        for( Prop<?> dependency : dependencies ){
+            if( dependency instanceof ComputedProp ){
+                ((ComputedProp<?>)dependency).refresh();
+            }
+        }
+        T value = function.get();
+        dirty = false;
+        
+        if( !super.set() || !Objects.equals( value, super.get() ) ){
+            super.set( value, null, now() );
+        }
+    }
+    
+    //marks this and everything depending on it dirty, and queues the
+    //ComputedProps that have listeners or indexes to be recomputed
+    private void invalidate( Propagation propagation ){
+        if( dirty ){
+            return;
+        }
+        dirty = true;
+        
+        if( ( hasListeners() || indexed() ) && !queued ){
+            queued = true;
+            propagation.queue.add( this );
+        }
+        ComputedProp<?>[] dependents = dependents();
+        if( dependents != null ){
+            for( ComputedProp<?> dependent : dependents ){
+                dependent.invalidate( propagation );
+            }
+        }
+    }
+    
+    /**
+     * Marks ComputedProps dirty after one of their dependencies was written,
+     * and recomputes those with listeners unless a batch is open.
+     * @param dependents the ComputedProps that depend on the written property
+     */
+    static void invalidate( ComputedProp<?>[] dependents ){
+        Propagation propagation = PROPAGATION.get();
+        for( ComputedProp<?> dependent : dependents ){
+            dependent.invalidate( propagation );
+        }
+        if( !Batch.isOpen() ){
+            propagation.run();
+        }
+    }
+    
+    /**
+     * Recomputes the dirty ComputedProps with listeners on the current
+     * thread.
+     */
+    static void propagate(){
+        PROPAGATION.get().run();
+    }
+    
+    /**
+     * The ComputedProps with listeners waiting to be recomputed on a thread,
+     * shallowest first.
+     */
+    private static final class Propagation
+    {
+        private final PriorityQueue<ComputedProp<?>> queue = new PriorityQueue( 11, new Comparator<ComputedProp<?>>(){
+            public int compare( ComputedProp<?> a, ComputedProp<?> b ){
+                return Integer.compare( a.rank, b.rank );
+            }
+        } );
+        private boolean running;
+        
+        void run(){
+            //a listener that writes to a dependency adds to the queue that
+            //is already being run
+            if( running ){
+                return;
+            }
+            
+            running = true;
+            try{
+                ComputedProp<?> next;
+                while( ( next = queue.poll() ) != null ){
+                    next.queued = false;
+                    next.refresh();
+                }
+            }
+            finally{
+                running = false;
+            }
+        }
+    }
+}
@@ -0,0 +1,554 @@
+package props;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+/**
+ * A Prop that can be shared between threads.
+ * 
+ * The value, timestamp and modifiedBy of the property are published together
+ * as a single immutable Version, so a reader never sees the new value with
+ * the old metadata. current() returns that Version; reading it never locks.
+ * get(), timestamp() and modifiedBy() each read the latest published Version,
+ * so use current() when more than one of them must agree.
+ * 
+ * Writes are atomic: set(), compareAndSet() and getAndUpdate() replace the
+ * current Version, record the previous one in the history and update
+ * set(), all under a single lock. Writes that do not specify a timestamp
+ * read the clock under the same lock, so with a HybridLogicalClock the
+ * timestamps of the versions increase in the order of the writes.
+ * Listeners are notified after the lock is released, so a listener may
+ * safely write to this or any other property. ComputedProps that depend
+ * on the property are invalidated, and those with listeners recomputed,
+ * after the lock is released as well. When two threads write at the same
+ * time, each listener receives both events, each with the correct
+ * previous value, but not necessarily in the order in which the writes
+ * happened. If the property has an AsyncDispatcher, events are queued
+ * before the lock is released and are always delivered in the order of
+ * the writes; with BLOCK or COALESCE, the writer waits for room in the
+ * queue only after releasing the lock.
+ * 
+ * A PropTransaction writes several ConcurrentProps atomically, holding
+ * the locks of all of the properties it read or wrote while it commits.
+ * 
+ * Adding and removing listeners, and reading the version history, are safe
+ * while other threads are writing. Because another thread may record a
+ * version at any time, the history views (versionsView(), latestVersions(),
+ * versionsBetween() and versionStream()) return copies rather than views.
+ * 
+ * @param <T> The class this Prop will wrap.
+ */
+public class ConcurrentProp<T> extends Prop<T>
+{
+    private final Object lock = new Object();
+    private volatile Current<T> current;
+    
+    /**
+     * Creates a new ConcurrentProp with no initial value or parent, and record changes enabled.
+     */
+    public ConcurrentProp(){
+        this( null );
+    }
+    
+    /**
+     * Creates a new ConcurrentProp with an initial value, no parent, and record changes enabled.
+     * @param value the initial value. If this is null, set() will return false
+     */
+    public ConcurrentProp( T value ){
+        this( null, value );
+    }
+    
+    /**
+     * Creates a new ConcurrentProp with a parent, an initial value, and record changes enabled.
+     * @param parent the parent object
+     * @param value the initial value. If this is null, set() will return false
+     */
+    public ConcurrentProp( Object parent, T value ){
+        this( parent, value, true );
+    }
+    
+    /**
+     * Constructs a new ConcurrentProp instance.
+     * @param parent the parent object of this property.
+     * @param value the initial value of the property. If this is null, set() 
+     *              will return false
+     * @param recordChanges if true, this property will make a historical
+     *                      record of modifications, including values,
+     *                      the user making the change, and the timestamp.
+     */
+    public ConcurrentProp( Object parent, T value, boolean recordChanges ){
+        this( parent, value, recordChanges, -1, null );
+    }
+    
+    /**
+     * Constructs a new ConcurrentProp instance.
+     * @param parent the parent object of this property.
+     * @param value the initial value of the property. If this is null, set() 
+     *              will return false
+     * @param recordChanges if true, this property will make a historical
+     *                      record of modifications, including values,
+     *                      the user making the change, and the timestamp.
+     * @param timestamp the timestamp to record for this version
+     * @param modifiedBy the modifying user's ID to record for this version
+     */
+    public ConcurrentProp( Object parent, T value, boolean recordChanges, long timestamp, String modifiedBy ){
+        //the initial value is published here rather than by Prop's constructor,
+        //which would call set() before this object is initialized
+        super( parent, null, recordChanges, timestamp, modifiedBy );
+        current = new Current( value, timestamp, modifiedBy, value != null );
+        
+        //generate the identifier now, rather than racing to generate it later
+        uuid();
+    }
+    
+    /**
+     * Returns the current value of the property together with its timestamp
+     * and modifiedBy, as a single consistent Version. Never locks.
+     * @return the current version of the property.
+     */
+    public Version<T> current(){
+        return current;
+    }
+    
+    @Override
+    public T get(){
+        return current.value();
+    }
+    
+    @Override
+    public long timestamp(){
+        return current.timestamp();
+    }
+    
+    @Override
+    public String modifiedBy(){
+        return current.modifiedBy();
+    }
+    
+    @Override
+    public boolean set(){
+        return current.set;
+    }
+    
+    @Override
+    public void set( T newValue, String modifiedBy ){
+        write( newValue, modifiedBy, true, 0 );
+    }
+    
+    @Override
+    public void set( T newValue, String modifiedBy, long timestamp ){
+        write( newValue, modifiedBy, false, timestamp );
+    }
+    
+    //takes the timestamp from the clock under the lock if stamp is true
+    private void write( T newValue, String modifiedBy, boolean stamp, long timestamp ){
+        Current<T> previous;
+        boolean queued;
+        boolean change;
+        synchronized( lock ){
+            if( stamp ){
+                timestamp = now();
+            }
+            previous = current;
+            change = publish( previous, newValue, modifiedBy, timestamp );
+            queued = queue( previous.value(), newValue, change, timestamp );
+        }
+        if( change ){
+            invalidateDependents();
+        }
+        if( !queued ){
+            announce( previous.value(), newValue, change, timestamp );
+        }
+        else{
+            throttle();
+        }
+    }
+    
+    /**
+     * Sets the value of the property to update if the current value is equal
+     * to expect. Equality is determined with equals(), and two nulls are equal.
+     * @param expect the expected current value
+     * @param update the new value of the property
+     * @return true if the value was set, false if the current value was not
+     *         equal to expect
+     */
+    public boolean compareAndSet( T expect, T update ){
+        return compareAndSet( expect, update, null );
+    }
+    
+    /**
+     * Sets the value of the property to update if the current value is equal
+     * to expect. Equality is determined with equals(), and two nulls are equal.
+     * @param expect the expected current value
+     * @param update the new value of the property
+     * @param modifiedBy an identifier for the person who made this modification
+     * @return true if the value was set, false if the current value was not
+     *         equal to expect
+     */
+    public boolean compareAndSet( T expect, T update, String modifiedBy ){
+        Current<T> previous;
+        boolean change;
+        boolean queued;
+        long timestamp;
+        synchronized( lock ){
+            previous = current;
+            if( !Objects.equals( previous.value(), expect ) ){
+                return false;
+            }
+            timestamp = now();
+            change = publish( previous, update, modifiedBy, timestamp );
+            queued = queue( previous.value(), update, change, timestamp );
+        }
+        if( change ){
+            invalidateDependents();
+        }
+        if( !queued ){
+            announce( previous.value(), update, change, timestamp );
+        }
+        else{
+            throttle();
+        }
+        return true;
+    }
+    
+    /**
+     * Atomically replaces the value of the property with the result of the
+     * update function, and returns the previous value. The function is
+     * called without holding a lock, and may be called again if another
+     * thread changes the property in the meantime, so it should be free of
+     * side effects.
+     * @param function computes the new value from the current value
+     * @return the previous value
+     */
+    public T getAndUpdate( UnaryOperator<T> function ){
+        return getAndUpdate( function, null );
+    }
+    
+    /**
+     * Atomically replaces the value of the property with the result of the
+     * update function, and returns the previous value. The function is
+     * called without holding a lock, and may be called again if another
+     * thread changes the property in the meantime, so it should be free of
+     * side effects.
+     * @param function computes the new value from the current value
+     * @param modifiedBy an identifier for the person who made this modification
+     * @return the previous value
+     */
+    public T getAndUpdate( UnaryOperator<T> function, String modifiedBy ){
+        while( true ){
+            Current<T> previous = current;
+            T update = function.apply( previous.value() );
+            
+            boolean change;
+            boolean queued;
+            long timestamp;
+            synchronized( lock ){
+                if( current != previous ){
+                    continue;
+                }
+                timestamp = now();
+                change = publish( previous, update, modifiedBy, timestamp );
+                queued = queue( previous.value(), update, change, timestamp );
+            }
+            if( change ){
+                invalidateDependents();
+            }
+            if( !queued ){
+                announce( previous.value(), update, change, timestamp );
+            }
+            else{
+                throttle();
+            }
+            return previous.value();
+        }
+    }
+    
+    @Override
+    public void addListener( PropListener listener ){
+        synchronized( lock ){
+            super.addListener( listener );
+        }
+    }
+    
+    @Override
+    public void addListener( PropListener listener, boolean touches ){
+        synchronized( lock ){
+            super.addListener( listener, touches );
+        }
+    }
+    
+    @Override
+    public void removeListener( PropListener listener ){
+        synchronized( lock ){
+            super.removeListener( listener );
+        }
+    }
+    
+    @Override
+    public void removeListeners(){
+        synchronized( lock ){
+            super.removeListeners();
+        }
+    }
+    
+    @Override
+    public List<Version<T>> versions(){
+        synchronized( lock ){
+            return super.versions();
+        }
+    }
+    
+    @Override
+    public List<Version<T>> versionsView(){
+        synchronized( lock ){
+            return new ArrayList( super.versionsView() );
+        }
+    }
+    
+    @Override
+    public int versionCount(){
+        synchronized( lock ){
+            return super.versionCount();
+        }
+    }
+    
+    @Override
+    long historyDigest(){
+        synchronized( lock ){
+            return super.historyDigest();
+        }
+    }
+    
+    @Override
+    public Version<T> versionAt( int index ){
+        synchronized( lock ){
+            return super.versionAt( index );
+        }
+    }
+    
+    @Override
+    public List<Version<T>> latestVersions( int count ){
+        synchronized( lock ){
+            return new ArrayList( super.latestVersions( count ) );
+        }
+    }
+    
+    @Override
+    public List<Version<T>> versionsBetween( long fromTimestamp, long toTimestamp ){
+        synchronized( lock ){
+            return new ArrayList( super.versionsBetween( fromTimestamp, toTimestamp ) );
+        }
+    }
+    
+    @Override
+    public Stream<Version<T>> versionStream(){
+        return versionsView().stream();
+    }
+    
+    @Override
+    public Version<T> asOf( long timestamp ){
+        Current<T> version = current;
+        if( version.set && version.timestamp() <= timestamp ){
+            return version;
+        }
+        synchronized( lock ){
+            return super.asOf( timestamp );
+        }
+    }
+    
+    @Override
+    Version<T> currentVersion(){
+        Current<T> version = current;
+        return version.set ? version : null;
+    }
+    
+    //versions are immutable, so an unchanged property already returns the
+    //same version
+    @Override
+    Version<T> currentVersion( Version<T> previous ){
+        return currentVersion();
+    }
+    
+    @Override
+    Version<T> merge( Version<T> theirs, List<Version<T>> remoteHistory ){
+        synchronized( lock ){
+            return super.merge( theirs, remoteHistory );
+        }
+    }
+    
+    //called by merge() while holding the lock
+    @Override
+    void replace( T value, long timestamp, String modifiedBy ){
+        super.replace( value, timestamp, modifiedBy );
+        current = new Current( value, timestamp, modifiedBy, true );
+    }
+    
+    @Override
+    public void retention( RetentionPolicy retention ){
+        synchronized( lock ){
+            super.retention( retention );
+        }
+    }
+    
+    @Override
+    public void equality( EqualityPolicy<? super T> equality ){
+        synchronized( lock ){
+            super.equality( equality );
+        }
+    }
+    
+    @Override
+    public void clock( PropClock clock ){
+        synchronized( lock ){
+            super.clock( clock );
+        }
+    }
+    
+    /**
+     * Returns the lock that guards writes to this property.
+     */
+    Object lock(){
+        return lock;
+    }
+    
+    /**
+     * Publishes a write made by a PropTransaction. Must be called while
+     * holding the lock, after the transaction has checked that previous is
+     * still the current version.
+     * @return false if the equality policy does not treat the write as a change
+     */
+    boolean commit( Version<T> previous, T value, String modifiedBy, long timestamp ){
+        return publish( (Current<T>)previous, value, modifiedBy, timestamp );
+    }
+    
+    //must be called while holding the lock. Returns false if the equality
+    //policy does not treat the write as a change, in which case only the
+    //timestamp and modifiedBy are published, and only if the policy touches.
+    private boolean publish( Current<T> previous, T value, String modifiedBy, long timestamp ){
+        EqualityPolicy<? super T> policy = equality();
+        if( previous.set && policy.same( previous.value(), value ) ){
+            if( policy.touches() ){
+                current = new Current( previous.value(), timestamp, modifiedBy, true );
+            }
+            return false;
+        }
+        
+        if( previous.set && recordChanges() ){
+            record( previous.value(), previous.timestamp(), previous.modifiedBy() );
+        }
+        current = new Current( value, timestamp, modifiedBy, true );
+        written( value, timestamp, modifiedBy );
+        return true;
+    }
+    
+    @Override
+    void restore( T value, boolean set, long timestamp, String modifiedBy, List<Version<T>> history ){
+        synchronized( lock ){
+            super.restore( value, set, timestamp, modifiedBy, history );
+            current = new Current( value, timestamp, modifiedBy, set );
+        }
+    }
+    
+    @Override
+    void addDependent( ComputedProp<?> dependent ){
+        synchronized( lock ){
+            super.addDependent( dependent );
+        }
+    }
+    
+    @Override
+    void removeDependent( ComputedProp<?> dependent ){
+        synchronized( lock ){
+            super.removeDependent( dependent );
+        }
+    }
+    
+    @Override
+    void addIndex( PropIndex<?> index ){
+        synchronized( lock ){
+            super.addIndex( index );
+        }
+    }
+    
+    @Override
+    void removeIndex( PropIndex<?> index ){
+        synchronized( lock ){
+            super.removeIndex( index );
+        }
+    }
+    
+    @Override
+    void history( VersionHistory<T> history ){
+        synchronized( lock ){
+            super.history( history );
+        }
+    }
+    
+    /**
+     * Returns true if the given version, returned by current(), is set.
+     */
+    boolean isSet( Version<T> current ){
+        return ((Current<T>)current).set;
+    }
+    
+    //must be called while holding the lock. Events for an AsyncDispatcher
+    //are queued before the lock is released, so that they are delivered in
+    //the order in which the writes happened. Returns false if listeners
+    //should instead be notified once the lock is released.
+    boolean queue( T oldValue, T newValue, boolean change, long timestamp ){
+        if( dispatcher() == null ){
+            return false;
+        }
+        announce( oldValue, newValue, change, timestamp );
+        return true;
+    }
+    
+    //waits for the AsyncDispatcher after an event was queued under the
+    //lock. Must be called after the lock is released
+    void throttle(){
+        AsyncDispatcher async = dispatcher();
+        if( async != null ){
+            async.throttle();
+        }
+    }
+    
+    @Override
+    boolean holdsLock(){
+        return Thread.holdsLock( lock );
+    }
+    
+    //the listeners are replaced under the lock, so a collected listener can
+    //be removed on any thread
+    @Override
+    void collected( WeakListener listener ){
+        removeListener( listener );
+    }
+    
+    //notifies listeners of a change, or of a write that was not a change
+    void announce( T oldValue, T newValue, boolean change, long timestamp ){
+        if( change ){
+            changed( oldValue, newValue, timestamp );
+        }
+        else{
+            suppressed();
+        }
+    }
+    
+    /**
+     * The published state of the property.
+     */
+    private static final class Current<T> extends Version<T>
+    {
+        private static final long serialVersionUID = 1L;
+        
+        private final boolean set;
+        
+        Current( T value, long timestamp, String modifiedBy, boolean set ){
+            super( value, timestamp, modifiedBy );
+            this.set = set;
+        }
+    }
+}
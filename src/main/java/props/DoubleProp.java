@@ -0,0 +1,247 @@
+package props;
+
+import java.util.List;
+
+/**
+ * A Prop that holds a double without boxing it.
+ * 
+ * getAsDouble() and set(double) read and write the value directly, the version
+ * history stores values in primitive arrays, and DoublePropListeners receive
+ * the new and previous values as doubles. Nothing is allocated when the value
+ * is read or written, unless PropListeners are registered; they receive
+ * boxed values in a PropChangedEvent as usual.
+ * 
+ * DoublePropListeners are always notified on the thread that changes the
+ * property, before any PropListeners, and are not deferred by a Batch or
+ * an AsyncDispatcher.
+ */
+public class DoubleProp extends Prop<Double>
+{
+    private static final DoublePropListener[] NO_LISTENERS = new DoublePropListener[0];
+    
+    private double value;
+    private transient volatile DoublePropListener[] doubleListeners = NO_LISTENERS;
+    
+    /**
+     * Creates a new DoubleProp with no initial value or parent, and record changes enabled.
+     */
+    public DoubleProp(){
+        this( null, null, true );
+    }
+    
+    /**
+     * Creates a new DoubleProp with an initial value, no parent, and record changes enabled.
+     * @param value the initial value
+     */
+    public DoubleProp( double value ){
+        this( null, value );
+    }
+    
+    /**
+     * Creates a new DoubleProp with a parent, an initial value, and record changes enabled.
+     * @param parent the parent object
+     * @param value the initial value
+     */
+    public DoubleProp( Object parent, double value ){
+        this( parent, Double.valueOf( value ), true );
+    }
+    
+    /**
+     * Constructs a new DoubleProp instance.
+     * @param parent the parent object of this property.
+     * @param value the initial value of the property. If this is null, set() 
+     *              will return false
+     * @param recordChanges if true, this property will make a historical
+     *                      record of modifications, including values,
+     *                      the user making the change, and the timestamp.
+     */
+    public DoubleProp( Object parent, Double value, boolean recordChanges ){
+        this( parent, value, recordChanges, -1, null );
+    }
+    
+    /**
+     * Constructs a new DoubleProp instance.
+     * @param parent the parent object of this property.
+     * @param value the initial value of the property. If this is null, set() 
+     *              will return false
+     * @param recordChanges if true, this property will make a historical
+     *                      record of modifications, including values,
+     *                      the user making the change, and the timestamp.
+     * @param timestamp the timestamp to record for this version
+     * @param modifiedBy the modifying user's ID to record for this version
+     */
+    public DoubleProp( Object parent, Double value, boolean recordChanges, long timestamp, String modifiedBy ){
+        super( parent, null, recordChanges, timestamp, modifiedBy );
+        if( value != null ){
+            this.value = value;
+            update( modifiedBy, timestamp );
+        }
+    }
+    
+    /**
+     * Returns the current value of the property, or 0 if the property
+     * has not been set.
+     * @return the current value of the property.
+     */
+    public double getAsDouble(){
+        return value;
+    }
+    
+    /**
+     * Returns the current value of the property, boxed, or null if the
+     * property has not been set. Use getAsDouble() to avoid boxing.
+     * @return the current value of the property.
+     */
+    @Override
+    public Double get(){
+        return set() ? Double.valueOf( value ) : null;
+    }
+    
+    /**
+     * Sets the value of the property. This will cause set() to return true,
+     * update timestamp(), notify any listeners, and record a version if 
+     * record changes is enabled.
+     * @param value The new value of the property.
+     */
+    public void set( double value ){
+        set( value, null );
+    }
+    
+    /**
+     * Sets the value of the property. The value of modifiedBy will be recorded
+     * in the historical version that is created, if record changes is enabled.
+     * @param value the new value of the property
+     * @param modifiedBy an identifier for the person who made this modification
+     */
+    public void set( double value, String modifiedBy ){
+        set( value, modifiedBy, now() );
+    }
+    
+    /**
+     * Sets the value of the property. The value of timestamp will be
+     * recorded, rather than the current time.
+     * @param value the new value of the property
+     * @param timestamp the timestamp of the modification
+     */
+    public void set( double value, long timestamp ){
+        set( value, null, timestamp );
+    }
+    
+    /**
+     * Sets the value of the property. This will cause set() to return true,
+     * update timestamp(), notify any listeners, and record a version if 
+     * record changes is enabled.
+     * @param newValue the new value of the property
+     * @param modifiedBy an identifier for the person who made this modification
+     * @param timestamp the timestamp of the modification
+     */
+    public void set( double newValue, String modifiedBy, long timestamp ){
+        //compared as Double.equals() does, so that every NaN is the same
+        if( unchangedBits( Double.doubleToLongBits( value ), Double.doubleToLongBits( newValue ) ) ){
+            if( equality().touches() ){
+                update( modifiedBy, timestamp );
+            }
+            suppressed();
+            return;
+        }
+        
+        if( recordChanges() && set() ){
+            recordBits( Double.doubleToRawLongBits( value ), timestamp(), modifiedBy() );
+        }
+        
+        double oldValue = value;
+        value = newValue;
+        update( modifiedBy, timestamp );
+        writtenBits( Double.doubleToRawLongBits( newValue ), timestamp, modifiedBy );
+        invalidateDependents();
+        
+        for( DoublePropListener listener : doubleListeners ){
+            listener.propertyChanged( this, newValue, oldValue );
+        }
+        if( hasListeners() ){
+            changed( oldValue, newValue, timestamp );
+        }
+    }
+    
+    /**
+     * Sets the value of the property from a boxed value.
+     * @param newValue the new value of the property, which must not be null
+     * @param modifiedBy an identifier for the person who made this modification
+     * @param timestamp the timestamp of the modification
+     */
+    @Override
+    public void set( Double newValue, String modifiedBy, long timestamp ){
+        if( newValue == null ){
+            throw new IllegalArgumentException( "DoubleProp values must not be null" );
+        }
+        set( newValue.doubleValue(), modifiedBy, timestamp );
+    }
+    
+    /**
+     * Returns the value of one of the previous versions of this property,
+     * without boxing it.
+     * @param index the index of the version, where 0 is the oldest
+     * @return the value of the version at the given index
+     * @throws IndexOutOfBoundsException if there is no version at the index
+     */
+    public double valueAt( int index ){
+        if( index < 0 || index >= versionCount() ){
+            throw new IndexOutOfBoundsException( "Index: " + index + ", Size: " + versionCount() );
+        }
+        long bits = history().bits( index );
+        return Double.longBitsToDouble( bits );
+    }
+    
+    /**
+     * Adds a listener that receives the values of this property as doubles.
+     * @param listener the listener
+     */
+    public void addListener( DoublePropListener listener ){
+        doubleListeners = Listeners.add( doubleListeners, listener );
+    }
+    
+    /**
+     * Removes a listener that receives the values of this property as doubles.
+     * @param listener the listener
+     */
+    public void removeListener( DoublePropListener listener ){
+        doubleListeners = Listeners.remove( doubleListeners, listener );
+    }
+    
+    /**
+     * Removes all listeners from this property, including DoublePropListeners.
+     */
+    @Override
+    public void removeListeners(){
+        super.removeListeners();
+        doubleListeners = NO_LISTENERS;
+    }
+    
+    @Override
+    void restore( Double value, boolean set, long timestamp, String modifiedBy, List<Version<Double>> history ){
+        super.restore( null, set, timestamp, modifiedBy, history );
+        this.value = value == null ? 0 : value;
+    }
+    
+    @Override
+    void replace( Double value, long timestamp, String modifiedBy ){
+        this.value = value == null ? 0 : value;
+        update( modifiedBy, timestamp );
+    }
+    
+    @Override
+    void merged( Double oldValue, Double newValue, long timestamp ){
+        double previous = oldValue == null ? 0 : oldValue;
+        for( DoublePropListener listener : doubleListeners ){
+            listener.propertyChanged( this, value, previous );
+        }
+        if( hasListeners() ){
+            changed( oldValue, newValue, timestamp );
+        }
+    }
+    
+    @Override
+    VersionHistory<Double> newHistory( RetentionPolicy retention ){
+        return new RingHistory( retention, PrimitiveType.DOUBLE );
+    }
+}
@@ -0,0 +1,6 @@
+package props;
+
+public interface DoublePropListener
+{
+    public void propertyChanged( DoubleProp property, double value, double previousValue );
+}
@@ -0,0 +1,157 @@
+package props;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Variable-length integer and UTF-8 string encoding for the binary codec.
+ * 
+ * Integers are written as unsigned LEB128 varints, seven bits per byte;
+ * signed values are zig-zag encoded first so that small negative numbers
+ * stay small. Strings are written as a varint byte length followed by
+ * UTF-8, encoded directly into the buffer.
+ */
+final class Encoding
+{
+    /** The largest number of bytes a varint can take. */
+    static final int MAX_VARLONG = 10;
+    
+    private Encoding(){
+    }
+    
+    static void writeVarLong( ByteBuffer buffer, long value ){
+        while( ( value & ~0x7FL ) != 0 ){
+            buffer.put( (byte)( ( value & 0x7F ) | 0x80 ) );
+            value >>>= 7;
+        }
+        buffer.put( (byte)value );
+    }
+    
+    static long readVarLong( ByteBuffer buffer ){
+        long value = 0;
+        for( int shift = 0; shift < 64; shift += 7 ){
+            byte b = buffer.get();
+            value |= (long)( b & 0x7F ) << shift;
+            if( b >= 0 ){
+                return value;
+            }
+        }
+        throw new IllegalStateException( "Malformed varint" );
+    }
+    
+    static int readVarInt( ByteBuffer buffer ){
+        long value = readVarLong( buffer );
+        if( value < 0 || value > Integer.MAX_VALUE ){
+            throw new IllegalStateException( "Varint out of range: " + value );
+        }
+        return (int)value;
+    }
+    
+    static void writeSignedVarLong( ByteBuffer buffer, long value ){
+        writeVarLong( buffer, ( value << 1 ) ^ ( value >> 63 ) );
+    }
+    
+    static long readSignedVarLong( ByteBuffer buffer ){
+        long value = readVarLong( buffer );
+        return ( value >>> 1 ) ^ -( value & 1 );
+    }
+    
+    static int varLongSize( long value ){
+        int size = 1;
+        while( ( value & ~0x7FL ) != 0 ){
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+    
+    static int signedVarLongSize( long value ){
+        return varLongSize( ( value << 1 ) ^ ( value >> 63 ) );
+    }
+    
+    /**
+     * Returns the number of bytes the UTF-8 encoding of a string takes.
+     */
+    static int utf8Length( String string ){
+        int length = 0;
+        for( int i = 0; i < string.length(); i++ ){
+            char c = string.charAt( i );
+            if( c < 0x80 ){
+                length += 1;
+            }
+            else if( c < 0x800 ){
+                length += 2;
+            }
+            else if( Character.isHighSurrogate( c ) && i + 1 < string.length() && Character.isLowSurrogate( string.charAt( i + 1 ) ) ){
+                length += 4;
+                i++;
+            }
+            else{
+                length += 3;
+            }
+        }
+        return length;
+    }
+    
+    /**
+     * Returns the number of bytes writeString() uses for a string.
+     */
+    static int stringSize( String string ){
+        int length = utf8Length( string );
+        return varLongSize( length ) + length;
+    }
+    
+    static void writeString( ByteBuffer buffer, String string ){
+        writeVarLong( buffer, utf8Length( string ) );
+        writeUtf8( buffer, string );
+    }
+    
+    /**
+     * Writes the UTF-8 encoding of a string, with no length.
+     */
+    static void writeUtf8( ByteBuffer buffer, String string ){
+        for( int i = 0; i < string.length(); i++ ){
+            char c = string.charAt( i );
+            if( c < 0x80 ){
+                buffer.put( (byte)c );
+            }
+            else if( c < 0x800 ){
+                buffer.put( (byte)( 0xC0 | ( c >> 6 ) ) );
+                buffer.put( (byte)( 0x80 | ( c & 0x3F ) ) );
+            }
+            else if( Character.isHighSurrogate( c ) && i + 1 < string.length() && Character.isLowSurrogate( string.charAt( i + 1 ) ) ){
+                int codePoint = Character.toCodePoint( c, string.charAt( ++i ) );
+                buffer.put( (byte)( 0xF0 | ( codePoint >> 18 ) ) );
+                buffer.put( (byte)( 0x80 | ( ( codePoint >> 12 ) & 0x3F ) ) );
+                buffer.put( (byte)( 0x80 | ( ( codePoint >> 6 ) & 0x3F ) ) );
+                buffer.put( (byte)( 0x80 | ( codePoint & 0x3F ) ) );
+            }
+            else{
+                //an unpaired surrogate has no UTF-8 encoding; it is written as
+                //three bytes, which decode as a replacement character
+                buffer.put( (byte)( 0xE0 | ( c >> 12 ) ) );
+                buffer.put( (byte)( 0x80 | ( ( c >> 6 ) & 0x3F ) ) );
+                buffer.put( (byte)( 0x80 | ( c & 0x3F ) ) );
+            }
+        }
+    }
+    
+    static String readString( ByteBuffer buffer ){
+        return readUtf8( buffer, readVarInt( buffer ) );
+    }
+    
+    /**
+     * Reads a string from the given number of bytes of UTF-8.
+     */
+    static String readUtf8( ByteBuffer buffer, int length ){
+        if( buffer.hasArray() ){
+            String string = new String( buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8 );
+            buffer.position( buffer.position() + length );
+            return string;
+        }
+        
+        byte[] bytes = new byte[length];
+        buffer.get( bytes );
+        return new String( bytes, StandardCharsets.UTF_8 );
+    }
+}
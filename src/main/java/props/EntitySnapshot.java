@@ -0,0 +1,151 @@
+package props;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An immutable copy of the state of every Prop of an object, created by a
+ * PropertyModel, either as of now or as of a point in time.
+ * 
+ * ```java
+ * EntitySnapshot<Pojo> before = model.capture( pojo );
+ * pojo.name.set( "Sue" );
+ * EntitySnapshot<Pojo> after = model.capture( pojo, before );
+ * int[] changed = after.changedSince( before );
+ * EntitySnapshot<Pojo> lastWeek = model.snapshotAsOf( pojo, timestamp );
+ * ```
+ * 
+ * A snapshot holds one Version per Prop. Versions are immutable, so a
+ * snapshot can be read by any number of threads while the object goes on
+ * being modified. Snapshots share Versions with the properties' histories
+ * and with each other: a ConcurrentProp's current Version is used as is,
+ * and capturing an object against an earlier snapshot reuses the earlier
+ * Versions of properties that have not changed, so a snapshot of an
+ * object with few changes costs little more than an array of references.
+ * @param <T> The class whose Props are captured.
+ */
+public final class EntitySnapshot<T>
+{
+    private final PropertyModel<T> model;
+    private final Version<?>[] versions;
+    
+    EntitySnapshot( PropertyModel<T> model, Version<?>[] versions ){
+        this.model = model;
+        this.versions = versions;
+    }
+    
+    /**
+     * Returns the model of the captured object.
+     * @return the model
+     */
+    public PropertyModel<T> model(){
+        return model;
+    }
+    
+    /**
+     * Returns the number of Props captured.
+     * @return the number of Props
+     */
+    public int size(){
+        return versions.length;
+    }
+    
+    /**
+     * Returns the captured version of a Prop.
+     * @param index the index of the Prop in the model
+     * @return the version, or null if the Prop was null or not set
+     */
+    public Version<?> version( int index ){
+        return versions[ index ];
+    }
+    
+    /**
+     * Returns the captured version of a Prop.
+     * @param name the name of the Prop field
+     * @return the version, or null if the Prop was null or not set
+     * @throws IllegalArgumentException if the model has no Prop field with
+     *                                  the name
+     */
+    public Version<?> version( String name ){
+        return versions[ index( name ) ];
+    }
+    
+    /**
+     * Returns the captured value of a Prop.
+     * @param index the index of the Prop in the model
+     * @return the value, or null if the Prop was null or not set
+     */
+    public Object value( int index ){
+        Version<?> version = versions[ index ];
+        return version == null ? null : version.value();
+    }
+    
+    /**
+     * Returns the captured value of a Prop.
+     * @param name the name of the Prop field
+     * @return the value, or null if the Prop was null or not set
+     * @throws IllegalArgumentException if the model has no Prop field with
+     *                                  the name
+     */
+    public Object value( String name ){
+        return value( index( name ) );
+    }
+    
+    /**
+     * Returns the captured versions, in index order.
+     * @return the versions
+     */
+    public List<Version<?>> versions(){
+        return Collections.unmodifiableList( Arrays.asList( versions ) );
+    }
+    
+    /**
+     * Returns the indexes of the Props whose versions differ from those in
+     * an earlier snapshot of the same model. Versions shared between the
+     * snapshots are compared by reference.
+     * @param earlier the earlier snapshot
+     * @return the indexes of the changed Props, in ascending order
+     */
+    public int[] changedSince( EntitySnapshot<T> earlier ){
+        if( earlier.model != model ){
+            throw new IllegalArgumentException( "Snapshots are of different models: " + model + ", " + earlier.model );
+        }
+        
+        int[] changed = new int[ versions.length ];
+        int count = 0;
+        for( int i = 0; i < versions.length; i++ ){
+            Version<?> version = versions[ i ];
+            Version<?> other = earlier.versions[ i ];
+            if( version != other && ( version == null || !version.equals( other ) ) ){
+                changed[ count++ ] = i;
+            }
+        }
+        return Arrays.copyOf( changed, count );
+    }
+    
+    //the captured version of a Prop, or null, for PropertyModel.capture()
+    Version<?> at( int index ){
+        return versions[ index ];
+    }
+    
+    private int index( String name ){
+        int index = model.indexOf( name );
+        if( index < 0 ){
+            throw new IllegalArgumentException( "No Prop field named " + name + " in " + model.type().getName() );
+        }
+        return index;
+    }
+    
+    @Override
+    public String toString(){
+        StringBuilder builder = new StringBuilder( "EntitySnapshot[" );
+        for( int i = 0; i < versions.length; i++ ){
+            if( i > 0 ){
+                builder.append( ", " );
+            }
+            builder.append( model.name( i ) ).append( "=" ).append( value( i ) );
+        }
+        return builder.append( "]" ).toString();
+    }
+}
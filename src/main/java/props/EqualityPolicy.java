@@ -0,0 +1,145 @@
+package props;
+
+import java.util.Comparator;
+
+/**
+ * Determines whether a write to a Prop that does not change its value is
+ * treated as a change.
+ * 
+ * *   **none()** - every write is a change. This is the default.
+ * *   **identity()** - a write of the same object is not a change.
+ * *   **equality()** - a write of an equal value, according to equals(), is
+ *     not a change. Two nulls are equal.
+ * *   **comparing(comparator)** - a write of a value that compares as 0 to
+ *     the current value is not a change.
+ * 
+ * A write that is not a change records no version and does not notify
+ * listeners of a change. By default it is ignored entirely; a policy
+ * returned by touching() instead updates the property's timestamp and
+ * modifiedBy. Either way, listeners added with addListener( listener, true )
+ * receive a touched PropChangedEvent, whose value and previous value are
+ * both the current value.
+ * 
+ * Primitive properties compare their values directly under identity() and
+ * equality(), without boxing them.
+ */
+public final class EqualityPolicy<T>
+{
+    private static final int NONE = 0;
+    private static final int IDENTITY = 1;
+    private static final int EQUALITY = 2;
+    private static final int COMPARATOR = 3;
+    
+    private static final EqualityPolicy NONE_POLICY = new EqualityPolicy( NONE, null, false );
+    private static final EqualityPolicy IDENTITY_POLICY = new EqualityPolicy( IDENTITY, null, false );
+    private static final EqualityPolicy EQUALITY_POLICY = new EqualityPolicy( EQUALITY, null, false );
+    
+    private final int kind;
+    private final Comparator<? super T> comparator;
+    private final boolean touches;
+    
+    private EqualityPolicy( int kind, Comparator<? super T> comparator, boolean touches ){
+        this.kind = kind;
+        this.comparator = comparator;
+        this.touches = touches;
+    }
+    
+    /**
+     * Returns a policy that treats every write as a change. This is the
+     * default.
+     * @return a policy that treats every write as a change
+     */
+    public static <T> EqualityPolicy<T> none(){
+        return NONE_POLICY;
+    }
+    
+    /**
+     * Returns a policy that ignores writes of the same object.
+     * @return a policy that compares values by identity
+     */
+    public static <T> EqualityPolicy<T> identity(){
+        return IDENTITY_POLICY;
+    }
+    
+    /**
+     * Returns a policy that ignores writes of an equal value.
+     * @return a policy that compares values with equals()
+     */
+    public static <T> EqualityPolicy<T> equality(){
+        return EQUALITY_POLICY;
+    }
+    
+    /**
+     * Returns a policy that ignores writes of a value that compares as 0 to
+     * the current value. The comparator is only called with non-null
+     * values; two nulls are equal, and null is not equal to any value.
+     * @param comparator compares the current and new values
+     * @return a policy that compares values with the comparator
+     */
+    public static <T> EqualityPolicy<T> comparing( Comparator<? super T> comparator ){
+        if( comparator == null ){
+            throw new IllegalArgumentException( "Comparator must not be null" );
+        }
+        return new EqualityPolicy( COMPARATOR, comparator, false );
+    }
+    
+    /**
+     * Returns a policy that compares values in the same way as this one, but
+     * updates the timestamp and modifiedBy of the property when a write
+     * does not change its value.
+     * @return a touching policy
+     */
+    public EqualityPolicy<T> touching(){
+        if( kind == NONE ){
+            throw new IllegalStateException( "A policy that treats every write as a change cannot touch" );
+        }
+        return touches ? this : new EqualityPolicy( kind, comparator, true );
+    }
+    
+    /**
+     * Returns true if writes that do not change the value update the
+     * timestamp and modifiedBy of the property.
+     * @return true if this policy touches
+     */
+    public boolean touches(){
+        return touches;
+    }
+    
+    /**
+     * Returns true if writing the new value over the current value is not a
+     * change under this policy.
+     * @param current the current value
+     * @param value the new value
+     * @return true if the values are the same
+     */
+    public boolean same( T current, T value ){
+        switch( kind ){
+            case IDENTITY:
+                return current == value;
+            case EQUALITY:
+                return current == null ? value == null : current.equals( value );
+            case COMPARATOR:
+                if( current == null || value == null ){
+                    return current == value;
+                }
+                return comparator.compare( current, value ) == 0;
+            default:
+                return false;
+        }
+    }
+    
+    /**
+     * Returns true if this policy compares the bits of primitive values,
+     * rather than boxing them.
+     */
+    boolean comparesBits(){
+        return kind == IDENTITY || kind == EQUALITY;
+    }
+    
+    /**
+     * Returns true if this policy treats every write as a change.
+     */
+    boolean isNone(){
+        return kind == NONE;
+    }
+}
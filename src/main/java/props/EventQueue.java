@@ -0,0 +1,329 @@
+package props;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A bounded queue of PropChangedEvents that is drained on an Executor, the
+ * part shared by AsyncDispatcher and the subscriptions of a PropPublisher.
+ * 
+ * The thread that changes a property queues its event with enqueue(); the
+ * BackpressurePolicy decides what happens when the queue is full.
+ * enqueue() never waits, because it may be called while holding the lock
+ * of a ConcurrentProp, and a listener that reads or writes that property
+ * would then never return. With BLOCK, and with COALESCE when the event
+ * cannot be merged, the event is queued even if the queue is full, and
+ * the writer calls throttle() once it holds no lock, which waits until
+ * the queue is back within its capacity. A drain
+ * task then runs on the executor for as long as ready() returns true,
+ * taking one signal at a time with take() and delivering it with
+ * deliver(). At most one drain task runs at a time, so signals are
+ * delivered in order, and a drain task yields the executor thread after
+ * DRAIN_BATCH signals.
+ * 
+ * The queue is guarded by its own monitor. ready() and take() are called
+ * while holding it; deliver() is called without it.
+ * 
+ * @param <S> the class of the signals delivered by the drain task
+ */
+abstract class EventQueue<S> implements Runnable
+{
+    //signals delivered by a drain task before it yields the executor thread
+    private static final int DRAIN_BATCH = 256;
+    
+    private final Executor executor;
+    private final int capacity;
+    private final BackpressurePolicy policy;
+    
+    private final ArrayDeque<Pending> queue = new ArrayDeque();
+    //the undelivered event of each property, used to coalesce
+    private final Map<Prop, Pending> queued = new HashMap();
+    private long dropped;
+    private boolean draining;
+    private boolean closed;
+    //the thread running the drain task, which must never wait for itself
+    private Thread drainer;
+    
+    EventQueue( Executor executor, int capacity, BackpressurePolicy policy ){
+        if( executor == null || policy == null ){
+            throw new IllegalArgumentException( "Executor and policy must not be null" );
+        }
+        if( capacity < 1 ){
+            throw new IllegalArgumentException( "Capacity must be at least 1: " + capacity );
+        }
+        
+        this.executor = executor;
+        this.capacity = capacity;
+        this.policy = policy;
+    }
+    
+    /**
+     * Returns true if the drain task has a signal to deliver. Called while
+     * holding the queue's monitor.
+     * @return true if take() would return a signal
+     */
+    abstract boolean ready();
+    
+    /**
+     * Takes the next signal to deliver. Called while holding the queue's
+     * monitor, and only after ready() returned true.
+     * @return the signal
+     */
+    abstract S take();
+    
+    /**
+     * Delivers a signal on the executor thread. Exceptions thrown by
+     * listeners or subscribers should be handled here.
+     * @param signal the signal
+     */
+    abstract void deliver( S signal );
+    
+    /**
+     * Queues an event and schedules a drain task if needed.
+     * @param event the event
+     * @param listeners the listeners to deliver it to, or null
+     */
+    final void enqueue( PropChangedEvent event, PropListener[] listeners ){
+        synchronized( this ){
+            if( !offer( event, listeners ) ){
+                return;
+            }
+        }
+        signal();
+    }
+    
+    /**
+     * Waits until the queue is back within its capacity, if the policy
+     * makes writers wait. Must not be called while holding a lock that a
+     * listener may need. Returns immediately on the thread running the
+     * drain task, which would otherwise wait for itself, and if the thread
+     * is interrupted, leaving it interrupted.
+     */
+    final synchronized void throttle(){
+        if( policy == BackpressurePolicy.DROP_OLDEST || drainer == Thread.currentThread() ){
+            return;
+        }
+        while( queue.size() > capacity && !closed ){
+            try{
+                wait();
+            }
+            catch( InterruptedException ex ){
+                //the event is already queued, so nothing is lost
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+    
+    /**
+     * Schedules a drain task if there is a signal to deliver and none is
+     * running.
+     */
+    final void signal(){
+        synchronized( this ){
+            if( draining || !ready() ){
+                return;
+            }
+            draining = true;
+        }
+        execute();
+    }
+    
+    /**
+     * Removes the oldest queued event. Must be called while holding the
+     * queue's monitor.
+     * @return the oldest event, or null if the queue is empty
+     */
+    final Pending poll(){
+        Pending pending = queue.pollFirst();
+        if( pending != null ){
+            forget( pending );
+            //wake writers waiting in throttle()
+            notifyAll();
+        }
+        return pending;
+    }
+    
+    /**
+     * Returns true if no event is queued. Must be called while holding the
+     * queue's monitor.
+     * @return true if the queue is empty
+     */
+    final boolean isEmpty(){
+        return queue.isEmpty();
+    }
+    
+    /**
+     * Returns the number of queued events.
+     * @return the number of undelivered events
+     */
+    final synchronized int size(){
+        return queue.size();
+    }
+    
+    /**
+     * Returns the number of events discarded because the queue was full.
+     * @return the number of discarded events
+     */
+    final synchronized long dropped(){
+        return dropped;
+    }
+    
+    /**
+     * Stops accepting events and wakes the writers waiting in throttle().
+     * @param discard true to also discard the events already queued
+     */
+    final synchronized void close( boolean discard ){
+        closed = true;
+        if( discard ){
+            queue.clear();
+            queued.clear();
+        }
+        notifyAll();
+    }
+    
+    /**
+     * Waits until every queued event has been delivered.
+     * @param nanos the maximum time to wait
+     * @return true if every event was delivered, false if the time elapsed
+     * @throws InterruptedException if the thread was interrupted while waiting
+     */
+    final synchronized boolean awaitIdle( long nanos ) throws InterruptedException {
+        long deadline = System.nanoTime() + nanos;
+        while( draining || !queue.isEmpty() ){
+            long remaining = deadline - System.nanoTime();
+            if( remaining <= 0 ){
+                return false;
+            }
+            TimeUnit.NANOSECONDS.timedWait( this, remaining );
+        }
+        return true;
+    }
+    
+    /**
+     * Passes an exception thrown by a listener or subscriber to a handler.
+     * A handler that throws is ignored, so that it cannot stop the drain.
+     * @param handler the handler, or null for the current thread's uncaught
+     *                exception handler
+     * @param t the exception
+     */
+    static void report( Thread.UncaughtExceptionHandler handler, Throwable t ){
+        Thread thread = Thread.currentThread();
+        try{
+            ( handler != null ? handler : thread.getUncaughtExceptionHandler() ).uncaughtException( thread, t );
+        }
+        catch( Throwable ignored ){
+        }
+    }
+    
+    public final void run(){
+        boolean done = false;
+        synchronized( this ){
+            drainer = Thread.currentThread();
+        }
+        try{
+            for( int i = 0; i < DRAIN_BATCH; i++ ){
+                S signal;
+                synchronized( this ){
+                    if( !ready() ){
+                        draining = false;
+                        drainer = null;
+                        notifyAll();
+                        done = true;
+                        return;
+                    }
+                    signal = take();
+                }
+                deliver( signal );
+            }
+            done = true;
+            synchronized( this ){
+                drainer = null;
+            }
+        }
+        finally{
+            //if delivery failed unexpectedly, let the next event schedule a
+            //new drain rather than leaving the queue wedged
+            if( !done ){
+                synchronized( this ){
+                    draining = false;
+                    drainer = null;
+                    notifyAll();
+                }
+            }
+        }
+        
+        //let other tasks use this thread before continuing
+        execute();
+    }
+    
+    //must be called while holding the monitor; returns false if the event
+    //was merged or the queue is closed
+    private boolean offer( PropChangedEvent event, PropListener[] listeners ){
+        if( closed ){
+            return false;
+        }
+        //touched events go to different listeners, so are never merged
+        boolean coalesce = policy == BackpressurePolicy.COALESCE && !event.touched();
+        if( coalesce ){
+            Pending previous = queued.get( event.property() );
+            if( previous != null && queue.size() >= capacity ){
+                previous.event = new PropChangedEvent( event.property(), event.value(), previous.event.previousValue(), event.timestamp(), false );
+                previous.listeners = listeners;
+                return false;
+            }
+        }
+        
+        if( policy == BackpressurePolicy.DROP_OLDEST ){
+            while( queue.size() >= capacity ){
+                forget( queue.removeFirst() );
+                dropped++;
+            }
+        }
+        //otherwise the queue may grow past capacity until the writer
+        //throttles
+        
+        Pending pending = new Pending( event, listeners );
+        queue.addLast( pending );
+        if( coalesce ){
+            queued.put( event.property(), pending );
+        }
+        return true;
+    }
+    
+    private void forget( Pending pending ){
+        if( policy == BackpressurePolicy.COALESCE && queued.get( pending.event.property() ) == pending ){
+            queued.remove( pending.event.property() );
+        }
+    }
+    
+    private void execute(){
+        try{
+            executor.execute( this );
+        }
+        catch( RuntimeException ex ){
+            synchronized( this ){
+                draining = false;
+                notifyAll();
+            }
+            throw ex;
+        }
+    }
+    
+    /**
+     * A queued event and the listeners it is for.
+     */
+    static final class Pending
+    {
+        PropChangedEvent event;
+        PropListener[] listeners;
+        
+        Pending( PropChangedEvent event, PropListener[] listeners ){
+            this.event = event;
+            this.listeners = listeners;
+        }
+    }
+}
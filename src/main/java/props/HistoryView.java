@@ -0,0 +1,50 @@
+package props;
+
+import java.util.AbstractList;
+import java.util.ConcurrentModificationException;
+import java.util.RandomAccess;
+
+/**
+ * An unmodifiable view of a range of a VersionHistory. Nothing is copied
+ * when the view is created.
+ * 
+ * The view is a snapshot of the history at the time it was created. If
+ * another version is recorded afterwards, the view is no longer valid and
+ * reading from it throws ConcurrentModificationException, in the same way
+ * as a subList of an ArrayList.
+ */
+final class HistoryView<T> extends AbstractList<Version<T>> implements RandomAccess
+{
+    private final VersionHistory<T> history;
+    private final int from;
+    private final int to;
+    private final long added;
+    
+    HistoryView( VersionHistory<T> history, int from, int to ){
+        this.history = history;
+        this.from = from;
+        this.to = to;
+        this.added = history.added();
+    }
+    
+    @Override
+    public Version<T> get( int index ){
+        if( index < 0 || index >= to - from ){
+            throw new IndexOutOfBoundsException( "Index: " + index + ", Size: " + ( to - from ) );
+        }
+        checkForModification();
+        return history.get( from + index );
+    }
+    
+    @Override
+    public int size(){
+        checkForModification();
+        return to - from;
+    }
+    
+    private void checkForModification(){
+        if( history.added() != added ){
+            throw new ConcurrentModificationException( "Versions were recorded after this view was created" );
+        }
+    }
+}
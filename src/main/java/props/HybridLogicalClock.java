@@ -0,0 +1,155 @@
+package props;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A PropClock that issues hybrid logical timestamps: every timestamp it
+ * returns is greater than every timestamp it has returned or seen before,
+ * and no two nodes ever issue the same timestamp, yet timestamps stay
+ * within a few milliseconds of the wall clock.
+ * 
+ * A timestamp packs three fields into a long:
+ * 
+ * *   the wall clock time in milliseconds since the epoch, in the top 44
+ *     bits, which lasts until the year 2527;
+ * *   a logical counter in the next 12 bits, which orders up to 4096
+ *     timestamps issued in the same millisecond; a node issuing more than
+ *     that carries into the millisecond field, and runs slightly ahead of
+ *     the wall clock until the wall clock catches up;
+ * *   the node ID in the low 8 bits, which makes timestamps from different
+ *     nodes unique.
+ * 
+ * Timestamps therefore sort in causal order: when a node receives a
+ * timestamp from another node, such as the timestamp of a replicated
+ * write, it should pass it to update(), so that its later timestamps are
+ * greater. millis() recovers the wall clock time of a timestamp.
+ * 
+ * HybridLogicalClocks are thread-safe and lock-free.
+ */
+public final class HybridLogicalClock implements PropClock
+{
+    /**
+     * The number of bits for the node ID.
+     */
+    public static final int NODE_BITS = 8;
+    
+    /**
+     * The number of bits for the logical counter.
+     */
+    public static final int COUNTER_BITS = 12;
+    
+    private static final int MILLIS_SHIFT = NODE_BITS + COUNTER_BITS;
+    private static final long NODE_MASK = ( 1L << NODE_BITS ) - 1;
+    private static final long TICK = 1L << NODE_BITS;
+    
+    private final int node;
+    private final PropClock physical;
+    //the last timestamp issued, without the node ID
+    private final AtomicLong last = new AtomicLong();
+    
+    /**
+     * Creates a new HybridLogicalClock that reads the system clock.
+     * @param node the ID of this node, from 0 to 255, which must be unique
+     *             among the nodes that exchange timestamps
+     */
+    public HybridLogicalClock( int node ){
+        this( node, PropClock.system() );
+    }
+    
+    /**
+     * Creates a new HybridLogicalClock.
+     * @param node the ID of this node, from 0 to 255, which must be unique
+     *             among the nodes that exchange timestamps
+     * @param physical the clock that supplies the wall clock time, in
+     *                 milliseconds, such as a CoarseClock
+     */
+    public HybridLogicalClock( int node, PropClock physical ){
+        if( node < 0 || node > NODE_MASK ){
+            throw new IllegalArgumentException( "Node must be between 0 and " + NODE_MASK + ": " + node );
+        }
+        if( physical == null ){
+            throw new IllegalArgumentException( "Physical clock must not be null" );
+        }
+        this.node = node;
+        this.physical = physical;
+    }
+    
+    public long now(){
+        long wall = physical.now() << MILLIS_SHIFT;
+        while( true ){
+            long previous = last.get();
+            long next = Math.max( previous + TICK, wall );
+            if( last.compareAndSet( previous, next ) ){
+                return next | node;
+            }
+        }
+    }
+    
+    /**
+     * Merges a timestamp received from another node into this clock, so
+     * that every timestamp this clock issues afterwards is greater.
+     * @param timestamp the received timestamp
+     * @return a timestamp greater than both the received timestamp and
+     *         every timestamp this clock has issued
+     */
+    public long update( long timestamp ){
+        long wall = physical.now() << MILLIS_SHIFT;
+        long remote = timestamp & ~NODE_MASK;
+        while( true ){
+            long previous = last.get();
+            long next = Math.max( Math.max( previous, remote ) + TICK, wall );
+            if( last.compareAndSet( previous, next ) ){
+                return next | node;
+            }
+        }
+    }
+    
+    /**
+     * Returns the clock that supplies the wall clock time.
+     * @return the physical clock
+     */
+    public PropClock physical(){
+        return physical;
+    }
+    
+    /**
+     * Returns the ID of the node this clock issues timestamps for.
+     * @return the node ID
+     */
+    public int node(){
+        return node;
+    }
+    
+    @Override
+    public long millis( long timestamp ){
+        return timestamp >>> MILLIS_SHIFT;
+    }
+    
+    @Override
+    public long duration( long millis ){
+        return millis >= Long.MAX_VALUE >>> MILLIS_SHIFT ? Long.MAX_VALUE : millis << MILLIS_SHIFT;
+    }
+    
+    /**
+     * Returns the logical counter of a timestamp.
+     * @param timestamp the timestamp
+     * @return the logical counter
+     */
+    public static int counter( long timestamp ){
+        return (int)( ( timestamp >>> NODE_BITS ) & ( ( 1L << COUNTER_BITS ) - 1 ) );
+    }
+    
+    /**
+     * Returns the node ID of a timestamp.
+     * @param timestamp the timestamp
+     * @return the ID of the node that issued the timestamp
+     */
+    public static int node( long timestamp ){
+        return (int)( timestamp & NODE_MASK );
+    }
+    
+    @Override
+    public String toString(){
+        return "HybridLogicalClock[" + node + "]";
+    }
+}
@@ -0,0 +1,6 @@
+package props;
+
+public interface IntPropListener
+{
+    public void propertyChanged( IntProp property, int value, int previousValue );
+}
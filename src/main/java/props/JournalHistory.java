@@ -0,0 +1,159 @@
+package props;
+
+import java.util.Objects;
+
+/**
+ * A VersionHistory kept in a PropJournal rather than on the heap.
+ * 
+ * Every write to the property is appended to the journal, so the newest
+ * record is the current value and the records before it are the previous
+ * versions. Only the position of each record is kept on the heap; values
+ * are decoded from the journal when they are read.
+ * 
+ * The maximum number of versions and maximum age of a RetentionPolicy are
+ * applied, but versions are not downsampled. Discarded versions stay in
+ * the journal until it is compacted.
+ */
+final class JournalHistory<T> implements VersionHistory<T>
+{
+    private final PropJournal journal;
+    private final PropJournal.Entries entries;
+    private final ValueCodec<T> codec;
+    //null if the values are objects
+    private final PrimitiveType type;
+    private RetentionPolicy policy;
+    //true if the newest record is the current value of the property
+    private boolean head;
+    private long added;
+    //the sum of the hashes of the versions, maintained once digest() has
+    //been called, since computing it decodes every version
+    private boolean digested;
+    private long digest;
+    //the hash of the newest record, which joins the digest when it is
+    //replaced
+    private long headHash;
+    
+    JournalHistory( PropJournal journal, PropJournal.Entries entries, ValueCodec<T> codec, PrimitiveType type, RetentionPolicy policy, boolean head ){
+        this.journal = journal;
+        this.entries = entries;
+        this.codec = codec;
+        this.type = type;
+        this.policy = policy;
+        this.head = head;
+    }
+    
+    //the previous version is already in the journal, as the last write
+    public void add( T value, long timestamp, String modifiedBy ){
+    }
+    
+    public void add( long bits, long timestamp, String modifiedBy ){
+    }
+    
+    public void written( T value, long timestamp, String modifiedBy ){
+        synchronized( journal ){
+            journal.append( entries, codec, value, timestamp, modifiedBy );
+            if( head ){
+                added++;
+                digest += headHash;
+            }
+            head = true;
+            headHash = hash( value, timestamp, modifiedBy );
+            trim();
+        }
+    }
+    
+    public void written( long bits, long timestamp, String modifiedBy ){
+        written( (T)type.box( bits ), timestamp, modifiedBy );
+    }
+    
+    public VersionHistory<T> retain( RetentionPolicy policy ){
+        synchronized( journal ){
+            this.policy = policy;
+            trim();
+            return this;
+        }
+    }
+    
+    public int size(){
+        synchronized( journal ){
+            return entries.size - entries.first - ( head ? 1 : 0 );
+        }
+    }
+    
+    public Version<T> get( int index ){
+        synchronized( journal ){
+            return journal.read( entries.positions[ position( index ) ], codec );
+        }
+    }
+    
+    public long bits( int index ){
+        return type.bits( get( index ).value() );
+    }
+    
+    public long timestamp( int index ){
+        synchronized( journal ){
+            return journal.timestamp( entries.positions[ position( index ) ] );
+        }
+    }
+    
+    public long digest(){
+        synchronized( journal ){
+            if( !digested ){
+                digest = 0;
+                for( int i = 0; i < size(); i++ ){
+                    digest += hash( get( i ) );
+                }
+                if( head ){
+                    headHash = hash( journal.read( entries.positions[ entries.size - 1 ], codec ) );
+                }
+                digested = true;
+            }
+            return digest;
+        }
+    }
+    
+    public long added(){
+        synchronized( journal ){
+            return added;
+        }
+    }
+    
+    private int position( int index ){
+        if( index < 0 || index >= size() ){
+            throw new IndexOutOfBoundsException( "Index: " + index + ", Size: " + size() );
+        }
+        return entries.first + index;
+    }
+    
+    //discards the versions the retention policy does not keep
+    private void trim(){
+        int excess = size() - policy.maxVersions();
+        for( int i = 0; i < excess; i++ ){
+            discard();
+        }
+        
+        if( policy.maxAge() != Long.MAX_VALUE && head ){
+            long oldest = journal.timestamp( entries.positions[ entries.size - 1 ] ) - policy.maxAge();
+            while( size() > 0 && journal.timestamp( entries.positions[ entries.first ] ) < oldest ){
+                discard();
+            }
+        }
+    }
+    
+    //discards the oldest version
+    private void discard(){
+        if( digested ){
+            digest -= hash( journal.read( entries.positions[ entries.first ], codec ) );
+        }
+        entries.first++;
+    }
+    
+    private long hash( Version<T> version ){
+        return hash( version.value(), version.timestamp(), version.modifiedBy() );
+    }
+    
+    private long hash( T value, long timestamp, String modifiedBy ){
+        int valueHash = type != null && value != null ? Long.hashCode( type.bits( value ) ) : Objects.hashCode( value );
+        return PropMerge.hash( timestamp, modifiedBy, valueHash );
+    }
+}
@@ -0,0 +1,154 @@
+package props;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The time taken by the listeners of one class to handle change events, as
+ * collected by a PropMetrics.
+ * 
+ * Latencies are kept in a histogram with power of two buckets: bucket 0
+ * counts notifications that took no measurable time, and bucket i counts
+ * those that took at least 2^(i-1) and less than 2^i nanoseconds.
+ * Percentiles are reported as the upper bound of their bucket.
+ */
+public class ListenerLatency
+{
+    private static final int BUCKETS = 64;
+    
+    private final String listener;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+    private final LongAdder slow = new LongAdder();
+    private final AtomicLongArray histogram = new AtomicLongArray( BUCKETS );
+    
+    ListenerLatency( String listener ){
+        this.listener = listener;
+    }
+    
+    /**
+     * Counts one notification.
+     * @param nanos the time the listener took
+     * @param isSlow true if the time exceeded the slow listener threshold
+     * @return the number of slow notifications, including this one, if it
+     *         was slow
+     */
+    long add( long nanos, boolean isSlow ){
+        count.increment();
+        totalNanos.add( nanos );
+        long max = maxNanos.get();
+        while( nanos > max && !maxNanos.compareAndSet( max, nanos ) ){
+            max = maxNanos.get();
+        }
+        histogram.incrementAndGet( Math.min( BUCKETS - 1, 64 - Long.numberOfLeadingZeros( nanos ) ) );
+        if( isSlow ){
+            slow.increment();
+            return slow.sum();
+        }
+        return 0;
+    }
+    
+    void reset(){
+        count.reset();
+        totalNanos.reset();
+        maxNanos.set( 0 );
+        slow.reset();
+        for( int i = 0; i < BUCKETS; i++ ){
+            histogram.set( i, 0 );
+        }
+    }
+    
+    /**
+     * Returns the class name of the listeners.
+     * @return the listener class name
+     */
+    public String getListener(){
+        return listener;
+    }
+    
+    /**
+     * Returns the number of events the listeners have handled.
+     * @return the number of notifications
+     */
+    public long getCount(){
+        return count.sum();
+    }
+    
+    /**
+     * Returns the total time the listeners have taken.
+     * @return the total time in nanoseconds
+     */
+    public long getTotalNanos(){
+        return totalNanos.sum();
+    }
+    
+    /**
+     * Returns the longest time a listener has taken to handle an event.
+     * @return the maximum time in nanoseconds
+     */
+    public long getMaxNanos(){
+        return maxNanos.get();
+    }
+    
+    /**
+     * Returns the number of notifications that exceeded the slow listener
+     * threshold.
+     * @return the number of slow notifications
+     */
+    public long getSlowCount(){
+        return slow.sum();
+    }
+    
+    /**
+     * Returns the median time taken to handle an event.
+     * @return the upper bound of the median, in nanoseconds
+     */
+    public long getP50Nanos(){
+        return percentile( 0.5 );
+    }
+    
+    /**
+     * Returns the 99th percentile of the time taken to handle an event.
+     * @return the upper bound of the 99th percentile, in nanoseconds
+     */
+    public long getP99Nanos(){
+        return percentile( 0.99 );
+    }
+    
+    /**
+     * Returns the number of notifications in each bucket of the histogram.
+     * @return the histogram
+     */
+    public long[] getHistogram(){
+        long[] result = new long[ BUCKETS ];
+        for( int i = 0; i < BUCKETS; i++ ){
+            result[i] = histogram.get( i );
+        }
+        return result;
+    }
+    
+    /**
+     * Returns a percentile of the time taken to handle an event.
+     * @param fraction the percentile, between 0 and 1
+     * @return the upper bound of the percentile, in nanoseconds
+     */
+    public long percentile( double fraction ){
+        long[] buckets = getHistogram();
+        long total = 0;
+        for( long bucket : buckets ){
+            total += bucket;
+        }
+        
+        long rank = (long)Math.ceil( fraction * total );
+        long seen = 0;
+        for( int i = 0; i < BUCKETS; i++ ){
+            seen += buckets[i];
+            if( seen > 0 && seen >= rank ){
+                return i == 0 ? 0 : i == BUCKETS - 1 ? Long.MAX_VALUE : ( 1L << i ) - 1;
+            }
+        }
+        return 0;
+    }
+}
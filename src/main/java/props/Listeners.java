@@ -0,0 +1,100 @@
+package props;
+
+import java.util.Arrays;
+
+/**
+ * Copy-on-write operations for listener arrays.
+ * 
+ * Listener arrays are never modified once they have been published; adding
+ * or removing a listener creates a new array. Notifying listeners is then
+ * just a loop over the current array, with no copying or locking, and a
+ * listener that is added or removed during a notification does not affect
+ * that notification.
+ * 
+ * Arrays are kept with the most recently added listener first, which is
+ * the order in which listeners are notified.
+ */
+final class Listeners
+{
+    static final PropListener[] NONE = new PropListener[0];
+    
+    private Listeners(){
+    }
+    
+    /**
+     * Returns a copy of the listeners with the new listener at the front.
+     * @param listeners the current listeners
+     * @param listener the listener to add
+     * @return a new array containing the listener and the current listeners
+     */
+    static <L> L[] add( L[] listeners, L listener ){
+        L[] result = Arrays.copyOf( listeners, listeners.length + 1 );
+        System.arraycopy( listeners, 0, result, 1, listeners.length );
+        result[0] = listener;
+        return result;
+    }
+    
+    /**
+     * Returns a copy of the listeners without the earliest added occurrence
+     * of the given listener, or the same array if it is not present.
+     * @param listeners the current listeners
+     * @param listener the listener to remove
+     * @return an array without the listener
+     */
+    static <L> L[] remove( L[] listeners, L listener ){
+        for( int i = listeners.length - 1; i >= 0; i-- ){
+            if( listeners[i] == listener ){
+                return removeAt( listeners, i );
+            }
+        }
+        return listeners;
+    }
+    
+    /**
+     * Returns a copy of the PropListeners without the earliest added one
+     * that equals the given listener, or the same array if there is none.
+     * A listener that was added weakly is removed by passing the listener
+     * itself.
+     * @param listeners the current listeners
+     * @param listener the listener to remove
+     * @return an array without the listener
+     */
+    static PropListener[] removeListener( PropListener[] listeners, PropListener listener ){
+        for( int i = listeners.length - 1; i >= 0; i-- ){
+            if( listener == null ? listeners[i] == null : listener.equals( listeners[i] ) ||
+                listeners[i] instanceof WeakListener && ((WeakListener)listeners[i]).wraps( listener ) ){
+                return removeAt( listeners, i );
+            }
+        }
+        return listeners;
+    }
+    
+    private static <L> L[] removeAt( L[] listeners, int index ){
+        L[] result = Arrays.copyOf( listeners, listeners.length - 1 );
+        System.arraycopy( listeners, index + 1, result, index, listeners.length - index - 1 );
+        return result;
+    }
+    
+    /**
+     * Returns a copy of the listeners without any weakly added listeners
+     * that have been garbage collected, or the same array if there are none.
+     * @param listeners the current listeners
+     * @return an array without collected listeners
+     */
+    static <L> L[] prune( L[] listeners ){
+        L[] result = listeners;
+        int size = 0;
+        for( int i = 0; i < listeners.length; i++ ){
+            if( listeners[i] instanceof WeakListener && ((WeakListener)listeners[i]).get() == null ){
+                if( result == listeners ){
+                    result = Arrays.copyOf( listeners, listeners.length );
+                    size = i;
+                }
+            }
+            else if( result != listeners ){
+                result[size++] = listeners[i];
+            }
+        }
+        return result == listeners ? listeners : Arrays.copyOf( result, size );
+    }
+}
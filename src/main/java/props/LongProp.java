@@ -0,0 +1,246 @@
+package props;
+
+import java.util.List;
+
+/**
+ * A Prop that holds a long without boxing it.
+ * 
+ * getAsLong() and set(long) read and write the value directly, the version
+ * history stores values in primitive arrays, and LongPropListeners receive
+ * the new and previous values as longs. Nothing is allocated when the value
+ * is read or written, unless PropListeners are registered; they receive
+ * boxed values in a PropChangedEvent as usual.
+ * 
+ * LongPropListeners are always notified on the thread that changes the
+ * property, before any PropListeners, and are not deferred by a Batch or
+ * an AsyncDispatcher.
+ */
+public class LongProp extends Prop<Long>
+{
+    private static final LongPropListener[] NO_LISTENERS = new LongPropListener[0];
+    
+    private long value;
+    private transient volatile LongPropListener[] longListeners = NO_LISTENERS;
+    
+    /**
+     * Creates a new LongProp with no initial value or parent, and record changes enabled.
+     */
+    public LongProp(){
+        this( null, null, true );
+    }
+    
+    /**
+     * Creates a new LongProp with an initial value, no parent, and record changes enabled.
+     * @param value the initial value
+     */
+    public LongProp( long value ){
+        this( null, value );
+    }
+    
+    /**
+     * Creates a new LongProp with a parent, an initial value, and record changes enabled.
+     * @param parent the parent object
+     * @param value the initial value
+     */
+    public LongProp( Object parent, long value ){
+        this( parent, Long.valueOf( value ), true );
+    }
+    
+    /**
+     * Constructs a new LongProp instance.
+     * @param parent the parent object of this property.
+     * @param value the initial value of the property. If this is null, set() 
+     *              will return false
+     * @param recordChanges if true, this property will make a historical
+     *                      record of modifications, including values,
+     *                      the user making the change, and the timestamp.
+     */
+    public LongProp( Object parent, Long value, boolean recordChanges ){
+        this( parent, value, recordChanges, -1, null );
+    }
+    
+    /**
+     * Constructs a new LongProp instance.
+     * @param parent the parent object of this property.
+     * @param value the initial value of the property. If this is null, set() 
+     *              will return false
+     * @param recordChanges if true, this property will make a historical
+     *                      record of modifications, including values,
+     *                      the user making the change, and the timestamp.
+     * @param timestamp the timestamp to record for this version
+     * @param modifiedBy the modifying user's ID to record for this version
+     */
+    public LongProp( Object parent, Long value, boolean recordChanges, long timestamp, String modifiedBy ){
+        super( parent, null, recordChanges, timestamp, modifiedBy );
+        if( value != null ){
+            this.value = value;
+            update( modifiedBy, timestamp );
+        }
+    }
+    
+    /**
+     * Returns the current value of the property, or 0 if the property
+     * has not been set.
+     * @return the current value of the property.
+     */
+    public long getAsLong(){
+        return value;
+    }
+    
+    /**
+     * Returns the current value of the property, boxed, or null if the
+     * property has not been set. Use getAsLong() to avoid boxing.
+     * @return the current value of the property.
+     */
+    @Override
+    public Long get(){
+        return set() ? Long.valueOf( value ) : null;
+    }
+    
+    /**
+     * Sets the value of the property. This will cause set() to return true,
+     * update timestamp(), notify any listeners, and record a version if 
+     * record changes is enabled.
+     * @param value The new value of the property.
+     */
+    public void set( long value ){
+        set( value, null );
+    }
+    
+    /**
+     * Sets the value of the property. The value of modifiedBy will be recorded
+     * in the historical version that is created, if record changes is enabled.
+     * @param value the new value of the property
+     * @param modifiedBy an identifier for the person who made this modification
+     */
+    public void set( long value, String modifiedBy ){
+        set( value, modifiedBy, now() );
+    }
+    
+    /**
+     * Sets the value of the property. The value of timestamp will be
+     * recorded, rather than the current time.
+     * @param value the new value of the property
+     * @param timestamp the timestamp of the modification
+     */
+    public void set( long value, long timestamp ){
+        set( value, null, timestamp );
+    }
+    
+    /**
+     * Sets the value of the property. This will cause set() to return true,
+     * update timestamp(), notify any listeners, and record a version if 
+     * record changes is enabled.
+     * @param newValue the new value of the property
+     * @param modifiedBy an identifier for the person who made this modification
+     * @param timestamp the timestamp of the modification
+     */
+    public void set( long newValue, String modifiedBy, long timestamp ){
+        if( unchangedBits( value, newValue ) ){
+            if( equality().touches() ){
+                update( modifiedBy, timestamp );
+            }
+            suppressed();
+            return;
+        }
+        
+        if( recordChanges() && set() ){
+            recordBits( value, timestamp(), modifiedBy() );
+        }
+        
+        long oldValue = value;
+        value = newValue;
+        update( modifiedBy, timestamp );
+        writtenBits( newValue, timestamp, modifiedBy );
+        invalidateDependents();
+        
+        for( LongPropListener listener : longListeners ){
+            listener.propertyChanged( this, newValue, oldValue );
+        }
+        if( hasListeners() ){
+            changed( oldValue, newValue, timestamp );
+        }
+    }
+    
+    /**
+     * Sets the value of the property from a boxed value.
+     * @param newValue the new value of the property, which must not be null
+     * @param modifiedBy an identifier for the person who made this modification
+     * @param timestamp the timestamp of the modification
+     */
+    @Override
+    public void set( Long newValue, String modifiedBy, long timestamp ){
+        if( newValue == null ){
+            throw new IllegalArgumentException( "LongProp values must not be null" );
+        }
+        set( newValue.longValue(), modifiedBy, timestamp );
+    }
+    
+    /**
+     * Returns the value of one of the previous versions of this property,
+     * without boxing it.
+     * @param index the index of the version, where 0 is the oldest
+     * @return the value of the version at the given index
+     * @throws IndexOutOfBoundsException if there is no version at the index
+     */
+    public long valueAt( int index ){
+        if( index < 0 || index >= versionCount() ){
+            throw new IndexOutOfBoundsException( "Index: " + index + ", Size: " + versionCount() );
+        }
+        long bits = history().bits( index );
+        return bits;
+    }
+    
+    /**
+     * Adds a listener that receives the values of this property as longs.
+     * @param listener the listener
+     */
+    public void addListener( LongPropListener listener ){
+        longListeners = Listeners.add( longListeners, listener );
+    }
+    
+    /**
+     * Removes a listener that receives the values of this property as longs.
+     * @param listener the listener
+     */
+    public void removeListener( LongPropListener listener ){
+        longListeners = Listeners.remove( longListeners, listener );
+    }
+    
+    /**
+     * Removes all listeners from this property, including LongPropListeners.
+     */
+    @Override
+    public void removeListeners(){
+        super.removeListeners();
+        longListeners = NO_LISTENERS;
+    }
+    
+    @Override
+    void restore( Long value, boolean set, long timestamp, String modifiedBy, List<Version<Long>> history ){
+        super.restore( null, set, timestamp, modifiedBy, history );
+        this.value = value == null ? 0 : value;
+    }
+    
+    @Override
+    void replace( Long value, long timestamp, String modifiedBy ){
+        this.value = value == null ? 0 : value;
+        update( modifiedBy, timestamp );
+    }
+    
+    @Override
+    void merged( Long oldValue, Long newValue, long timestamp ){
+        long previous = oldValue == null ? 0 : oldValue;
+        for( LongPropListener listener : longListeners ){
+            listener.propertyChanged( this, value, previous );
+        }
+        if( hasListeners() ){
+            changed( oldValue, newValue, timestamp );
+        }
+    }
+    
+    @Override
+    VersionHistory<Long> newHistory( RetentionPolicy retention ){
+        return new RingHistory( retention, PrimitiveType.LONG );
+    }
+}
@@ -0,0 +1,6 @@
+package props;
+
+public interface LongPropListener
+{
+    public void propertyChanged( LongProp property, long value, long previousValue );
+}
@@ -0,0 +1,84 @@
+package props;
+
+/**
+ * The primitive types of the primitive Prop specializations. Histories store
+ * primitive values as the bits of a long, which these convert to and from
+ * the boxed type.
+ */
+enum PrimitiveType
+{
+    INT{
+        Object box( long bits ){
+            return Integer.valueOf( (int)bits );
+        }
+        
+        long bits( Object value ){
+            return ((Integer)value).intValue();
+        }
+    },
+    
+    LONG{
+        Object box( long bits ){
+            return Long.valueOf( bits );
+        }
+        
+        long bits( Object value ){
+            return ((Long)value).longValue();
+        }
+    },
+    
+    DOUBLE{
+        Object box( long bits ){
+            return Double.valueOf( Double.longBitsToDouble( bits ) );
+        }
+        
+        long bits( Object value ){
+            return Double.doubleToRawLongBits( ((Double)value).doubleValue() );
+        }
+    },
+    
+    BOOLEAN{
+        Object box( long bits ){
+            return Boolean.valueOf( bits != 0 );
+        }
+        
+        long bits( Object value ){
+            return ((Boolean)value).booleanValue() ? 1 : 0;
+        }
+    };
+    
+    /**
+     * Returns the boxed value represented by the bits.
+     * @param bits the bits of a primitive value
+     * @return the boxed value
+     */
+    abstract Object box( long bits );
+    
+    /**
+     * Returns the bits that represent a boxed value.
+     * @param value the boxed value
+     * @return the bits of the primitive value
+     */
+    abstract long bits( Object value );
+    
+    /**
+     * Returns the primitive type of a property.
+     * @param prop the property
+     * @return the primitive type, or null if the property holds objects
+     */
+    static PrimitiveType of( Prop<?> prop ){
+        if( prop instanceof IntProp ){
+            return INT;
+        }
+        if( prop instanceof LongProp ){
+            return LONG;
+        }
+        if( prop instanceof DoubleProp ){
+            return DOUBLE;
+        }
+        if( prop instanceof BooleanProp ){
+            return BOOLEAN;
+        }
+        return null;
+    }
+}
@@ -2,9 +2,10 @@ package props;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Date;
 import java.util.List;
-import java.util.UUID;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.stream.Stream;
 
 /**
  * 
@@ -24,7 +25,8 @@ import java.util.UUID;
  *     for setting the current value of this property.
  * 
  * 1.  **Modification timestamp** - `pojo.name.timestamp()` returns a long 
- *     representing the Unix time that this property was last modified.
+ *     representing the Unix time that this property was last modified, or
+ *     a timestamp from the property's `PropClock`.
  * 
  * 1.  **Change listeners** - Each property can notify listeners of changes to 
  *     the property's value, using the `PropListener` interface and 
@@ -70,7 +72,8 @@ import java.util.UUID;
  */
 public class Prop<T>
 {
-    private String uuid = UUID.randomUUID().toString();
+    //generated on the first call to uuid()
+    private String uuid;
     private transient Object parent;
     private T value;
     private boolean set;
@@ -78,9 +81,32 @@ public class Prop<T>
     private String modifiedBy;
     
     private final boolean recordChanges;
-    private List<Version<T>> versions;
+    private RetentionPolicy retention = RetentionPolicy.unbounded();
+    private EqualityPolicy<? super T> equality = EqualityPolicy.none();
+    private transient PropClock clock = PropClock.system();
+    //created when the first version is recorded
+    private VersionHistory<T> versions;
     
-    private transient List<PropListener> changeListeners;
+    //most recently added first, which is the order notifications are sent;
+    //replaced, never modified, when listeners are added or removed
+    private transient volatile PropListener[] changeListeners = Listeners.NONE;
+    //the listeners that also receive touched events, in the same order
+    private transient volatile PropListener[] touchListeners = Listeners.NONE;
+    //set when a weak listener was found collected, so that the thread
+    //that changes the property prunes it
+    private transient volatile boolean collected;
+    //null to notify listeners on the thread that changed the property
+    private transient volatile AsyncDispatcher dispatcher;
+    //null unless a ChangeTracker is tracking this property
+    private transient ChangeTracker.Slot tracked;
+    //the ComputedProps that depend on this property, or null if there are
+    //none; replaced, never modified, like the listeners
+    private transient volatile ComputedProp<?>[] dependents;
+    //the PropIndexes this property is in, or null if there are none;
+    //replaced, never modified, like the dependents
+    private transient volatile PropIndex<?>[] indexes;
+    //null unless metrics are being collected for this property
+    private transient volatile PropMetrics metrics;
     
     /**
      * Creates a new Prop with no initial value or parent, and record changes enabled.
@@ -131,8 +157,6 @@ public class Prop<T>
      * @param modifiedBy the modifying user's ID to record for this version
      */
     public Prop( Object parent, T value, boolean recordChanges, long timestamp, String modifiedBy ) {
-        uuid = UUID.randomUUID().toString();
-        
         this.parent = parent;
         this.timestamp = timestamp;
         this.modifiedBy = modifiedBy;
@@ -142,11 +166,6 @@ public class Prop<T>
         }
         
         this.recordChanges = recordChanges;
-        if( recordChanges ){
-            versions = new ArrayList();
-        }
-        
-        changeListeners = new ArrayList();
     }
     
     /**
@@ -200,7 +219,7 @@ public class Prop<T>
      * @param modifiedBy an identifier for the person who made this modification
      */
     public void set(T value, String modifiedBy ){
-        set( value, modifiedBy, new Date().getTime() );
+        set( value, modifiedBy, now() );
     }
     
     /**
@@ -222,9 +241,17 @@ public class Prop<T>
      * @param timestamp the timestamp of the modification
      */
     public void set(T newValue, String modifiedBy, long timestamp ){
+        if( set && equality.same( this.value, newValue ) ){
+            if( equality.touches() ){
+                this.timestamp = timestamp;
+                this.modifiedBy = modifiedBy;
+            }
+            suppressed();
+            return;
+        }
+        
         if( recordChanges && set ){
-            Version<T> previous = new Version( this.value, this.timestamp, this.modifiedBy );
-            versions.add( previous );
+            record( this.value, this.timestamp, this.modifiedBy );
         }
         
         T oldValue = this.value;
@@ -232,8 +259,10 @@ public class Prop<T>
         this.set = true;
         this.timestamp = timestamp;
         this.modifiedBy = modifiedBy;
+        written( newValue, timestamp, modifiedBy );
+        invalidateDependents();
         
-        changed( oldValue, newValue );
+        changed( oldValue, newValue, timestamp );
     }
     
     /**
@@ -241,7 +270,34 @@ public class Prop<T>
      * @param listener the listener
      */
     public void addListener( PropListener listener ){
-        changeListeners.add( listener );
+        changeListeners = Listeners.add( Listeners.prune( changeListeners ), listener );
+    }
+    
+    /**
+     * Adds a listener to this property. If touches is true, the listener is
+     * also notified of writes that the equality policy does not treat as
+     * changes, with a PropChangedEvent whose touched() returns true.
+     * @param listener the listener
+     * @param touches true to notify the listener of touches as well as changes
+     */
+    public void addListener( PropListener listener, boolean touches ){
+        addListener( listener );
+        if( touches ){
+            touchListeners = Listeners.add( Listeners.prune( touchListeners ), listener );
+        }
+    }
+    
+    /**
+     * Adds a listener to this property through a weak reference, so that
+     * the property does not keep the listener from being garbage collected.
+     * Once the listener has been collected, it is removed from the property
+     * the next time the property changes or a listener is added. The caller
+     * must keep a reference to the listener for as long as it should be
+     * notified. removeListener() removes it as usual.
+     * @param listener the listener
+     */
+    public void addWeakListener( PropListener listener ){
+        addListener( new WeakListener( this, listener ) );
     }
     
     /**
@@ -249,28 +305,534 @@ public class Prop<T>
      * @param listener the listener
      */
     public void removeListener( PropListener listener ){
-        changeListeners.remove( listener );
+        changeListeners = Listeners.removeListener( changeListeners, listener );
+        touchListeners = Listeners.removeListener( touchListeners, listener );
     }
     
     /**
      * Removes all listeners from this property.
      */
     public void removeListeners(){
-        changeListeners.clear();
+        changeListeners = Listeners.NONE;
+        touchListeners = Listeners.NONE;
     }
     
-    private void changed( T oldValue, T newValue ){
-        if( changeListeners != null && !changeListeners.isEmpty() ){
-            PropChangedEvent event = new PropChangedEvent( this, newValue, oldValue );
-            
-            List<PropListener> toNotify = new ArrayList();
-            toNotify.addAll( changeListeners );
-            Collections.reverse( toNotify );
-            
+    /**
+     * Opens a batch on the current thread. Until the batch is closed,
+     * listeners are not notified of changes made by this thread; when it is
+     * closed, each property that changed notifies its listeners once, with
+     * its value from before the batch and its final value.
+     * 
+     * ```java
+     * try( Batch batch = Prop.batch() ){
+     *     pojo.name.set( "Sue" );
+     *     pojo.age.set( 36 );
+     * }
+     * ```
+     * @return the batch, which must be closed by the same thread
+     */
+    public static Batch batch(){
+        return Batch.open();
+    }
+    
+    /**
+     * Runs the changes in a batch, and then notifies the listeners of each
+     * property that changed once.
+     * @param changes the changes to make
+     */
+    public static void batch( Runnable changes ){
+        Batch batch = Batch.open();
+        try{
+            changes.run();
+        }
+        finally{
+            batch.close();
+        }
+    }
+    
+    /**
+     * Returns the dispatcher that notifies listeners of changes to this
+     * property, or null if listeners are notified by the thread that
+     * changes the property.
+     * @return the dispatcher of this property.
+     */
+    public AsyncDispatcher dispatcher(){
+        return dispatcher;
+    }
+    
+    /**
+     * Sets the dispatcher that notifies listeners of changes to this
+     * property. If this is null, which is the default, listeners are
+     * notified by the thread that changes the property, before set()
+     * returns.
+     * @param dispatcher the dispatcher of this property.
+     */
+    public void dispatcher( AsyncDispatcher dispatcher ){
+        this.dispatcher = dispatcher;
+    }
+    
+    /**
+     * Returns the metrics that this property is counted in, or null if
+     * metrics are not being collected for it.
+     * @return the metrics of this property
+     */
+    public PropMetrics metrics(){
+        return metrics;
+    }
+    
+    /**
+     * Sets the metrics that this property is counted in. If this is null,
+     * which is the default, no metrics are collected and the only cost is
+     * a null check on each write. Several properties can share one
+     * PropMetrics.
+     * @param metrics the metrics of this property
+     */
+    public void metrics( PropMetrics metrics ){
+        PropMetrics previous = this.metrics;
+        if( previous != null ){
+            previous.remove( this );
+        }
+        this.metrics = metrics;
+        if( metrics != null ){
+            metrics.add( this );
+        }
+    }
+    
+    /**
+     * Returns a Flow.Publisher of the changes to this property. Subscribers
+     * are signalled on the executor, and each has a queue of at most
+     * capacity events; see PropPublisher.
+     * @param executor the executor on which subscribers are signalled
+     * @param capacity the maximum number of undelivered events per subscriber
+     * @param policy what to do when this property changes while a
+     *               subscriber's queue is full
+     * @return a publisher of changes to this property
+     */
+    public PropPublisher<T> publisher( Executor executor, int capacity, BackpressurePolicy policy ){
+        return new PropPublisher( executor, capacity, policy, this );
+    }
+    
+    /**
+     * Returns the current time from the clock of this property, used as the
+     * timestamp of modifications that do not specify one.
+     * @return the current time
+     */
+    long now(){
+        return clock.now();
+    }
+    
+    /**
+     * Returns true if this property keeps a history of previous versions.
+     * @return true if record changes is enabled
+     */
+    boolean recordChanges(){
+        return recordChanges;
+    }
+    
+    /**
+     * Adds a previous version to the history of this property.
+     * @param value the value being replaced
+     * @param timestamp the timestamp of the value being replaced
+     * @param modifiedBy the modifying user's ID of the value being replaced
+     */
+    void record( T value, long timestamp, String modifiedBy ){
+        history().add( value, timestamp, modifiedBy );
+        PropMetrics m = metrics;
+        if( m != null ){
+            m.recorded();
+        }
+    }
+    
+    /**
+     * Adds a previous version of a primitive property to its history.
+     * @param bits the bits of the value being replaced
+     * @param timestamp the timestamp of the value being replaced
+     * @param modifiedBy the modifying user's ID of the value being replaced
+     */
+    void recordBits( long bits, long timestamp, String modifiedBy ){
+        history().add( bits, timestamp, modifiedBy );
+        PropMetrics m = metrics;
+        if( m != null ){
+            m.recorded();
+        }
+    }
+    
+    /**
+     * Returns the history of this property, creating it if necessary.
+     * @return the history of this property
+     */
+    VersionHistory<T> history(){
+        if( versions == null ){
+            versions = newHistory( historyRetention() );
+        }
+        return versions;
+    }
+    
+    /**
+     * Replaces the history of this property.
+     * @param history the new history
+     */
+    void history( VersionHistory<T> history ){
+        versions = history;
+    }
+    
+    /**
+     * Passes a write on to the history, if there is one, for histories
+     * that also keep the current value, counts it in the metrics, marks
+     * the property dirty in its ChangeTracker, and updates its indexes.
+     * The dependents are invalidated separately, by invalidateDependents(),
+     * so that a ConcurrentProp can do it once its lock is released.
+     * @param value the new value
+     * @param timestamp the timestamp of the write
+     * @param modifiedBy the modifying user's ID of the write
+     */
+    void written( T value, long timestamp, String modifiedBy ){
+        if( versions != null ){
+            versions.written( value, timestamp, modifiedBy );
+        }
+        PropMetrics m = metrics;
+        if( m != null ){
+            m.written();
+        }
+        if( tracked != null ){
+            tracked.mark();
+        }
+        if( indexes != null ){
+            PropIndex.update( indexes, this );
+        }
+    }
+    
+    /**
+     * Passes a write of a primitive property on to the history, if there
+     * is one, counts it in the metrics, marks the property dirty in its
+     * ChangeTracker, and updates its indexes.
+     * @param bits the bits of the new primitive value
+     * @param timestamp the timestamp of the write
+     * @param modifiedBy the modifying user's ID of the write
+     */
+    void writtenBits( long bits, long timestamp, String modifiedBy ){
+        if( versions != null ){
+            versions.written( bits, timestamp, modifiedBy );
+        }
+        PropMetrics m = metrics;
+        if( m != null ){
+            m.written();
+        }
+        if( tracked != null ){
+            tracked.mark();
+        }
+        if( indexes != null ){
+            PropIndex.update( indexes, this );
+        }
+    }
+    
+    /**
+     * Marks the ComputedProps that depend on this property dirty after a
+     * write, and recomputes those with listeners unless a batch is open.
+     */
+    void invalidateDependents(){
+        ComputedProp<?>[] current = dependents;
+        if( current != null ){
+            ComputedProp.invalidate( current );
+        }
+    }
+    
+    /**
+     * Registers a ComputedProp that depends on this property.
+     * @param dependent the ComputedProp
+     */
+    void addDependent( ComputedProp<?> dependent ){
+        dependents = Listeners.add( dependents == null ? new ComputedProp<?>[ 0 ] : dependents, dependent );
+    }
+    
+    /**
+     * Unregisters a ComputedProp that depends on this property.
+     * @param dependent the ComputedProp
+     */
+    void removeDependent( ComputedProp<?> dependent ){
+        if( dependents != null ){
+            ComputedProp<?>[] remaining = Listeners.remove( dependents, dependent );
+            dependents = remaining.length == 0 ? null : remaining;
+        }
+    }
+    
+    /**
+     * Adds this property to a PropIndex, which is updated by every write.
+     * @param index the index
+     */
+    void addIndex( PropIndex<?> index ){
+        indexes = Listeners.add( indexes == null ? new PropIndex<?>[ 0 ] : indexes, index );
+    }
+    
+    /**
+     * Removes this property from a PropIndex.
+     * @param index the index
+     */
+    void removeIndex( PropIndex<?> index ){
+        if( indexes != null ){
+            PropIndex<?>[] remaining = Listeners.remove( indexes, index );
+            indexes = remaining.length == 0 ? null : remaining;
+        }
+    }
+    
+    /**
+     * Returns true if this property is in a PropIndex.
+     * @return true if the property has indexes
+     */
+    boolean indexed(){
+        return indexes != null;
+    }
+    
+    /**
+     * Updates the indexes of this property after its value was replaced
+     * without a write, as when it is restored.
+     */
+    void reindex(){
+        PropIndex<?>[] current = indexes;
+        if( current != null ){
+            PropIndex.update( current, this );
+        }
+    }
+    
+    /**
+     * Returns the ComputedProps that depend on this property.
+     * @return the dependents, or null if there are none
+     */
+    ComputedProp<?>[] dependents(){
+        return dependents;
+    }
+    
+    /**
+     * Returns the tracker slot of this property.
+     * @return the slot, or null if the property is not tracked
+     */
+    ChangeTracker.Slot tracked(){
+        return tracked;
+    }
+    
+    /**
+     * Sets the tracker slot of this property.
+     * @param tracked the slot
+     */
+    void tracked( ChangeTracker.Slot tracked ){
+        this.tracked = tracked;
+    }
+    
+    /**
+     * Creates an empty history for this property.
+     * @param retention the retention policy of the history
+     * @return a new history
+     */
+    VersionHistory<T> newHistory( RetentionPolicy retention ){
+        return new RingHistory( retention, null );
+    }
+    
+    /**
+     * Marks the property as set and updates the timestamp and modifiedBy,
+     * for subclasses that keep the value themselves.
+     * @param modifiedBy an identifier for the person who made this modification
+     * @param timestamp the timestamp of the modification
+     */
+    void update( String modifiedBy, long timestamp ){
+        this.set = true;
+        this.timestamp = timestamp;
+        this.modifiedBy = modifiedBy;
+    }
+    
+    /**
+     * Replaces the state and history of this property, without notifying
+     * listeners. Used when decoding a property.
+     * @param value the value of the property
+     * @param set true if the property has been set
+     * @param timestamp the timestamp of the most recent modification
+     * @param modifiedBy the modifying user's ID of the most recent modification
+     * @param history the previous versions, oldest first, or null if there are none
+     */
+    void restore( T value, boolean set, long timestamp, String modifiedBy, List<Version<T>> history ){
+        if( journaled() ){
+            //the journal only appends, so it cannot take a replaced history
+            throw new IllegalStateException( "A property attached to a PropJournal cannot be restored" );
+        }
+        this.value = value;
+        this.set = set;
+        this.timestamp = timestamp;
+        this.modifiedBy = modifiedBy;
+        
+        versions = null;
+        if( recordChanges && history != null ){
+            for( Version<T> version : history ){
+                record( version.value(), version.timestamp(), version.modifiedBy() );
+            }
+        }
+    }
+    
+    /**
+     * Returns true if this property is attached to a PropJournal.
+     * @return true if the history is kept in a journal
+     */
+    boolean journaled(){
+        return versions instanceof JournalHistory;
+    }
+    
+    /**
+     * Returns true if any listeners are registered with this property.
+     * @return true if this property has listeners
+     */
+    boolean hasListeners(){
+        return changeListeners.length > 0;
+    }
+    
+    /**
+     * Returns the listeners currently registered with this property.
+     * @return the listeners, which must not be modified
+     */
+    PropListener[] listeners(){
+        return changeListeners;
+    }
+    
+    /**
+     * Notifies the listeners of a change to the value of this property.
+     * @param oldValue the value before the change
+     * @param newValue the value after the change
+     * @param timestamp the timestamp of the change
+     */
+    void changed( T oldValue, T newValue, long timestamp ){
+        if( !Batch.defer( this, oldValue, newValue, timestamp ) ){
+            notifyListeners( oldValue, newValue, timestamp );
+        }
+    }
+    
+    /**
+     * Notifies the listeners of a change, even if a batch is open.
+     * @param oldValue the value before the change
+     * @param newValue the value after the change
+     * @param timestamp the timestamp of the change
+     */
+    void notifyListeners( T oldValue, T newValue, long timestamp ){
+        PropListener[] toNotify = changeListeners;
+        if( toNotify.length > 0 ){
+            PropMetrics m = metrics;
+            if( m != null ){
+                m.event();
+            }
+            dispatch( new PropChangedEvent( this, newValue, oldValue, timestamp, false ), toNotify );
+        }
+    }
+    
+    /**
+     * Handles a write that the equality policy did not treat as a change,
+     * after the timestamp and modifiedBy have been updated if the policy
+     * touches. Listeners that asked for touches are notified immediately,
+     * even if a batch is open.
+     */
+    void suppressed(){
+        if( tracked != null && equality.touches() ){
+            tracked.mark();
+        }
+        PropMetrics m = metrics;
+        if( m != null ){
+            m.suppressed();
+        }
+        
+        PropListener[] toNotify = touchListeners;
+        if( toNotify.length > 0 ){
+            T current = get();
+            dispatch( new PropChangedEvent( this, current, current, timestamp(), true ), toNotify );
+        }
+    }
+    
+    /**
+     * Returns true if a write of a primitive property should be ignored
+     * under the equality policy.
+     * @param bits the bits of the current value
+     * @param newBits the bits of the new value
+     * @return true if the write is not a change
+     */
+    boolean unchangedBits( long bits, long newBits ){
+        EqualityPolicy<? super T> policy = equality;
+        if( policy.isNone() || !set() ){
+            return false;
+        }
+        if( policy.comparesBits() ){
+            return bits == newBits;
+        }
+        PrimitiveType type = PrimitiveType.of( this );
+        return ((EqualityPolicy<Object>)policy).same( type.box( bits ), type.box( newBits ) );
+    }
+    
+    /**
+     * Returns true if a value is the same as an earlier one under the
+     * equality policy, so that going from one to the other is not a change.
+     * The values of primitive properties are boxed, so they are compared
+     * with equals() wherever the policy would compare their bits.
+     * @param oldValue the earlier value
+     * @param newValue the later value
+     * @return true if the values are the same
+     */
+    boolean unchanged( T oldValue, T newValue ){
+        EqualityPolicy<? super T> policy = equality;
+        if( policy.isNone() ){
+            return false;
+        }
+        if( policy.comparesBits() && PrimitiveType.of( this ) != null ){
+            return Objects.equals( oldValue, newValue );
+        }
+        return policy.same( oldValue, newValue );
+    }
+    
+    /**
+     * Returns true if the current thread holds this property's lock, in
+     * which case it must not wait for an AsyncDispatcher.
+     * @return true if the lock is held
+     */
+    boolean holdsLock(){
+        return false;
+    }
+    
+    /**
+     * Called by a WeakListener whose listener has been collected. It may be
+     * called on an AsyncDispatcher's thread, and a Prop is not thread-safe,
+     * so the listener is only marked for removal; the thread that changes
+     * the property prunes it.
+     * @param listener the collected listener
+     */
+    void collected( WeakListener listener ){
+        collected = true;
+    }
+    
+    //notifies listeners of an event on the dispatcher, or on this thread
+    private void dispatch( PropChangedEvent event, PropListener[] toNotify ){
+        AsyncDispatcher async = dispatcher;
+        if( async != null ){
+            prune();
+            async.dispatch( event, toNotify );
+            if( !holdsLock() ){
+                async.throttle();
+            }
+            return;
+        }
+        
+        PropMetrics m = metrics;
+        if( m != null ){
+            for( PropListener listener : toNotify ){
+                m.deliver( listener, event );
+            }
+        }
+        else{
             for( PropListener listener : toNotify ){
                 listener.propertyChanged( event );
             }
         }
+        prune();
+    }
+    
+    //removes the weak listeners that were found collected
+    private void prune(){
+        if( collected ){
+            collected = false;
+            changeListeners = Listeners.prune( changeListeners );
+            touchListeners = Listeners.prune( touchListeners );
+        }
     }
     
     /**
@@ -280,7 +842,11 @@ public class Prop<T>
     public List<Version<T>> versions(){
         if( recordChanges ){
             List<Version<T>> result = new ArrayList();
-            result.addAll( versions );
+            if( versions != null ){
+                for( int i = 0; i < versions.size(); i++ ){
+                    result.add( versions.get( i ) );
+                }
+            }
             return result;
         }
         else{
@@ -289,10 +855,368 @@ public class Prop<T>
     }
     
     /**
-     * Returns the unique identifier of this property.
+     * Returns an unmodifiable view of the previous versions of this property,
+     * oldest first, without copying them. The view is only valid until the
+     * next version is recorded; after that, reading from it throws
+     * ConcurrentModificationException. Use versions() for a list that can
+     * be kept. If record changes is disabled, the view is empty.
+     * @return a view of the previous versions of this property.
+     */
+    public List<Version<T>> versionsView(){
+        return view( 0, versionCount() );
+    }
+    
+    /**
+     * Returns the number of previous versions of this property.
+     * @return the number of previous versions of this property.
+     */
+    public int versionCount(){
+        return versions == null ? 0 : versions.size();
+    }
+    
+    /**
+     * Returns the order-independent hash of the previous versions of this
+     * property, which PropMerge.digest() combines with the current version.
+     * @return the digest of the history, or 0 if there is none
+     */
+    long historyDigest(){
+        return versions == null ? 0 : versions.digest();
+    }
+    
+    /**
+     * Returns one of the previous versions of this property.
+     * @param index the index of the version, where 0 is the oldest
+     * @return the version at the given index
+     * @throws IndexOutOfBoundsException if there is no version at the index
+     */
+    public Version<T> versionAt( int index ){
+        if( index < 0 || index >= versionCount() ){
+            throw new IndexOutOfBoundsException( "Index: " + index + ", Size: " + versionCount() );
+        }
+        return versions.get( index );
+    }
+    
+    /**
+     * Returns a view of the most recent previous versions of this property,
+     * oldest first. The view has the same restrictions as versionsView().
+     * @param count the maximum number of versions to return
+     * @return a view of the most recent previous versions
+     */
+    public List<Version<T>> latestVersions( int count ){
+        if( count < 0 ){
+            throw new IllegalArgumentException( "Count must not be negative: " + count );
+        }
+        int size = versionCount();
+        return view( Math.max( 0, size - count ), size );
+    }
+    
+    /**
+     * Returns a view of the previous versions of this property with a
+     * timestamp from fromTimestamp (inclusive) to toTimestamp (exclusive),
+     * oldest first. The versions are found with a binary search, which
+     * assumes that timestamps do not decrease from one version to the next,
+     * as is the case when the current time is used. The view has the same
+     * restrictions as versionsView().
+     * @param fromTimestamp the earliest timestamp to include
+     * @param toTimestamp the timestamp after the latest timestamp to include
+     * @return a view of the versions in the given time range
+     */
+    public List<Version<T>> versionsBetween( long fromTimestamp, long toTimestamp ){
+        if( toTimestamp <= fromTimestamp ){
+            return Collections.emptyList();
+        }
+        return view( firstVersionAtOrAfter( fromTimestamp ), firstVersionAtOrAfter( toTimestamp ) );
+    }
+    
+    /**
+     * Returns the version of this property that was current at the given
+     * time: the current version if it is no newer than timestamp, otherwise
+     * the newest previous version that is. The version is found with a
+     * binary search, with the same assumption as versionsBetween().
+     * @param timestamp the time
+     * @return the version current at the given time, or null if the
+     *         property had not been set by then, or if the history does
+     *         not reach back that far
+     */
+    public Version<T> asOf( long timestamp ){
+        if( !set() ){
+            return null;
+        }
+        if( timestamp() <= timestamp ){
+            return currentVersion();
+        }
+        if( timestamp == Long.MAX_VALUE ){
+            return null;
+        }
+        int index = firstVersionAtOrAfter( timestamp + 1 ) - 1;
+        return index < 0 ? null : versions.get( index );
+    }
+    
+    /**
+     * Returns the current value, timestamp and modifiedBy of this property
+     * as a Version, or null if it has not been set.
+     * @return the current version
+     */
+    Version<T> currentVersion(){
+        return set() ? new Version( get(), timestamp(), modifiedBy() ) : null;
+    }
+    
+    /**
+     * Returns the current version of this property, or previous if it has
+     * the same value, timestamp and modifiedBy, so that successive
+     * snapshots share the versions of properties that have not changed.
+     * @param previous a version returned by an earlier call, or null
+     * @return the current version
+     */
+    Version<T> currentVersion( Version<T> previous ){
+        if( previous != null && set() && timestamp() == previous.timestamp() &&
+            Objects.equals( modifiedBy(), previous.modifiedBy() ) && Objects.equals( get(), previous.value() ) ){
+            return previous;
+        }
+        return currentVersion();
+    }
+    
+    /**
+     * Merges the state of a replica of this property into this one, treating
+     * the property as a last-writer-wins register. If the replica's current
+     * version wins under PropMerge.compare(), it becomes the current version
+     * of this property and listeners are notified. If this property uses a
+     * HybridLogicalClock, the clock is updated with the replica's timestamp,
+     * so that later writes here follow the merged one.
+     * 
+     * If record changes is enabled, the replica's previous versions and the
+     * losing current version are merged into the history, as sorted runs.
+     * Versions older than those the retention policy has already discarded
+     * here are skipped. The history of a property attached to a PropJournal
+     * only records the merged current version.
+     * @param remote the replica
+     * @return true if the current version of this property was replaced
+     */
+    public boolean merge( Prop<T> remote ){
+        if( remote == this ){
+            return false;
+        }
+        Version<T> theirs = remote.currentVersion();
+        List<Version<T>> history = recordChanges && remote.recordChanges() ? remote.versions() : Collections.<Version<T>>emptyList();
+        if( theirs != null && clock instanceof HybridLogicalClock ){
+            ((HybridLogicalClock)clock).update( theirs.timestamp() );
+        }
+        
+        Version<T> replaced = merge( theirs, history );
+        if( replaced == null ){
+            return false;
+        }
+        invalidateDependents();
+        merged( replaced.value(), theirs.value(), theirs.timestamp() );
+        return true;
+    }
+    
+    /**
+     * Merges a replica's current version and history into this property,
+     * without notifying listeners.
+     * @param theirs the replica's current version, or null if it is not set
+     * @param remoteHistory the replica's previous versions, oldest first
+     * @return the current version this replaced, with a null value if this
+     *         property was not set, or null if theirs did not win
+     */
+    Version<T> merge( Version<T> theirs, List<Version<T>> remoteHistory ){
+        Version<T> mine = currentVersion();
+        boolean wins = PropMerge.compare( theirs, mine ) > 0;
+        if( recordChanges ){
+            mergeHistory( wins ? mine : theirs, wins ? theirs : mine, remoteHistory );
+        }
+        if( !wins ){
+            return null;
+        }
+        
+        replace( theirs.value(), theirs.timestamp(), theirs.modifiedBy() );
+        written( theirs.value(), theirs.timestamp(), theirs.modifiedBy() );
+        return mine != null ? mine : new Version( null, -1, null );
+    }
+    
+    //merges the local and remote histories, and the losing current version,
+    //appending to the history when the merge only adds newer versions
+    private void mergeHistory( Version<T> loser, Version<T> winner, List<Version<T>> remoteHistory ){
+        List<Version<T>> local = view( 0, versionCount() );
+        int size = local.size();
+        //versions the retention policy has already discarded stay discarded
+        int from = 0;
+        if( versions != null && versions.added() > versions.size() && versions.size() > 0 ){
+            from = PropMerge.firstAtOrAfter( remoteHistory, versions.timestamp( 0 ) );
+        }
+        
+        List<Version<T>> merged = new ArrayList( size + remoteHistory.size() - from + 1 );
+        int prefix = PropMerge.mergeRuns( local, remoteHistory, from, merged );
+        if( loser != null ){
+            prefix = Math.min( prefix, PropMerge.insert( merged, loser ) );
+        }
+        if( winner != null ){
+            prefix = Math.min( prefix, PropMerge.remove( merged, winner ) );
+        }
+        
+        if( prefix >= size ){
+            for( int i = size; i < merged.size(); i++ ){
+                Version<T> version = merged.get( i );
+                record( version.value(), version.timestamp(), version.modifiedBy() );
+            }
+        }
+        else if( versions instanceof RingHistory ){
+            restore( get(), set(), timestamp(), modifiedBy(), merged );
+        }
+    }
+    
+    /**
+     * Replaces the current value, timestamp and modifiedBy of this property,
+     * without recording the previous version or notifying listeners.
+     * @param value the new value
+     * @param timestamp the timestamp of the new value
+     * @param modifiedBy the modifying user's ID of the new value
+     */
+    void replace( T value, long timestamp, String modifiedBy ){
+        this.value = value;
+        this.set = true;
+        this.timestamp = timestamp;
+        this.modifiedBy = modifiedBy;
+    }
+    
+    /**
+     * Notifies the listeners that a merge replaced the value of this
+     * property.
+     * @param oldValue the value before the merge
+     * @param newValue the value after the merge
+     * @param timestamp the timestamp of the merged version
+     */
+    void merged( T oldValue, T newValue, long timestamp ){
+        changed( oldValue, newValue, timestamp );
+    }
+    
+    /**
+     * Returns a sequential stream of the previous versions of this property,
+     * oldest first, without copying them. The stream has the same
+     * restrictions as versionsView().
+     * @return a stream of the previous versions of this property.
+     */
+    public Stream<Version<T>> versionStream(){
+        return versionsView().stream();
+    }
+    
+    //the index of the first version with a timestamp >= timestamp
+    private int firstVersionAtOrAfter( long timestamp ){
+        int low = 0;
+        int high = versionCount();
+        while( low < high ){
+            int middle = ( low + high ) >>> 1;
+            if( versions.timestamp( middle ) < timestamp ){
+                low = middle + 1;
+            }
+            else{
+                high = middle;
+            }
+        }
+        return low;
+    }
+    
+    private List<Version<T>> view( int from, int to ){
+        if( from >= to ){
+            return Collections.emptyList();
+        }
+        return new HistoryView( versions, from, to );
+    }
+    
+    /**
+     * Returns the policy that determines whether a write that does not
+     * change the value is treated as a change.
+     * @return the equality policy of this property.
+     */
+    public EqualityPolicy<? super T> equality(){
+        return equality;
+    }
+    
+    /**
+     * Sets the policy that determines whether a write that does not change
+     * the value is treated as a change. A write that is not a change records
+     * no version and notifies only the listeners that asked for touches.
+     * @param equality the equality policy of this property.
+     */
+    public void equality( EqualityPolicy<? super T> equality ){
+        if( equality == null ){
+            throw new IllegalArgumentException( "Equality policy must not be null" );
+        }
+        this.equality = equality;
+    }
+    
+    /**
+     * Returns the policy that determines which previous versions are kept.
+     * @return the retention policy of this property.
+     */
+    public RetentionPolicy retention(){
+        return retention;
+    }
+    
+    /**
+     * Sets the policy that determines which previous versions are kept. Any
+     * versions already recorded that the new policy would not keep are
+     * discarded. This has no effect if record changes is disabled.
+     * @param retention the retention policy of this property.
+     */
+    public void retention( RetentionPolicy retention ){
+        if( retention == null ){
+            throw new IllegalArgumentException( "Retention policy must not be null" );
+        }
+        
+        this.retention = retention;
+        if( versions != null ){
+            versions = versions.retain( historyRetention() );
+        }
+    }
+    
+    /**
+     * Returns the retention policy in the timestamp units of the clock of
+     * this property, which is the policy its history applies.
+     * @return the retention policy of the history
+     */
+    RetentionPolicy historyRetention(){
+        return retention.inClockUnits( clock );
+    }
+    
+    /**
+     * Returns the clock that supplies the timestamps of modifications that
+     * do not specify one.
+     * @return the clock of this property
+     */
+    public PropClock clock(){
+        return clock;
+    }
+    
+    /**
+     * Sets the clock that supplies the timestamps of modifications that do
+     * not specify one. The ages and intervals of the retention policy are
+     * converted to the units of the new clock, and any versions already
+     * recorded that the converted policy would not keep are discarded, so
+     * the clock should be set before the property is first modified.
+     * @param clock the clock of this property
+     */
+    public void clock( PropClock clock ){
+        if( clock == null ){
+            throw new IllegalArgumentException( "Clock must not be null" );
+        }
+        
+        this.clock = clock;
+        if( versions != null ){
+            versions = versions.retain( historyRetention() );
+        }
+    }
+    
+    /**
+     * Returns the unique identifier of this property. The identifier is
+     * generated the first time this method is called, unless one has already
+     * been assigned with uuid(String).
      * @return the unique identifier of this property.
      */
     public String uuid() {
+        if( uuid == null ){
+            uuid = Uuids.random();
+        }
         return uuid;
     }
 
@@ -5,11 +5,39 @@ public class PropChangedEvent<T>
     private final Prop<T> property;
     private final T value;
     private final T previousValue;
+    private final long timestamp;
+    private final boolean touched;
 
     public PropChangedEvent( Prop<T> property, T value, T previousValue ) {
+        this( property, value, previousValue, false );
+    }
+
+    /**
+     * Creates a new PropChangedEvent, with the current timestamp of the
+     * property.
+     * @param property the property that was written
+     * @param value the value after the write
+     * @param previousValue the value before the write
+     * @param touched true if the write did not change the value
+     */
+    public PropChangedEvent( Prop<T> property, T value, T previousValue, boolean touched ) {
+        this( property, value, previousValue, property == null ? -1 : property.timestamp(), touched );
+    }
+
+    /**
+     * Creates a new PropChangedEvent.
+     * @param property the property that was written
+     * @param value the value after the write
+     * @param previousValue the value before the write
+     * @param timestamp the timestamp of the write
+     * @param touched true if the write did not change the value
+     */
+    public PropChangedEvent( Prop<T> property, T value, T previousValue, long timestamp, boolean touched ) {
         this.property = property;
         this.value = value;
         this.previousValue = previousValue;
+        this.timestamp = timestamp;
+        this.touched = touched;
     }
 
     public Prop<T> property() {
@@ -23,5 +51,25 @@ public class PropChangedEvent<T>
     public T previousValue() {
         return previousValue;
     }
+
+    /**
+     * Returns the timestamp of the write, from the clock of the property
+     * unless the writer supplied one. Events that coalesce several writes
+     * have the timestamp of the last.
+     * @return the timestamp of the write
+     */
+    public long timestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Returns true if this event reports a write that the property's
+     * EqualityPolicy did not treat as a change. Only listeners added with
+     * addListener( listener, true ) receive these events.
+     * @return true if the value was not changed
+     */
+    public boolean touched() {
+        return touched;
+    }
     
 }
@@ -0,0 +1,89 @@
+package props;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The source of the timestamps a Prop records for writes that do not
+ * specify one.
+ * 
+ * *   **system()** - System.currentTimeMillis(). This is the default.
+ * *   **coarse(resolution, unit)** - a CoarseClock, which reads a time
+ *     cached by a background ticker, for very hot writers that can accept
+ *     timestamps that lag by up to the resolution.
+ * *   **HybridLogicalClock** - timestamps that are unique and increase
+ *     monotonically across threads and nodes, while staying close to the
+ *     wall clock.
+ * 
+ * A clock's timestamps need not be milliseconds, but they must increase
+ * with time. millis() and duration() convert between timestamps and
+ * milliseconds, so that the ages and intervals of a RetentionPolicy, which
+ * are given in milliseconds, apply to timestamps from any clock.
+ */
+public interface PropClock
+{
+    /**
+     * Returns the timestamp for a write made now.
+     * @return the current timestamp
+     */
+    public long now();
+    
+    /**
+     * Returns the wall clock time, in milliseconds since the epoch, of a
+     * timestamp from this clock.
+     * @param timestamp the timestamp
+     * @return the time in milliseconds
+     */
+    public default long millis( long timestamp ){
+        return timestamp;
+    }
+    
+    /**
+     * Returns the difference between the timestamps of two writes made a
+     * number of milliseconds apart.
+     * @param millis the number of milliseconds
+     * @return the number of timestamp units
+     */
+    public default long duration( long millis ){
+        return millis;
+    }
+    
+    /**
+     * Returns the clock that reads System.currentTimeMillis(), without
+     * allocating.
+     * @return the system clock
+     */
+    public static PropClock system(){
+        return SystemClock.INSTANCE;
+    }
+    
+    /**
+     * Returns a new CoarseClock, whose ticker thread runs until the clock
+     * is closed.
+     * @param resolution how often the cached time is updated
+     * @param unit the unit of the resolution
+     * @return a new coarse clock
+     */
+    public static CoarseClock coarse( long resolution, TimeUnit unit ){
+        return new CoarseClock( resolution, unit );
+    }
+    
+    /**
+     * The clock that reads System.currentTimeMillis().
+     */
+    final class SystemClock implements PropClock
+    {
+        private static final SystemClock INSTANCE = new SystemClock();
+        
+        private SystemClock(){
+        }
+        
+        public long now(){
+            return System.currentTimeMillis();
+        }
+        
+        @Override
+        public String toString(){
+            return "PropClock.system()";
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package props;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Reads Props written by a PropEncoder, from a ByteBuffer or a channel.
+ * 
+ * Props must be read with the same codecs, and in the same order, as they
+ * were written. A Prop can be read into an existing Prop, such as a field
+ * of an entity, or into a new one. Reading into an existing Prop replaces
+ * its value, metadata and history without notifying its listeners; if it
+ * does not record changes, the history that was written is skipped.
+ * 
+ * ```java
+ * PropDecoder decoder = new PropDecoder( channel );
+ * decoder.read( pojo.name, ValueCodecs.STRING );
+ * decoder.read( pojo.age, ValueCodecs.INTEGER );
+ * ```
+ * 
+ * A PropDecoder is not thread-safe.
+ */
+public class PropDecoder
+{
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    
+    private final ReadableByteChannel channel;
+    //in channel mode, holds bytes that have been read but not yet decoded
+    private ByteBuffer buffer;
+    private final List<String> users = new ArrayList();
+    
+    /**
+     * Creates a decoder that reads from a ByteBuffer, starting at its
+     * current position.
+     * @param buffer the buffer to read from
+     */
+    public PropDecoder( ByteBuffer buffer ){
+        this.channel = null;
+        this.buffer = buffer;
+    }
+    
+    /**
+     * Creates a decoder that reads from a channel.
+     * @param channel the channel to read from
+     */
+    public PropDecoder( ReadableByteChannel channel ){
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect( DEFAULT_BUFFER_SIZE );
+        this.buffer.limit( 0 );
+    }
+    
+    /**
+     * Returns true if there is another Prop to read.
+     * @return true if there is more to read
+     * @throws IOException if reading from the channel fails
+     */
+    public boolean hasNext() throws IOException {
+        fill( 1 );
+        return buffer.hasRemaining();
+    }
+    
+    /**
+     * Reads a Prop into a new Prop with no parent.
+     * @param codec the codec for the Prop's values
+     * @return the Prop
+     * @throws IOException if the data is truncated or malformed, or reading
+     *                     from the channel fails
+     */
+    public <T> Prop<T> read( ValueCodec<T> codec ) throws IOException {
+        fill( 2 );
+        boolean recordChanges = buffer.remaining() >= 2 && ( buffer.get( buffer.position() + 1 ) & PropEncoder.FLAG_RECORD_CHANGES ) != 0;
+        
+        Prop<T> prop = new Prop( null, null, recordChanges );
+        read( prop, codec );
+        return prop;
+    }
+    
+    /**
+     * Reads a Prop into an existing Prop, replacing its uuid, value,
+     * metadata and history. Listeners are not notified.
+     * @param into the Prop to read into
+     * @param codec the codec for the Prop's values
+     * @throws IOException if the data is truncated or malformed, or reading
+     *                     from the channel fails
+     * @throws IllegalStateException if the Prop is attached to a PropJournal,
+     *                               whose history cannot be replaced
+     */
+    public <T> void read( Prop<T> into, ValueCodec<T> codec ) throws IOException {
+        if( into.journaled() ){
+            throw new IllegalStateException( "Cannot read into a property attached to a PropJournal" );
+        }
+        try{
+            fill( 2 + 16 );
+            byte format = buffer.get();
+            if( format != PropEncoder.FORMAT ){
+                throw new IOException( "Unsupported format: " + format );
+            }
+            
+            int flags = buffer.get();
+            String uuid;
+            if( ( flags & PropEncoder.FLAG_BINARY_UUID ) != 0 ){
+                uuid = new UUID( buffer.getLong(), buffer.getLong() ).toString();
+            }
+            else{
+                uuid = readString();
+            }
+            
+            fill( Encoding.MAX_VARLONG );
+            long timestamp = Encoding.readSignedVarLong( buffer );
+            String modifiedBy = readUser();
+            T value = ( flags & PropEncoder.FLAG_VALUE ) != 0 ? readValue( codec ) : null;
+            
+            List<Version<T>> versions = null;
+            if( ( flags & PropEncoder.FLAG_RECORD_CHANGES ) != 0 ){
+                fill( Encoding.MAX_VARLONG );
+                int count = Encoding.readVarInt( buffer );
+                versions = new ArrayList( Math.min( count, 1024 ) );
+                
+                long previous = 0;
+                for( int i = 0; i < count; i++ ){
+                    fill( Encoding.MAX_VARLONG );
+                    previous += Encoding.readSignedVarLong( buffer );
+                    String user = readUser();
+                    
+                    fill( 1 );
+                    T versionValue = buffer.get() != 0 ? readValue( codec ) : null;
+                    versions.add( new Version( versionValue, previous, user ) );
+                }
+            }
+            
+            into.uuid( uuid );
+            into.restore( value, ( flags & PropEncoder.FLAG_SET ) != 0, timestamp, modifiedBy, versions );
+            into.reindex();
+        }
+        catch( BufferUnderflowException ex ){
+            EOFException eof = new EOFException( "Prop data is truncated" );
+            eof.initCause( ex );
+            throw eof;
+        }
+        catch( RuntimeException ex ){
+            throw new IOException( "Prop data is malformed", ex );
+        }
+    }
+    
+    private <T> T readValue( ValueCodec<T> codec ) throws IOException {
+        fill( Encoding.MAX_VARLONG );
+        int size = Encoding.readVarInt( buffer );
+        fill( size );
+        if( buffer.remaining() < size ){
+            throw new BufferUnderflowException();
+        }
+        
+        int end = buffer.position() + size;
+        T value = codec.read( buffer, size );
+        buffer.position( end );
+        return value;
+    }
+    
+    private String readUser() throws IOException {
+        fill( Encoding.MAX_VARLONG );
+        int code = Encoding.readVarInt( buffer );
+        if( code == PropEncoder.USER_NULL ){
+            return null;
+        }
+        if( code == PropEncoder.USER_NEW ){
+            String user = readString();
+            users.add( user );
+            return user;
+        }
+        
+        int index = code - PropEncoder.USER_FIRST;
+        if( index >= users.size() ){
+            throw new IOException( "Unknown modifiedBy reference: " + index );
+        }
+        return users.get( index );
+    }
+    
+    private String readString() throws IOException {
+        fill( Encoding.MAX_VARLONG );
+        int length = Encoding.readVarInt( buffer );
+        fill( length );
+        if( buffer.remaining() < length ){
+            throw new BufferUnderflowException();
+        }
+        return Encoding.readUtf8( buffer, length );
+    }
+    
+    //reads from the channel until the given number of bytes are buffered,
+    //or the end of the channel is reached
+    private void fill( int bytes ) throws IOException {
+        if( channel == null || buffer.remaining() >= bytes ){
+            return;
+        }
+        
+        if( buffer.capacity() < bytes ){
+            ByteBuffer grown = ByteBuffer.allocateDirect( bytes );
+            grown.put( buffer );
+            buffer = grown;
+        }
+        else{
+            buffer.compact();
+        }
+        
+        while( buffer.position() < bytes ){
+            if( channel.read( buffer ) < 0 ){
+                break;
+            }
+        }
+        buffer.flip();
+    }
+}
@@ -0,0 +1,273 @@
+package props;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Writes Props in a compact binary format, to a ByteBuffer or a channel.
+ * 
+ * Each Prop is written with its uuid, value, set flag, timestamp, modifiedBy
+ * and version history; its parent, listeners and retention policy are not
+ * written. Values are written with a ValueCodec. Timestamps are varints,
+ * and the timestamps in the history are written as the difference from the
+ * previous version. Each distinct modifiedBy is written once per stream and
+ * referred to by number afterwards, so an encoder should be used for a
+ * whole stream of Props and read back with a single PropDecoder.
+ * 
+ * ```java
+ * PropEncoder encoder = new PropEncoder( channel );
+ * encoder.write( pojo.name, ValueCodecs.STRING );
+ * encoder.write( pojo.age, ValueCodecs.INTEGER );
+ * encoder.flush();
+ * ```
+ * 
+ * When writing to a channel, Props are encoded directly into a buffer
+ * that is written to the channel whenever it fills up. When writing to a
+ * ByteBuffer, a BufferOverflowException is thrown if it fills up, and the
+ * buffer and encoder are left as they were before the Prop, so it can be
+ * written again once the buffer has been drained.
+ * 
+ * A PropEncoder is not thread-safe.
+ */
+public class PropEncoder
+{
+    static final byte FORMAT = 1;
+    static final int FLAG_SET = 1;
+    static final int FLAG_RECORD_CHANGES = 2;
+    static final int FLAG_VALUE = 4;
+    static final int FLAG_BINARY_UUID = 8;
+    
+    //modifiedBy codes: 0 is null, 1 is followed by a new identifier, and
+    //anything else refers to the identifier written (code - 2)th
+    static final int USER_NULL = 0;
+    static final int USER_NEW = 1;
+    static final int USER_FIRST = 2;
+    
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    
+    private final WritableByteChannel channel;
+    private ByteBuffer buffer;
+    private final Map<String, Integer> users = new HashMap();
+    
+    /**
+     * Creates an encoder that writes to a ByteBuffer, starting at its
+     * current position.
+     * @param buffer the buffer to write to
+     */
+    public PropEncoder( ByteBuffer buffer ){
+        this( null, buffer );
+    }
+    
+    /**
+     * Creates an encoder that writes to a channel.
+     * @param channel the channel to write to
+     */
+    public PropEncoder( WritableByteChannel channel ){
+        this( channel, ByteBuffer.allocateDirect( DEFAULT_BUFFER_SIZE ) );
+    }
+    
+    /**
+     * Creates an encoder that writes to a channel, using the given buffer.
+     * @param channel the channel to write to, or null to write only to the buffer
+     * @param buffer the buffer that Props are encoded into
+     */
+    public PropEncoder( WritableByteChannel channel, ByteBuffer buffer ){
+        this.channel = channel;
+        this.buffer = buffer;
+    }
+    
+    /**
+     * Writes a Prop.
+     * @param prop the Prop to write
+     * @param codec the codec for the Prop's values
+     * @throws IOException if writing to the channel fails
+     * @throws BufferOverflowException if there is no channel and the buffer is full
+     */
+    public <T> void write( Prop<T> prop, ValueCodec<T> codec ) throws IOException {
+        int start = buffer.position();
+        int known = users.size();
+        try{
+            encode( prop, codec );
+        }
+        catch( BufferOverflowException ex ){
+            //only thrown without a channel, so nothing has been flushed.
+            //Identifiers first written in the discarded bytes must be
+            //written again
+            buffer.position( start );
+            Iterator<Integer> indexes = users.values().iterator();
+            while( indexes.hasNext() ){
+                if( indexes.next() >= known ){
+                    indexes.remove();
+                }
+            }
+            throw ex;
+        }
+    }
+    
+    private <T> void encode( Prop<T> prop, ValueCodec<T> codec ) throws IOException {
+        T value;
+        boolean set;
+        long timestamp;
+        String modifiedBy;
+        List<Version<T>> versions = null;
+        if( prop instanceof ConcurrentProp ){
+            //read the current version and the history under the lock, so
+            //that no write falls between them. Only the reads are made under
+            //it; a channel may block
+            ConcurrentProp<T> concurrent = (ConcurrentProp<T>)prop;
+            Version<T> current;
+            synchronized( concurrent.lock() ){
+                current = concurrent.current();
+                if( prop.recordChanges() ){
+                    versions = prop.versionsView();
+                }
+            }
+            value = current.value();
+            set = concurrent.isSet( current );
+            timestamp = current.timestamp();
+            modifiedBy = current.modifiedBy();
+        }
+        else{
+            value = prop.get();
+            set = prop.set();
+            timestamp = prop.timestamp();
+            modifiedBy = prop.modifiedBy();
+            if( prop.recordChanges() ){
+                versions = prop.versionsView();
+            }
+        }
+        
+        String uuid = prop.uuid();
+        UUID binary = binaryUuid( uuid );
+        
+        int flags = ( set ? FLAG_SET : 0 ) |
+                    ( prop.recordChanges() ? FLAG_RECORD_CHANGES : 0 ) |
+                    ( value != null ? FLAG_VALUE : 0 ) |
+                    ( binary != null ? FLAG_BINARY_UUID : 0 );
+        
+        ensure( 2 + 16 );
+        buffer.put( FORMAT );
+        buffer.put( (byte)flags );
+        if( binary != null ){
+            buffer.putLong( binary.getMostSignificantBits() );
+            buffer.putLong( binary.getLeastSignificantBits() );
+        }
+        else{
+            writeString( uuid );
+        }
+        
+        ensure( Encoding.MAX_VARLONG );
+        Encoding.writeSignedVarLong( buffer, timestamp );
+        writeUser( modifiedBy );
+        if( value != null ){
+            writeValue( value, codec );
+        }
+        
+        if( versions != null ){
+            ensure( Encoding.MAX_VARLONG );
+            Encoding.writeVarLong( buffer, versions.size() );
+            
+            long previous = 0;
+            for( int i = 0; i < versions.size(); i++ ){
+                Version<T> version = versions.get( i );
+                ensure( Encoding.MAX_VARLONG + 1 );
+                Encoding.writeSignedVarLong( buffer, version.timestamp() - previous );
+                previous = version.timestamp();
+                
+                writeUser( version.modifiedBy() );
+                
+                T versionValue = version.value();
+                ensure( 1 );
+                buffer.put( versionValue != null ? (byte)1 : (byte)0 );
+                if( versionValue != null ){
+                    writeValue( versionValue, codec );
+                }
+            }
+        }
+    }
+    
+    /**
+     * Writes any buffered bytes to the channel. Does nothing when writing
+     * to a ByteBuffer.
+     * @throws IOException if writing to the channel fails
+     */
+    public void flush() throws IOException {
+        if( channel == null ){
+            return;
+        }
+        
+        buffer.flip();
+        while( buffer.hasRemaining() ){
+            channel.write( buffer );
+        }
+        buffer.clear();
+    }
+    
+    private <T> void writeValue( T value, ValueCodec<T> codec ) throws IOException {
+        int size = codec.size( value );
+        ensure( Encoding.MAX_VARLONG + size );
+        Encoding.writeVarLong( buffer, size );
+        codec.write( value, buffer );
+    }
+    
+    private void writeUser( String user ) throws IOException {
+        ensure( Encoding.MAX_VARLONG );
+        if( user == null ){
+            Encoding.writeVarLong( buffer, USER_NULL );
+            return;
+        }
+        
+        Integer index = users.get( user );
+        if( index != null ){
+            Encoding.writeVarLong( buffer, USER_FIRST + index );
+        }
+        else{
+            Encoding.writeVarLong( buffer, USER_NEW );
+            writeString( user );
+            //only once it has been written, so a later reference never
+            //points at an identifier that was not
+            users.put( user, users.size() );
+        }
+    }
+    
+    private void writeString( String string ) throws IOException {
+        ensure( Encoding.stringSize( string ) );
+        Encoding.writeString( buffer, string );
+    }
+    
+    //makes room for the given number of bytes in the buffer
+    private void ensure( int bytes ) throws IOException {
+        if( buffer.remaining() >= bytes ){
+            return;
+        }
+        if( channel == null ){
+            throw new BufferOverflowException();
+        }
+        
+        flush();
+        if( buffer.remaining() < bytes ){
+            buffer = buffer.isDirect() ? ByteBuffer.allocateDirect( bytes ) : ByteBuffer.allocate( bytes );
+        }
+    }
+    
+    //the uuid as a UUID, if it is one in canonical form
+    static UUID binaryUuid( String uuid ){
+        if( uuid.length() != 36 ){
+            return null;
+        }
+        try{
+            UUID parsed = UUID.fromString( uuid );
+            return parsed.toString().equals( uuid ) ? parsed : null;
+        }
+        catch( IllegalArgumentException ex ){
+            return null;
+        }
+    }
+}
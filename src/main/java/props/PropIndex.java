@@ -0,0 +1,403 @@
+package props;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * An index of a family of properties by their values, such as the status
+ * property of every order.
+ * 
+ * ```java
+ * PropIndex<String> byStatus = PropIndex.hash();
+ * PropIndex<Double> byTotal = PropIndex.sorted();
+ * for( Order order : orders ){
+ *     byStatus.add( order.status );
+ *     byTotal.add( order.total );
+ * }
+ * ...
+ * List<Prop<? extends String>> open = byStatus.equalTo( "open" );
+ * List<Prop<? extends Double>> large = byTotal.range( 1000.0, null );
+ * ```
+ * 
+ * A property that has been added to an index updates it every time it is
+ * written, in the same place as its history and ChangeTracker, so keeping
+ * an index up to date allocates no listeners or events, and the index is
+ * up to date before set() returns. Equality queries look the value up in
+ * a hash or tree map; range queries, which only sorted indexes support,
+ * walk the part of the tree between the bounds. Properties that are not
+ * set, or whose value is null, are not found by any query.
+ * 
+ * A ComputedProp in an index is recomputed as soon as a dependency
+ * changes, as if it had listeners, so that the index follows its value;
+ * inside a Batch, the index is updated when the batch is closed.
+ * 
+ * An index is guarded by a StampedLock: queries take the read lock and
+ * return a copy of the matching properties, and writes take the write
+ * lock. The writes of a ConcurrentProp update the index while holding the
+ * property's lock, so the updates of each property are applied in the
+ * order of its writes and the index always ends at the property's latest
+ * value. Writes of many properties update the same index, so they
+ * contend for its lock; an index is meant for the values that are
+ * queried, not for every field.
+ * 
+ * Values must not be modified while they are in an index, and a hash
+ * index relies on their hashCode and equals, like a HashMap. The index
+ * holds its properties strongly until they are removed.
+ * 
+ * @param <V> the type of the values of the properties
+ */
+public class PropIndex<V>
+{
+    //the key of a property whose value is not indexed
+    private static final Object UNINDEXED = new Object();
+    
+    //each value maps to the one property with that value, or to an
+    //identity set of the properties with that value if there are several
+    private final Map<V, Object> buckets;
+    //the same map, if the index is sorted
+    private final NavigableMap<V, Object> sorted;
+    //the value each property is indexed under, or UNINDEXED
+    private final IdentityHashMap<Prop<?>, Object> keys = new IdentityHashMap();
+    private final StampedLock lock = new StampedLock();
+    
+    private PropIndex( Map<V, Object> buckets ){
+        this.buckets = buckets;
+        this.sorted = buckets instanceof NavigableMap ? (NavigableMap<V, Object>)buckets : null;
+    }
+    
+    /**
+     * Creates an index that answers equality queries.
+     * @param <V> the type of the values
+     * @return the new index
+     */
+    public static <V> PropIndex<V> hash(){
+        return new PropIndex( new HashMap() );
+    }
+    
+    /**
+     * Creates an index that answers equality and range queries, in the
+     * natural order of the values.
+     * @param <V> the type of the values
+     * @return the new index
+     */
+    public static <V extends Comparable<? super V>> PropIndex<V> sorted(){
+        return new PropIndex( new TreeMap() );
+    }
+    
+    /**
+     * Creates an index that answers equality and range queries, in the
+     * order of the given comparator. Values the comparator considers equal
+     * are the same value to the index.
+     * @param <V> the type of the values
+     * @param comparator the order of the values
+     * @return the new index
+     */
+    public static <V> PropIndex<V> sorted( Comparator<? super V> comparator ){
+        return new PropIndex( new TreeMap( comparator ) );
+    }
+    
+    /**
+     * Adds a property to this index, which then follows its value until
+     * it is removed. Adding a property that is already in the index has
+     * no effect.
+     * @param prop the property to add
+     */
+    public void add( Prop<? extends V> prop ){
+        long stamp = lock.writeLock();
+        try{
+            if( keys.containsKey( prop ) ){
+                return;
+            }
+            keys.put( prop, UNINDEXED );
+        }
+        finally{
+            lock.unlockWrite( stamp );
+        }
+        //the property is registered before it is indexed, so that a write
+        //that the update below misses updates the index itself. A write
+        //that lands between reading the value and moving the property may
+        //be overwritten by the older value, so the value is read again
+        //until it is the one that was indexed
+        prop.addIndex( this );
+        Object value;
+        do{
+            value = valueOf( prop );
+            move( prop, value );
+        }
+        while( !same( value, valueOf( prop ) ) );
+    }
+    
+    /**
+     * Adds properties to this index.
+     * @param props the properties to add
+     */
+    public void addAll( Collection<? extends Prop<? extends V>> props ){
+        for( Prop<? extends V> prop : props ){
+            add( prop );
+        }
+    }
+    
+    /**
+     * Removes a property from this index.
+     * @param prop the property to remove
+     * @return true if the property was in the index
+     */
+    public boolean remove( Prop<? extends V> prop ){
+        prop.removeIndex( this );
+        long stamp = lock.writeLock();
+        try{
+            if( !keys.containsKey( prop ) ){
+                return false;
+            }
+            Object key = keys.remove( prop );
+            if( key != UNINDEXED ){
+                unbucket( (V)key, prop );
+            }
+            return true;
+        }
+        finally{
+            lock.unlockWrite( stamp );
+        }
+    }
+    
+    /**
+     * Returns true if a property is in this index.
+     * @param prop the property
+     * @return true if the property has been added and not removed
+     */
+    public boolean contains( Prop<?> prop ){
+        long stamp = lock.readLock();
+        try{
+            return keys.containsKey( prop );
+        }
+        finally{
+            lock.unlockRead( stamp );
+        }
+    }
+    
+    /**
+     * Returns the number of properties in this index, including those that
+     * are not set or are null.
+     * @return the number of properties
+     */
+    public int size(){
+        long stamp = lock.readLock();
+        try{
+            return keys.size();
+        }
+        finally{
+            lock.unlockRead( stamp );
+        }
+    }
+    
+    /**
+     * Returns true if this index answers range queries.
+     * @return true if the index is sorted
+     */
+    public boolean isSorted(){
+        return sorted != null;
+    }
+    
+    /**
+     * Returns the properties whose value equals the given value.
+     * @param value the value
+     * @return a new list of the matching properties, in no particular order
+     */
+    public List<Prop<? extends V>> equalTo( V value ){
+        List<Prop<? extends V>> result = new ArrayList();
+        if( value == null ){
+            return result;
+        }
+        long stamp = lock.readLock();
+        try{
+            collect( buckets.get( value ), result );
+        }
+        finally{
+            lock.unlockRead( stamp );
+        }
+        return result;
+    }
+    
+    /**
+     * Returns the number of properties whose value equals the given value.
+     * @param value the value
+     * @return the number of matching properties
+     */
+    public int count( V value ){
+        if( value == null ){
+            return 0;
+        }
+        long stamp = lock.readLock();
+        try{
+            Object bucket = buckets.get( value );
+            return bucket == null ? 0 : bucket instanceof Prop ? 1 : ((Set<?>)bucket).size();
+        }
+        finally{
+            lock.unlockRead( stamp );
+        }
+    }
+    
+    /**
+     * Returns the properties whose value is at least from and less than to.
+     * @param from the lowest value, or null for no lower bound
+     * @param to the value above the highest value, or null for no upper bound
+     * @return a new list of the matching properties, in the order of their
+     *         values
+     * @throws UnsupportedOperationException if the index is not sorted
+     */
+    public List<Prop<? extends V>> range( V from, V to ){
+        return range( from, true, to, false );
+    }
+    
+    /**
+     * Returns the properties whose value is between from and to.
+     * @param from the lowest value, or null for no lower bound
+     * @param fromInclusive true to include properties whose value equals from
+     * @param to the highest value, or null for no upper bound
+     * @param toInclusive true to include properties whose value equals to
+     * @return a new list of the matching properties, in the order of their
+     *         values
+     * @throws UnsupportedOperationException if the index is not sorted
+     */
+    public List<Prop<? extends V>> range( V from, boolean fromInclusive, V to, boolean toInclusive ){
+        if( sorted == null ){
+            throw new UnsupportedOperationException( "Range queries need a sorted index" );
+        }
+        List<Prop<? extends V>> result = new ArrayList();
+        long stamp = lock.readLock();
+        try{
+            NavigableMap<V, Object> range = sorted;
+            if( from != null ){
+                range = range.tailMap( from, fromInclusive );
+            }
+            if( to != null ){
+                range = range.headMap( to, toInclusive );
+            }
+            for( Object bucket : range.values() ){
+                collect( bucket, result );
+            }
+        }
+        finally{
+            lock.unlockRead( stamp );
+        }
+        return result;
+    }
+    
+    /**
+     * Updates the given indexes after a property was written.
+     * @param indexes the indexes the property is in
+     * @param prop the property
+     */
+    static void update( PropIndex<?>[] indexes, Prop<?> prop ){
+        for( PropIndex<?> index : indexes ){
+            index.update( prop );
+        }
+    }
+    
+    //moves the property to the bucket of its current value. The writes of
+    //a ConcurrentProp update its indexes under the property's lock, so
+    //they are applied in order
+    private void update( Prop<?> prop ){
+        move( prop, valueOf( prop ) );
+    }
+    
+    //the key to index a property under. Read without holding the lock,
+    //because reading a dirty ComputedProp recomputes it, and its write
+    //updates this index
+    private static Object valueOf( Prop<?> prop ){
+        Object value = prop.set() ? prop.get() : null;
+        return value == null ? UNINDEXED : value;
+    }
+    
+    //moves the property to the bucket of the given key
+    private void move( Prop<?> prop, Object value ){
+        long stamp = lock.writeLock();
+        try{
+            Object key = keys.get( prop );
+            if( key == null ){
+                //removed while it was being written
+                return;
+            }
+            if( same( key, value ) ){
+                return;
+            }
+            
+            if( key != UNINDEXED ){
+                unbucket( (V)key, prop );
+            }
+            keys.put( prop, value );
+            if( value != UNINDEXED ){
+                bucket( (V)value, prop );
+            }
+        }
+        finally{
+            lock.unlockWrite( stamp );
+        }
+    }
+    
+    //true if the map treats both keys as the same key
+    private boolean same( Object a, Object b ){
+        if( a == b ){
+            return true;
+        }
+        if( a == UNINDEXED || b == UNINDEXED ){
+            return false;
+        }
+        if( sorted != null ){
+            Comparator<? super V> comparator = sorted.comparator();
+            return comparator != null ? comparator.compare( (V)a, (V)b ) == 0 : ((Comparable<Object>)a).compareTo( b ) == 0;
+        }
+        return a.equals( b );
+    }
+    
+    //must be called while holding the write lock
+    private void bucket( V value, Prop<?> prop ){
+        Object bucket = buckets.get( value );
+        if( bucket == null ){
+            buckets.put( value, prop );
+        }
+        else if( bucket instanceof Prop ){
+            Set<Prop<?>> set = Collections.newSetFromMap( new IdentityHashMap() );
+            set.add( (Prop<?>)bucket );
+            set.add( prop );
+            buckets.put( value, set );
+        }
+        else{
+            ((Set<Prop<?>>)bucket).add( prop );
+        }
+    }
+    
+    //must be called while holding the write lock
+    private void unbucket( V value, Prop<?> prop ){
+        Object bucket = buckets.get( value );
+        if( bucket == prop ){
+            buckets.remove( value );
+        }
+        else if( bucket instanceof Set ){
+            Set<Prop<?>> set = (Set<Prop<?>>)bucket;
+            set.remove( prop );
+            if( set.size() == 1 ){
+                buckets.put( value, set.iterator().next() );
+            }
+        }
+    }
+    
+    private void collect( Object bucket, List<Prop<? extends V>> result ){
+        if( bucket instanceof Prop ){
+            result.add( (Prop<? extends V>)bucket );
+        }
+        else if( bucket != null ){
+            result.addAll( (Set<Prop<? extends V>>)bucket );
+        }
+    }
+}
@@ -0,0 +1,699 @@
+package props;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only journal of property writes, kept in memory-mapped segment
+ * files in a directory. Attaching a property to a journal moves its
+ * version history out of the heap and into the journal, and makes the
+ * property's value survive a restart.
+ * 
+ * ```java
+ * PropJournal journal = new PropJournal( Paths.get( "data/journal" ) );
+ * journal.attach( pojo.name, ValueCodecs.STRING );
+ * pojo.name.set( "Sue" );
+ * ```
+ * 
+ * Every write to an attached property appends a record holding the
+ * property's uuid, the timestamp, modifiedBy and the encoded value. The
+ * property's versions() are read back from the mapped segments; only the
+ * position of each record is kept on the heap.
+ * 
+ * When the journal is opened, the segments are scanned and indexed by
+ * uuid. Attaching a property whose uuid is in the journal restores its
+ * value, timestamp, modifiedBy and history from the journal, so a property
+ * must be given its uuid, with uuid(String), before it is attached.
+ * Records that were only partly written when the process stopped are
+ * detected by their checksum and discarded.
+ * 
+ * Records are appended to the newest segment until it is full, and then a
+ * new segment is started. compact() rewrites the records that are still
+ * needed into a single segment and deletes the others, reclaiming the
+ * space of versions discarded by the properties' retention policies.
+ * 
+ * Writes reach the operating system when they are made, and reach the disk
+ * when the operating system writes the mapped pages back, or when sync() is
+ * called. Only properties that record changes can be attached, and a
+ * property cannot be detached again, nor have its state replaced by a
+ * PropDecoder. Closing the journal unmaps its segments; from then on,
+ * reading the history of an attached property or writing to it throws
+ * IllegalStateException.
+ * 
+ * A PropJournal is thread-safe.
+ */
+public class PropJournal implements Closeable
+{
+    static final int MAGIC = 0x50524f50;
+    static final int FORMAT = 1;
+    //magic, format and the id of the last segment that this segment compacted
+    static final int SEGMENT_HEADER_SIZE = 16;
+    //length and checksum of the payload
+    static final int RECORD_HEADER_SIZE = 8;
+    static final int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+    
+    static final int FLAG_BINARY_UUID = 1;
+    static final int FLAG_VALUE = 2;
+    static final int FLAG_MODIFIED_BY = 4;
+    
+    private static final String SUFFIX = ".journal";
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+    
+    private final Path directory;
+    private final int segmentSize;
+    //live segments, by id - firstId; their ids are consecutive
+    private final List<Segment> segments = new ArrayList();
+    private long firstId;
+    private long nextId = 1;
+    private final Map<String, Entries> entries = new HashMap();
+    private final CRC32 crc = new CRC32();
+    private boolean closed;
+    
+    /**
+     * Opens the journal in a directory, creating the directory if it does
+     * not exist, with 16MB segments.
+     * @param directory the directory of the journal
+     * @throws IOException if the journal cannot be read or created
+     */
+    public PropJournal( Path directory ) throws IOException {
+        this( directory, DEFAULT_SEGMENT_SIZE );
+    }
+    
+    /**
+     * Opens the journal in a directory, creating the directory if it does
+     * not exist.
+     * @param directory the directory of the journal
+     * @param segmentSize the size of each segment file in bytes. Records
+     *                    larger than this get a segment of their own.
+     * @throws IOException if the journal cannot be read or created
+     */
+    public PropJournal( Path directory, int segmentSize ) throws IOException {
+        if( segmentSize < SEGMENT_HEADER_SIZE + RECORD_HEADER_SIZE + 64 ){
+            throw new IllegalArgumentException( "Segment size is too small: " + segmentSize );
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        
+        Files.createDirectories( directory );
+        recover();
+    }
+    
+    /**
+     * Attaches a property to the journal. If the journal has records for
+     * the property's uuid, the property's value, timestamp, modifiedBy and
+     * history are replaced with those from the journal, without notifying
+     * listeners. Otherwise the property's current history and value are
+     * written to the journal.
+     * 
+     * From then on every write to the property is appended to the journal,
+     * and its history is read from the journal.
+     * @param prop the property, which must record changes
+     * @param codec the codec for the property's values
+     * @throws IllegalArgumentException if the property does not record changes
+     * @throws IllegalStateException if a property with the same uuid is
+     *                               already attached, or the journal is closed
+     * @throws UncheckedIOException if a new segment cannot be created
+     */
+    public <T> void attach( Prop<T> prop, ValueCodec<T> codec ){
+        if( !prop.recordChanges() ){
+            throw new IllegalArgumentException( "Only properties that record changes can be journaled" );
+        }
+        
+        if( prop instanceof ConcurrentProp ){
+            //a write records its previous version under the property's lock,
+            //so holding it keeps every write either in the history copied to
+            //the journal or after the swap. Journaled writes append under
+            //the lock, so it is taken before the journal's monitor
+            synchronized( ((ConcurrentProp<T>)prop).lock() ){
+                attachLocked( prop, codec );
+            }
+        }
+        else{
+            attachLocked( prop, codec );
+        }
+    }
+    
+    //reads the property's state, appends it and swaps in the journal's
+    //history in one step
+    private synchronized <T> void attachLocked( Prop<T> prop, ValueCodec<T> codec ){
+        checkOpen();
+        
+        String uuid = prop.uuid();
+        Entries existing = entries.get( uuid );
+        if( existing != null && existing.history != null ){
+            throw new IllegalStateException( "A property with uuid " + uuid + " is already attached" );
+        }
+        
+        PrimitiveType type = PrimitiveType.of( prop );
+        JournalHistory<T> history;
+        if( existing != null && existing.size > 0 ){
+            Version<T> current = read( existing.positions[ existing.size - 1 ], codec );
+            history = new JournalHistory( this, existing, codec, type, prop.historyRetention(), true );
+            prop.restore( current.value(), true, current.timestamp(), current.modifiedBy(), null );
+            prop.reindex();
+        }
+        else{
+            if( existing == null ){
+                existing = new Entries( uuid );
+                entries.put( uuid, existing );
+            }
+            
+            for( Version<T> version : prop.versionsView() ){
+                append( existing, codec, version.value(), version.timestamp(), version.modifiedBy() );
+            }
+            boolean set = prop.set();
+            if( set ){
+                append( existing, codec, prop.get(), prop.timestamp(), prop.modifiedBy() );
+            }
+            history = new JournalHistory( this, existing, codec, type, prop.historyRetention(), set );
+        }
+        
+        existing.history = history;
+        prop.history( history.retain( prop.historyRetention() ) );
+    }
+    
+    /**
+     * Returns the uuids of the properties that have records in the journal,
+     * whether or not they are attached.
+     * @return the uuids in the journal
+     */
+    public synchronized Set<String> uuids(){
+        Set<String> uuids = new HashSet();
+        for( Entries entry : entries.values() ){
+            if( entry.size > entry.first ){
+                uuids.add( entry.uuid );
+            }
+        }
+        return uuids;
+    }
+    
+    /**
+     * Returns the number of segment files in the journal.
+     * @return the number of segments
+     */
+    public synchronized int segmentCount(){
+        int count = 0;
+        for( Segment segment : segments ){
+            if( segment != null ){
+                count++;
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * Returns the number of bytes of records in the journal, including
+     * records that are no longer needed and will be removed by compact().
+     * @return the size of the records in bytes
+     */
+    public synchronized long size(){
+        long size = 0;
+        for( Segment segment : segments ){
+            if( segment != null ){
+                size += segment.position - SEGMENT_HEADER_SIZE;
+            }
+        }
+        return size;
+    }
+    
+    /**
+     * Rewrites the records that are still needed into a new segment and
+     * deletes all the other segments. Records are needed if they are in
+     * the history of an attached property, are the current value of an
+     * attached property, or belong to a property that is not attached.
+     * 
+     * The new segment replaces the old ones atomically: if the process
+     * stops during compaction, the journal is recovered either as it was
+     * before or as it is after.
+     * @throws IOException if the new segment cannot be written, or an old
+     *                     one cannot be deleted
+     */
+    public synchronized void compact() throws IOException {
+        checkOpen();
+        
+        long live = 0;
+        for( Entries entry : entries.values() ){
+            for( int i = entry.first; i < entry.size; i++ ){
+                live += RECORD_HEADER_SIZE + recordLength( entry.positions[ i ] );
+            }
+        }
+        if( SEGMENT_HEADER_SIZE + live + 4 > Integer.MAX_VALUE ){
+            throw new IOException( "The journal is too large to compact into one segment: " + live + " bytes" );
+        }
+        
+        long id = nextId++;
+        Path path = path( id );
+        Path temporary = directory.resolve( path.getFileName() + TEMPORARY_SUFFIX );
+        Segment compacted = Segment.create( id, temporary, (int)( SEGMENT_HEADER_SIZE + live + 4 ), id - 1 );
+        
+        Iterator<Entries> iterator = entries.values().iterator();
+        while( iterator.hasNext() ){
+            Entries entry = iterator.next();
+            int count = entry.size - entry.first;
+            if( count == 0 && entry.history == null ){
+                iterator.remove();
+                continue;
+            }
+            
+            for( int i = 0; i < count; i++ ){
+                long position = entry.positions[ entry.first + i ];
+                ByteBuffer source = segment( position ).reader;
+                int offset = offset( position );
+                source.limit( offset + RECORD_HEADER_SIZE + recordLength( position ) ).position( offset );
+                
+                entry.positions[ i ] = position( id, compacted.position );
+                compacted.writer.position( compacted.position );
+                compacted.writer.put( source );
+                compacted.position = compacted.writer.position();
+            }
+            entry.first = 0;
+            entry.size = count;
+        }
+        compacted.buffer.force();
+        Files.move( temporary, path, StandardCopyOption.ATOMIC_MOVE );
+        
+        List<Segment> old = new ArrayList( segments );
+        segments.clear();
+        segments.add( compacted.renamed( path ) );
+        firstId = id;
+        for( Segment segment : old ){
+            if( segment != null ){
+                segment.unmap();
+                Files.delete( segment.path );
+            }
+        }
+    }
+    
+    /**
+     * Forces all records written so far onto the disk.
+     * @throws IOException if a segment cannot be written
+     */
+    public synchronized void sync() throws IOException {
+        for( Segment segment : segments ){
+            if( segment != null && segment.dirty ){
+                segment.buffer.force();
+                segment.dirty = false;
+            }
+        }
+    }
+    
+    /**
+     * Syncs and closes the journal, and unmaps its segments.
+     * @throws IOException if a segment cannot be written
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if( closed ){
+            return;
+        }
+        sync();
+        closed = true;
+        for( Segment segment : segments ){
+            if( segment != null ){
+                segment.unmap();
+            }
+        }
+        segments.clear();
+    }
+    
+    /**
+     * Appends a record for a property, starting a new segment if necessary.
+     */
+    synchronized <T> void append( Entries entry, ValueCodec<T> codec, T value, long timestamp, String modifiedBy ){
+        checkOpen();
+        
+        int flags = ( entry.binary != null ? FLAG_BINARY_UUID : 0 ) |
+                    ( value != null ? FLAG_VALUE : 0 ) |
+                    ( modifiedBy != null ? FLAG_MODIFIED_BY : 0 );
+        int length = 1 +
+                     ( entry.binary != null ? 16 : Encoding.stringSize( entry.uuid ) ) +
+                     Encoding.signedVarLongSize( timestamp ) +
+                     ( modifiedBy != null ? Encoding.stringSize( modifiedBy ) : 0 ) +
+                     ( value != null ? codec.size( value ) : 0 );
+        
+        Segment segment = writable( RECORD_HEADER_SIZE + length );
+        int offset = segment.position;
+        ByteBuffer buffer = segment.writer;
+        buffer.limit( buffer.capacity() ).position( offset + RECORD_HEADER_SIZE );
+        buffer.put( (byte)flags );
+        if( entry.binary != null ){
+            buffer.putLong( entry.binary.getMostSignificantBits() );
+            buffer.putLong( entry.binary.getLeastSignificantBits() );
+        }
+        else{
+            Encoding.writeString( buffer, entry.uuid );
+        }
+        Encoding.writeSignedVarLong( buffer, timestamp );
+        if( modifiedBy != null ){
+            Encoding.writeString( buffer, modifiedBy );
+        }
+        if( value != null ){
+            codec.write( value, buffer );
+        }
+        
+        int end = offset + RECORD_HEADER_SIZE + length;
+        if( buffer.position() != end ){
+            throw new IllegalStateException( "Codec wrote " + ( buffer.position() - offset - RECORD_HEADER_SIZE ) + " bytes, expected " + length );
+        }
+        buffer.putInt( offset, length );
+        buffer.putInt( offset + 4, checksum( segment.reader, offset + RECORD_HEADER_SIZE, length ) );
+        //marks the end of the records, in case the segment is reused after recovery
+        if( end + 4 <= buffer.capacity() ){
+            buffer.putInt( end, 0 );
+        }
+        
+        segment.position = end;
+        segment.dirty = true;
+        entry.add( position( segment.id, offset ) );
+    }
+    
+    /**
+     * Reads the version recorded at a position.
+     */
+    synchronized <T> Version<T> read( long position, ValueCodec<T> codec ){
+        ByteBuffer buffer = payload( position );
+        int flags = buffer.get();
+        skipUuid( buffer, flags );
+        long timestamp = Encoding.readSignedVarLong( buffer );
+        String modifiedBy = ( flags & FLAG_MODIFIED_BY ) != 0 ? Encoding.readString( buffer ) : null;
+        T value = ( flags & FLAG_VALUE ) != 0 ? codec.read( buffer, buffer.remaining() ) : null;
+        return new Version( value, timestamp, modifiedBy );
+    }
+    
+    /**
+     * Reads the timestamp recorded at a position, without decoding the value.
+     */
+    synchronized long timestamp( long position ){
+        ByteBuffer buffer = payload( position );
+        skipUuid( buffer, buffer.get() );
+        return Encoding.readSignedVarLong( buffer );
+    }
+    
+    //the reader of the record's segment, positioned and limited to its payload
+    private ByteBuffer payload( long position ){
+        checkOpen();
+        ByteBuffer buffer = segment( position ).reader;
+        int offset = offset( position );
+        buffer.limit( buffer.capacity() );
+        int length = buffer.getInt( offset );
+        buffer.limit( offset + RECORD_HEADER_SIZE + length ).position( offset + RECORD_HEADER_SIZE );
+        return buffer;
+    }
+    
+    private int recordLength( long position ){
+        ByteBuffer buffer = segment( position ).reader;
+        buffer.limit( buffer.capacity() );
+        return buffer.getInt( offset( position ) );
+    }
+    
+    private Segment segment( long position ){
+        return segments.get( (int)( ( position >>> 32 ) - firstId ) );
+    }
+    
+    private Segment writable( int bytes ){
+        Segment active = segments.isEmpty() ? null : segments.get( segments.size() - 1 );
+        if( active != null && active.position + bytes <= active.buffer.capacity() ){
+            return active;
+        }
+        
+        long id = nextId++;
+        try{
+            Segment segment = Segment.create( id, path( id ), Math.max( segmentSize, SEGMENT_HEADER_SIZE + bytes + 4 ), 0 );
+            if( segments.isEmpty() ){
+                firstId = id;
+            }
+            segments.add( segment );
+            return segment;
+        }
+        catch( IOException ex ){
+            throw new UncheckedIOException( "Could not create a journal segment", ex );
+        }
+    }
+    
+    private void checkOpen(){
+        if( closed ){
+            throw new IllegalStateException( "The journal is closed" );
+        }
+    }
+    
+    //reads the segments, discarding those replaced by a compaction and any
+    //partly written records, and indexes the records by uuid
+    private void recover() throws IOException {
+        List<Long> ids = new ArrayList();
+        try( DirectoryStream<Path> files = Files.newDirectoryStream( directory ) ){
+            for( Path file : files ){
+                String name = file.getFileName().toString();
+                if( name.endsWith( TEMPORARY_SUFFIX ) ){
+                    //an unfinished compaction
+                    Files.delete( file );
+                }
+                else if( name.endsWith( SUFFIX ) ){
+                    ids.add( Long.parseLong( name.substring( 0, name.length() - SUFFIX.length() ) ) );
+                }
+            }
+        }
+        Collections.sort( ids );
+        
+        List<Segment> opened = new ArrayList();
+        long compactedThrough = 0;
+        for( long id : ids ){
+            Segment segment = Segment.open( id, path( id ) );
+            compactedThrough = Math.max( compactedThrough, segment.compactedThrough );
+            opened.add( segment );
+        }
+        
+        for( Segment segment : opened ){
+            nextId = segment.id + 1;
+            if( segment.id <= compactedThrough ){
+                //the compaction finished, but the old segments were not all deleted
+                segment.unmap();
+                Files.delete( segment.path );
+                continue;
+            }
+            
+            if( segments.isEmpty() ){
+                firstId = segment.id;
+            }
+            while( firstId + segments.size() < segment.id ){
+                segments.add( null );
+            }
+            segments.add( segment );
+            index( segment );
+        }
+    }
+    
+    private void index( Segment segment ){
+        ByteBuffer buffer = segment.reader;
+        int offset = SEGMENT_HEADER_SIZE;
+        while( offset + RECORD_HEADER_SIZE <= buffer.capacity() ){
+            buffer.limit( buffer.capacity() );
+            int length = buffer.getInt( offset );
+            int checksum = buffer.getInt( offset + 4 );
+            if( length <= 0 || length > buffer.capacity() - offset - RECORD_HEADER_SIZE ||
+                checksum( buffer, offset + RECORD_HEADER_SIZE, length ) != checksum ){
+                break;
+            }
+            
+            buffer.limit( offset + RECORD_HEADER_SIZE + length ).position( offset + RECORD_HEADER_SIZE );
+            int flags = buffer.get();
+            String uuid;
+            if( ( flags & FLAG_BINARY_UUID ) != 0 ){
+                uuid = new UUID( buffer.getLong(), buffer.getLong() ).toString();
+            }
+            else{
+                uuid = Encoding.readString( buffer );
+            }
+            
+            Entries entry = entries.get( uuid );
+            if( entry == null ){
+                entry = new Entries( uuid );
+                entries.put( uuid, entry );
+            }
+            entry.add( position( segment.id, offset ) );
+            offset += RECORD_HEADER_SIZE + length;
+        }
+        segment.position = offset;
+    }
+    
+    private int checksum( ByteBuffer buffer, int offset, int length ){
+        buffer.limit( offset + length ).position( offset );
+        crc.reset();
+        crc.update( buffer );
+        return (int)crc.getValue();
+    }
+    
+    private static void skipUuid( ByteBuffer buffer, int flags ){
+        if( ( flags & FLAG_BINARY_UUID ) != 0 ){
+            buffer.position( buffer.position() + 16 );
+        }
+        else{
+            int length = Encoding.readVarInt( buffer );
+            buffer.position( buffer.position() + length );
+        }
+    }
+    
+    private Path path( long id ){
+        return directory.resolve( String.format( "%016d", id ) + SUFFIX );
+    }
+    
+    private static long position( long segment, int offset ){
+        return segment << 32 | offset;
+    }
+    
+    private static int offset( long position ){
+        return (int)position;
+    }
+    
+    /**
+     * The positions of the records of one property, oldest first. Records
+     * before first have been discarded by the property's retention policy,
+     * and are removed when the journal is compacted.
+     */
+    static final class Entries
+    {
+        final String uuid;
+        //the uuid, if it can be written in binary
+        final UUID binary;
+        long[] positions = new long[ 4 ];
+        int first;
+        int size;
+        JournalHistory<?> history;
+        
+        Entries( String uuid ){
+            this.uuid = uuid;
+            this.binary = PropEncoder.binaryUuid( uuid );
+        }
+        
+        void add( long position ){
+            if( size == positions.length ){
+                if( first > 0 ){
+                    System.arraycopy( positions, first, positions, 0, size - first );
+                    size -= first;
+                    first = 0;
+                }
+                if( size == positions.length ){
+                    long[] grown = new long[ positions.length * 2 ];
+                    System.arraycopy( positions, 0, grown, 0, size );
+                    positions = grown;
+                }
+            }
+            positions[ size++ ] = position;
+        }
+    }
+    
+    /**
+     * A mapped segment file. The reader and writer are views of the mapped
+     * buffer, and are only used while holding the journal's lock.
+     */
+    static final class Segment
+    {
+        //Unsafe.invokeCleaner( ByteBuffer ), which releases a mapping at once
+        //rather than when the buffer is collected, or null if the JDK does
+        //not provide it
+        private static final MethodHandle UNMAP = unmapper();
+        
+        final long id;
+        final Path path;
+        final MappedByteBuffer buffer;
+        final ByteBuffer reader;
+        final ByteBuffer writer;
+        final long compactedThrough;
+        //the offset of the end of the records
+        int position = SEGMENT_HEADER_SIZE;
+        boolean dirty;
+        
+        private Segment( long id, Path path, MappedByteBuffer buffer, long compactedThrough ){
+            this.id = id;
+            this.path = path;
+            this.buffer = buffer;
+            this.reader = buffer.duplicate();
+            this.writer = buffer.duplicate();
+            this.compactedThrough = compactedThrough;
+        }
+        
+        static Segment create( long id, Path path, int size, long compactedThrough ) throws IOException {
+            MappedByteBuffer buffer;
+            try( FileChannel channel = FileChannel.open( path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE ) ){
+                buffer = channel.map( FileChannel.MapMode.READ_WRITE, 0, size );
+            }
+            buffer.putInt( 0, MAGIC );
+            buffer.putInt( 4, FORMAT );
+            buffer.putLong( 8, compactedThrough );
+            
+            Segment segment = new Segment( id, path, buffer, compactedThrough );
+            segment.dirty = true;
+            return segment;
+        }
+        
+        static Segment open( long id, Path path ) throws IOException {
+            MappedByteBuffer buffer;
+            try( FileChannel channel = FileChannel.open( path, StandardOpenOption.READ, StandardOpenOption.WRITE ) ){
+                buffer = channel.map( FileChannel.MapMode.READ_WRITE, 0, channel.size() );
+            }
+            if( buffer.capacity() < SEGMENT_HEADER_SIZE || buffer.getInt( 0 ) != MAGIC ){
+                throw new IOException( "Not a journal segment: " + path );
+            }
+            if( buffer.getInt( 4 ) != FORMAT ){
+                throw new IOException( "Unsupported journal format " + buffer.getInt( 4 ) + ": " + path );
+            }
+            return new Segment( id, path, buffer, buffer.getLong( 8 ) );
+        }
+        
+        //releases the mapping. The buffer must not be used afterwards, so
+        //this is only called once the journal no longer reads the segment
+        void unmap(){
+            if( UNMAP == null ){
+                return;
+            }
+            try{
+                UNMAP.invokeExact( (ByteBuffer)buffer );
+            }
+            catch( Throwable t ){
+                //the mapping is released when the buffer is collected
+            }
+        }
+        
+        private static MethodHandle unmapper(){
+            try{
+                Class<?> type = Class.forName( "sun.misc.Unsafe" );
+                Field field = type.getDeclaredField( "theUnsafe" );
+                field.setAccessible( true );
+                MethodHandle invokeCleaner = MethodHandles.lookup().findVirtual( type, "invokeCleaner", MethodType.methodType( void.class, ByteBuffer.class ) );
+                return invokeCleaner.bindTo( field.get( null ) );
+            }
+            catch( ReflectiveOperationException | RuntimeException ex ){
+                return null;
+            }
+        }
+        
+        //the same segment, after its file has been moved
+        Segment renamed( Path path ){
+            Segment segment = new Segment( id, path, buffer, compactedThrough );
+            segment.position = position;
+            return segment;
+        }
+    }
+}
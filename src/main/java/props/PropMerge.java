@@ -0,0 +1,305 @@
+package props;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Merges the copies of properties held by different replicas.
+ * 
+ * Prop.merge() treats a property as a last-writer-wins register: the
+ * version with the greater timestamp becomes current, and ties are broken
+ * by modifiedBy and then by value, so every replica picks the same winner
+ * whatever order merges happen in. The version histories are merged as
+ * two sorted runs, in a single pass, and the losing version joins the
+ * history. Merging is commutative, associative and idempotent, so replicas
+ * that exchange state in any order converge. With a HybridLogicalClock,
+ * timestamps are unique and follow causality, so the last writer is the
+ * last write.
+ * 
+ * Replicas find the properties they disagree about by comparing digests in
+ * bulk: digests() hashes the state of each property into a long, and
+ * differences() returns the indexes whose digests differ, so replicas only
+ * exchange those properties, for example with a PropEncoder. sync() does
+ * both for replicas in the same process.
+ */
+public final class PropMerge
+{
+    private PropMerge(){
+    }
+    
+    /**
+     * Compares two versions in last-writer-wins order: by timestamp, then by
+     * modifiedBy, then by the hash codes and the strings of the values, then
+     * with compareTo() if the values are Comparable and of the same class,
+     * and last by the names of the values' classes. A null version, for an
+     * unset property, comes before every other.
+     * 
+     * Two unequal values that are alike in all of these compare as 0, and
+     * each replica then keeps its own. That takes values of the same class
+     * that is not Comparable, or whose compareTo() disagrees with equals(),
+     * with the same hash code and the same string; values whose toString()
+     * shows their state never are.
+     * @param a the first version, or null
+     * @param b the second version, or null
+     * @return a negative number if a loses to b, 0 if they are equal, or a
+     *         positive number if a wins
+     */
+    public static int compare( Version<?> a, Version<?> b ){
+        if( a == null || b == null ){
+            return a == b ? 0 : a == null ? -1 : 1;
+        }
+        int order = Long.compare( a.timestamp(), b.timestamp() );
+        if( order != 0 ){
+            return order;
+        }
+        order = compareNullsFirst( a.modifiedBy(), b.modifiedBy() );
+        if( order != 0 || Objects.equals( a.value(), b.value() ) ){
+            return order;
+        }
+        order = Integer.compare( Objects.hashCode( a.value() ), Objects.hashCode( b.value() ) );
+        if( order != 0 ){
+            return order;
+        }
+        order = compareNullsFirst( String.valueOf( a.value() ), String.valueOf( b.value() ) );
+        if( order != 0 ){
+            return order;
+        }
+        
+        //the values are not equal, so at most one of them is null
+        Object first = a.value();
+        Object second = b.value();
+        if( first == null || second == null ){
+            return first == null ? -1 : 1;
+        }
+        if( first instanceof Comparable && first.getClass() == second.getClass() ){
+            order = ((Comparable<Object>)first).compareTo( second );
+            if( order != 0 ){
+                return order;
+            }
+        }
+        return first.getClass().getName().compareTo( second.getClass().getName() );
+    }
+    
+    /**
+     * Returns a hash of the state of a property: its current value,
+     * timestamp and modifiedBy, and every one of its previous versions.
+     * Two replicas of a property that have been merged have the same
+     * digest, and replicas whose histories differ in any version almost
+     * certainly do not.
+     * 
+     * The versions are combined by adding their hashes, which the history
+     * keeps up to date as versions are recorded and discarded, so the
+     * digest of a property with a long history is as cheap as any other.
+     * @param prop the property
+     * @return the digest of the property
+     */
+    public static long digest( Prop<?> prop ){
+        Version<?> current = prop.currentVersion();
+        long hash = 0x9E3779B97F4A7C15L;
+        if( current != null ){
+            hash = mix( hash, current.timestamp() );
+            hash = mix( hash, Objects.hashCode( current.modifiedBy() ) );
+            hash = mix( hash, Objects.hashCode( current.value() ) );
+        }
+        hash = mix( hash, prop.versionCount() );
+        return mix( hash, prop.historyDigest() );
+    }
+    
+    /**
+     * Returns the hash of one version in a history digest.
+     * @param timestamp the timestamp of the version
+     * @param modifiedBy the modifying user's ID of the version
+     * @param valueHash the hash code of the value, or of the bits of a
+     *                  primitive value
+     * @return the hash of the version
+     */
+    static long hash( long timestamp, String modifiedBy, int valueHash ){
+        return mix( mix( mix( 0x9E3779B97F4A7C15L, timestamp ), Objects.hashCode( modifiedBy ) ), valueHash );
+    }
+    
+    /**
+     * Returns the digests of a list of properties.
+     * @param props the properties, which may include nulls
+     * @return the digest of each property, in the same order, or 0 for
+     *         nulls
+     */
+    public static long[] digests( List<? extends Prop<?>> props ){
+        long[] digests = new long[ props.size() ];
+        for( int i = 0; i < digests.length; i++ ){
+            Prop<?> prop = props.get( i );
+            digests[ i ] = prop == null ? 0 : digest( prop );
+        }
+        return digests;
+    }
+    
+    /**
+     * Returns the indexes at which two arrays of digests differ.
+     * @param local the digests of the local properties
+     * @param remote the digests of the same properties on another replica
+     * @return the indexes of the properties that differ, in increasing order
+     */
+    public static int[] differences( long[] local, long[] remote ){
+        if( local.length != remote.length ){
+            throw new IllegalArgumentException( "Digest counts differ: " + local.length + " and " + remote.length );
+        }
+        int count = 0;
+        int[] indexes = new int[ local.length ];
+        for( int i = 0; i < local.length; i++ ){
+            if( local[ i ] != remote[ i ] ){
+                indexes[ count++ ] = i;
+            }
+        }
+        int[] result = new int[ count ];
+        System.arraycopy( indexes, 0, result, 0, count );
+        return result;
+    }
+    
+    /**
+     * Brings two replicas of a list of properties into the same state, by
+     * comparing their digests and merging, in both directions, only the
+     * properties that differ.
+     * @param local the local properties
+     * @param remote the same properties on another replica, in the same order
+     * @return the number of properties whose digests differed
+     */
+    public static int sync( List<? extends Prop<?>> local, List<? extends Prop<?>> remote ){
+        int[] differences = differences( digests( local ), digests( remote ) );
+        for( int index : differences ){
+            Prop mine = local.get( index );
+            Prop theirs = remote.get( index );
+            if( mine == null || theirs == null ){
+                continue;
+            }
+            mine.merge( theirs );
+            theirs.merge( mine );
+        }
+        return differences.length;
+    }
+    
+    /**
+     * Merges two runs of versions, each sorted by timestamp, in a single
+     * pass. Versions with the same timestamp are ordered with compare(), and
+     * versions that appear in both runs are kept once.
+     * @param a the first run
+     * @param b the second run
+     * @param from the index of the first version of b to merge
+     * @param into the list to add the merged run to, which must be empty
+     * @return the number of versions of a that precede the first version
+     *         taken only from b, which is a.size() if the merge only appends
+     *         to a
+     */
+    static <T> int mergeRuns( List<Version<T>> a, List<Version<T>> b, int from, List<Version<T>> into ){
+        int prefix = -1;
+        int i = 0;
+        int j = from;
+        while( i < a.size() && j < b.size() ){
+            Version<T> x = a.get( i );
+            Version<T> y = b.get( j );
+            int order = Long.compare( x.timestamp(), y.timestamp() );
+            if( order == 0 ){
+                order = compare( x, y );
+            }
+            if( order <= 0 ){
+                into.add( x );
+                i++;
+                if( order == 0 ){
+                    j++;
+                }
+            }
+            else{
+                if( prefix < 0 ){
+                    prefix = i;
+                }
+                into.add( y );
+                j++;
+            }
+        }
+        for( ; i < a.size(); i++ ){
+            into.add( a.get( i ) );
+        }
+        for( ; j < b.size(); j++ ){
+            into.add( b.get( j ) );
+        }
+        return prefix < 0 ? a.size() : prefix;
+    }
+    
+    /**
+     * Inserts a version into a run sorted by timestamp, after any versions
+     * with the same timestamp that come before it in compare() order,
+     * unless the run already contains it.
+     * @param run the run
+     * @param version the version to insert
+     * @return the index the version was inserted at, or run.size() if the
+     *         run already contained it
+     */
+    static <T> int insert( List<Version<T>> run, Version<T> version ){
+        int i = run.size();
+        while( i > 0 && run.get( i - 1 ).timestamp() >= version.timestamp() ){
+            if( run.get( i - 1 ).equals( version ) ){
+                return run.size();
+            }
+            i--;
+        }
+        while( i < run.size() && run.get( i ).timestamp() == version.timestamp() && compare( run.get( i ), version ) < 0 ){
+            i++;
+        }
+        run.add( i, version );
+        return i;
+    }
+    
+    /**
+     * Removes a version from a run sorted by timestamp, searching from the
+     * newest end.
+     * @param run the run
+     * @param version the version to remove
+     * @return the index the version was removed from, or run.size() if the
+     *         run did not contain it
+     */
+    static <T> int remove( List<Version<T>> run, Version<T> version ){
+        for( int i = run.size() - 1; i >= 0 && run.get( i ).timestamp() >= version.timestamp(); i-- ){
+            if( run.get( i ).equals( version ) ){
+                run.remove( i );
+                return i;
+            }
+        }
+        return run.size();
+    }
+    
+    /**
+     * Returns the index of the first version in a run sorted by timestamp
+     * whose timestamp is at least the given one.
+     * @param run the run
+     * @param timestamp the timestamp
+     * @return the index of the first version at or after timestamp
+     */
+    static int firstAtOrAfter( List<? extends Version<?>> run, long timestamp ){
+        int low = 0;
+        int high = run.size();
+        while( low < high ){
+            int mid = ( low + high ) >>> 1;
+            if( run.get( mid ).timestamp() < timestamp ){
+                low = mid + 1;
+            }
+            else{
+                high = mid;
+            }
+        }
+        return low;
+    }
+    
+    private static int compareNullsFirst( String a, String b ){
+        if( a == null || b == null ){
+            return a == b ? 0 : a == null ? -1 : 1;
+        }
+        return a.compareTo( b );
+    }
+    
+    //one round of the SplitMix64 finalizer over the running hash
+    private static long mix( long hash, long value ){
+        long z = hash + value * 0x9E3779B97F4A7C15L;
+        z = ( z ^ ( z >>> 30 ) ) * 0xBF58476D1CE4E5B9L;
+        z = ( z ^ ( z >>> 27 ) ) * 0x94D049BB133111EBL;
+        return z ^ ( z >>> 31 );
+    }
+}
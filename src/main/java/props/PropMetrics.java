@@ -0,0 +1,255 @@
+package props;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Counts the writes, change events and recorded versions of a group of
+ * properties, and measures how long their listeners take to handle events.
+ * 
+ * ```java
+ * PropMetrics metrics = new PropMetrics( 10, TimeUnit.MILLISECONDS ).register( "orders" );
+ * order.status.metrics( metrics );
+ * order.total.metrics( metrics );
+ * ```
+ * 
+ * Metrics are collected only for properties that have been given a
+ * PropMetrics; for other properties the cost is a null check on each
+ * write. Counters are LongAdders, so properties written by many threads do
+ * not contend on them.
+ * 
+ * Each PropListener notification is timed and added to a ListenerLatency
+ * for the listener's class, whether the listener is notified by the thread
+ * that changed the property or by an AsyncDispatcher. A notification that
+ * takes longer than the slow listener threshold is counted and logged as a
+ * warning through the System.Logger named after this class; to avoid
+ * flooding the log, a listener class is only logged on its 1st, 2nd, 4th,
+ * 8th, ... slow notification.
+ * 
+ * register() exposes the metrics as a PropMetricsMXBean on the platform
+ * MBeanServer, under the name props:type=PropMetrics,name=&lt;name&gt;.
+ * 
+ * A PropMetrics only holds its properties weakly.
+ */
+public class PropMetrics implements PropMetricsMXBean
+{
+    private static final System.Logger LOG = System.getLogger( PropMetrics.class.getName() );
+    
+    private final LongAdder sets = new LongAdder();
+    private final LongAdder events = new LongAdder();
+    private final LongAdder versionsRecorded = new LongAdder();
+    private final LongAdder suppressedWrites = new LongAdder();
+    private final LongAdder slowNotifications = new LongAdder();
+    private volatile long slowListenerThresholdNanos;
+    
+    private final ConcurrentHashMap<Class<?>, ListenerLatency> listeners = new ConcurrentHashMap();
+    private final Set<Prop<?>> props = Collections.newSetFromMap( new WeakHashMap() );
+    private ObjectName name;
+    
+    /**
+     * Creates a new PropMetrics that does not report slow listeners.
+     */
+    public PropMetrics(){
+        this( 0, TimeUnit.NANOSECONDS );
+    }
+    
+    /**
+     * Creates a new PropMetrics.
+     * @param slowListenerThreshold the time a listener may take to handle
+     *                              an event before it is reported as slow,
+     *                              or 0 to not report slow listeners
+     * @param unit the unit of the threshold
+     */
+    public PropMetrics( long slowListenerThreshold, TimeUnit unit ){
+        if( slowListenerThreshold < 0 ){
+            throw new IllegalArgumentException( "Threshold must not be negative: " + slowListenerThreshold );
+        }
+        this.slowListenerThresholdNanos = unit.toNanos( slowListenerThreshold );
+    }
+    
+    /**
+     * Registers these metrics with the platform MBeanServer.
+     * @param name the name of the metrics, which must be unique
+     * @return these metrics
+     * @throws JMException if the metrics could not be registered
+     */
+    public synchronized PropMetrics register( String name ) throws JMException {
+        if( this.name != null ){
+            throw new IllegalStateException( "Already registered as " + this.name );
+        }
+        ObjectName objectName = ObjectName.getInstance( "props:type=PropMetrics,name=" + ObjectName.quote( name ) );
+        ManagementFactory.getPlatformMBeanServer().registerMBean( this, objectName );
+        this.name = objectName;
+        return this;
+    }
+    
+    /**
+     * Unregisters these metrics from the platform MBeanServer, if they
+     * are registered.
+     * @throws JMException if the metrics could not be unregistered
+     */
+    public synchronized void unregister() throws JMException {
+        if( name != null ){
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean( name );
+            name = null;
+        }
+    }
+    
+    public long getSets(){
+        return sets.sum();
+    }
+    
+    public long getEvents(){
+        return events.sum();
+    }
+    
+    public long getVersionsRecorded(){
+        return versionsRecorded.sum();
+    }
+    
+    public long getSuppressedWrites(){
+        return suppressedWrites.sum();
+    }
+    
+    public long getSlowNotifications(){
+        return slowNotifications.sum();
+    }
+    
+    public long getSlowListenerThresholdNanos(){
+        return slowListenerThresholdNanos;
+    }
+    
+    public void setSlowListenerThresholdNanos( long nanos ){
+        if( nanos < 0 ){
+            throw new IllegalArgumentException( "Threshold must not be negative: " + nanos );
+        }
+        slowListenerThresholdNanos = nanos;
+    }
+    
+    public int getProperties(){
+        synchronized( props ){
+            return props.size();
+        }
+    }
+    
+    public long getHistorySize(){
+        List<Prop<?>> snapshot;
+        synchronized( props ){
+            snapshot = new ArrayList( props );
+        }
+        long size = 0;
+        for( Prop<?> prop : snapshot ){
+            size += prop.versionCount();
+        }
+        return size;
+    }
+    
+    public List<ListenerLatency> getListeners(){
+        return new ArrayList( listeners.values() );
+    }
+    
+    /**
+     * Returns the dispatch latency of one listener class.
+     * @param listenerClass the class of the listeners
+     * @return the latency, or null if no listener of the class has been
+     *         notified
+     */
+    public ListenerLatency latency( Class<?> listenerClass ){
+        return listeners.get( listenerClass );
+    }
+    
+    public void reset(){
+        sets.reset();
+        events.reset();
+        versionsRecorded.reset();
+        suppressedWrites.reset();
+        slowNotifications.reset();
+        for( ListenerLatency latency : listeners.values() ){
+            latency.reset();
+        }
+    }
+    
+    void add( Prop<?> prop ){
+        synchronized( props ){
+            props.add( prop );
+        }
+    }
+    
+    void remove( Prop<?> prop ){
+        synchronized( props ){
+            props.remove( prop );
+        }
+    }
+    
+    void written(){
+        sets.increment();
+    }
+    
+    void event(){
+        events.increment();
+    }
+    
+    void recorded(){
+        versionsRecorded.increment();
+    }
+    
+    void suppressed(){
+        suppressedWrites.increment();
+    }
+    
+    /**
+     * Notifies a listener of an event and measures how long it takes.
+     * @param listener the listener
+     * @param event the event
+     */
+    void deliver( PropListener listener, PropChangedEvent event ){
+        long start = System.nanoTime();
+        try{
+            listener.propertyChanged( event );
+        }
+        finally{
+            long nanos = System.nanoTime() - start;
+            Class<?> type = listenerClass( listener );
+            ListenerLatency latency = listeners.get( type );
+            if( latency == null ){
+                latency = new ListenerLatency( type.getName() );
+                ListenerLatency existing = listeners.putIfAbsent( type, latency );
+                if( existing != null ){
+                    latency = existing;
+                }
+            }
+            
+            long threshold = slowListenerThresholdNanos;
+            boolean slow = threshold > 0 && nanos > threshold;
+            long slowCount = latency.add( nanos, slow );
+            if( slow ){
+                slowNotifications.increment();
+                //log the 1st, 2nd, 4th, 8th, ... slow notification
+                if( Long.bitCount( slowCount ) == 1 ){
+                    LOG.log( System.Logger.Level.WARNING, "Slow listener {0} took {1} ms to handle a change (slow {2} times)",
+                             latency.getListener(), nanos / 1e6, slowCount );
+                }
+            }
+        }
+    }
+    
+    //the class of the listener a WeakListener wraps, if it has not been collected
+    private static Class<?> listenerClass( PropListener listener ){
+        if( listener instanceof WeakListener ){
+            PropListener wrapped = ((WeakListener)listener).get();
+            if( wrapped != null ){
+                return wrapped.getClass();
+            }
+        }
+        return listener.getClass();
+    }
+}
@@ -0,0 +1,81 @@
+package props;
+
+import java.util.List;
+
+/**
+ * The JMX view of a PropMetrics.
+ */
+public interface PropMetricsMXBean
+{
+    /**
+     * Returns the number of writes to the properties.
+     * @return the number of writes
+     */
+    long getSets();
+    
+    /**
+     * Returns the number of change events sent to the properties' listeners.
+     * Each event is counted once, however many listeners receive it.
+     * @return the number of events
+     */
+    long getEvents();
+    
+    /**
+     * Returns the number of versions added to the properties' histories.
+     * @return the number of versions recorded
+     */
+    long getVersionsRecorded();
+    
+    /**
+     * Returns the number of writes that the properties' EqualityPolicy did
+     * not treat as changes. These are not counted in getSets().
+     * @return the number of suppressed writes
+     */
+    long getSuppressedWrites();
+    
+    /**
+     * Returns the number of listener notifications that took longer than
+     * the slow listener threshold.
+     * @return the number of slow notifications
+     */
+    long getSlowNotifications();
+    
+    /**
+     * Returns the time a listener may take to handle an event before it is
+     * reported as slow, or 0 if slow listeners are not reported.
+     * @return the threshold in nanoseconds
+     */
+    long getSlowListenerThresholdNanos();
+    
+    /**
+     * Sets the time a listener may take to handle an event before it is
+     * reported as slow. 0 disables reporting.
+     * @param nanos the threshold in nanoseconds
+     */
+    void setSlowListenerThresholdNanos( long nanos );
+    
+    /**
+     * Returns the number of properties whose metrics are collected here.
+     * @return the number of properties
+     */
+    int getProperties();
+    
+    /**
+     * Returns the total number of versions currently held in the
+     * properties' histories.
+     * @return the number of versions
+     */
+    long getHistorySize();
+    
+    /**
+     * Returns the dispatch latency of each listener class that has been
+     * notified.
+     * @return the latency of each listener class
+     */
+    List<ListenerLatency> getListeners();
+    
+    /**
+     * Resets every counter and latency histogram to zero.
+     */
+    void reset();
+}
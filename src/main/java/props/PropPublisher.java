@@ -0,0 +1,256 @@
+package props;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+
+/**
+ * Publishes the changes to one or more properties as a Flow.Publisher, so
+ * that they can be consumed by reactive pipelines with backpressure.
+ * 
+ * ```java
+ * Flow.Publisher<PropChangedEvent<String>> names = pojo.name.publisher( executor, 1, BackpressurePolicy.COALESCE );
+ * ```
+ * 
+ * Every subscriber has its own queue of at most capacity events, which is
+ * filled by the thread that changes a property and drained on the executor
+ * as the subscriber requests them. The BackpressurePolicy decides what
+ * happens when a subscriber's queue is full:
+ * 
+ * *   COALESCE merges the event with the undelivered event for the same
+ *     property, so a subscriber that falls behind sees only the latest
+ *     value of each property. With a capacity of 1 and a single property
+ *     this is a latest-only stream. If there is no undelivered event for
+ *     the same property, the thread that changed the property waits.
+ * *   DROP_OLDEST keeps a bounded buffer of the most recent events.
+ * *   BLOCK makes the thread that changed the property wait for the
+ *     subscriber.
+ * 
+ * Only BLOCK, and COALESCE across several properties, can hold back
+ * Prop.set(). The writer queues its event before it waits, so a slow
+ * subscriber's queue holds at most one event beyond capacity for each
+ * waiting writer.
+ * 
+ * A publisher of several properties merges their changes into one stream,
+ * in the order in which they were made. To publish a value combined from
+ * several properties, publish a ComputedProp.
+ * 
+ * Subscribers are registered as listeners while they are subscribed, so a
+ * property keeps its subscribers reachable until they cancel or the
+ * publisher is closed. Closing the publisher delivers the events that are
+ * already queued, as they are requested, and then completes every
+ * subscriber.
+ */
+public class PropPublisher<T> implements Flow.Publisher<PropChangedEvent<T>>, AutoCloseable
+{
+    //the signals delivered to a subscriber besides its events and error
+    private static final Object SUBSCRIBE = new Object();
+    private static final Object COMPLETE = new Object();
+    
+    private final Executor executor;
+    private final int capacity;
+    private final BackpressurePolicy policy;
+    private final Prop<?>[] props;
+    
+    private Subscription[] subscriptions = new PropPublisher.Subscription[ 0 ];
+    private boolean closed;
+    
+    /**
+     * Creates a new PropPublisher.
+     * @param executor the executor on which subscribers are signalled
+     * @param capacity the maximum number of undelivered events per subscriber
+     * @param policy what to do when a property changes while a subscriber's
+     *               queue is full
+     * @param props the properties whose changes are published
+     */
+    @SafeVarargs
+    public PropPublisher( Executor executor, int capacity, BackpressurePolicy policy, Prop<T>... props ){
+        if( executor == null || policy == null ){
+            throw new IllegalArgumentException( "Executor and policy must not be null" );
+        }
+        if( capacity < 1 ){
+            throw new IllegalArgumentException( "Capacity must be at least 1: " + capacity );
+        }
+        if( props.length == 0 ){
+            throw new IllegalArgumentException( "At least one property must be published" );
+        }
+        
+        this.executor = executor;
+        this.capacity = capacity;
+        this.policy = policy;
+        //copied element by element, so that the generic varargs array
+        //itself is never kept
+        this.props = new Prop<?>[ props.length ];
+        for( int i = 0; i < props.length; i++ ){
+            this.props[ i ] = props[ i ];
+        }
+    }
+    
+    public void subscribe( Flow.Subscriber<? super PropChangedEvent<T>> subscriber ){
+        if( subscriber == null ){
+            throw new NullPointerException( "Subscriber must not be null" );
+        }
+        
+        Subscription subscription = new Subscription( subscriber );
+        synchronized( this ){
+            if( closed ){
+                subscription.complete();
+            }
+            else{
+                subscriptions = Listeners.add( subscriptions, subscription );
+                for( Prop<?> prop : props ){
+                    prop.addListener( subscription );
+                }
+            }
+        }
+        subscription.signal();
+    }
+    
+    /**
+     * Returns the number of current subscribers.
+     * @return the number of subscribers
+     */
+    public synchronized int subscribers(){
+        return subscriptions.length;
+    }
+    
+    /**
+     * Stops publishing changes. Every subscriber receives the events that
+     * are already queued for it, and is then completed.
+     */
+    public void close(){
+        Subscription[] toComplete;
+        synchronized( this ){
+            if( closed ){
+                return;
+            }
+            closed = true;
+            toComplete = subscriptions;
+            subscriptions = new PropPublisher.Subscription[ 0 ];
+            for( Subscription subscription : toComplete ){
+                unlisten( subscription );
+            }
+        }
+        
+        for( Subscription subscription : toComplete ){
+            subscription.complete();
+            subscription.signal();
+        }
+    }
+    
+    private synchronized void remove( Subscription subscription ){
+        Subscription[] remaining = Listeners.remove( subscriptions, subscription );
+        if( remaining != subscriptions ){
+            subscriptions = remaining;
+            unlisten( subscription );
+        }
+    }
+    
+    private void unlisten( Subscription subscription ){
+        for( Prop<?> prop : props ){
+            prop.removeListener( subscription );
+        }
+    }
+    
+    private final class Subscription extends EventQueue<Object> implements Flow.Subscription, PropListener
+    {
+        private final Flow.Subscriber<? super PropChangedEvent<T>> subscriber;
+        
+        private long demand;
+        private boolean subscribed;
+        private boolean completing;
+        private boolean cancelled;
+        private Throwable error;
+        
+        Subscription( Flow.Subscriber<? super PropChangedEvent<T>> subscriber ){
+            super( executor, capacity, policy );
+            this.subscriber = subscriber;
+        }
+        
+        public void propertyChanged( PropChangedEvent event ){
+            enqueue( event, null );
+            throttle();
+        }
+        
+        public void request( long n ){
+            synchronized( this ){
+                if( cancelled ){
+                    return;
+                }
+                if( n <= 0 ){
+                    error = new IllegalArgumentException( "Requested demand must be positive: " + n );
+                }
+                else{
+                    demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+                }
+            }
+            signal();
+        }
+        
+        public void cancel(){
+            synchronized( this ){
+                if( cancelled ){
+                    return;
+                }
+                cancelled = true;
+                close( true );
+            }
+            remove( this );
+        }
+        
+        synchronized void complete(){
+            completing = true;
+            close( false );
+        }
+        
+        //must be called while holding the lock
+        boolean ready(){
+            if( cancelled ){
+                return false;
+            }
+            return !subscribed || error != null || ( demand > 0 && !isEmpty() ) || ( completing && isEmpty() );
+        }
+        
+        //must be called while holding the lock; returns SUBSCRIBE, the
+        //event, the error or COMPLETE
+        Object take(){
+            if( !subscribed ){
+                subscribed = true;
+                return SUBSCRIBE;
+            }
+            if( error != null ){
+                cancelled = true;
+                close( true );
+                return error;
+            }
+            if( demand > 0 && !isEmpty() ){
+                demand--;
+                return poll().event;
+            }
+            cancelled = true;
+            return COMPLETE;
+        }
+        
+        void deliver( Object signal ){
+            try{
+                if( signal == SUBSCRIBE ){
+                    subscriber.onSubscribe( this );
+                }
+                else if( signal == COMPLETE ){
+                    subscriber.onComplete();
+                }
+                else if( signal instanceof Throwable ){
+                    remove( this );
+                    subscriber.onError( (Throwable)signal );
+                }
+                else{
+                    subscriber.onNext( (PropChangedEvent<T>)signal );
+                }
+            }
+            catch( Throwable t ){
+                //a subscriber that throws is treated as having cancelled
+                cancel();
+                report( null, t );
+            }
+        }
+    }
+}
@@ -0,0 +1,473 @@
+package props;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Finds live properties by uuid.
+ * 
+ * ```java
+ * PropRegistry registry = PropRegistry.global();
+ * registry.register( order.status );
+ * ...
+ * Prop<?> status = registry.get( uuid );
+ * Prop<?>[] props = registry.resolve( uuids );
+ * ```
+ * 
+ * Registration is opt-in: a property is only found once it has been
+ * registered, under the uuid it has at that time, so a property given a
+ * uuid with uuid(String) should be registered afterwards. Properties are
+ * held through weak references, so the registry never keeps an entity
+ * alive; entries for collected properties are removed the next time a
+ * property is registered or unregistered.
+ * 
+ * Canonical UUIDs are stored as two longs in each entry rather than as
+ * Strings, in open addressing tables split into stripes. Each stripe has its own
+ * StampedLock, so writers only contend with writers of the same stripe,
+ * and lookups are optimistic reads that never block unless a writer
+ * changes the stripe while they run. resolve() looks up a batch of uuids
+ * with one optimistic read per stripe. Identifiers that are not canonical
+ * UUIDs are kept in a ConcurrentHashMap. Uuids are matched as Strings, so
+ * a UUID written in upper case is a different identifier from the same
+ * UUID in lower case, as it is for Prop.uuid(); it is kept in the map, and
+ * is not found by get( UUID ) or get( long, long ).
+ * 
+ * Looking a uuid up by String parses it first, which costs more than the
+ * lookup itself; callers that receive uuids in binary, as a UUID or from
+ * a binary protocol, should use get( long, long ) or resolve( long[] ).
+ */
+public class PropRegistry
+{
+    //a removed entry, which probing skips over
+    private static final Entry TOMBSTONE = new Entry( null, 0, 0, null );
+    
+    private final Stripe[] stripes;
+    private final ConcurrentHashMap<String, NamedEntry> named = new ConcurrentHashMap();
+    private final ReferenceQueue<Prop<?>> collected = new ReferenceQueue();
+    
+    /**
+     * Creates a new PropRegistry with four stripes for each processor.
+     */
+    public PropRegistry(){
+        this( Runtime.getRuntime().availableProcessors() * 4 );
+    }
+    
+    /**
+     * Creates a new PropRegistry.
+     * @param stripes the number of stripes, which is rounded up to a power
+     *                of two
+     */
+    public PropRegistry( int stripes ){
+        if( stripes < 1 ){
+            throw new IllegalArgumentException( "Stripes must be positive: " + stripes );
+        }
+        int count = Integer.highestOneBit( stripes );
+        if( count < stripes ){
+            count <<= 1;
+        }
+        this.stripes = new Stripe[ count ];
+        for( int i = 0; i < count; i++ ){
+            this.stripes[ i ] = new Stripe();
+        }
+    }
+    
+    /**
+     * Returns the registry shared by the whole JVM.
+     * @return the global registry
+     */
+    public static PropRegistry global(){
+        return Global.INSTANCE;
+    }
+    
+    /**
+     * Registers a property under its uuid, replacing any property already
+     * registered under it.
+     * @param prop the property
+     */
+    public void register( Prop<?> prop ){
+        expunge();
+        String uuid = prop.uuid();
+        long[] key = new long[ 2 ];
+        if( Uuids.parse( uuid, key, 0 ) ){
+            stripe( key[ 0 ], key[ 1 ] ).put( new Entry( prop, key[ 0 ], key[ 1 ], collected ) );
+        }
+        else{
+            named.put( uuid, new NamedEntry( prop, uuid, collected ) );
+        }
+    }
+    
+    /**
+     * Removes a property from this registry, if it is registered under its
+     * current uuid.
+     * @param prop the property
+     */
+    public void unregister( Prop<?> prop ){
+        expunge();
+        String uuid = prop.uuid();
+        long[] key = new long[ 2 ];
+        if( Uuids.parse( uuid, key, 0 ) ){
+            stripe( key[ 0 ], key[ 1 ] ).remove( key[ 0 ], key[ 1 ], prop );
+        }
+        else{
+            NamedEntry entry = named.get( uuid );
+            if( entry != null && entry.get() == prop ){
+                named.remove( uuid, entry );
+            }
+        }
+    }
+    
+    /**
+     * Returns the property registered under a uuid.
+     * @param uuid the uuid
+     * @return the property, or null if none is registered or it has been
+     *         collected
+     */
+    public Prop<?> get( String uuid ){
+        long[] key = new long[ 2 ];
+        if( Uuids.parse( uuid, key, 0 ) ){
+            return get( key[ 0 ], key[ 1 ] );
+        }
+        NamedEntry entry = uuid == null ? null : named.get( uuid );
+        return entry == null ? null : entry.get();
+    }
+    
+    /**
+     * Returns the property registered under a uuid.
+     * @param uuid the uuid
+     * @return the property, or null if none is registered or it has been
+     *         collected
+     */
+    public Prop<?> get( UUID uuid ){
+        return get( uuid.getMostSignificantBits(), uuid.getLeastSignificantBits() );
+    }
+    
+    /**
+     * Returns the property registered under a uuid given as two longs.
+     * @param mostSigBits the most significant bits of the uuid
+     * @param leastSigBits the least significant bits of the uuid
+     * @return the property, or null if none is registered or it has been
+     *         collected
+     */
+    public Prop<?> get( long mostSigBits, long leastSigBits ){
+        return stripe( mostSigBits, leastSigBits ).get( mostSigBits, leastSigBits );
+    }
+    
+    /**
+     * Looks up a batch of uuids at once.
+     * @param uuids the uuids
+     * @return the property registered under each uuid, in the same order,
+     *         or null where none is registered or it has been collected
+     */
+    public Prop<?>[] resolve( String... uuids ){
+        Prop<?>[] result = new Prop<?>[ uuids.length ];
+        long[] keys = new long[ uuids.length * 2 ];
+        boolean[] parsed = new boolean[ uuids.length ];
+        for( int i = 0; i < uuids.length; i++ ){
+            parsed[ i ] = Uuids.parse( uuids[ i ], keys, i * 2 );
+            if( !parsed[ i ] ){
+                result[ i ] = get( uuids[ i ] );
+            }
+        }
+        resolve( keys, parsed, result );
+        return result;
+    }
+    
+    /**
+     * Looks up a batch of uuids given as pairs of longs at once.
+     * @param uuids the most and then the least significant bits of each uuid
+     * @return the property registered under each uuid, in the same order,
+     *         or null where none is registered or it has been collected
+     */
+    public Prop<?>[] resolve( long[] uuids ){
+        if( uuids.length % 2 != 0 ){
+            throw new IllegalArgumentException( "Uuids must be pairs of longs: " + uuids.length );
+        }
+        Prop<?>[] result = new Prop<?>[ uuids.length / 2 ];
+        resolve( uuids, null, result );
+        return result;
+    }
+    
+    //looks up the keys for which parsed is true, or all if it is null, with
+    //one optimistic read of each stripe
+    private void resolve( long[] keys, boolean[] parsed, Prop<?>[] result ){
+        int mask = stripes.length - 1;
+        
+        //counting sort of the keys by stripe
+        int[] starts = new int[ stripes.length + 1 ];
+        int[] stripeOf = new int[ result.length ];
+        for( int i = 0; i < result.length; i++ ){
+            if( parsed == null || parsed[ i ] ){
+                stripeOf[ i ] = stripeIndex( hash( keys[ i * 2 ], keys[ i * 2 + 1 ] ), mask );
+                starts[ stripeOf[ i ] + 1 ]++;
+            }
+            else{
+                stripeOf[ i ] = -1;
+            }
+        }
+        for( int s = 0; s < stripes.length; s++ ){
+            starts[ s + 1 ] += starts[ s ];
+        }
+        int[] order = new int[ starts[ stripes.length ] ];
+        int[] next = new int[ stripes.length ];
+        System.arraycopy( starts, 0, next, 0, stripes.length );
+        for( int i = 0; i < result.length; i++ ){
+            if( stripeOf[ i ] >= 0 ){
+                order[ next[ stripeOf[ i ] ]++ ] = i;
+            }
+        }
+        
+        for( int s = 0; s < stripes.length; s++ ){
+            if( starts[ s ] < starts[ s + 1 ] ){
+                stripes[ s ].getAll( keys, order, starts[ s ], starts[ s + 1 ], result );
+            }
+        }
+    }
+    
+    /**
+     * Returns the number of entries in this registry, including entries for
+     * properties that have been collected but not yet removed.
+     * @return the number of entries
+     */
+    public int size(){
+        int size = named.size();
+        for( Stripe stripe : stripes ){
+            size += stripe.size();
+        }
+        return size;
+    }
+    
+    private Stripe stripe( long most, long least ){
+        return stripes[ stripeIndex( hash( most, least ), stripes.length - 1 ) ];
+    }
+    
+    //removes the entries of collected properties
+    private void expunge(){
+        Reference<? extends Prop<?>> reference;
+        while( ( reference = collected.poll() ) != null ){
+            Entry entry = (Entry)reference;
+            if( entry instanceof NamedEntry ){
+                named.remove( ((NamedEntry)entry).name, entry );
+            }
+            else{
+                stripe( entry.most, entry.least ).remove( entry.most, entry.least, null );
+            }
+        }
+    }
+    
+    //version 4 UUIDs are random apart from a few fixed bits, which this
+    //mixes away. The stripe uses the high bits and the table the low bits,
+    //so the two never overlap
+    static long hash( long most, long least ){
+        long h = ( most ^ Long.rotateLeft( least, 32 ) ) * 0x9E3779B97F4A7C15L;
+        return h ^ ( h >>> 29 );
+    }
+    
+    private static int stripeIndex( long hash, int mask ){
+        return (int)( hash >>> 40 ) & mask;
+    }
+    
+    private static class Entry extends WeakReference<Prop<?>>
+    {
+        private final long most;
+        private final long least;
+        
+        Entry( Prop<?> prop, long most, long least, ReferenceQueue<Prop<?>> queue ){
+            super( prop, queue );
+            this.most = most;
+            this.least = least;
+        }
+    }
+    
+    //the entry of a property whose uuid is not a canonical UUID
+    private static final class NamedEntry extends Entry
+    {
+        private final String name;
+        
+        NamedEntry( Prop<?> prop, String name, ReferenceQueue<Prop<?>> queue ){
+            super( prop, 0, 0, queue );
+            this.name = name;
+        }
+    }
+    
+    /**
+     * An open addressing table with linear probing, which grows when it is
+     * three quarters full.
+     */
+    private static final class Stripe
+    {
+        private final StampedLock lock = new StampedLock();
+        private Table table = new Table( 16 );
+        private int size;
+        //slots that are in use, including tombstones
+        private int used;
+        
+        Prop<?> get( long most, long least ){
+            long stamp = lock.tryOptimisticRead();
+            if( stamp != 0 ){
+                Entry entry = table.find( most, least );
+                if( lock.validate( stamp ) ){
+                    return entry == null ? null : entry.get();
+                }
+            }
+            stamp = lock.readLock();
+            try{
+                Entry entry = table.find( most, least );
+                return entry == null ? null : entry.get();
+            }
+            finally{
+                lock.unlockRead( stamp );
+            }
+        }
+        
+        void getAll( long[] keys, int[] order, int from, int to, Prop<?>[] result ){
+            long stamp = lock.tryOptimisticRead();
+            if( stamp != 0 ){
+                Table t = table;
+                for( int i = from; i < to; i++ ){
+                    int index = order[ i ];
+                    Entry entry = t.find( keys[ index * 2 ], keys[ index * 2 + 1 ] );
+                    result[ index ] = entry == null ? null : entry.get();
+                }
+                if( lock.validate( stamp ) ){
+                    return;
+                }
+            }
+            stamp = lock.readLock();
+            try{
+                for( int i = from; i < to; i++ ){
+                    int index = order[ i ];
+                    Entry entry = table.find( keys[ index * 2 ], keys[ index * 2 + 1 ] );
+                    result[ index ] = entry == null ? null : entry.get();
+                }
+            }
+            finally{
+                lock.unlockRead( stamp );
+            }
+        }
+        
+        void put( Entry entry ){
+            long stamp = lock.writeLock();
+            try{
+                if( ( used + 1 ) * 4 > table.entries.length * 3 ){
+                    rehash();
+                }
+                int slot = table.slot( entry.most, entry.least );
+                Entry previous = table.entries[ slot ];
+                if( previous == null ){
+                    used++;
+                }
+                if( previous == null || previous == TOMBSTONE ){
+                    size++;
+                }
+                table.entries[ slot ] = entry;
+            }
+            finally{
+                lock.unlockWrite( stamp );
+            }
+        }
+        
+        //removes the entry for the key if it refers to prop, or has been
+        //collected if prop is null
+        void remove( long most, long least, Prop<?> prop ){
+            long stamp = lock.writeLock();
+            try{
+                int slot = table.slot( most, least );
+                Entry entry = table.entries[ slot ];
+                if( entry != null && entry != TOMBSTONE && entry.get() == prop ){
+                    table.entries[ slot ] = TOMBSTONE;
+                    size--;
+                }
+            }
+            finally{
+                lock.unlockWrite( stamp );
+            }
+        }
+        
+        int size(){
+            long stamp = lock.readLock();
+            try{
+                return size;
+            }
+            finally{
+                lock.unlockRead( stamp );
+            }
+        }
+        
+        //copies the live entries to a table that is at most half full,
+        //dropping tombstones and collected properties
+        private void rehash(){
+            Entry[] old = table.entries;
+            int live = 0;
+            for( Entry entry : old ){
+                if( entry != null && entry != TOMBSTONE && entry.get() != null ){
+                    live++;
+                }
+            }
+            int capacity = 16;
+            while( capacity < live * 2 + 2 ){
+                capacity <<= 1;
+            }
+            Table rehashed = new Table( capacity );
+            for( Entry entry : old ){
+                if( entry != null && entry != TOMBSTONE && entry.get() != null ){
+                    rehashed.entries[ rehashed.slot( entry.most, entry.least ) ] = entry;
+                }
+            }
+            table = rehashed;
+            size = live;
+            used = live;
+        }
+    }
+    
+    private static final class Table
+    {
+        //null for an empty slot
+        private final Entry[] entries;
+        
+        Table( int capacity ){
+            entries = new Entry[ capacity ];
+        }
+        
+        //the slot holding the key, or else the first free slot for it.
+        //Bounded by the capacity, so that an optimistic read of a table
+        //that is being written always ends
+        int slot( long most, long least ){
+            int mask = entries.length - 1;
+            int slot = (int)hash( most, least ) & mask;
+            int free = -1;
+            for( int probes = 0; probes < entries.length; probes++ ){
+                Entry entry = entries[ slot ];
+                if( entry == null ){
+                    return free >= 0 ? free : slot;
+                }
+                if( entry == TOMBSTONE ){
+                    if( free < 0 ){
+                        free = slot;
+                    }
+                }
+                else if( entry.most == most && entry.least == least ){
+                    return slot;
+                }
+                slot = ( slot + 1 ) & mask;
+            }
+            return free >= 0 ? free : slot;
+        }
+        
+        Entry find( long most, long least ){
+            Entry entry = entries[ slot( most, least ) ];
+            if( entry == null || entry == TOMBSTONE || entry.most != most || entry.least != least ){
+                return null;
+            }
+            return entry;
+        }
+    }
+    
+    private static final class Global
+    {
+        private static final PropRegistry INSTANCE = new PropRegistry();
+    }
+}
@@ -0,0 +1,381 @@
+package props;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Reads and writes several ConcurrentProps atomically.
+ * 
+ * ```java
+ * PropTransaction.run( tx -> {
+ *     long balance = tx.get( account.balance );
+ *     tx.set( account.balance, balance - amount );
+ *     tx.set( account.lastTransaction, id );
+ * } );
+ * ```
+ * 
+ * A transaction is optimistic. get() reads the current version of a
+ * property without locking and remembers it; set() only buffers the new
+ * value. Each get() of a new property checks that the versions read
+ * earlier are still current, so the values a transaction sees are always
+ * a consistent snapshot, and throws a ConflictException if they are not.
+ * commit() locks every property the transaction read or wrote, in a
+ * fixed order so that transactions cannot deadlock, checks that the
+ * versions it read are still current, and only then publishes all of the
+ * writes, recording their versions in the histories. If another thread
+ * has written one of the properties in the meantime, nothing is written
+ * and commit() returns false. run() and call() repeat the work until it
+ * commits.
+ * 
+ * Transactions only lock the properties they use, so transactions on
+ * disjoint properties never wait for each other. The listeners of the
+ * written properties are notified after the locks are released, when
+ * every write of the transaction is visible; ComputedProps that depend on
+ * several of the properties are recomputed once, after all of them are
+ * written. Events for an AsyncDispatcher are queued before the locks are
+ * released, as they are for ConcurrentProp.set(), and with BLOCK or
+ * COALESCE the transaction waits for room in the queue only after
+ * releasing them.
+ * 
+ * A transaction is not thread-safe and is meant for a handful of
+ * properties: each get() and set() looks the property up among those
+ * already used, and each get() of a new property checks all the earlier
+ * reads. The work passed to run() and call() may be repeated, so it
+ * should have no side effects other than through the transaction.
+ */
+public final class PropTransaction
+{
+    private static final ConflictException CONFLICT = new ConflictException();
+    //held while locking properties whose identity hash codes collide, whose
+    //order is then arbitrary
+    private static final Object TIE = new Object();
+    
+    private final String modifiedBy;
+    private Access<?>[] accesses = new Access<?>[ 4 ];
+    private int size;
+    private int writes;
+    private boolean conflicted;
+    
+    /**
+     * Creates a new transaction.
+     */
+    public PropTransaction(){
+        this( null );
+    }
+    
+    /**
+     * Creates a new transaction whose writes are made by the given user.
+     * @param modifiedBy the modifying user's ID of the writes
+     */
+    public PropTransaction( String modifiedBy ){
+        this.modifiedBy = modifiedBy;
+    }
+    
+    /**
+     * Runs work in a transaction, running it again until the transaction
+     * commits.
+     * @param work reads and writes properties through the transaction
+     */
+    public static void run( Consumer<PropTransaction> work ){
+        run( null, work );
+    }
+    
+    /**
+     * Runs work in a transaction, running it again until the transaction
+     * commits.
+     * @param modifiedBy the modifying user's ID of the writes
+     * @param work reads and writes properties through the transaction
+     */
+    public static void run( String modifiedBy, Consumer<PropTransaction> work ){
+        PropTransaction transaction = new PropTransaction( modifiedBy );
+        while( true ){
+            try{
+                work.accept( transaction );
+                if( transaction.commit() ){
+                    return;
+                }
+            }
+            catch( ConflictException ex ){
+                transaction.reset();
+            }
+            Thread.onSpinWait();
+        }
+    }
+    
+    /**
+     * Runs work in a transaction, running it again until the transaction
+     * commits, and returns the result of the run that committed.
+     * @param <R> the type of the result
+     * @param work reads and writes properties through the transaction
+     * @return the result of the work
+     */
+    public static <R> R call( Function<PropTransaction, R> work ){
+        return call( null, work );
+    }
+    
+    /**
+     * Runs work in a transaction, running it again until the transaction
+     * commits, and returns the result of the run that committed.
+     * @param <R> the type of the result
+     * @param modifiedBy the modifying user's ID of the writes
+     * @param work reads and writes properties through the transaction
+     * @return the result of the work
+     */
+    public static <R> R call( String modifiedBy, Function<PropTransaction, R> work ){
+        PropTransaction transaction = new PropTransaction( modifiedBy );
+        while( true ){
+            try{
+                R result = work.apply( transaction );
+                if( transaction.commit() ){
+                    return result;
+                }
+            }
+            catch( ConflictException ex ){
+                transaction.reset();
+            }
+            Thread.onSpinWait();
+        }
+    }
+    
+    /**
+     * Returns the value of a property as seen by this transaction: the
+     * value it set, if it has set one, or otherwise the value the property
+     * had when the transaction first read it.
+     * @param <T> the type of the property
+     * @param prop the property
+     * @return the value
+     * @throws ConflictException if another thread has written a property
+     *         this transaction read, so the values read are no longer a
+     *         consistent snapshot
+     */
+    public <T> T get( ConcurrentProp<T> prop ){
+        Access<T> access = find( prop );
+        if( access != null ){
+            if( access.written ){
+                return access.value;
+            }
+            if( access.read != null ){
+                return access.read.value();
+            }
+        }
+        else{
+            access = add( prop );
+        }
+        
+        Version<T> current = prop.current();
+        access.read = current;
+        for( int i = 0; i < size; i++ ){
+            if( !accesses[ i ].valid() ){
+                conflicted = true;
+                throw CONFLICT;
+            }
+        }
+        return current.value();
+    }
+    
+    /**
+     * Sets the value of a property when this transaction commits.
+     * @param <T> the type of the property
+     * @param prop the property
+     * @param value the new value
+     */
+    public <T> void set( ConcurrentProp<T> prop, T value ){
+        Access<T> access = find( prop );
+        if( access == null ){
+            access = add( prop );
+        }
+        if( !access.written ){
+            access.written = true;
+            writes++;
+        }
+        access.value = value;
+    }
+    
+    /**
+     * Publishes the writes of this transaction if no other thread has
+     * written the properties it read since it read them. Either way, the
+     * transaction is empty afterwards and may be used again.
+     * @return true if the writes were published, false if nothing was
+     *         written because of a conflicting write
+     */
+    public boolean commit(){
+        try{
+            if( conflicted ){
+                return false;
+            }
+            if( writes == 0 ){
+                //each read checked the earlier ones, so the reads were all
+                //current when the last of them was made
+                return true;
+            }
+            
+            Batch batch = null;
+            boolean ties = sort();
+            for( int i = 0; i < size; i++ ){
+                if( accesses[ i ].written && accesses[ i ].prop.dependents() != null ){
+                    batch = Batch.open();
+                    break;
+                }
+            }
+            try{
+                boolean published;
+                if( ties ){
+                    synchronized( TIE ){
+                        published = publish( 0 );
+                    }
+                }
+                else{
+                    published = publish( 0 );
+                }
+                if( !published ){
+                    return false;
+                }
+                
+                for( int i = 0; i < size; i++ ){
+                    accesses[ i ].announce();
+                }
+                return true;
+            }
+            finally{
+                if( batch != null ){
+                    batch.close();
+                }
+            }
+        }
+        finally{
+            reset();
+        }
+    }
+    
+    /**
+     * Discards the reads and writes of this transaction.
+     */
+    public void reset(){
+        Arrays.fill( accesses, 0, size, null );
+        size = 0;
+        writes = 0;
+        conflicted = false;
+    }
+    
+    //locks the property at index and those after it, then publishes the
+    //writes if every read is still current
+    private boolean publish( int index ){
+        if( index < size ){
+            synchronized( accesses[ index ].prop.lock() ){
+                return publish( index + 1 );
+            }
+        }
+        
+        for( int i = 0; i < size; i++ ){
+            if( !accesses[ i ].valid() ){
+                return false;
+            }
+        }
+        for( int i = 0; i < size; i++ ){
+            accesses[ i ].publish( modifiedBy );
+        }
+        return true;
+    }
+    
+    //sorts the accesses into lock order. Returns true if two properties
+    //have the same identity hash code
+    private boolean sort(){
+        boolean ties = false;
+        for( int i = 1; i < size; i++ ){
+            Access<?> access = accesses[ i ];
+            int j = i - 1;
+            while( j >= 0 && accesses[ j ].hash > access.hash ){
+                accesses[ j + 1 ] = accesses[ j ];
+                j--;
+            }
+            accesses[ j + 1 ] = access;
+            ties |= j >= 0 && accesses[ j ].hash == access.hash;
+        }
+        return ties;
+    }
+    
+    private <T> Access<T> find( ConcurrentProp<T> prop ){
+        for( int i = 0; i < size; i++ ){
+            if( accesses[ i ].prop == prop ){
+                return (Access<T>)accesses[ i ];
+            }
+        }
+        return null;
+    }
+    
+    private <T> Access<T> add( ConcurrentProp<T> prop ){
+        if( size == accesses.length ){
+            accesses = Arrays.copyOf( accesses, size * 2 );
+        }
+        Access<T> access = new Access( prop );
+        accesses[ size++ ] = access;
+        return access;
+    }
+    
+    /**
+     * Thrown by PropTransaction.get() when another thread has written a
+     * property the transaction read. run() and call() catch it and run the
+     * work again; code that commits a transaction itself should reset() it
+     * and start over.
+     */
+    public static final class ConflictException extends RuntimeException
+    {
+        private static final long serialVersionUID = 1L;
+        
+        private ConflictException(){
+            super( "A property read by the transaction has been written", null, false, false );
+        }
+    }
+    
+    /**
+     * A property used by a transaction.
+     */
+    private static final class Access<T>
+    {
+        private final ConcurrentProp<T> prop;
+        private final int hash;
+        //the version read, or null if the property has not been read
+        private Version<T> read;
+        private boolean written;
+        private T value;
+        //the outcome of the write, once published
+        private Version<T> previous;
+        private long timestamp;
+        private boolean change;
+        private boolean queued;
+        
+        Access( ConcurrentProp<T> prop ){
+            this.prop = prop;
+            this.hash = System.identityHashCode( prop );
+        }
+        
+        //true if the version read, if any, is still current
+        boolean valid(){
+            return read == null || prop.current() == read;
+        }
+        
+        //must be called while holding the property's lock
+        void publish( String modifiedBy ){
+            if( written ){
+                timestamp = prop.now();
+                previous = prop.current();
+                change = prop.commit( previous, value, modifiedBy, timestamp );
+                queued = prop.queue( previous.value(), value, change, timestamp );
+            }
+        }
+        
+        //must be called after the locks are released
+        void announce(){
+            if( written && change ){
+                prop.invalidateDependents();
+            }
+            if( written && !queued ){
+                prop.announce( previous.value(), value, change, timestamp );
+            }
+            else if( written ){
+                prop.throttle();
+            }
+        }
+    }
+}
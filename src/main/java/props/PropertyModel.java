@@ -0,0 +1,421 @@
+package props;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The Prop fields of a class, found once per class and cached.
+ * 
+ * ```java
+ * PropertyModel<Pojo> model = PropertyModel.of( Pojo.class );
+ * model.wireParent( pojo );
+ * model.addListener( pojo, listener );
+ * List<Version<?>> snapshot = model.snapshot( pojo );
+ * EntitySnapshot<Pojo> lastWeek = model.snapshotAsOf( pojo, timestamp );
+ * ```
+ * 
+ * The model holds the instance fields of the class and its superclasses
+ * whose declared type is Prop or a subclass of Prop, superclass fields
+ * first and otherwise in declaration order, which gives each field a
+ * stable index. The fields are read through MethodHandles created when
+ * the model is built, so using a model does no reflection. Fields that
+ * are null are skipped by the bulk operations.
+ * 
+ * Models are immutable and thread-safe.
+ * @param <T> The class whose Props are modelled.
+ */
+public final class PropertyModel<T>
+{
+    private static final ClassValue<PropertyModel<?>> MODELS = new ClassValue<PropertyModel<?>>(){
+        @Override
+        protected PropertyModel<?> computeValue( Class<?> type ){
+            return new PropertyModel( type );
+        }
+    };
+    
+    private static final int MAX_COMBINED = 64;
+    private static final MethodType GETTER_TYPE = MethodType.methodType( Prop.class, Object.class );
+    
+    private final Class<T> type;
+    private final String[] names;
+    private final Class<?>[] propTypes;
+    //the codec for the values of each field, or null if ValueCodecs has
+    //none for the field's value type
+    private final ValueCodec<?>[] codecs;
+    private final MethodHandle[] getters;
+    //reads all the fields into a new array in one call, when there are few
+    //enough fields for a single MethodHandle
+    private final MethodHandle all;
+    
+    private PropertyModel( Class<T> type ){
+        this.type = type;
+        
+        List<Field> fields = new ArrayList();
+        for( Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass() ){
+            List<Field> declared = new ArrayList();
+            for( Field field : c.getDeclaredFields() ){
+                if( !Modifier.isStatic( field.getModifiers() ) && Prop.class.isAssignableFrom( field.getType() ) ){
+                    declared.add( field );
+                }
+            }
+            fields.addAll( 0, declared );
+        }
+        
+        names = new String[ fields.size() ];
+        propTypes = new Class<?>[ fields.size() ];
+        codecs = new ValueCodec<?>[ fields.size() ];
+        getters = new MethodHandle[ fields.size() ];
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        for( int i = 0; i < fields.size(); i++ ){
+            Field field = fields.get( i );
+            names[ i ] = field.getName();
+            propTypes[ i ] = field.getType();
+            Class<?> valueType = valueType( field.getGenericType() );
+            codecs[ i ] = valueType != null ? ValueCodecs.of( valueType ) : null;
+            try{
+                field.setAccessible( true );
+                getters[ i ] = lookup.unreflectGetter( field ).asType( GETTER_TYPE );
+            }
+            catch( IllegalAccessException | RuntimeException ex ){
+                throw new IllegalArgumentException( "Cannot access " + type.getName() + "." + field.getName(), ex );
+            }
+        }
+        
+        if( getters.length > 0 && getters.length <= MAX_COMBINED ){
+            MethodHandle array = MethodHandles.identity( Prop[].class ).asCollector( Prop[].class, getters.length );
+            all = MethodHandles.permuteArguments( MethodHandles.filterArguments( array, 0, getters ),
+                                                  MethodType.methodType( Prop[].class, Object.class ),
+                                                  new int[ getters.length ] );
+        }
+        else{
+            all = null;
+        }
+    }
+    
+    /**
+     * Returns the model of a class, building it on first use.
+     * @param type the class
+     * @return the model of the class
+     * @throws IllegalArgumentException if a Prop field cannot be accessed
+     */
+    public static <T> PropertyModel<T> of( Class<T> type ){
+        return (PropertyModel<T>)MODELS.get( type );
+    }
+    
+    /**
+     * Returns the class this model describes.
+     * @return the class
+     */
+    public Class<T> type(){
+        return type;
+    }
+    
+    /**
+     * Returns the number of Prop fields.
+     * @return the number of Prop fields
+     */
+    public int size(){
+        return names.length;
+    }
+    
+    /**
+     * Returns the name of a Prop field.
+     * @param index the index of the field
+     * @return the name of the field
+     */
+    public String name( int index ){
+        return names[ index ];
+    }
+    
+    /**
+     * Returns the names of the Prop fields, in index order.
+     * @return the names of the fields
+     */
+    public List<String> names(){
+        return Collections.unmodifiableList( Arrays.asList( names ) );
+    }
+    
+    /**
+     * Returns the declared type of a Prop field, such as Prop or IntProp.
+     * @param index the index of the field
+     * @return the declared type of the field
+     */
+    public Class<?> propType( int index ){
+        return propTypes[ index ];
+    }
+    
+    /**
+     * Returns the index of a Prop field.
+     * @param name the name of the field
+     * @return the index of the field, or -1 if there is no Prop field with
+     *         that name
+     */
+    public int indexOf( String name ){
+        for( int i = 0; i < names.length; i++ ){
+            if( names[ i ].equals( name ) ){
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * Returns the Prop in a field of an object.
+     * @param object the object
+     * @param index the index of the field
+     * @return the Prop, or null if the field is null
+     */
+    public Prop<?> get( T object, int index ){
+        try{
+            return (Prop<?>)getters[ index ].invokeExact( (Object)object );
+        }
+        catch( RuntimeException | Error ex ){
+            throw ex;
+        }
+        catch( Throwable ex ){
+            throw new IllegalStateException( ex );
+        }
+    }
+    
+    /**
+     * Returns the Props of an object, in index order. Fields that are null
+     * are included as nulls.
+     * @param object the object
+     * @return the Props of the object
+     */
+    public List<Prop<?>> props( T object ){
+        return Arrays.asList( read( object ) );
+    }
+    
+    /**
+     * Returns the current value, timestamp and modifiedBy of every Prop of
+     * an object, in index order. Props that are null or have not been set
+     * are included as nulls.
+     * @param object the object
+     * @return the current versions of the Props
+     */
+    public List<Version<?>> snapshot( T object ){
+        Prop<?>[] props = read( object );
+        Version<?>[] versions = new Version<?>[ props.length ];
+        for( int i = 0; i < props.length; i++ ){
+            if( props[ i ] != null ){
+                versions[ i ] = props[ i ].currentVersion();
+            }
+        }
+        return Arrays.asList( versions );
+    }
+    
+    /**
+     * Returns an immutable snapshot of the current state of every Prop of
+     * an object.
+     * @param object the object
+     * @return the snapshot
+     */
+    public EntitySnapshot<T> capture( T object ){
+        return capture( object, null );
+    }
+    
+    /**
+     * Returns an immutable snapshot of the current state of every Prop of
+     * an object, sharing the versions of Props that have not changed since
+     * an earlier snapshot. If no Prop has changed, the earlier snapshot is
+     * returned.
+     * @param object the object
+     * @param previous an earlier snapshot of the object, or null
+     * @return the snapshot
+     */
+    public EntitySnapshot<T> capture( T object, EntitySnapshot<T> previous ){
+        if( previous != null && previous.model() != this ){
+            throw new IllegalArgumentException( "Snapshot is of a different model: " + previous.model() );
+        }
+        
+        Prop<?>[] props = read( object );
+        Version<?>[] versions = new Version<?>[ props.length ];
+        boolean changed = previous == null;
+        for( int i = 0; i < props.length; i++ ){
+            Version<?> earlier = previous == null ? null : previous.at( i );
+            if( props[ i ] != null ){
+                versions[ i ] = ((Prop<Object>)props[ i ]).currentVersion( (Version<Object>)earlier );
+            }
+            changed |= versions[ i ] != earlier;
+        }
+        return changed ? new EntitySnapshot( this, versions ) : previous;
+    }
+    
+    /**
+     * Returns an immutable snapshot of every Prop of an object as it was at
+     * a point in time, found with a binary search of each Prop's history.
+     * Props that had not been set by then, or whose history does not reach
+     * back that far, are captured as null.
+     * @param object the object
+     * @param timestamp the time
+     * @return the snapshot
+     * @see Prop#asOf(long)
+     */
+    public EntitySnapshot<T> snapshotAsOf( T object, long timestamp ){
+        Prop<?>[] props = read( object );
+        Version<?>[] versions = new Version<?>[ props.length ];
+        for( int i = 0; i < props.length; i++ ){
+            if( props[ i ] != null ){
+                versions[ i ] = props[ i ].asOf( timestamp );
+            }
+        }
+        return new EntitySnapshot( this, versions );
+    }
+    
+    /**
+     * Sets the parent of every Prop of an object to the object.
+     * @param object the object
+     */
+    public void wireParent( T object ){
+        for( Prop<?> prop : read( object ) ){
+            if( prop != null ){
+                prop.parent( object );
+            }
+        }
+    }
+    
+    /**
+     * Adds a listener to every Prop of an object.
+     * @param object the object
+     * @param listener the listener
+     */
+    public void addListener( T object, PropListener listener ){
+        for( Prop<?> prop : read( object ) ){
+            if( prop != null ){
+                prop.addListener( listener );
+            }
+        }
+    }
+    
+    /**
+     * Removes a listener from every Prop of an object.
+     * @param object the object
+     * @param listener the listener
+     */
+    public void removeListener( T object, PropListener listener ){
+        for( Prop<?> prop : read( object ) ){
+            if( prop != null ){
+                prop.removeListener( listener );
+            }
+        }
+    }
+    
+    /**
+     * Returns the digests of the Props of an object, in index order, which
+     * another replica of the object can compare with its own to find the
+     * Props that differ. See PropMerge.
+     * @param object the object
+     * @return the digest of each Prop, or 0 for fields that are null
+     */
+    public long[] digests( T object ){
+        return PropMerge.digests( props( object ) );
+    }
+    
+    /**
+     * Merges two replicas of an object, in both directions, so that every
+     * Prop of each has the same state. Only Props whose digests differ are
+     * merged. See PropMerge.
+     * @param local the local replica
+     * @param remote the other replica
+     * @return the number of Props whose digests differed
+     */
+    public int sync( T local, T remote ){
+        return PropMerge.sync( props( local ), props( remote ) );
+    }
+    
+    /**
+     * Creates a ChangeTracker for an object that tracks all of its Props,
+     * with the field indexes of this model. The Props' parents must be the
+     * object; see wireParent().
+     * 
+     * Props whose values are Strings, boxed primitives or booleans, as
+     * declared by the field, such as Prop<String> or IntProp, are tracked
+     * with the codec from ValueCodecs and can be written in deltas. Other
+     * Props are tracked without a codec, so writeDelta() throws if one of
+     * them is dirty; they can still be drained and listed by watermark.
+     * @param object the object
+     * @return the tracker
+     */
+    public ChangeTracker tracker( T object ){
+        Prop<?>[] props = read( object );
+        ChangeTracker tracker = new ChangeTracker( object );
+        for( int i = 0; i < props.length; i++ ){
+            if( props[ i ] == null ){
+                throw new IllegalArgumentException( "Field " + names[ i ] + " is null" );
+            }
+            tracker.track( (Prop)props[ i ], (ValueCodec)codecs[ i ] );
+        }
+        return tracker;
+    }
+    
+    //the class that T is bound to by a Prop field's declared type, such as
+    //String for Prop<String> or Integer for IntProp, or null if it is not
+    //bound to a class
+    private static Class<?> valueType( Type type ){
+        Map<TypeVariable<?>, Type> bindings = new HashMap();
+        while( true ){
+            Class<?> raw;
+            if( type instanceof ParameterizedType ){
+                ParameterizedType parameterized = (ParameterizedType)type;
+                raw = (Class<?>)parameterized.getRawType();
+                TypeVariable<?>[] variables = raw.getTypeParameters();
+                Type[] arguments = parameterized.getActualTypeArguments();
+                for( int i = 0; i < variables.length; i++ ){
+                    Type argument = arguments[ i ];
+                    bindings.put( variables[ i ], bindings.containsKey( argument ) ? bindings.get( argument ) : argument );
+                }
+            }
+            else if( type instanceof Class ){
+                raw = (Class<?>)type;
+            }
+            else{
+                return null;
+            }
+            
+            if( raw == Prop.class ){
+                Type value = bindings.get( raw.getTypeParameters()[ 0 ] );
+                return value instanceof Class ? (Class<?>)value : null;
+            }
+            type = raw.getGenericSuperclass();
+        }
+    }
+    
+    //the Props in the fields of an object, in index order
+    private Prop<?>[] read( T object ){
+        if( all == null ){
+            Prop<?>[] props = new Prop<?>[ getters.length ];
+            for( int i = 0; i < props.length; i++ ){
+                props[ i ] = get( object, i );
+            }
+            return props;
+        }
+        
+        try{
+            return (Prop<?>[])all.invokeExact( (Object)object );
+        }
+        catch( RuntimeException | Error ex ){
+            throw ex;
+        }
+        catch( Throwable ex ){
+            throw new IllegalStateException( ex );
+        }
+    }
+    
+    @Override
+    public String toString(){
+        return "PropertyModel[" + type.getName() + Arrays.toString( names ) + "]";
+    }
+}
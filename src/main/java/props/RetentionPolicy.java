@@ -0,0 +1,140 @@
+package props;
+
+/**
+ * Determines which previous versions a Prop keeps in its history.
+ * 
+ * The default policy keeps every version. The other policies keep the
+ * history to a fixed size, so memory use stays flat no matter how often
+ * a property changes:
+ * 
+ * *   **lastVersions(n)** - keeps the n most recent versions.
+ * *   **newerThan(age, n)** - keeps versions whose timestamp is within age
+ *     milliseconds of the most recently recorded version, up to n of them.
+ * *   **downsampled(recent, interval, n)** - keeps the most recent versions
+ *     at full resolution, and one version per interval for older history,
+ *     up to n versions in total.
+ * 
+ * Histories are ring buffers, so recording a version is O(1) under every
+ * policy. Versions are always returned oldest first.
+ */
+public final class RetentionPolicy
+{
+    private static final RetentionPolicy UNBOUNDED = new RetentionPolicy( Integer.MAX_VALUE, Long.MAX_VALUE, Integer.MAX_VALUE, 0 );
+    
+    private final int maxVersions;
+    private final long maxAge;
+    private final int recent;
+    private final long interval;
+    
+    private RetentionPolicy( int maxVersions, long maxAge, int recent, long interval ){
+        if( maxVersions < 1 ){
+            throw new IllegalArgumentException( "Max versions must be at least 1: " + maxVersions );
+        }
+        if( maxAge < 0 ){
+            throw new IllegalArgumentException( "Max age must not be negative: " + maxAge );
+        }
+        
+        this.maxVersions = maxVersions;
+        this.maxAge = maxAge;
+        this.recent = recent;
+        this.interval = interval;
+    }
+    
+    /**
+     * Returns a policy that keeps every version. This is the default.
+     * @return a policy that keeps every version
+     */
+    public static RetentionPolicy unbounded(){
+        return UNBOUNDED;
+    }
+    
+    /**
+     * Returns a policy that keeps the most recent versions.
+     * @param maxVersions the number of versions to keep
+     * @return a policy that keeps the most recent versions
+     */
+    public static RetentionPolicy lastVersions( int maxVersions ){
+        return new RetentionPolicy( maxVersions, Long.MAX_VALUE, maxVersions, 0 );
+    }
+    
+    /**
+     * Returns a policy that keeps versions whose timestamp is within maxAge
+     * milliseconds of the most recently recorded version.
+     * @param maxAge the age, in milliseconds, of the oldest version to keep
+     * @param maxVersions the maximum number of versions to keep
+     * @return a policy that keeps recent versions
+     */
+    public static RetentionPolicy newerThan( long maxAge, int maxVersions ){
+        return new RetentionPolicy( maxVersions, maxAge, maxVersions, 0 );
+    }
+    
+    /**
+     * Returns a policy that keeps the most recent versions at full
+     * resolution, and a single version for each interval of older history.
+     * The version kept for an interval is the last one recorded in it, which
+     * is the value the property had at the end of that interval.
+     * @param recent the number of versions to keep at full resolution
+     * @param interval the length, in milliseconds, of each interval of older history
+     * @param maxVersions the maximum number of versions to keep in total
+     * @return a policy that downsamples older versions
+     */
+    public static RetentionPolicy downsampled( int recent, long interval, int maxVersions ){
+        if( recent < 1 || recent > maxVersions ){
+            throw new IllegalArgumentException( "Recent versions must be between 1 and " + maxVersions + ": " + recent );
+        }
+        if( interval < 1 ){
+            throw new IllegalArgumentException( "Interval must be positive: " + interval );
+        }
+        return new RetentionPolicy( maxVersions, Long.MAX_VALUE, recent, interval );
+    }
+    
+    /**
+     * Returns the maximum number of versions kept by this policy.
+     * @return the maximum number of versions
+     */
+    public int maxVersions(){
+        return maxVersions;
+    }
+    
+    /**
+     * Returns the age, in milliseconds, of the oldest version kept by this
+     * policy, relative to the most recently recorded version.
+     * @return the maximum age of a version
+     */
+    public long maxAge(){
+        return maxAge;
+    }
+    
+    /**
+     * Returns the number of versions kept at full resolution.
+     * @return the number of versions kept at full resolution
+     */
+    public int recent(){
+        return recent;
+    }
+    
+    /**
+     * Returns the length, in milliseconds, of each interval of downsampled
+     * history, or 0 if this policy does not downsample.
+     * @return the downsampling interval
+     */
+    public long interval(){
+        return interval;
+    }
+    
+    /**
+     * Returns this policy with its age and interval converted from
+     * milliseconds to the timestamp units of a clock, which is the policy
+     * the history of a property using that clock applies.
+     * @param clock the clock of the property
+     * @return the policy in the units of the clock
+     */
+    RetentionPolicy inClockUnits( PropClock clock ){
+        if( clock.duration( 1 ) == 1 ){
+            return this;
+        }
+        long age = maxAge == Long.MAX_VALUE ? maxAge : clock.duration( maxAge );
+        long units = interval == 0 ? 0 : clock.duration( interval );
+        return new RetentionPolicy( maxVersions, age, recent, units );
+    }
+}
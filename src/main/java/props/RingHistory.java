@@ -0,0 +1,138 @@
+package props;
+
+/**
+ * A VersionHistory backed by ring buffers, which enforces a RetentionPolicy.
+ * 
+ * Full-resolution versions are kept in one ring. When the policy downsamples,
+ * versions that fall out of that ring move to a second ring which keeps only
+ * the last version recorded in each interval.
+ * 
+ * Versions are stored as parallel arrays, and Version objects are only
+ * created when they are read.
+ */
+final class RingHistory<T> implements VersionHistory<T>
+{
+    private final RetentionPolicy policy;
+    //null if the values are objects
+    private final PrimitiveType type;
+    private final VersionRing recent;
+    private final VersionRing older;
+    private long added;
+    //the sum of the hashes of the versions in both rings
+    private long digest;
+    
+    RingHistory( RetentionPolicy policy, PrimitiveType type ){
+        this.policy = policy;
+        this.type = type;
+        this.recent = new VersionRing( policy.recent(), type );
+        this.older = policy.interval() > 0 ? new VersionRing( policy.maxVersions() - policy.recent(), type ) : null;
+    }
+    
+    public void add( T value, long timestamp, String modifiedBy ){
+        if( type != null ){
+            append( null, type.bits( value ), timestamp, modifiedBy );
+        }
+        else{
+            append( value, 0, timestamp, modifiedBy );
+        }
+    }
+    
+    public void add( long bits, long timestamp, String modifiedBy ){
+        append( null, bits, timestamp, modifiedBy );
+    }
+    
+    public void written( T value, long timestamp, String modifiedBy ){
+    }
+    
+    public void written( long bits, long timestamp, String modifiedBy ){
+    }
+    
+    public VersionHistory<T> retain( RetentionPolicy policy ){
+        RingHistory<T> history = new RingHistory( policy, type );
+        for( int i = 0; i < size(); i++ ){
+            Version<T> version = get( i );
+            history.add( version.value(), version.timestamp(), version.modifiedBy() );
+        }
+        return history;
+    }
+    
+    private void append( Object value, long bits, long timestamp, String modifiedBy ){
+        added++;
+        
+        if( recent.isFull() ){
+            if( older != null ){
+                demote();
+            }
+            digest -= recent.hash( 0 );
+            recent.removeFirst();
+        }
+        recent.addLast( value, bits, timestamp, modifiedBy );
+        digest += recent.hash( recent.size() - 1 );
+        
+        if( policy.maxAge() != Long.MAX_VALUE ){
+            long oldest = timestamp - policy.maxAge();
+            while( recent.size() > 0 && recent.timestamp( 0 ) < oldest ){
+                digest -= recent.hash( 0 );
+                recent.removeFirst();
+            }
+        }
+    }
+    
+    //moves the oldest full-resolution version to the downsampled ring
+    private void demote(){
+        if( older.capacity() == 0 ){
+            return;
+        }
+        
+        int last = older.size() - 1;
+        if( last >= 0 && bucket( older.timestamp( last ) ) == bucket( recent.timestamp( 0 ) ) ){
+            digest -= older.hash( last );
+            older.removeLast();
+        }
+        else if( older.isFull() ){
+            digest -= older.hash( 0 );
+            older.removeFirst();
+        }
+        older.addLast( recent, 0 );
+        digest += older.hash( older.size() - 1 );
+    }
+    
+    private long bucket( long timestamp ){
+        return Math.floorDiv( timestamp, policy.interval() );
+    }
+    
+    public int size(){
+        return older == null ? recent.size() : older.size() + recent.size();
+    }
+    
+    public Version<T> get( int index ){
+        VersionRing ring = ring( index );
+        index = index( index );
+        Object value = type == null ? ring.value( index ) : type.box( ring.bits( index ) );
+        return new Version( value, ring.timestamp( index ), ring.modifiedBy( index ) );
+    }
+    
+    public long bits( int index ){
+        return ring( index ).bits( index( index ) );
+    }
+    
+    public long timestamp( int index ){
+        return ring( index ).timestamp( index( index ) );
+    }
+    
+    public long digest(){
+        return digest;
+    }
+    
+    public long added(){
+        return added;
+    }
+    
+    private VersionRing ring( int index ){
+        return older != null && index < older.size() ? older : recent;
+    }
+    
+    private int index( int index ){
+        return older != null && index >= older.size() ? index - older.size() : index;
+    }
+}
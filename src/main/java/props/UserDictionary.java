@@ -0,0 +1,65 @@
+package props;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Canonicalizes the modifiedBy identifiers recorded in version histories,
+ * so that every distinct identifier is kept only once no matter how many
+ * versions, or how many separate String instances, refer to it.
+ * 
+ * Identifiers are held weakly, so the dictionary only holds those that a
+ * history or the application still refers to; an identifier that falls
+ * out of every history is collected like any other String.
+ * 
+ * Every history write in the JVM passes through the dictionary, so it is
+ * split into stripes by hash code, each with its own lock. Looking up an
+ * identifier that is already in the dictionary does not allocate.
+ */
+final class UserDictionary
+{
+    //each identifier maps to a weak reference to its canonical instance,
+    //so that the value does not keep its own key reachable
+    private static final Map<String, WeakReference<String>>[] STRIPES = stripes( Runtime.getRuntime().availableProcessors() * 4 );
+    
+    private UserDictionary(){
+    }
+    
+    /**
+     * Returns the canonical instance of an identifier, which becomes the
+     * identifier itself if it is not already in the dictionary.
+     * @param user the identifier, which may be null
+     * @return an equal identifier, shared by every history that records it
+     */
+    static String canonical( String user ){
+        if( user == null ){
+            return null;
+        }
+        
+        int hash = user.hashCode();
+        Map<String, WeakReference<String>> stripe = STRIPES[ ( hash ^ ( hash >>> 16 ) ) & ( STRIPES.length - 1 ) ];
+        synchronized( stripe ){
+            WeakReference<String> reference = stripe.get( user );
+            String canonical = reference != null ? reference.get() : null;
+            if( canonical == null ){
+                stripe.put( user, new WeakReference( user ) );
+                canonical = user;
+            }
+            return canonical;
+        }
+    }
+    
+    //at least the given number of stripes, rounded up to a power of two
+    private static Map<String, WeakReference<String>>[] stripes( int count ){
+        int size = Integer.highestOneBit( count );
+        if( size < count ){
+            size <<= 1;
+        }
+        Map<String, WeakReference<String>>[] stripes = new Map[ size ];
+        for( int i = 0; i < size; i++ ){
+            stripes[ i ] = new WeakHashMap();
+        }
+        return stripes;
+    }
+}
@@ -0,0 +1,89 @@
+package props;
+
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Generates the unique identifiers used by Prop.
+ * 
+ * UUID.randomUUID() draws from a shared SecureRandom, which becomes a point
+ * of contention when many threads create properties at once. The identifiers
+ * created here are version 4 UUIDs drawn from ThreadLocalRandom instead. They
+ * are unique for all practical purposes, but they are not suitable for use
+ * as secrets.
+ */
+final class Uuids
+{
+    //the value of each ASCII hex digit, or -1
+    private static final byte[] HEX = new byte[ 128 ];
+    
+    static{
+        Arrays.fill( HEX, (byte)-1 );
+        for( int i = 0; i < 10; i++ ){
+            HEX[ '0' + i ] = (byte)i;
+        }
+        //upper case digits are not canonical, since uuids that differ only
+        //in case are different Strings and so different identifiers
+        for( int i = 0; i < 6; i++ ){
+            HEX[ 'a' + i ] = (byte)( 10 + i );
+        }
+    }
+    
+    private Uuids(){
+    }
+    
+    /**
+     * Returns a new random version 4 UUID in its canonical String form.
+     * @return a new random UUID
+     */
+    static String random(){
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long mostSigBits = ( random.nextLong() & 0xffffffffffff0fffL ) | 0x0000000000004000L;
+        long leastSigBits = ( random.nextLong() & 0x3fffffffffffffffL ) | 0x8000000000000000L;
+        return new UUID( mostSigBits, leastSigBits ).toString();
+    }
+    
+    /**
+     * Parses a UUID in its canonical 36 character form, with lower case hex
+     * digits as UUID.toString() writes them, into two longs, without
+     * allocating. Any other String does not parse, so two Strings that parse
+     * to the same longs are always equal.
+     * @param uuid the string to parse
+     * @param into the array to store the most and least significant bits in
+     * @param offset the index in into of the most significant bits
+     * @return false if the string is not a canonical UUID, in which case
+     *         into is not modified
+     */
+    static boolean parse( String uuid, long[] into, int offset ){
+        if( uuid == null || uuid.length() != 36 || uuid.charAt( 8 ) != '-' || uuid.charAt( 13 ) != '-' ||
+            uuid.charAt( 18 ) != '-' || uuid.charAt( 23 ) != '-' ){
+            return false;
+        }
+        long a = hex( uuid, 0, 8 );
+        long b = hex( uuid, 9, 13 );
+        long c = hex( uuid, 14, 18 );
+        long d = hex( uuid, 19, 23 );
+        long e = hex( uuid, 24, 36 );
+        if( ( a | b | c | d | e ) < 0 ){
+            return false;
+        }
+        into[ offset ] = a << 32 | b << 16 | c;
+        into[ offset + 1 ] = d << 48 | e;
+        return true;
+    }
+    
+    //the value of the hex digits from start to end, or -1 if any is not one
+    private static long hex( String string, int start, int end ){
+        long value = 0;
+        for( int i = start; i < end; i++ ){
+            char ch = string.charAt( i );
+            int digit = ch < 128 ? HEX[ ch ] : -1;
+            if( digit < 0 ){
+                return -1;
+            }
+            value = value << 4 | digit;
+        }
+        return value;
+    }
+}
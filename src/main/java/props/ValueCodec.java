@@ -0,0 +1,36 @@
+package props;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Converts the values of a Prop to and from bytes, for PropEncoder and
+ * PropDecoder. Codecs for common types are available from ValueCodecs.
+ * 
+ * Codecs are never given null values; nulls are recorded by the encoder.
+ * @param <T> The class of the values.
+ */
+public interface ValueCodec<T>
+{
+    /**
+     * Returns the exact number of bytes that write() will use for a value.
+     * @param value the value, which is not null
+     * @return the encoded size of the value
+     */
+    public int size( T value );
+    
+    /**
+     * Writes a value to the buffer, which has at least size( value ) bytes
+     * remaining.
+     * @param value the value, which is not null
+     * @param buffer the buffer
+     */
+    public void write( T value, ByteBuffer buffer );
+    
+    /**
+     * Reads a value from the buffer.
+     * @param buffer the buffer, positioned at the start of the value
+     * @param size the number of bytes the value takes
+     * @return the value
+     */
+    public T read( ByteBuffer buffer, int size );
+}
@@ -0,0 +1,115 @@
+package props;
+
+import java.nio.ByteBuffer;
+
+/**
+ * ValueCodecs for common value types.
+ */
+public final class ValueCodecs
+{
+    /** Strings, as UTF-8. */
+    public static final ValueCodec<String> STRING = new ValueCodec<String>(){
+        public int size( String value ){
+            return Encoding.utf8Length( value );
+        }
+        
+        public void write( String value, ByteBuffer buffer ){
+            Encoding.writeUtf8( buffer, value );
+        }
+        
+        public String read( ByteBuffer buffer, int size ){
+            return Encoding.readUtf8( buffer, size );
+        }
+    };
+    
+    /** Integers, as zig-zag varints. */
+    public static final ValueCodec<Integer> INTEGER = new ValueCodec<Integer>(){
+        public int size( Integer value ){
+            return Encoding.varLongSize( zigZag( value ) );
+        }
+        
+        public void write( Integer value, ByteBuffer buffer ){
+            Encoding.writeSignedVarLong( buffer, value );
+        }
+        
+        public Integer read( ByteBuffer buffer, int size ){
+            return (int)Encoding.readSignedVarLong( buffer );
+        }
+    };
+    
+    /** Longs, as zig-zag varints. */
+    public static final ValueCodec<Long> LONG = new ValueCodec<Long>(){
+        public int size( Long value ){
+            return Encoding.varLongSize( zigZag( value ) );
+        }
+        
+        public void write( Long value, ByteBuffer buffer ){
+            Encoding.writeSignedVarLong( buffer, value );
+        }
+        
+        public Long read( ByteBuffer buffer, int size ){
+            return Encoding.readSignedVarLong( buffer );
+        }
+    };
+    
+    /** Doubles, as 8 bytes. */
+    public static final ValueCodec<Double> DOUBLE = new ValueCodec<Double>(){
+        public int size( Double value ){
+            return 8;
+        }
+        
+        public void write( Double value, ByteBuffer buffer ){
+            buffer.putDouble( value );
+        }
+        
+        public Double read( ByteBuffer buffer, int size ){
+            return buffer.getDouble();
+        }
+    };
+    
+    /** Booleans, as a single byte. */
+    public static final ValueCodec<Boolean> BOOLEAN = new ValueCodec<Boolean>(){
+        public int size( Boolean value ){
+            return 1;
+        }
+        
+        public void write( Boolean value, ByteBuffer buffer ){
+            buffer.put( value ? (byte)1 : (byte)0 );
+        }
+        
+        public Boolean read( ByteBuffer buffer, int size ){
+            return buffer.get() != 0;
+        }
+    };
+    
+    private ValueCodecs(){
+    }
+    
+    /**
+     * Returns the codec in this class for a value type.
+     * @param type the class of the values
+     * @return the codec, or null if there is none for the type
+     */
+    static ValueCodec<?> of( Class<?> type ){
+        if( type == String.class ){
+            return STRING;
+        }
+        if( type == Integer.class ){
+            return INTEGER;
+        }
+        if( type == Long.class ){
+            return LONG;
+        }
+        if( type == Double.class ){
+            return DOUBLE;
+        }
+        if( type == Boolean.class ){
+            return BOOLEAN;
+        }
+        return null;
+    }
+    
+    private static long zigZag( long value ){
+        return ( value << 1 ) ^ ( value >> 63 );
+    }
+}
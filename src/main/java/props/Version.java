@@ -1,7 +1,12 @@
 package props;
 
-public class Version<T>
+import java.io.Serializable;
+import java.util.Objects;
+
+public class Version<T> implements Serializable
 {
+    private static final long serialVersionUID = 1L;
+
     private final T value;
     private final long timestamp;
     private final String modifiedBy;
@@ -24,6 +29,26 @@ public class Version<T>
         return modifiedBy;
     }
     
+    @Override
+    public boolean equals( Object other ){
+        if( this == other ){
+            return true;
+        }
+        if( !( other instanceof Version ) ){
+            return false;
+        }
+        
+        Version version = (Version)other;
+        return timestamp == version.timestamp &&
+               Objects.equals( value, version.value ) &&
+               Objects.equals( modifiedBy, version.modifiedBy );
+    }
+    
+    @Override
+    public int hashCode(){
+        return Objects.hash( value, timestamp, modifiedBy );
+    }
+    
     @Override
     public String toString(){
         StringBuilder builder = new StringBuilder();
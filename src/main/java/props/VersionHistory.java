@@ -0,0 +1,97 @@
+package props;
+
+/**
+ * Storage for the previous versions of a Prop, oldest first.
+ * @param <T> The class of the Prop's value.
+ */
+interface VersionHistory<T>
+{
+    /**
+     * Records a version that has just been replaced. Versions are added in
+     * the order in which they were replaced.
+     * @param value the value of the previous version
+     * @param timestamp the timestamp of the previous version
+     * @param modifiedBy the modifying user's ID of the previous version
+     */
+    public void add( T value, long timestamp, String modifiedBy );
+    
+    /**
+     * Records a version of a primitive property that has just been replaced.
+     * @param bits the bits of the primitive value of the previous version
+     * @param timestamp the timestamp of the previous version
+     * @param modifiedBy the modifying user's ID of the previous version
+     */
+    public void add( long bits, long timestamp, String modifiedBy );
+    
+    /**
+     * Called after the property has been written, with the new current
+     * value, for histories that also keep the current value.
+     * @param value the new value
+     * @param timestamp the timestamp of the write
+     * @param modifiedBy the modifying user's ID of the write
+     */
+    public void written( T value, long timestamp, String modifiedBy );
+    
+    /**
+     * Called after a primitive property has been written, with the new
+     * current value.
+     * @param bits the bits of the new primitive value
+     * @param timestamp the timestamp of the write
+     * @param modifiedBy the modifying user's ID of the write
+     */
+    public void written( long bits, long timestamp, String modifiedBy );
+    
+    /**
+     * Returns a history with the given retention policy, containing the
+     * versions of this history that the policy keeps. May return this
+     * history, after discarding versions.
+     * @param policy the new retention policy
+     * @return the history to use from now on
+     */
+    public VersionHistory<T> retain( RetentionPolicy policy );
+    
+    /**
+     * Returns an order-independent hash of the versions in the history,
+     * the sum of PropMerge.hash() of each, kept up to date as versions are
+     * recorded and discarded.
+     * @return the digest of the versions
+     */
+    public long digest();
+    
+    /**
+     * Returns the number of versions in the history.
+     * @return the number of versions
+     */
+    public int size();
+    
+    /**
+     * Returns a version from the history.
+     * @param index the index of the version, where 0 is the oldest
+     * @return the version
+     */
+    public Version<T> get( int index );
+    
+    /**
+     * Returns the bits of the primitive value of a version from the history
+     * of a primitive property, without creating a Version.
+     * @param index the index of the version, where 0 is the oldest
+     * @return the bits of the value of the version
+     */
+    public long bits( int index );
+    
+    /**
+     * Returns the timestamp of a version from the history, without
+     * necessarily creating a Version.
+     * @param index the index of the version, where 0 is the oldest
+     * @return the timestamp of the version
+     */
+    public long timestamp( int index );
+    
+    /**
+     * Returns the number of versions that have been added to this history,
+     * including any that have since been discarded. Views of the history
+     * use this to detect changes.
+     * @return the number of versions added
+     */
+    public long added();
+}
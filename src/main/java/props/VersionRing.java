@@ -0,0 +1,192 @@
+package props;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * A growable ring buffer of versions with a maximum capacity, stored as
+ * parallel arrays rather than as Version objects.
+ * 
+ * Each version takes 8 bytes for its timestamp, a reference to its
+ * modifiedBy, which UserDictionary shares between every version and
+ * history that records the same identifier, and a reference, 4 bytes or 8
+ * bytes for its value, with no per-version object header.
+ * 
+ * Values are kept either as objects or, for the primitive Prop
+ * specializations, as their bits, in an int for ints and booleans and in
+ * a long otherwise, so that recording a primitive version allocates
+ * nothing once the arrays have grown.
+ */
+final class VersionRing
+{
+    private static final int INITIAL_CAPACITY = 8;
+    
+    private final int capacity;
+    private long[] timestamps;
+    private String[] users;
+    //only one of these is used, depending on the type of the values
+    private Object[] values;
+    private int[] ints;
+    private long[] bits;
+    private int head;
+    private int size;
+    //the last identifier recorded and its canonical instance, which are
+    //usually the next ones too
+    private String lastUser;
+    private String lastCanonical;
+    
+    VersionRing( int capacity, PrimitiveType type ){
+        this.capacity = capacity;
+        
+        int length = Math.min( capacity, INITIAL_CAPACITY );
+        timestamps = new long[length];
+        users = new String[length];
+        if( type == PrimitiveType.INT || type == PrimitiveType.BOOLEAN ){
+            ints = new int[length];
+        }
+        else if( type != null ){
+            bits = new long[length];
+        }
+        else{
+            values = new Object[length];
+        }
+    }
+    
+    int capacity(){
+        return capacity;
+    }
+    
+    int size(){
+        return size;
+    }
+    
+    boolean isFull(){
+        return size == capacity;
+    }
+    
+    long timestamp( int index ){
+        return timestamps[ slot( index ) ];
+    }
+    
+    String modifiedBy( int index ){
+        return users[ slot( index ) ];
+    }
+    
+    //the hash of the version at index in a history digest
+    long hash( int index ){
+        int slot = slot( index );
+        int valueHash = values != null ? Objects.hashCode( values[slot] ) : Long.hashCode( bits( index ) );
+        return PropMerge.hash( timestamps[slot], users[slot], valueHash );
+    }
+    
+    Object value( int index ){
+        return values[ slot( index ) ];
+    }
+    
+    long bits( int index ){
+        return ints != null ? ints[ slot( index ) ] : bits[ slot( index ) ];
+    }
+    
+    void addLast( Object value, long valueBits, long timestamp, String user ){
+        if( size == timestamps.length ){
+            grow();
+        }
+        
+        int slot = ( head + size ) % timestamps.length;
+        timestamps[slot] = timestamp;
+        users[slot] = canonical( user );
+        if( values != null ){
+            values[slot] = value;
+        }
+        else if( ints != null ){
+            ints[slot] = (int)valueBits;
+        }
+        else{
+            bits[slot] = valueBits;
+        }
+        size++;
+    }
+    
+    /**
+     * Adds a copy of the version at the given index of another ring.
+     */
+    void addLast( VersionRing source, int index ){
+        int from = source.slot( index );
+        if( size == timestamps.length ){
+            grow();
+        }
+        
+        int slot = ( head + size ) % timestamps.length;
+        timestamps[slot] = source.timestamps[from];
+        users[slot] = source.users[from];
+        if( values != null ){
+            values[slot] = source.values[from];
+        }
+        else if( ints != null ){
+            ints[slot] = source.ints[from];
+        }
+        else{
+            bits[slot] = source.bits[from];
+        }
+        size++;
+    }
+    
+    void removeFirst(){
+        clear( head );
+        head = ( head + 1 ) % timestamps.length;
+        size--;
+    }
+    
+    void removeLast(){
+        size--;
+        clear( ( head + size ) % timestamps.length );
+    }
+    
+    private void clear( int slot ){
+        users[slot] = null;
+        if( values != null ){
+            values[slot] = null;
+        }
+    }
+    
+    private String canonical( String user ){
+        if( user != lastUser ){
+            lastCanonical = UserDictionary.canonical( user );
+            lastUser = user;
+        }
+        return lastCanonical;
+    }
+    
+    private int slot( int index ){
+        if( index < 0 || index >= size ){
+            throw new IndexOutOfBoundsException( "Index: " + index + ", Size: " + size );
+        }
+        return ( head + index ) % timestamps.length;
+    }
+    
+    private void grow(){
+        int length = (int)Math.min( (long)capacity, timestamps.length * 2L );
+        timestamps = unwrap( timestamps, Arrays.copyOf( timestamps, length ) );
+        users = unwrap( users, Arrays.copyOf( users, length ) );
+        if( values != null ){
+            values = unwrap( values, Arrays.copyOf( values, length ) );
+        }
+        else if( ints != null ){
+            ints = unwrap( ints, Arrays.copyOf( ints, length ) );
+        }
+        else{
+            bits = unwrap( bits, Arrays.copyOf( bits, length ) );
+        }
+        head = 0;
+    }
+    
+    //moves the contents of a full ring so that it starts at index 0 of grown
+    private <A> A unwrap( A full, A grown ){
+        if( head > 0 ){
+            int length = size;
+            System.arraycopy( full, head, grown, 0, length - head );
+            System.arraycopy( full, 0, grown, length - head, head );
+        }
+        return grown;
+    }
+}
@@ -0,0 +1,42 @@
+package props;
+
+import java.lang.ref.WeakReference;
+
+/**
+ * A listener registered with Prop.addWeakListener(), which passes events
+ * on to the real listener for as long as it has not been garbage collected.
+ * 
+ * Once the real listener has been collected, the first event that reaches
+ * this wrapper has it removed from the property. A ConcurrentProp removes
+ * it at once; a Prop, whose listeners may only be replaced by the thread
+ * that changes it, removes it when that thread next notifies listeners,
+ * since the event may have been delivered on an AsyncDispatcher's thread.
+ * Dead wrappers are also dropped whenever a listener is added, so a
+ * property that never changes does not collect them either.
+ */
+final class WeakListener extends WeakReference<PropListener> implements PropListener
+{
+    private final Prop<?> prop;
+    
+    WeakListener( Prop<?> prop, PropListener listener ){
+        super( listener );
+        this.prop = prop;
+    }
+    
+    public void propertyChanged( PropChangedEvent event ){
+        PropListener listener = get();
+        if( listener != null ){
+            listener.propertyChanged( event );
+        }
+        else{
+            prop.collected( this );
+        }
+    }
+    
+    /**
+     * Returns true if this wraps the given listener.
+     */
+    boolean wraps( PropListener listener ){
+        return get() == listener;
+    }
+}
@@ -0,0 +1,309 @@
+package props;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AsyncDispatcherTest
+{
+    private ExecutorService executor;
+    
+    @Before
+    public void setUp(){
+        executor = Executors.newFixedThreadPool( 4 );
+    }
+    
+    @After
+    public void tearDown(){
+        executor.shutdownNow();
+    }
+    
+    @Test
+    public void testOrdering() throws Exception {
+        AsyncDispatcher dispatcher = new AsyncDispatcher( executor, 100, BackpressurePolicy.BLOCK );
+        RecordingListener listener = new RecordingListener();
+        
+        Prop<Integer> prop = new Prop( null, -1, false );
+        prop.dispatcher( dispatcher );
+        prop.addListener( listener );
+        Assert.assertSame( "Wrong dispatcher", dispatcher, prop.dispatcher() );
+        
+        for( int i = 0; i < 10000; i++ ){
+            prop.set( i );
+        }
+        
+        Assert.assertTrue( "Events were not delivered", dispatcher.awaitIdle( 10, TimeUnit.SECONDS ) );
+        Assert.assertEquals( "Wrong notification count", 10000, listener.values.size() );
+        for( int i = 0; i < 10000; i++ ){
+            Assert.assertEquals( "Events out of order", new Integer( i ), listener.values.get( i ) );
+        }
+        Assert.assertEquals( "Events should not be dropped", 0, dispatcher.dropped() );
+    }
+    
+    @Test
+    public void testConcurrentPropOrdering() throws Exception {
+        AsyncDispatcher dispatcher = new AsyncDispatcher( executor, 1000, BackpressurePolicy.BLOCK );
+        final ConcurrentProp<Integer> prop = new ConcurrentProp( null, 0, false );
+        prop.dispatcher( dispatcher );
+        
+        final List<String> failures = Collections.synchronizedList( new ArrayList() );
+        prop.addListener( new PropListener(){
+            private Object last = 0;
+            public void propertyChanged( PropChangedEvent event ) {
+                if( !last.equals( event.previousValue() ) ){
+                    failures.add( event.previousValue() + " was delivered after " + last );
+                }
+                last = event.value();
+            }
+        } );
+        
+        Thread[] writers = new Thread[4];
+        for( int i = 0; i < writers.length; i++ ){
+            writers[i] = new Thread(){
+                public void run(){
+                    for( int j = 0; j < 5000; j++ ){
+                        prop.getAndUpdate( value -> value + 1 );
+                    }
+                }
+            };
+            writers[i].start();
+        }
+        for( Thread writer : writers ){
+            writer.join();
+        }
+        
+        Assert.assertTrue( "Events were not delivered", dispatcher.awaitIdle( 10, TimeUnit.SECONDS ) );
+        Assert.assertTrue( failures.toString(), failures.isEmpty() );
+    }
+    
+    @Test
+    public void testIsolation() throws Exception {
+        final List<Throwable> errors = Collections.synchronizedList( new ArrayList() );
+        AsyncDispatcher dispatcher = new AsyncDispatcher( executor, 10, BackpressurePolicy.BLOCK, new Thread.UncaughtExceptionHandler(){
+            public void uncaughtException( Thread thread, Throwable t ) {
+                errors.add( t );
+            }
+        } );
+        
+        RecordingListener first = new RecordingListener();
+        RecordingListener last = new RecordingListener();
+        Prop<Integer> prop = new Prop();
+        prop.dispatcher( dispatcher );
+        prop.addListener( last );
+        prop.addListener( new PropListener(){
+            public void propertyChanged( PropChangedEvent event ) {
+                throw new IllegalStateException( "Listener failed" );
+            }
+        } );
+        prop.addListener( first );
+        
+        prop.set( 1 );
+        prop.set( 2 );
+        
+        Assert.assertTrue( "Events were not delivered", dispatcher.awaitIdle( 10, TimeUnit.SECONDS ) );
+        Assert.assertEquals( "Wrong notification count", 2, first.values.size() );
+        Assert.assertEquals( "Wrong notification count", 2, last.values.size() );
+        Assert.assertEquals( "Wrong error count", 2, errors.size() );
+    }
+    
+    @Test
+    public void testFailingErrorHandler() throws Exception {
+        AsyncDispatcher dispatcher = new AsyncDispatcher( executor, 1, BackpressurePolicy.BLOCK, new Thread.UncaughtExceptionHandler(){
+            public void uncaughtException( Thread thread, Throwable t ) {
+                throw new IllegalStateException( "Handler failed" );
+            }
+        } );
+        
+        RecordingListener after = new RecordingListener();
+        Prop<Integer> prop = new Prop();
+        prop.dispatcher( dispatcher );
+        prop.addListener( after );
+        prop.addListener( new PropListener(){
+            public void propertyChanged( PropChangedEvent event ) {
+                throw new IllegalStateException( "Listener failed" );
+            }
+        } );
+        
+        for( int i = 0; i < 10; i++ ){
+            prop.set( i );
+        }
+        Assert.assertTrue( "Events were not delivered", dispatcher.awaitIdle( 10, TimeUnit.SECONDS ) );
+        Assert.assertEquals( "Every event should reach the other listeners", 10, after.values.size() );
+    }
+    
+    @Test
+    public void testDropOldest() throws Exception {
+        ManualExecutor manual = new ManualExecutor();
+        AsyncDispatcher dispatcher = new AsyncDispatcher( manual, 2, BackpressurePolicy.DROP_OLDEST );
+        RecordingListener listener = new RecordingListener();
+        
+        Prop<Integer> prop = new Prop();
+        prop.dispatcher( dispatcher );
+        prop.addListener( listener );
+        for( int i = 0; i < 5; i++ ){
+            prop.set( i );
+        }
+        
+        Assert.assertEquals( "Wrong pending count", 2, dispatcher.pending() );
+        Assert.assertEquals( "Wrong dropped count", 3, dispatcher.dropped() );
+        
+        manual.runAll();
+        Assert.assertEquals( "Wrong values", Arrays.asList( 3, 4 ), listener.values );
+    }
+    
+    @Test
+    public void testCoalesce() throws Exception {
+        ManualExecutor manual = new ManualExecutor();
+        AsyncDispatcher dispatcher = new AsyncDispatcher( manual, 2, BackpressurePolicy.COALESCE );
+        DefaultPropListener aListener = new DefaultPropListener();
+        DefaultPropListener bListener = new DefaultPropListener();
+        
+        Prop<String> a = new Prop( "a0" );
+        Prop<String> b = new Prop( "b0" );
+        a.dispatcher( dispatcher );
+        b.dispatcher( dispatcher );
+        a.addListener( aListener );
+        b.addListener( bListener );
+        
+        a.set( "a1" );
+        b.set( "b1" );
+        a.set( "a2" );
+        a.set( "a3" );
+        
+        Assert.assertEquals( "Wrong pending count", 2, dispatcher.pending() );
+        manual.runAll();
+        
+        Assert.assertEquals( "Wrong notification count", 1, aListener.count() );
+        Assert.assertEquals( "Wrong previous value", "a0", aListener.previous() );
+        Assert.assertEquals( "Wrong value", "a3", aListener.current() );
+        Assert.assertEquals( "Wrong notification count", 1, bListener.count() );
+        Assert.assertEquals( "Wrong value", "b1", bListener.current() );
+        Assert.assertEquals( "Events should not be dropped", 0, dispatcher.dropped() );
+    }
+    
+    @Test
+    public void testBlock() throws Exception {
+        AsyncDispatcher dispatcher = new AsyncDispatcher( executor, 1, BackpressurePolicy.BLOCK );
+        final CountDownLatch release = new CountDownLatch( 1 );
+        final AtomicInteger count = new AtomicInteger();
+        
+        final Prop<Integer> prop = new Prop();
+        prop.dispatcher( dispatcher );
+        prop.addListener( new PropListener(){
+            public void propertyChanged( PropChangedEvent event ) {
+                try{
+                    release.await();
+                }
+                catch( InterruptedException ex ){
+                    Thread.currentThread().interrupt();
+                }
+                count.incrementAndGet();
+            }
+        } );
+        
+        Thread writer = new Thread(){
+            public void run(){
+                for( int i = 0; i < 10; i++ ){
+                    prop.set( i );
+                }
+            }
+        };
+        writer.start();
+        
+        //the first event is being delivered, the second fills the queue and
+        //the writer waits after queueing the third
+        writer.join( 200 );
+        Assert.assertTrue( "Writer should be blocked", writer.isAlive() );
+        Assert.assertEquals( "Wrong pending count", 2, dispatcher.pending() );
+        
+        release.countDown();
+        writer.join( 10000 );
+        Assert.assertTrue( "Events were not delivered", dispatcher.awaitIdle( 10, TimeUnit.SECONDS ) );
+        Assert.assertEquals( "Wrong notification count", 10, count.get() );
+    }
+    
+    @Test
+    public void testBlockedWriterReleasesLock() throws Exception {
+        AsyncDispatcher dispatcher = new AsyncDispatcher( executor, 1, BackpressurePolicy.BLOCK );
+        final ConcurrentProp<Integer> prop = new ConcurrentProp( null, 0, true );
+        prop.dispatcher( dispatcher );
+        final List<Integer> counts = Collections.synchronizedList( new ArrayList() );
+        prop.addListener( new PropListener(){
+            public void propertyChanged( PropChangedEvent event ) {
+                //needs the property's lock, which a waiting writer must not hold
+                counts.add( prop.versions().size() );
+            }
+        } );
+        
+        Thread writer = new Thread(){
+            public void run(){
+                for( int i = 1; i <= 100; i++ ){
+                    prop.set( i );
+                }
+            }
+        };
+        writer.start();
+        writer.join( 10000 );
+        Assert.assertFalse( "Writer should not deadlock with the listener", writer.isAlive() );
+        Assert.assertTrue( "Events were not delivered", dispatcher.awaitIdle( 10, TimeUnit.SECONDS ) );
+        Assert.assertEquals( "Wrong notification count", 100, counts.size() );
+    }
+    
+    @Test
+    public void testListenerWritesWithFullQueue() throws Exception {
+        AsyncDispatcher dispatcher = new AsyncDispatcher( executor, 1, BackpressurePolicy.BLOCK );
+        final Prop<Integer> source = new Prop( null, 0, false );
+        final Prop<Integer> copy = new Prop( null, 0, false );
+        source.dispatcher( dispatcher );
+        copy.dispatcher( dispatcher );
+        RecordingListener listener = new RecordingListener();
+        copy.addListener( listener );
+        source.addListener( new PropListener(){
+            public void propertyChanged( PropChangedEvent event ) {
+                //queued on the dispatcher that is delivering this event
+                copy.set( (Integer)event.value() );
+            }
+        } );
+        
+        for( int i = 1; i <= 100; i++ ){
+            source.set( i );
+        }
+        Assert.assertTrue( "Listener should not wait for itself", dispatcher.awaitIdle( 10, TimeUnit.SECONDS ) );
+        Assert.assertEquals( "Wrong notification count", 100, listener.values.size() );
+    }
+    
+    private static class RecordingListener implements PropListener
+    {
+        private final List<Object> values = Collections.synchronizedList( new ArrayList() );
+        
+        public void propertyChanged( PropChangedEvent event ) {
+            values.add( event.value() );
+        }
+    }
+    
+    private static class ManualExecutor implements Executor
+    {
+        private final List<Runnable> tasks = new ArrayList();
+        
+        public void execute( Runnable task ) {
+            tasks.add( task );
+        }
+        
+        public void runAll(){
+            while( !tasks.isEmpty() ){
+                tasks.remove( 0 ).run();
+            }
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package props;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BatchTest
+{
+    @Test
+    public void testBatch() throws Exception {
+        DefaultPropListener name = new DefaultPropListener();
+        DefaultPropListener age = new DefaultPropListener();
+        
+        Pojo thomas = new Pojo( "Thomas", 36 );
+        thomas.name.addListener( name );
+        thomas.age.addListener( age );
+        
+        try( Batch batch = Prop.batch() ){
+            thomas.name.set( "Grand Lord Hellbringer" );
+            thomas.name.set( "Master of the Creeping Darkness" );
+            thomas.age.set( 437 );
+            thomas.name.set( "Fell Marshall of the Undying Hordes" );
+            
+            Assert.assertEquals( "Listeners should not be notified yet", 0, name.count() );
+            Assert.assertEquals( "Value should be set", "Fell Marshall of the Undying Hordes", thomas.name.get() );
+        }
+        
+        Assert.assertEquals( "Wrong notification count", 1, name.count() );
+        Assert.assertEquals( "Wrong previous value", "Thomas", name.previous() );
+        Assert.assertEquals( "Wrong value", "Fell Marshall of the Undying Hordes", name.current() );
+        Assert.assertEquals( "Wrong notification count", 1, age.count() );
+        Assert.assertEquals( "Wrong previous value", 36, age.previous() );
+        Assert.assertEquals( "Wrong value", 437, age.current() );
+        
+        //history is still recorded for every change
+        Assert.assertEquals( "Wrong version count", 3, thomas.name.versions().size() );
+        
+        //no batch
+        thomas.name.set( "Thomas" );
+        Assert.assertEquals( "Wrong notification count", 2, name.count() );
+    }
+    
+    @Test
+    public void testNestedBatches() throws Exception {
+        final DefaultPropListener listener = new DefaultPropListener();
+        final Prop<Integer> prop = new Prop( 0 );
+        prop.addListener( listener );
+        
+        Prop.batch( new Runnable(){
+            public void run(){
+                prop.set( 1 );
+                Prop.batch( new Runnable(){
+                    public void run(){
+                        prop.set( 2 );
+                    }
+                } );
+                Assert.assertEquals( "Listeners should not be notified by an inner batch", 0, listener.count() );
+                prop.set( 3 );
+            }
+        } );
+        
+        Assert.assertEquals( "Wrong notification count", 1, listener.count() );
+        Assert.assertEquals( "Wrong previous value", 0, listener.previous() );
+        Assert.assertEquals( "Wrong value", 3, listener.current() );
+    }
+    
+    @Test
+    public void testChangedBack() throws Exception {
+        DefaultPropListener listener = new DefaultPropListener();
+        Prop<String> prop = new Prop( "a" );
+        prop.equality( EqualityPolicy.equality() );
+        prop.addListener( listener );
+        
+        try( Batch batch = Prop.batch() ){
+            prop.set( "b" );
+            prop.set( new String( "a" ) );
+        }
+        Assert.assertEquals( "Changing back should not notify", 0, listener.count() );
+        Assert.assertEquals( "History should still be recorded", 2, prop.versions().size() );
+        
+        IntProp number = new IntProp( 1000 );
+        number.equality( EqualityPolicy.identity() );
+        number.addListener( listener );
+        try( Batch batch = Prop.batch() ){
+            number.set( 2000 );
+            number.set( 1000 );
+        }
+        Assert.assertEquals( "Primitive values should be compared unboxed", 0, listener.count() );
+        
+        //without an equality policy every write is a change
+        Prop<String> other = new Prop( "a" );
+        other.addListener( listener );
+        try( Batch batch = Prop.batch() ){
+            other.set( "b" );
+            other.set( "a" );
+        }
+        Assert.assertEquals( "Wrong notification count", 1, listener.count() );
+    }
+    
+    @Test
+    public void testFailingListener() throws Exception {
+        DefaultPropListener listener = new DefaultPropListener();
+        Prop<Integer> first = new Prop( 0 );
+        Prop<Integer> second = new Prop( 0 );
+        Prop<Integer> third = new Prop( 0 );
+        first.addListener( event -> {
+            throw new IllegalStateException( "first" );
+        } );
+        second.addListener( listener );
+        third.addListener( event -> {
+            throw new IllegalArgumentException( "third" );
+        } );
+        
+        try{
+            try( Batch batch = Prop.batch() ){
+                first.set( 1 );
+                second.set( 1 );
+                third.set( 1 );
+            }
+            Assert.fail( "The listener's exception should be rethrown" );
+        }
+        catch( IllegalStateException ex ){
+            Assert.assertEquals( "Wrong exception", "first", ex.getMessage() );
+            Assert.assertEquals( "Later exceptions should be suppressed", 1, ex.getSuppressed().length );
+            Assert.assertEquals( "Wrong suppressed exception", "third", ex.getSuppressed()[ 0 ].getMessage() );
+        }
+        Assert.assertEquals( "Other listeners should still be notified", 1, listener.count() );
+        Assert.assertFalse( "Batch should be closed", Batch.isOpen() );
+    }
+    
+    @Test
+    public void testOtherThreads() throws Exception {
+        final DefaultPropListener listener = new DefaultPropListener();
+        final Prop<Integer> prop = new Prop( 0 );
+        prop.addListener( listener );
+        
+        try( Batch batch = Prop.batch() ){
+            Thread other = new Thread(){
+                public void run(){
+                    prop.set( 1 );
+                }
+            };
+            other.start();
+            other.join();
+            Assert.assertEquals( "Other threads should not be batched", 1, listener.count() );
+        }
+        Assert.assertEquals( "Wrong notification count", 1, listener.count() );
+    }
+    
+    @Test
+    public void testCoalescingListener() throws Exception {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        try{
+            final List<PropChangedEvent> events = new ArrayList();
+            final CountDownLatch delivered = new CountDownLatch( 1 );
+            PropListener delegate = new PropListener(){
+                public void propertyChanged( PropChangedEvent event ) {
+                    events.add( event );
+                    delivered.countDown();
+                }
+            };
+            
+            Prop<Integer> prop = new Prop( 0 );
+            prop.addListener( new CoalescingListener( delegate, scheduler, 100, TimeUnit.MILLISECONDS ) );
+            for( int i = 1; i <= 100; i++ ){
+                prop.set( i );
+            }
+            
+            Assert.assertTrue( "Event was not delivered", delivered.await( 10, TimeUnit.SECONDS ) );
+            Thread.sleep( 200 );
+            Assert.assertEquals( "Wrong notification count", 1, events.size() );
+            Assert.assertEquals( "Wrong previous value", 0, events.get( 0 ).previousValue() );
+            Assert.assertEquals( "Wrong value", 100, events.get( 0 ).value() );
+            Assert.assertSame( "Wrong prop", prop, events.get( 0 ).property() );
+        }
+        finally{
+            scheduler.shutdownNow();
+        }
+    }
+}
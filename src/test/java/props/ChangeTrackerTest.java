@@ -0,0 +1,186 @@
+package props;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Consumer;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ChangeTrackerTest
+{
+    @Test
+    public void testDirty() throws Exception {
+        Entity entity = new Entity();
+        final List<ChangeTracker> queued = new ArrayList();
+        ChangeTracker tracker = entity.tracker( new Consumer<ChangeTracker>(){
+            public void accept( ChangeTracker tracker ) {
+                queued.add( tracker );
+            }
+        } );
+        Assert.assertFalse( "Tracker should be clean", tracker.isDirty() );
+        
+        long watermark = tracker.watermark();
+        entity.name.set( "Thomas" );
+        entity.age.set( 36 );
+        entity.name.set( "AJ" );
+        Assert.assertTrue( "Tracker should be dirty", tracker.isDirty() );
+        Assert.assertTrue( "Name should be dirty", tracker.isDirty( 0 ) );
+        Assert.assertFalse( "Score should be clean", tracker.isDirty( 2 ) );
+        Assert.assertEquals( "Tracker should be queued once", 1, queued.size() );
+        
+        long second = tracker.watermark();
+        entity.score.set( 1.5 );
+        Assert.assertEquals( "Wrong dirty props", Arrays.asList( entity.name, entity.age, entity.score ), tracker.drainDirty() );
+        Assert.assertFalse( "Tracker should be clean", tracker.isDirty() );
+        Assert.assertEquals( "Wrong dirty props", Arrays.asList( entity.score ), tracker.dirtySince( second ) );
+        Assert.assertEquals( "Wrong dirty props", 3, tracker.dirtySince( watermark ).size() );
+        Assert.assertTrue( "Nothing should be dirty", tracker.drainDirty().isEmpty() );
+        
+        entity.age.set( 37 );
+        Assert.assertEquals( "Tracker should be queued again", 2, queued.size() );
+        Assert.assertEquals( "Wrong dirty props", Arrays.asList( entity.age ), tracker.drainDirty() );
+    }
+    
+    @Test
+    public void testManyProps() throws Exception {
+        Object parent = new Object();
+        ChangeTracker tracker = new ChangeTracker( parent );
+        List<Prop<Integer>> props = new ArrayList();
+        for( int i = 0; i < 200; i++ ){
+            Prop<Integer> prop = new Prop( parent, null, false );
+            props.add( prop );
+            Assert.assertEquals( "Wrong index", i, tracker.track( prop ) );
+        }
+        
+        props.get( 3 ).set( 3 );
+        props.get( 64 ).set( 64 );
+        props.get( 199 ).set( 199 );
+        Assert.assertEquals( "Wrong dirty props", Arrays.asList( props.get( 3 ), props.get( 64 ), props.get( 199 ) ), tracker.drainDirty() );
+    }
+    
+    @Test
+    public void testDelta() throws Exception {
+        Entity entity = new Entity();
+        ChangeTracker tracker = entity.tracker( null );
+        entity.name.set( "Sue", "user1", 100 );
+        entity.score.set( 2.5, "user2", 200 );
+        entity.age.set( 36 );
+        entity.age.set( null );
+        
+        ByteBuffer buffer = ByteBuffer.allocate( 256 );
+        Assert.assertEquals( "Wrong prop count", 3, tracker.writeDelta( buffer ) );
+        buffer.flip();
+        
+        Entity replica = new Entity();
+        replica.age.set( 99 );
+        ChangeTracker replicaTracker = replica.tracker( null );
+        Assert.assertEquals( "Wrong prop count", 3, replicaTracker.applyDelta( buffer ) );
+        Assert.assertEquals( "Wrong name", "Sue", replica.name.get() );
+        Assert.assertEquals( "Wrong modifiedBy", "user1", replica.name.modifiedBy() );
+        Assert.assertEquals( "Wrong timestamp", 100, replica.name.timestamp() );
+        Assert.assertNull( "Wrong age", replica.age.get() );
+        Assert.assertEquals( "Wrong score", 2.5, replica.score.getAsDouble(), 0 );
+        Assert.assertEquals( "Wrong modifiedBy", "user2", replica.score.modifiedBy() );
+        
+        //only the changed prop is sent
+        entity.score.set( 3.5 );
+        buffer.clear();
+        Assert.assertEquals( "Wrong prop count", 1, tracker.writeDelta( buffer ) );
+        
+        //a full buffer leaves the props dirty
+        entity.name.set( "A long name that does not fit" );
+        try{
+            tracker.writeDelta( ByteBuffer.allocate( 8 ) );
+            Assert.fail( "Writing to a small buffer should fail" );
+        }
+        catch( BufferOverflowException ex ){
+        }
+        Assert.assertTrue( "Name should still be dirty", tracker.isDirty( 0 ) );
+    }
+    
+    @Test
+    public void testTracking() throws Exception {
+        ChangeTracker tracker = new ChangeTracker( "Parent" );
+        try{
+            tracker.track( new Prop( "Other" ) );
+            Assert.fail( "Tracking a prop of another parent should fail" );
+        }
+        catch( IllegalArgumentException ex ){
+        }
+        
+        ConcurrentProp<String> prop = new ConcurrentProp( "Parent", null );
+        tracker.track( prop );
+        try{
+            new ChangeTracker( "Parent" ).track( prop );
+            Assert.fail( "Tracking a prop twice should fail" );
+        }
+        catch( IllegalStateException ex ){
+        }
+        
+        prop.compareAndSet( null, "value" );
+        Assert.assertTrue( "Prop should be dirty", tracker.isDirty( 0 ) );
+    }
+    
+    @Test
+    public void testTrackWhileWriting() throws Exception {
+        final int THREADS = 4;
+        final int PROPS = 4000;
+        final Object parent = new Object();
+        final ChangeTracker tracker = new ChangeTracker( parent );
+        final List<ConcurrentProp<Integer>> written = new ArrayList();
+        for( int i = 0; i < PROPS; i++ ){
+            ConcurrentProp<Integer> prop = new ConcurrentProp( parent, null, false );
+            tracker.track( prop );
+            written.add( prop );
+        }
+        long watermark = tracker.watermark();
+        
+        //each tracked prop is written exactly once, so a lost mark stays lost
+        final CountDownLatch start = new CountDownLatch( 1 );
+        Thread[] writers = new Thread[ THREADS ];
+        for( int t = 0; t < THREADS; t++ ){
+            final int first = t;
+            writers[ t ] = new Thread( () -> {
+                try{
+                    start.await();
+                }
+                catch( InterruptedException ex ){
+                    return;
+                }
+                for( int i = first; i < PROPS; i += THREADS ){
+                    written.get( i ).set( i );
+                }
+            } );
+            writers[ t ].start();
+        }
+        start.countDown();
+        for( int i = 0; i < PROPS; i++ ){
+            tracker.track( new Prop( parent, null, false ) );
+        }
+        for( Thread writer : writers ){
+            writer.join();
+        }
+        
+        Assert.assertEquals( "Every write should be after the watermark", PROPS, tracker.dirtySince( watermark ).size() );
+        Assert.assertEquals( "Every written prop should be dirty", PROPS, tracker.drainDirty().size() );
+    }
+    
+    private static class Entity
+    {
+        final Prop<String> name = new Prop( this, null, false );
+        final Prop<Integer> age = new Prop( this, null, false );
+        final DoubleProp score = new DoubleProp( this, null, false );
+        
+        ChangeTracker tracker( Consumer<ChangeTracker> onDirty ){
+            ChangeTracker tracker = new ChangeTracker( this, onDirty );
+            tracker.track( name, ValueCodecs.STRING );
+            tracker.track( age, ValueCodecs.INTEGER );
+            tracker.track( score, ValueCodecs.DOUBLE );
+            return tracker;
+        }
+    }
+}
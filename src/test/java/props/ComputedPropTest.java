@@ -0,0 +1,119 @@
+package props;
+
+import java.util.function.Supplier;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ComputedPropTest
+{
+    @Test
+    public void testLazy() throws Exception {
+        final Prop<String> first = new Prop( "Thomas" );
+        final Prop<String> last = new Prop( "Smith" );
+        final int[] computed = new int[1];
+        ComputedProp<String> fullName = new ComputedProp( new Supplier<String>(){
+            public String get() {
+                computed[0]++;
+                return first.get() + " " + last.get();
+            }
+        }, first, last );
+        
+        Assert.assertEquals( "Should not compute until read", 0, computed[0] );
+        Assert.assertEquals( "Wrong value", "Thomas Smith", fullName.get() );
+        Assert.assertEquals( "Wrong value", "Thomas Smith", fullName.get() );
+        Assert.assertEquals( "Should compute once", 1, computed[0] );
+        
+        first.set( "AJ" );
+        last.set( "Jones" );
+        Assert.assertTrue( "Should be dirty", fullName.isDirty() );
+        Assert.assertEquals( "Should not compute until read", 1, computed[0] );
+        Assert.assertEquals( "Wrong value", "AJ Jones", fullName.get() );
+        Assert.assertEquals( "Should compute once", 2, computed[0] );
+        
+        fullName.dispose();
+        first.set( "Sue" );
+        Assert.assertFalse( "Disposed prop should not be invalidated", fullName.isDirty() );
+    }
+    
+    @Test
+    public void testDiamond() throws Exception {
+        final IntProp a = new IntProp( 1 );
+        final ComputedProp<Integer> b = new ComputedProp( new Supplier<Integer>(){
+            public Integer get() {
+                return a.getAsInt() * 2;
+            }
+        }, a );
+        final ComputedProp<Integer> c = new ComputedProp( new Supplier<Integer>(){
+            public Integer get() {
+                return a.getAsInt() + 10;
+            }
+        }, a );
+        final int[] computed = new int[1];
+        final ComputedProp<Integer> d = new ComputedProp( new Supplier<Integer>(){
+            public Integer get() {
+                computed[0]++;
+                //b and c must both reflect the same value of a
+                Assert.assertEquals( "Glitch", b.get() / 2 + 10, c.get().intValue() );
+                return b.get() + c.get();
+            }
+        }, b, c );
+        
+        DefaultPropListener listener = new DefaultPropListener();
+        d.addListener( listener );
+        Assert.assertEquals( "Should compute when observed", 1, computed[0] );
+        
+        a.set( 5 );
+        Assert.assertEquals( "Should recompute once", 2, computed[0] );
+        Assert.assertEquals( "Wrong notification count", 1, listener.count() );
+        Assert.assertEquals( "Wrong value", 25, listener.current() );
+        Assert.assertEquals( "Wrong previous value", 13, listener.previous() );
+        Assert.assertFalse( "Should be clean", d.isDirty() );
+        
+        //a change that does not change the result does not notify
+        final Prop<Integer> input = new Prop( 3 );
+        ComputedProp<Boolean> odd = new ComputedProp( new Supplier<Boolean>(){
+            public Boolean get() {
+                return input.get() % 2 == 1;
+            }
+        }, input );
+        DefaultPropListener oddListener = new DefaultPropListener();
+        odd.addListener( oddListener );
+        input.set( 5 );
+        Assert.assertEquals( "Unchanged value should not notify", 0, oddListener.count() );
+        input.set( 6 );
+        Assert.assertEquals( "Wrong notification count", 1, oddListener.count() );
+    }
+    
+    @Test
+    public void testBatch() throws Exception {
+        final Prop<Integer> x = new Prop( 1 );
+        final Prop<Integer> y = new Prop( 2 );
+        final int[] computed = new int[1];
+        ComputedProp<Integer> sum = new ComputedProp( "Parent", true, new Supplier<Integer>(){
+            public Integer get() {
+                computed[0]++;
+                return x.get() + y.get();
+            }
+        }, x, y );
+        DefaultPropListener listener = new DefaultPropListener();
+        sum.addListener( listener );
+        
+        try( Batch batch = Prop.batch() ){
+            x.set( 10 );
+            y.set( 20 );
+            Assert.assertEquals( "Should not recompute in a batch", 1, computed[0] );
+        }
+        Assert.assertEquals( "Should recompute once", 2, computed[0] );
+        Assert.assertEquals( "Wrong notification count", 1, listener.count() );
+        Assert.assertEquals( "Wrong value", 30, listener.current() );
+        Assert.assertEquals( "Wrong version count", 1, sum.versionCount() );
+        Assert.assertEquals( "Wrong parent", "Parent", sum.parent() );
+        
+        try{
+            sum.set( 5 );
+            Assert.fail( "Setting a computed prop should fail" );
+        }
+        catch( UnsupportedOperationException ex ){
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package props;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ConcurrentPropTest
+{
+    private static final int THREADS = 4;
+    private static final int WRITES = 10000;
+    
+    @Test
+    public void testGettersAndSetters() throws Exception {
+        ConcurrentProp<String> prop = new ConcurrentProp();
+        Assert.assertFalse( "Property should not be set", prop.set() );
+        Assert.assertEquals( "Timestamp should not be set", -1, prop.timestamp() );
+        Assert.assertNotNull( "UUID was null", prop.uuid() );
+        
+        prop.set( "Thomas", "user1", 100 );
+        Assert.assertTrue( "Property should be set", prop.set() );
+        Assert.assertEquals( "Wrong value", "Thomas", prop.get() );
+        Assert.assertEquals( "Wrong user id", "user1", prop.modifiedBy() );
+        Assert.assertEquals( "Wrong timestamp", 100, prop.timestamp() );
+        
+        Version<String> current = prop.current();
+        Assert.assertEquals( "Wrong value", "Thomas", current.value() );
+        Assert.assertEquals( "Wrong user id", "user1", current.modifiedBy() );
+        Assert.assertEquals( "Wrong timestamp", 100, current.timestamp() );
+        
+        prop = new ConcurrentProp( "Parent", "AJ" );
+        Assert.assertTrue( "Property should be set", prop.set() );
+        Assert.assertEquals( "Wrong value", "AJ", prop.get() );
+        Assert.assertEquals( "Wrong parent", "Parent", prop.parent() );
+        
+        prop.set( "Mary" );
+        List<Version<String>> versions = prop.versions();
+        Assert.assertEquals( "Wrong version count", 1, versions.size() );
+        Assert.assertEquals( "Wrong version value", "AJ", versions.get(0).value() );
+    }
+    
+    @Test
+    public void testCompareAndSet() throws Exception {
+        DefaultPropListener listener = new DefaultPropListener();
+        ConcurrentProp<String> prop = new ConcurrentProp( "Thomas" );
+        prop.addListener( listener );
+        
+        Assert.assertFalse( "Should not have been set", prop.compareAndSet( "AJ", "Mary" ) );
+        Assert.assertEquals( "Wrong value", "Thomas", prop.get() );
+        Assert.assertEquals( "Wrong notification count", 0, listener.count() );
+        
+        Assert.assertTrue( "Should have been set", prop.compareAndSet( new String( "Thomas" ), "Mary", "user1" ) );
+        Assert.assertEquals( "Wrong value", "Mary", prop.get() );
+        Assert.assertEquals( "Wrong user id", "user1", prop.modifiedBy() );
+        Assert.assertEquals( "Wrong notification count", 1, listener.count() );
+        Assert.assertEquals( "Wrong previous value", "Thomas", listener.previous() );
+        
+        String previous = prop.getAndUpdate( new UnaryOperator<String>(){
+            public String apply( String value ) {
+                return value + " Sue";
+            }
+        } );
+        Assert.assertEquals( "Wrong previous value", "Mary", previous );
+        Assert.assertEquals( "Wrong value", "Mary Sue", prop.get() );
+        Assert.assertEquals( "Wrong notification count", 2, listener.count() );
+        Assert.assertEquals( "Wrong version count", 2, prop.versions().size() );
+    }
+    
+    @Test
+    public void testConsistentReads() throws Exception {
+        final ConcurrentProp<Integer> prop = new ConcurrentProp( null, 0, false, 0, "0" );
+        final AtomicReference<String> failure = new AtomicReference();
+        final CountDownLatch start = new CountDownLatch( 1 );
+        
+        Thread writer = new Thread(){
+            public void run(){
+                await( start );
+                for( int i = 1; i <= WRITES; i++ ){
+                    prop.set( i, Integer.toString( i ), i );
+                }
+            }
+        };
+        
+        Thread[] readers = new Thread[THREADS];
+        for( int i = 0; i < readers.length; i++ ){
+            readers[i] = new Thread(){
+                public void run(){
+                    await( start );
+                    int last = 0;
+                    while( last < WRITES ){
+                        Version<Integer> current = prop.current();
+                        int value = current.value();
+                        if( value != current.timestamp() || !Integer.toString( value ).equals( current.modifiedBy() ) ){
+                            failure.compareAndSet( null, "Torn read: " + current );
+                        }
+                        if( value < last ){
+                            failure.compareAndSet( null, "Value went backwards: " + value + " after " + last );
+                        }
+                        last = value;
+                    }
+                }
+            };
+        }
+        
+        run( start, writer, readers );
+        Assert.assertNull( failure.get(), failure.get() );
+    }
+    
+    @Test
+    public void testConcurrentUpdates() throws Exception {
+        final ConcurrentProp<Integer> prop = new ConcurrentProp( 0 );
+        final AtomicInteger notifications = new AtomicInteger();
+        prop.addListener( new PropListener(){
+            public void propertyChanged( PropChangedEvent event ) {
+                notifications.incrementAndGet();
+            }
+        } );
+        
+        final CountDownLatch start = new CountDownLatch( 1 );
+        Thread[] writers = new Thread[THREADS];
+        for( int i = 0; i < writers.length; i++ ){
+            writers[i] = new Thread(){
+                public void run(){
+                    await( start );
+                    for( int j = 0; j < WRITES; j++ ){
+                        if( j % 2 == 0 ){
+                            prop.getAndUpdate( new UnaryOperator<Integer>(){
+                                public Integer apply( Integer value ) {
+                                    return value + 1;
+                                }
+                            } );
+                        }
+                        else{
+                            while( true ){
+                                Integer value = prop.get();
+                                if( prop.compareAndSet( value, value + 1 ) ){
+                                    break;
+                                }
+                            }
+                        }
+                    }
+                }
+            };
+        }
+        
+        run( start, null, writers );
+        
+        int total = THREADS * WRITES;
+        Assert.assertEquals( "Lost updates", new Integer( total ), prop.get() );
+        Assert.assertEquals( "Wrong notification count", total, notifications.get() );
+        
+        List<Version<Integer>> versions = prop.versions();
+        Assert.assertEquals( "Wrong version count", total, versions.size() );
+        for( int i = 0; i < versions.size(); i++ ){
+            Assert.assertEquals( "Versions out of order", new Integer( i ), versions.get( i ).value() );
+        }
+    }
+    
+    @Test
+    public void testConcurrentListeners() throws Exception {
+        final ConcurrentProp<Integer> prop = new ConcurrentProp( null, 0, false );
+        final CountDownLatch start = new CountDownLatch( 1 );
+        
+        Thread writer = new Thread(){
+            public void run(){
+                await( start );
+                for( int i = 0; i < WRITES; i++ ){
+                    prop.set( i );
+                }
+            }
+        };
+        
+        final DefaultPropListener[] kept = new DefaultPropListener[THREADS];
+        Thread[] registrars = new Thread[THREADS];
+        for( int i = 0; i < registrars.length; i++ ){
+            final int index = i;
+            kept[i] = new DefaultPropListener();
+            registrars[i] = new Thread(){
+                public void run(){
+                    await( start );
+                    for( int j = 0; j < 1000; j++ ){
+                        DefaultPropListener listener = new DefaultPropListener();
+                        prop.addListener( listener );
+                        prop.removeListener( listener );
+                    }
+                    prop.addListener( kept[index] );
+                }
+            };
+        }
+        
+        run( start, writer, registrars );
+        
+        prop.set( -1 );
+        for( DefaultPropListener listener : kept ){
+            Assert.assertEquals( "Listener was lost", -1, listener.current() );
+        }
+    }
+    
+    @Test
+    public void testComputedPropListenersRunWithoutLock() throws Exception {
+        final ConcurrentProp<Integer> prop = new ConcurrentProp( null, 1, false );
+        ComputedProp<Integer> doubled = new ComputedProp( new Supplier<Integer>(){
+            public Integer get(){
+                return prop.get() * 2;
+            }
+        }, prop );
+        final AtomicInteger locked = new AtomicInteger();
+        final AtomicInteger notified = new AtomicInteger();
+        doubled.addListener( new PropListener(){
+            public void propertyChanged( PropChangedEvent event ){
+                notified.incrementAndGet();
+                if( Thread.holdsLock( prop.lock() ) ){
+                    locked.incrementAndGet();
+                }
+            }
+        } );
+        
+        prop.set( 2 );
+        prop.compareAndSet( 2, 3 );
+        prop.getAndUpdate( value -> value + 1 );
+        Assert.assertEquals( "Wrong computed value", Integer.valueOf( 8 ), doubled.get() );
+        Assert.assertEquals( "Listener should be notified of each write", 3, notified.get() );
+        Assert.assertEquals( "Listener should run after the lock is released", 0, locked.get() );
+    }
+    
+    private static void run( CountDownLatch start, Thread first, Thread[] others ) throws InterruptedException {
+        if( first != null ){
+            first.start();
+        }
+        for( Thread thread : others ){
+            thread.start();
+        }
+        start.countDown();
+        if( first != null ){
+            first.join();
+        }
+        for( Thread thread : others ){
+            thread.join();
+        }
+    }
+    
+    private static void await( CountDownLatch latch ){
+        try{
+            latch.await();
+        }
+        catch( InterruptedException ex ){
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package props;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class EqualityPolicyTest
+{
+    @Test
+    public void testDefaultTreatsEveryWriteAsAChange() throws Exception {
+        Prop<String> prop = new Prop( null, "Thomas", true );
+        DefaultPropListener listener = new DefaultPropListener();
+        prop.addListener( listener );
+        
+        prop.set( "Thomas" );
+        Assert.assertSame( "Wrong default policy", EqualityPolicy.none(), prop.equality() );
+        Assert.assertEquals( "Write should be a change", 1, listener.count() );
+        Assert.assertEquals( "Version should be recorded", 1, prop.versionCount() );
+    }
+    
+    @Test
+    public void testEquality() throws Exception {
+        Prop<String> prop = new Prop( null, null, true );
+        prop.equality( EqualityPolicy.equality() );
+        DefaultPropListener listener = new DefaultPropListener();
+        RecordingListener touches = new RecordingListener();
+        prop.addListener( listener );
+        prop.addListener( touches, true );
+        
+        prop.set( null, "AJ", 1 );
+        Assert.assertEquals( "The first write should be a change", 1, listener.count() );
+        
+        prop.set( new String( "Thomas" ), "AJ", 2 );
+        prop.set( new String( "Thomas" ), "Jacob", 3 );
+        Assert.assertEquals( "Wrong notification count", 2, listener.count() );
+        Assert.assertEquals( "Wrong version count", 1, prop.versionCount() );
+        Assert.assertEquals( "Metadata should not change", 2, prop.timestamp() );
+        Assert.assertEquals( "Metadata should not change", "AJ", prop.modifiedBy() );
+        
+        Assert.assertEquals( "Touch listeners should receive changes and touches", 3, touches.events.size() );
+        PropChangedEvent touch = touches.events.get( 2 );
+        Assert.assertTrue( "Event should be touched", touch.touched() );
+        Assert.assertFalse( "Event should not be touched", touches.events.get( 1 ).touched() );
+        Assert.assertEquals( "Wrong touched value", "Thomas", touch.value() );
+        Assert.assertEquals( "Wrong touched previous value", "Thomas", touch.previousValue() );
+        
+        prop.removeListener( touches );
+        prop.set( "Thomas" );
+        Assert.assertEquals( "Removed listener should not be touched", 3, touches.events.size() );
+    }
+    
+    @Test
+    public void testIdentity() throws Exception {
+        Prop<String> prop = new Prop( null, null, false );
+        prop.equality( EqualityPolicy.identity() );
+        DefaultPropListener listener = new DefaultPropListener();
+        prop.addListener( listener );
+        
+        String thomas = "Thomas";
+        prop.set( thomas );
+        prop.set( thomas );
+        prop.set( new String( thomas ) );
+        Assert.assertEquals( "Only different objects should be changes", 2, listener.count() );
+    }
+    
+    @Test
+    public void testTouching() throws Exception {
+        Prop<String> prop = new Prop( null, null, true );
+        prop.equality( EqualityPolicy.comparing( String.CASE_INSENSITIVE_ORDER ).touching() );
+        Assert.assertTrue( "Policy should touch", prop.equality().touches() );
+        DefaultPropListener listener = new DefaultPropListener();
+        prop.addListener( listener );
+        
+        prop.set( "Thomas", "AJ", 1 );
+        prop.set( "THOMAS", "Jacob", 2 );
+        Assert.assertEquals( "Wrong notification count", 1, listener.count() );
+        Assert.assertEquals( "Value should not change", "Thomas", prop.get() );
+        Assert.assertEquals( "Timestamp should be touched", 2, prop.timestamp() );
+        Assert.assertEquals( "Modified by should be touched", "Jacob", prop.modifiedBy() );
+        Assert.assertEquals( "No version should be recorded", 0, prop.versionCount() );
+    }
+    
+    @Test
+    public void testPrimitives() throws Exception {
+        PropMetrics metrics = new PropMetrics();
+        IntProp prop = new IntProp( null, null, true );
+        prop.metrics( metrics );
+        prop.equality( EqualityPolicy.equality() );
+        final List<Integer> values = new ArrayList();
+        prop.addListener( new IntPropListener(){
+            public void propertyChanged( IntProp property, int value, int previousValue ){
+                values.add( value );
+            }
+        } );
+        
+        prop.set( 0 );
+        prop.set( 0 );
+        prop.set( 1 );
+        prop.set( 1 );
+        Assert.assertEquals( "Wrong values", Arrays.asList( 0, 1 ), values );
+        Assert.assertEquals( "Wrong version count", 1, prop.versionCount() );
+        Assert.assertEquals( "Wrong set count", 2, metrics.getSets() );
+        Assert.assertEquals( "Wrong suppressed count", 2, metrics.getSuppressedWrites() );
+        
+        DoubleProp score = new DoubleProp( 1.0 );
+        score.equality( EqualityPolicy.comparing( new Comparator<Double>(){
+            public int compare( Double a, Double b ){
+                return Math.abs( a - b ) < 0.01 ? 0 : Double.compare( a, b );
+            }
+        } ).touching() );
+        RecordingListener touches = new RecordingListener();
+        score.addListener( touches, true );
+        score.set( 1.001, "AJ", 5 );
+        Assert.assertEquals( "Value should not change", 1.0, score.getAsDouble(), 0 );
+        Assert.assertEquals( "Timestamp should be touched", 5, score.timestamp() );
+        Assert.assertEquals( "Wrong touched value", 1.0, touches.events.get( 0 ).value() );
+        
+        //equals() treats every NaN as the same value, whatever its payload
+        DoubleProp nan = new DoubleProp( Double.longBitsToDouble( 0x7ff8000000000001L ) );
+        nan.equality( EqualityPolicy.equality() );
+        Prop<Double> boxed = new Prop( Double.longBitsToDouble( 0x7ff8000000000001L ) );
+        boxed.equality( EqualityPolicy.equality() );
+        nan.set( Double.longBitsToDouble( 0x7ff8000000000002L ) );
+        boxed.set( Double.longBitsToDouble( 0x7ff8000000000002L ) );
+        Assert.assertEquals( "NaNs should be equal", 0, nan.versionCount() );
+        Assert.assertEquals( "Primitive and boxed Props should agree", boxed.versionCount(), nan.versionCount() );
+    }
+    
+    @Test
+    public void testConcurrentProp() throws Exception {
+        ConcurrentProp<String> prop = new ConcurrentProp( null, "Thomas", true );
+        prop.equality( EqualityPolicy.equality().touching() );
+        RecordingListener listener = new RecordingListener();
+        prop.addListener( listener, true );
+        
+        prop.set( "Thomas", "AJ", 7 );
+        Assert.assertEquals( "Timestamp should be touched", 7, prop.current().timestamp() );
+        Assert.assertEquals( "No version should be recorded", 0, prop.versionCount() );
+        Assert.assertTrue( "Event should be touched", listener.events.get( 0 ).touched() );
+        
+        Assert.assertTrue( "Equal update should succeed", prop.compareAndSet( "Thomas", "Thomas" ) );
+        prop.getAndUpdate( value -> value );
+        prop.getAndUpdate( value -> value + "!" );
+        Assert.assertEquals( "Wrong event count", 4, listener.events.size() );
+        Assert.assertFalse( "Event should not be touched", listener.events.get( 3 ).touched() );
+        Assert.assertEquals( "Wrong version count", 1, prop.versionCount() );
+    }
+    
+    @Test
+    public void testTouchingNoneIsRejected() throws Exception {
+        try{
+            EqualityPolicy.none().touching();
+            Assert.fail( "Touching every write should be rejected" );
+        }
+        catch( IllegalStateException ex ){
+            //expected
+        }
+    }
+    
+    private static class RecordingListener implements PropListener
+    {
+        private final List<PropChangedEvent> events = new ArrayList();
+        
+        public void propertyChanged( PropChangedEvent event ){
+            events.add( event );
+        }
+    }
+}
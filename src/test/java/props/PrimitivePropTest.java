@@ -0,0 +1,117 @@
+package props;
+
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PrimitivePropTest
+{
+    @Test
+    public void testIntProp() throws Exception {
+        IntProp prop = new IntProp();
+        Assert.assertFalse( "Property should not be set", prop.set() );
+        Assert.assertNull( "Value should be null", prop.get() );
+        Assert.assertEquals( "Wrong default value", 0, prop.getAsInt() );
+        
+        final int[] notified = new int[3];
+        prop.addListener( new IntPropListener(){
+            public void propertyChanged( IntProp property, int value, int previousValue ) {
+                notified[0]++;
+                notified[1] = value;
+                notified[2] = previousValue;
+            }
+        } );
+        
+        prop.set( 36, "user1", 100 );
+        prop.set( 437, "user2", 200 );
+        prop.set( 12 );
+        
+        Assert.assertTrue( "Property should be set", prop.set() );
+        Assert.assertEquals( "Wrong value", 12, prop.getAsInt() );
+        Assert.assertEquals( "Wrong value", new Integer( 12 ), prop.get() );
+        Assert.assertEquals( "Wrong notification count", 3, notified[0] );
+        Assert.assertEquals( "Wrong notified value", 12, notified[1] );
+        Assert.assertEquals( "Wrong notified previous value", 437, notified[2] );
+        
+        List<Version<Integer>> versions = prop.versions();
+        Assert.assertEquals( "Wrong version count", 2, versions.size() );
+        Assert.assertEquals( "Wrong version value", new Integer( 36 ), versions.get( 0 ).value() );
+        Assert.assertEquals( "Wrong user id", "user1", versions.get( 0 ).modifiedBy() );
+        Assert.assertEquals( "Wrong timestamp", 100, versions.get( 0 ).timestamp() );
+        Assert.assertEquals( "Wrong version value", 437, prop.valueAt( 1 ) );
+        Assert.assertEquals( "Wrong version value", -5, new IntProp( -5 ).getAsInt() );
+    }
+    
+    @Test
+    public void testGenericListeners() throws Exception {
+        DefaultPropListener listener = new DefaultPropListener();
+        LongProp prop = new LongProp( "Parent", 5L );
+        Assert.assertEquals( "Wrong parent", "Parent", prop.parent() );
+        prop.addListener( listener );
+        
+        prop.set( Long.MAX_VALUE );
+        Assert.assertEquals( "Wrong notification count", 1, listener.count() );
+        Assert.assertEquals( "Wrong value", Long.MAX_VALUE, listener.current() );
+        Assert.assertEquals( "Wrong previous value", 5L, listener.previous() );
+        
+        //the boxed setter from Prop
+        Prop<Long> generic = prop;
+        generic.set( Long.valueOf( 7 ), "user" );
+        Assert.assertEquals( "Wrong value", 7, prop.getAsLong() );
+        Assert.assertEquals( "Wrong version value", Long.MAX_VALUE, prop.valueAt( 1 ) );
+        
+        prop.removeListeners();
+        prop.set( 8 );
+        Assert.assertEquals( "Wrong notification count", 2, listener.count() );
+    }
+    
+    @Test
+    public void testDoubleProp() throws Exception {
+        DoubleProp prop = new DoubleProp( 1.5 );
+        prop.set( -0.25 );
+        prop.set( Double.NaN );
+        
+        Assert.assertTrue( "Wrong value", Double.isNaN( prop.getAsDouble() ) );
+        Assert.assertEquals( "Wrong version value", 1.5, prop.valueAt( 0 ), 0 );
+        Assert.assertEquals( "Wrong version value", -0.25, prop.valueAt( 1 ), 0 );
+        Assert.assertEquals( "Wrong version value", new Double( -0.25 ), prop.versionAt( 1 ).value() );
+    }
+    
+    @Test
+    public void testBooleanProp() throws Exception {
+        BooleanProp prop = new BooleanProp( null, null, true );
+        Assert.assertFalse( "Property should not be set", prop.set() );
+        
+        prop.set( true );
+        prop.set( false );
+        prop.set( true );
+        
+        Assert.assertTrue( "Wrong value", prop.getAsBoolean() );
+        Assert.assertEquals( "Wrong version count", 2, prop.versionCount() );
+        Assert.assertTrue( "Wrong version value", prop.valueAt( 0 ) );
+        Assert.assertFalse( "Wrong version value", prop.valueAt( 1 ) );
+        Assert.assertEquals( "Wrong version value", Boolean.FALSE, prop.versions().get( 1 ).value() );
+    }
+    
+    @Test
+    public void testRetention() throws Exception {
+        IntProp prop = new IntProp( 0 );
+        prop.retention( RetentionPolicy.lastVersions( 3 ) );
+        for( int i = 1; i <= 100; i++ ){
+            prop.set( i, i );
+        }
+        
+        Assert.assertEquals( "Wrong version count", 3, prop.versionCount() );
+        Assert.assertEquals( "Wrong version value", 97, prop.valueAt( 0 ) );
+        Assert.assertEquals( "Wrong version value", 99, prop.valueAt( 2 ) );
+        
+        prop.retention( RetentionPolicy.lastVersions( 2 ) );
+        Assert.assertEquals( "Wrong version value", 98, prop.valueAt( 0 ) );
+        Assert.assertEquals( "Wrong version count", 2, prop.versionsBetween( 0, 100 ).size() );
+    }
+    
+    @Test( expected = IllegalArgumentException.class )
+    public void testNull() throws Exception {
+        new IntProp().set( (Integer)null, null, 0 );
+    }
+}
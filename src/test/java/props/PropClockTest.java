@@ -0,0 +1,188 @@
+package props;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PropClockTest
+{
+    @Test
+    public void testSystemClockIsTheDefault() throws Exception {
+        Prop<String> prop = new Prop( null, null, true );
+        Assert.assertSame( "Wrong default clock", PropClock.system(), prop.clock() );
+        
+        long before = System.currentTimeMillis();
+        prop.set( "Thomas" );
+        long after = System.currentTimeMillis();
+        Assert.assertTrue( "Timestamp should be the current time", prop.timestamp() >= before && prop.timestamp() <= after );
+    }
+    
+    @Test
+    public void testCustomClock() throws Exception {
+        Prop<String> prop = new Prop( null, null, true );
+        IntProp age = new IntProp( null, null, true );
+        ManualClock clock = new ManualClock();
+        prop.clock( clock );
+        age.clock( clock );
+        
+        clock.time = 42;
+        prop.set( "Thomas" );
+        age.set( 7 );
+        Assert.assertEquals( "Wrong timestamp", 42, prop.timestamp() );
+        Assert.assertEquals( "Wrong primitive timestamp", 42, age.timestamp() );
+        
+        prop.set( "Jacob", 7 );
+        Assert.assertEquals( "Explicit timestamps should not read the clock", 7, prop.timestamp() );
+    }
+    
+    @Test
+    public void testEventTimestamp() throws Exception {
+        Prop<String> prop = new Prop( null, null, true );
+        ManualClock clock = new ManualClock();
+        prop.clock( clock );
+        List<PropChangedEvent> events = new ArrayList();
+        prop.addListener( events::add );
+        
+        clock.time = 5;
+        prop.set( "Thomas" );
+        prop.set( "Jacob", 9 );
+        Assert.assertEquals( "Wrong event timestamp", 5, events.get( 0 ).timestamp() );
+        Assert.assertEquals( "Wrong event timestamp", 9, events.get( 1 ).timestamp() );
+        
+        try( Batch batch = Batch.open() ){
+            prop.set( "AJ", 10 );
+            prop.set( "Sue", 11 );
+        }
+        Assert.assertEquals( "Batched events should be coalesced", 3, events.size() );
+        Assert.assertEquals( "Batched event should have the last timestamp", 11, events.get( 2 ).timestamp() );
+        
+        PropChangedEvent legacy = new PropChangedEvent( prop, "Mary", "Sue" );
+        Assert.assertEquals( "Legacy events should have the property's timestamp", 11, legacy.timestamp() );
+    }
+    
+    @Test
+    public void testHybridLogicalClockIsMonotonic() throws Exception {
+        ManualClock wall = new ManualClock();
+        HybridLogicalClock clock = new HybridLogicalClock( 3, wall );
+        
+        wall.time = 1000;
+        long first = clock.now();
+        long second = clock.now();
+        Assert.assertTrue( "Timestamps should increase", second > first );
+        Assert.assertEquals( "Wrong millis", 1000, clock.millis( first ) );
+        Assert.assertEquals( "Wrong counter", 0, HybridLogicalClock.counter( first ) );
+        Assert.assertEquals( "Wrong counter", 1, HybridLogicalClock.counter( second ) );
+        Assert.assertEquals( "Wrong node", 3, HybridLogicalClock.node( second ) );
+        
+        wall.time = 900;
+        long third = clock.now();
+        Assert.assertTrue( "Timestamps should increase when the wall clock goes back", third > second );
+        Assert.assertEquals( "Wrong millis", 1000, clock.millis( third ) );
+        
+        wall.time = 2000;
+        long fourth = clock.now();
+        Assert.assertEquals( "Clock should follow the wall clock", 2000, clock.millis( fourth ) );
+        Assert.assertEquals( "Counter should reset", 0, HybridLogicalClock.counter( fourth ) );
+    }
+    
+    @Test
+    public void testHybridLogicalClockUpdate() throws Exception {
+        ManualClock wall = new ManualClock();
+        HybridLogicalClock local = new HybridLogicalClock( 1, wall );
+        HybridLogicalClock remote = new HybridLogicalClock( 2, new ManualClock() );
+        ((ManualClock)remote.physical()).time = 5000;
+        
+        wall.time = 1000;
+        long sent = remote.now();
+        long received = local.update( sent );
+        Assert.assertTrue( "Received timestamp should follow the sent one", received > sent );
+        Assert.assertTrue( "Later timestamps should follow the sent one", local.now() > received );
+        Assert.assertEquals( "Wrong node", 1, HybridLogicalClock.node( received ) );
+        
+        try{
+            new HybridLogicalClock( 256 );
+            Assert.fail( "Node should be checked" );
+        }
+        catch( IllegalArgumentException ex ){
+            //expected
+        }
+    }
+    
+    @Test
+    public void testHybridLogicalClockIsUniqueAcrossThreads() throws Exception {
+        HybridLogicalClock clock = new HybridLogicalClock( 0 );
+        ConcurrentProp<Integer> prop = new ConcurrentProp();
+        prop.clock( clock );
+        int threads = 4;
+        int writes = 5000;
+        Set<Long> timestamps = Collections.synchronizedSet( new HashSet() );
+        prop.addListener( event -> timestamps.add( event.timestamp() ) );
+        
+        List<Thread> writers = new ArrayList();
+        for( int t = 0; t < threads; t++ ){
+            Thread writer = new Thread( () -> {
+                for( int i = 0; i < writes; i++ ){
+                    prop.getAndUpdate( value -> value == null ? 1 : value + 1 );
+                }
+            } );
+            writers.add( writer );
+            writer.start();
+        }
+        for( Thread writer : writers ){
+            writer.join();
+        }
+        
+        Assert.assertEquals( "Every write should have a unique timestamp", threads * writes, timestamps.size() );
+        List<Version<Integer>> versions = prop.versions();
+        for( int i = 1; i < versions.size(); i++ ){
+            Assert.assertTrue( "Versions should have increasing timestamps", versions.get( i ).timestamp() > versions.get( i - 1 ).timestamp() );
+        }
+        Assert.assertTrue( "Current version should be the latest", prop.timestamp() > versions.get( versions.size() - 1 ).timestamp() );
+    }
+    
+    @Test
+    public void testRetentionInClockUnits() throws Exception {
+        ManualClock wall = new ManualClock();
+        Prop<Integer> prop = new Prop( null, null, true );
+        prop.clock( new HybridLogicalClock( 0, wall ) );
+        prop.retention( RetentionPolicy.newerThan( 100, 1000 ) );
+        
+        for( int i = 0; i < 10; i++ ){
+            wall.time = 1000 + i * 50;
+            prop.set( i );
+            prop.set( i );
+        }
+        //the newest recorded version is at 1450, so versions from 1350 on are kept
+        Assert.assertEquals( "Wrong version count", 5, prop.versionCount() );
+        Assert.assertEquals( "Wrong oldest version", 7, (int)prop.versionAt( 0 ).value() );
+    }
+    
+    @Test
+    public void testCoarseClock() throws Exception {
+        try( CoarseClock clock = PropClock.coarse( 1, TimeUnit.MILLISECONDS ) ){
+            Assert.assertEquals( "Wrong resolution", 1000, clock.resolution( TimeUnit.MICROSECONDS ) );
+            long first = clock.now();
+            Assert.assertTrue( "Time should be close to the system time", Math.abs( System.currentTimeMillis() - first ) < 1000 );
+            
+            long deadline = System.currentTimeMillis() + 5000;
+            while( clock.now() == first && System.currentTimeMillis() < deadline ){
+                Thread.sleep( 1 );
+            }
+            Assert.assertTrue( "Time should advance", clock.now() > first );
+        }
+    }
+    
+    private static class ManualClock implements PropClock
+    {
+        private volatile long time;
+        
+        public long now(){
+            return time;
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package props;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PropCodecTest
+{
+    @Test
+    public void testCodecs() throws Exception {
+        assertRoundTrip( ValueCodecs.STRING, "Hello" );
+        assertRoundTrip( ValueCodecs.STRING, "" );
+        assertRoundTrip( ValueCodecs.STRING, "Gr\u00fc\u00dfe, \u4e16\u754c \ud83d\ude00" );
+        assertRoundTrip( ValueCodecs.INTEGER, 0 );
+        assertRoundTrip( ValueCodecs.INTEGER, Integer.MIN_VALUE );
+        assertRoundTrip( ValueCodecs.INTEGER, Integer.MAX_VALUE );
+        assertRoundTrip( ValueCodecs.LONG, -1L );
+        assertRoundTrip( ValueCodecs.LONG, Long.MIN_VALUE );
+        assertRoundTrip( ValueCodecs.DOUBLE, Math.PI );
+        assertRoundTrip( ValueCodecs.DOUBLE, Double.NaN );
+        assertRoundTrip( ValueCodecs.BOOLEAN, true );
+        assertRoundTrip( ValueCodecs.BOOLEAN, false );
+    }
+    
+    @Test
+    public void testHistory() throws Exception {
+        Prop<String> prop = new Prop( null, null, true );
+        prop.set( "one", "user1", 100 );
+        prop.set( "two", "user2", 50 );
+        prop.set( null, "user1", 300 );
+        prop.set( "four", null, 400 );
+        
+        ByteBuffer buffer = ByteBuffer.allocate( 256 );
+        new PropEncoder( buffer ).write( prop, ValueCodecs.STRING );
+        buffer.flip();
+        
+        Prop<String> copy = new PropDecoder( buffer ).read( ValueCodecs.STRING );
+        Assert.assertFalse( "Buffer should be consumed", buffer.hasRemaining() );
+        Assert.assertEquals( "Wrong uuid", prop.uuid(), copy.uuid() );
+        Assert.assertEquals( "Wrong value", "four", copy.get() );
+        Assert.assertTrue( "Property should be set", copy.set() );
+        Assert.assertEquals( "Wrong timestamp", 400, copy.timestamp() );
+        Assert.assertNull( "Wrong modifiedBy", copy.modifiedBy() );
+        Assert.assertEquals( "Wrong versions", prop.versions(), copy.versions() );
+    }
+    
+    @Test
+    public void testChannel() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PropEncoder encoder = new PropEncoder( Channels.newChannel( out ) );
+        
+        //enough to fill the encoder's buffer several times
+        StringBuilder longValue = new StringBuilder();
+        for( int i = 0; i < 20000; i++ ){
+            longValue.append( 'x' );
+        }
+        
+        Prop<String> unset = new Prop( null, null, false );
+        unset.uuid( "not-a-uuid" );
+        encoder.write( unset, ValueCodecs.STRING );
+        for( int i = 0; i < 100; i++ ){
+            Prop<String> prop = new Prop( null, null, true );
+            prop.set( longValue.toString(), "user", i );
+            prop.set( "value" + i, "user" + ( i % 3 ), i + 1 );
+            encoder.write( prop, ValueCodecs.STRING );
+        }
+        encoder.flush();
+        
+        PropDecoder decoder = new PropDecoder( Channels.newChannel( new ByteArrayInputStream( out.toByteArray() ) ) );
+        Prop<String> first = decoder.read( ValueCodecs.STRING );
+        Assert.assertEquals( "Wrong uuid", "not-a-uuid", first.uuid() );
+        Assert.assertFalse( "Property should not be set", first.set() );
+        Assert.assertNull( "Versions should not be recorded", first.versions() );
+        
+        for( int i = 0; i < 100; i++ ){
+            Assert.assertTrue( "Missing prop " + i, decoder.hasNext() );
+            Prop<String> prop = decoder.read( ValueCodecs.STRING );
+            Assert.assertEquals( "Wrong value", "value" + i, prop.get() );
+            Assert.assertEquals( "Wrong modifiedBy", "user" + ( i % 3 ), prop.modifiedBy() );
+            Assert.assertEquals( "Wrong version", longValue.toString(), prop.versionAt( 0 ).value() );
+        }
+        Assert.assertFalse( "Decoder should be exhausted", decoder.hasNext() );
+        
+        try{
+            decoder.read( ValueCodecs.STRING );
+            Assert.fail( "Reading past the end should fail" );
+        }
+        catch( EOFException ex ){
+        }
+    }
+    
+    @Test
+    public void testReadInto() throws Exception {
+        IntProp source = new IntProp( null, 1, true );
+        source.set( 2, "user", 20 );
+        source.set( 3, "user", 30 );
+        
+        ConcurrentProp<Integer> concurrent = new ConcurrentProp( null, 5, true );
+        concurrent.set( 6, "other", 60 );
+        
+        ByteBuffer buffer = ByteBuffer.allocate( 256 );
+        PropEncoder encoder = new PropEncoder( buffer );
+        encoder.write( source, ValueCodecs.INTEGER );
+        encoder.write( concurrent, ValueCodecs.INTEGER );
+        buffer.flip();
+        
+        DefaultPropListener listener = new DefaultPropListener();
+        IntProp target = new IntProp( "Parent", 99, true );
+        target.set( 100 );
+        target.addListener( listener );
+        ConcurrentProp<Integer> concurrentTarget = new ConcurrentProp( null, null, false );
+        
+        PropDecoder decoder = new PropDecoder( buffer );
+        decoder.read( target, ValueCodecs.INTEGER );
+        decoder.read( concurrentTarget, ValueCodecs.INTEGER );
+        
+        Assert.assertEquals( "Listeners should not be notified", 0, listener.count() );
+        Assert.assertEquals( "Wrong parent", "Parent", target.parent() );
+        Assert.assertEquals( "Wrong value", 3, target.getAsInt() );
+        Assert.assertEquals( "Wrong uuid", source.uuid(), target.uuid() );
+        List<Version<Integer>> versions = target.versions();
+        Assert.assertEquals( "Wrong version count", 2, versions.size() );
+        Assert.assertEquals( "Wrong version value", 2, target.valueAt( 1 ) );
+        
+        Assert.assertEquals( "Wrong value", new Integer( 6 ), concurrentTarget.get() );
+        Assert.assertEquals( "Wrong modifiedBy", "other", concurrentTarget.modifiedBy() );
+        Assert.assertNull( "Versions should not be recorded", concurrentTarget.versions() );
+    }
+    
+    @Test
+    public void testConsistentWhileWriting() throws Exception {
+        final ConcurrentProp<Integer> prop = new ConcurrentProp( null, 0, true );
+        prop.retention( RetentionPolicy.lastVersions( 8 ) );
+        final AtomicBoolean done = new AtomicBoolean();
+        Thread writer = new Thread( () -> {
+            for( int i = 1; !done.get(); i++ ){
+                prop.set( i, null, i );
+            }
+        } );
+        writer.start();
+        
+        try{
+            ByteBuffer buffer = ByteBuffer.allocate( 1024 );
+            for( int i = 0; i < 2000; i++ ){
+                buffer.clear();
+                new PropEncoder( buffer ).write( prop, ValueCodecs.INTEGER );
+                buffer.flip();
+                Prop<Integer> decoded = new PropDecoder( buffer ).read( ValueCodecs.INTEGER );
+                if( decoded.versionCount() > 0 ){
+                    //the writer writes each value after the one before it
+                    Assert.assertEquals( "History should end just before the current value", decoded.get() - 1, (int)decoded.versionAt( decoded.versionCount() - 1 ).value() );
+                }
+            }
+        }
+        finally{
+            done.set( true );
+            writer.join();
+        }
+    }
+    
+    @Test
+    public void testOverflowCanBeRetried() throws Exception {
+        Prop<String> small = new Prop( null, null, true );
+        small.set( "a", "alice", 1 );
+        Prop<String> large = new Prop( null, null, true );
+        large.set( "b", "bob", 2 );
+        for( int i = 0; i < 6; i++ ){
+            large.set( "value " + i, "alice", 3 + i );
+        }
+        
+        ByteBuffer buffer = ByteBuffer.allocate( 128 );
+        PropEncoder encoder = new PropEncoder( buffer );
+        encoder.write( small, ValueCodecs.STRING );
+        int written = buffer.position();
+        try{
+            encoder.write( large, ValueCodecs.STRING );
+            Assert.fail( "Buffer should overflow" );
+        }
+        catch( BufferOverflowException ex ){
+        }
+        Assert.assertEquals( "Overflow should leave the buffer as it was", written, buffer.position() );
+        
+        //drain the buffer into a bigger one and write the Prop again
+        buffer.flip();
+        ByteBuffer drained = ByteBuffer.allocate( 1024 );
+        drained.put( buffer );
+        buffer.clear();
+        encoder.write( large, ValueCodecs.STRING );
+        buffer.flip();
+        drained.put( buffer );
+        drained.flip();
+        
+        PropDecoder decoder = new PropDecoder( drained );
+        Assert.assertEquals( "Wrong modifiedBy", "alice", decoder.read( ValueCodecs.STRING ).modifiedBy() );
+        Prop<String> decoded = decoder.read( ValueCodecs.STRING );
+        Assert.assertEquals( "Wrong value", "value 5", decoded.get() );
+        Assert.assertEquals( "New identifier should be written again", "bob", decoded.versionAt( 0 ).modifiedBy() );
+        Assert.assertEquals( "Wrong modifiedBy", "alice", decoded.modifiedBy() );
+    }
+    
+    private static <T> void assertRoundTrip( ValueCodec<T> codec, T value ) throws Exception {
+        Prop<T> prop = new Prop( "Parent", value, true );
+        prop.set( value, "user", 1234567890123L );
+        
+        ByteBuffer buffer = ByteBuffer.allocate( 256 );
+        new PropEncoder( buffer ).write( prop, codec );
+        buffer.flip();
+        
+        Prop<T> copy = new PropDecoder( buffer ).read( codec );
+        Assert.assertEquals( "Wrong value", value, copy.get() );
+        Assert.assertEquals( "Wrong version value", value, copy.versionAt( 0 ).value() );
+        Assert.assertEquals( "Wrong timestamp", 1234567890123L, copy.timestamp() );
+        Assert.assertEquals( "Wrong modifiedBy", "user", copy.modifiedBy() );
+    }
+}
@@ -0,0 +1,271 @@
+package props;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PropIndexTest
+{
+    @Test
+    public void testEqualTo() throws Exception {
+        PropIndex<String> index = PropIndex.hash();
+        Prop<String> a = new Prop( null, "open", false );
+        Prop<String> b = new Prop( null, "open", false );
+        Prop<String> c = new Prop( null, "closed", false );
+        index.add( a );
+        index.add( b );
+        index.add( c );
+        index.add( a );
+        
+        Assert.assertEquals( "Wrong size", 3, index.size() );
+        Assert.assertEquals( "Wrong open props", set( a, b ), new HashSet( index.equalTo( "open" ) ) );
+        Assert.assertEquals( "Wrong closed props", set( c ), new HashSet( index.equalTo( "closed" ) ) );
+        Assert.assertTrue( "Unknown value should match nothing", index.equalTo( "shipped" ).isEmpty() );
+        Assert.assertEquals( "Wrong count", 2, index.count( "open" ) );
+        Assert.assertFalse( "Hash index should not be sorted", index.isSorted() );
+    }
+    
+    @Test
+    public void testSetUpdatesIndex() throws Exception {
+        PropIndex<String> index = PropIndex.hash();
+        Prop<String> a = new Prop( null, "open", true );
+        Prop<String> b = new Prop( null, "open", true );
+        index.add( a );
+        index.add( b );
+        
+        a.set( "closed" );
+        Assert.assertEquals( "Wrong open props", set( b ), new HashSet( index.equalTo( "open" ) ) );
+        Assert.assertEquals( "Wrong closed props", set( a ), new HashSet( index.equalTo( "closed" ) ) );
+        
+        b.set( null );
+        Assert.assertTrue( "Null values should not be indexed", index.equalTo( "open" ).isEmpty() );
+        Assert.assertEquals( "Null props should still be in the index", 2, index.size() );
+        Assert.assertTrue( "Null props should still be in the index", index.contains( b ) );
+        
+        b.set( "closed" );
+        Assert.assertEquals( "Wrong closed props", set( a, b ), new HashSet( index.equalTo( "closed" ) ) );
+    }
+    
+    @Test
+    public void testRange() throws Exception {
+        PropIndex<Double> index = PropIndex.sorted();
+        List<Prop<Double>> props = new ArrayList();
+        for( int i = 0; i < 100; i++ ){
+            Prop<Double> prop = new Prop( null, (double)i, false );
+            props.add( prop );
+            index.add( prop );
+        }
+        
+        Assert.assertTrue( "Sorted index should be sorted", index.isSorted() );
+        Assert.assertEquals( "Wrong range", props.subList( 10, 20 ), index.range( 10.0, 20.0 ) );
+        Assert.assertEquals( "Wrong inclusive range", props.subList( 10, 21 ), index.range( 10.0, true, 20.0, true ) );
+        Assert.assertEquals( "Wrong exclusive range", props.subList( 11, 20 ), index.range( 10.0, false, 20.0, false ) );
+        Assert.assertEquals( "Wrong open upper bound", props.subList( 90, 100 ), index.range( 90.0, null ) );
+        Assert.assertEquals( "Wrong open lower bound", props.subList( 0, 5 ), index.range( null, 5.0 ) );
+        Assert.assertEquals( "Wrong equal props", props.subList( 42, 43 ), index.equalTo( 42.0 ) );
+        
+        props.get( 50 ).set( 15.5 );
+        List<Prop<? extends Double>> expected = new ArrayList( props.subList( 10, 16 ) );
+        expected.add( props.get( 50 ) );
+        expected.addAll( props.subList( 16, 20 ) );
+        Assert.assertEquals( "Moved prop should be in its new place", expected, index.range( 10.0, 20.0 ) );
+        Assert.assertTrue( "Moved prop should leave its old place", index.equalTo( 50.0 ).isEmpty() );
+    }
+    
+    @Test
+    public void testComparator() throws Exception {
+        PropIndex<String> index = PropIndex.sorted( String.CASE_INSENSITIVE_ORDER );
+        Prop<String> a = new Prop( null, "Open", false );
+        Prop<String> b = new Prop( null, "open", false );
+        index.add( a );
+        index.add( b );
+        Assert.assertEquals( "Comparator should decide equality", set( a, b ), new HashSet( index.equalTo( "OPEN" ) ) );
+    }
+    
+    @Test( expected = UnsupportedOperationException.class )
+    public void testRangeNeedsSortedIndex() throws Exception {
+        PropIndex.<Integer>hash().range( 1, 2 );
+    }
+    
+    @Test
+    public void testRemove() throws Exception {
+        PropIndex<String> index = PropIndex.hash();
+        Prop<String> a = new Prop( null, "open", false );
+        Prop<String> b = new Prop( null, "open", false );
+        index.add( a );
+        index.add( b );
+        
+        Assert.assertTrue( "Prop should be removed", index.remove( a ) );
+        Assert.assertFalse( "Prop should only be removed once", index.remove( a ) );
+        Assert.assertEquals( "Wrong open props", set( b ), new HashSet( index.equalTo( "open" ) ) );
+        
+        a.set( "closed" );
+        Assert.assertTrue( "Removed props should not update the index", index.equalTo( "closed" ).isEmpty() );
+        Assert.assertEquals( "Wrong size", 1, index.size() );
+    }
+    
+    @Test
+    public void testPrimitiveProps() throws Exception {
+        PropIndex<Integer> index = PropIndex.sorted();
+        IntProp a = new IntProp( 5 );
+        IntProp b = new IntProp( 7 );
+        index.add( a );
+        index.add( b );
+        
+        a.set( 10 );
+        Assert.assertEquals( "Wrong range", list( b, a ), index.range( 6, 11 ) );
+        
+        IntProp replica = new IntProp( 3 );
+        replica.set( 20, null, a.timestamp() + 1 );
+        a.merge( replica );
+        Assert.assertEquals( "Merges should update the index", list( a ), index.equalTo( 20 ) );
+    }
+    
+    @Test
+    public void testMultipleIndexes() throws Exception {
+        PropIndex<String> hash = PropIndex.hash();
+        PropIndex<String> sorted = PropIndex.sorted();
+        Prop<String> prop = new Prop( null, "b", false );
+        hash.add( prop );
+        sorted.add( prop );
+        
+        prop.set( "c" );
+        Assert.assertEquals( "Wrong hash match", list( prop ), hash.equalTo( "c" ) );
+        Assert.assertEquals( "Wrong sorted match", list( prop ), sorted.range( "c", null ) );
+        
+        hash.remove( prop );
+        prop.set( "d" );
+        Assert.assertTrue( "Removed index should not be updated", hash.equalTo( "d" ).isEmpty() );
+        Assert.assertEquals( "Other index should still be updated", list( prop ), sorted.equalTo( "d" ) );
+    }
+    
+    @Test
+    public void testDecode() throws Exception {
+        Prop<String> prop = new Prop( null, "closed", false );
+        ByteBuffer buffer = ByteBuffer.allocate( 256 );
+        new PropEncoder( buffer ).write( prop, ValueCodecs.STRING );
+        buffer.flip();
+        
+        PropIndex<String> index = PropIndex.hash();
+        Prop<String> into = new Prop( null, "open", false );
+        index.add( into );
+        new PropDecoder( buffer ).read( into, ValueCodecs.STRING );
+        Assert.assertEquals( "Decoded value should be indexed", list( into ), index.equalTo( "closed" ) );
+        Assert.assertTrue( "Replaced value should not be indexed", index.equalTo( "open" ).isEmpty() );
+    }
+    
+    @Test( timeout = 10000 )
+    public void testDirtyComputedProp() throws Exception {
+        Prop<Integer> base = new Prop( null, 1, false );
+        ComputedProp<Integer> doubled = new ComputedProp( () -> base.get() * 2, base );
+        Assert.assertTrue( "ComputedProp should not be computed yet", doubled.isDirty() );
+        
+        //computing the value writes it, which updates the index being added to
+        PropIndex<Integer> index = PropIndex.hash();
+        index.add( doubled );
+        Assert.assertEquals( "Computed value should be indexed", list( doubled ), index.equalTo( 2 ) );
+    }
+    
+    @Test
+    public void testComputedPropFollowsDependencies() throws Exception {
+        Prop<Integer> base = new Prop( null, 1, false );
+        ComputedProp<Integer> doubled = new ComputedProp( () -> base.get() * 2, base );
+        PropIndex<Integer> index = PropIndex.hash();
+        index.add( doubled );
+        
+        //nothing reads doubled, and it has no listeners
+        base.set( 5 );
+        Assert.assertEquals( "Index should follow the computed value", 1, index.count( 10 ) );
+        Assert.assertEquals( "Old computed value should not be indexed", 0, index.count( 2 ) );
+        
+        try( Batch batch = Batch.open() ){
+            base.set( 7 );
+            base.set( 8 );
+        }
+        Assert.assertEquals( "Index should be updated when the batch closes", list( doubled ), index.equalTo( 16 ) );
+    }
+    
+    @Test
+    public void testListenersSeeUpdatedIndex() throws Exception {
+        Prop<Integer> base = new Prop( null, 1, false );
+        PropIndex<Integer> index = PropIndex.hash();
+        index.add( base );
+        ComputedProp<Integer> doubled = new ComputedProp( () -> base.get() * 2, base );
+        List<Integer> counts = new ArrayList();
+        doubled.addListener( event -> counts.add( index.count( base.get() ) ) );
+        base.addListener( event -> counts.add( index.count( base.get() ) ) );
+        
+        base.set( 5 );
+        Assert.assertEquals( "Listeners should see the index updated", list( base ), index.equalTo( 5 ) );
+        Assert.assertEquals( "Every listener should find the new value", Arrays.asList( 1, 1 ), counts );
+    }
+    
+    @Test
+    public void testConcurrentWrites() throws Exception {
+        final int THREADS = 4;
+        final int WRITES = 20000;
+        final PropIndex<Integer> index = PropIndex.sorted();
+        final List<ConcurrentProp<Integer>> props = new ArrayList();
+        for( int i = 0; i < 64; i++ ){
+            ConcurrentProp<Integer> prop = new ConcurrentProp( null, 0, false );
+            props.add( prop );
+            index.add( prop );
+        }
+        
+        final CountDownLatch start = new CountDownLatch( 1 );
+        Thread[] writers = new Thread[ THREADS ];
+        for( int t = 0; t < THREADS; t++ ){
+            final int seed = t;
+            writers[ t ] = new Thread( () -> {
+                Random random = new Random( seed );
+                try{
+                    start.await();
+                }
+                catch( InterruptedException ex ){
+                    return;
+                }
+                for( int i = 0; i < WRITES; i++ ){
+                    ConcurrentProp<Integer> prop = props.get( random.nextInt( props.size() ) );
+                    if( i % 3 == 0 ){
+                        prop.getAndUpdate( value -> value + 1 );
+                    }
+                    else{
+                        prop.set( random.nextInt( 100 ) );
+                    }
+                }
+            } );
+            writers[ t ].start();
+        }
+        start.countDown();
+        for( Thread writer : writers ){
+            writer.join();
+        }
+        
+        Assert.assertEquals( "Every prop should be indexed once", props.size(), index.range( null, null ).size() );
+        for( ConcurrentProp<Integer> prop : props ){
+            Assert.assertTrue( "Prop should be indexed under its latest value", index.equalTo( prop.get() ).contains( prop ) );
+        }
+    }
+    
+    private static HashSet<Prop<?>> set( Prop<?>... props ){
+        HashSet<Prop<?>> set = new HashSet();
+        for( Prop<?> prop : props ){
+            set.add( prop );
+        }
+        return set;
+    }
+    
+    private static List<Prop<?>> list( Prop<?>... props ){
+        List<Prop<?>> list = new ArrayList();
+        for( Prop<?> prop : props ){
+            list.add( prop );
+        }
+        return list;
+    }
+}
@@ -0,0 +1,290 @@
+package props;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PropJournalTest
+{
+    private Path directory;
+    
+    @Before
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory( "journal" );
+    }
+    
+    @After
+    public void tearDown() throws Exception {
+        for( File file : directory.toFile().listFiles() ){
+            file.delete();
+        }
+        Files.delete( directory );
+    }
+    
+    @Test
+    public void testRecovery() throws Exception {
+        PropJournal journal = new PropJournal( directory );
+        Prop<String> prop = new Prop( null, "Thomas", true );
+        prop.uuid( "8d3cd4a3-3c11-4e0e-9c54-42fb26b4d2f1" );
+        journal.attach( prop, ValueCodecs.STRING );
+        prop.set( "AJ", "user1", 100 );
+        prop.set( null, "user2", 200 );
+        prop.set( "Sue", null, 300 );
+        
+        List<Version<String>> versions = prop.versions();
+        Assert.assertEquals( "Wrong version count", 3, versions.size() );
+        Assert.assertEquals( "Wrong version value", "Thomas", versions.get( 0 ).value() );
+        Assert.assertNull( "Wrong version value", versions.get( 2 ).value() );
+        Assert.assertEquals( "Wrong version user", "user2", versions.get( 2 ).modifiedBy() );
+        journal.close();
+        
+        journal = new PropJournal( directory );
+        Assert.assertTrue( "Missing uuid", journal.uuids().contains( prop.uuid() ) );
+        Prop<String> recovered = new Prop( null, "Default", true );
+        recovered.uuid( prop.uuid() );
+        DefaultPropListener listener = new DefaultPropListener();
+        recovered.addListener( listener );
+        journal.attach( recovered, ValueCodecs.STRING );
+        
+        Assert.assertEquals( "Listeners should not be notified", 0, listener.count() );
+        Assert.assertEquals( "Wrong value", "Sue", recovered.get() );
+        Assert.assertEquals( "Wrong timestamp", 300, recovered.timestamp() );
+        Assert.assertNull( "Wrong modifiedBy", recovered.modifiedBy() );
+        Assert.assertEquals( "Wrong versions", versions, recovered.versions() );
+        
+        recovered.set( "Jane", "user3", 400 );
+        Assert.assertEquals( "Wrong version count", 4, recovered.versionCount() );
+        Assert.assertEquals( "Wrong version value", "Sue", recovered.versionAt( 3 ).value() );
+        journal.close();
+        
+        try{
+            recovered.versions();
+            Assert.fail( "Reading from a closed journal should fail" );
+        }
+        catch( IllegalStateException ex ){
+        }
+    }
+    
+    @Test
+    public void testRolling() throws Exception {
+        PropJournal journal = new PropJournal( directory, 1024 );
+        IntProp prop = new IntProp( null, null, true );
+        journal.attach( prop, ValueCodecs.INTEGER );
+        for( int i = 0; i < 500; i++ ){
+            prop.set( i, "user" + ( i % 5 ), i );
+        }
+        
+        Assert.assertTrue( "Segments should roll", journal.segmentCount() > 1 );
+        Assert.assertEquals( "Wrong version count", 499, prop.versionCount() );
+        Assert.assertEquals( "Wrong version value", 123, prop.valueAt( 123 ) );
+        journal.close();
+        
+        journal = new PropJournal( directory, 1024 );
+        IntProp recovered = new IntProp();
+        recovered.uuid( prop.uuid() );
+        journal.attach( recovered, ValueCodecs.INTEGER );
+        Assert.assertEquals( "Wrong value", 499, recovered.getAsInt() );
+        Assert.assertEquals( "Wrong versions", prop.versionCount(), recovered.versionCount() );
+        Assert.assertEquals( "Wrong version value", 498, recovered.valueAt( 498 ) );
+        Assert.assertEquals( "Wrong version user", "user3", recovered.versionAt( 498 ).modifiedBy() );
+        journal.close();
+    }
+    
+    @Test
+    public void testCompaction() throws Exception {
+        PropJournal journal = new PropJournal( directory, 1024 );
+        ConcurrentProp<Long> prop = new ConcurrentProp();
+        prop.retention( RetentionPolicy.lastVersions( 2 ) );
+        journal.attach( prop, ValueCodecs.LONG );
+        Prop<String> other = new Prop( null, "other", true );
+        other.uuid( "not-a-uuid" );
+        journal.attach( other, ValueCodecs.STRING );
+        
+        for( long i = 0; i < 300; i++ ){
+            prop.set( i, "user", i );
+        }
+        Assert.assertEquals( "Wrong version count", 2, prop.versionCount() );
+        
+        long size = journal.size();
+        journal.compact();
+        Assert.assertEquals( "Wrong segment count", 1, journal.segmentCount() );
+        Assert.assertTrue( "Compaction should reclaim space", journal.size() < size / 10 );
+        Assert.assertEquals( "Wrong version value", Long.valueOf( 297 ), prop.versionAt( 0 ).value() );
+        
+        prop.set( 300L, "user", 300 );
+        journal.close();
+        
+        journal = new PropJournal( directory, 1024 );
+        ConcurrentProp<Long> recovered = new ConcurrentProp();
+        recovered.uuid( prop.uuid() );
+        journal.attach( recovered, ValueCodecs.LONG );
+        Assert.assertEquals( "Wrong value", Long.valueOf( 300 ), recovered.get() );
+        //the retention policy is not stored in the journal
+        Assert.assertEquals( "Wrong version count", 3, recovered.versionCount() );
+        Assert.assertEquals( "Wrong version value", Long.valueOf( 297 ), recovered.versionAt( 0 ).value() );
+        
+        Prop<String> otherRecovered = new Prop();
+        otherRecovered.uuid( "not-a-uuid" );
+        journal.attach( otherRecovered, ValueCodecs.STRING );
+        Assert.assertEquals( "Wrong value", "other", otherRecovered.get() );
+        journal.close();
+    }
+    
+    @Test
+    public void testTornWrite() throws Exception {
+        PropJournal journal = new PropJournal( directory );
+        Prop<String> prop = new Prop( null, null, true );
+        journal.attach( prop, ValueCodecs.STRING );
+        prop.set( "one", "user", 1 );
+        prop.set( "two", "user", 2 );
+        long size = journal.size();
+        journal.close();
+        
+        //corrupts the last byte of the last record
+        File segment = directory.toFile().listFiles()[0];
+        try( RandomAccessFile file = new RandomAccessFile( segment, "rw" ) ){
+            long last = PropJournal.SEGMENT_HEADER_SIZE + size - 1;
+            file.seek( last );
+            byte b = file.readByte();
+            file.seek( last );
+            file.writeByte( b ^ 0xFF );
+        }
+        
+        journal = new PropJournal( directory );
+        Prop<String> recovered = new Prop();
+        recovered.uuid( prop.uuid() );
+        journal.attach( recovered, ValueCodecs.STRING );
+        Assert.assertEquals( "Wrong value", "one", recovered.get() );
+        Assert.assertEquals( "Wrong version count", 0, recovered.versionCount() );
+        
+        recovered.set( "three", "user", 3 );
+        journal.close();
+        
+        journal = new PropJournal( directory );
+        recovered = new Prop();
+        recovered.uuid( prop.uuid() );
+        journal.attach( recovered, ValueCodecs.STRING );
+        Assert.assertEquals( "Wrong value", "three", recovered.get() );
+        Assert.assertEquals( "Wrong version value", "one", recovered.versionAt( 0 ).value() );
+        journal.close();
+    }
+    
+    @Test
+    public void testStaysAttached() throws Exception {
+        PropJournal journal = new PropJournal( directory );
+        Prop<String> prop = new Prop( null, "one", true );
+        prop.uuid( "0f4e3cb5-8d51-4a43-9a80-07a0c5e39a29" );
+        journal.attach( prop, ValueCodecs.STRING );
+        prop.retention( RetentionPolicy.lastVersions( 2 ) );
+        prop.set( "two" );
+        prop.set( "three" );
+        prop.set( "four" );
+        Assert.assertEquals( "Retention should still apply", 2, prop.versionCount() );
+        
+        Prop<String> other = new Prop( null, "other", true );
+        ByteBuffer buffer = ByteBuffer.allocate( 256 );
+        new PropEncoder( buffer ).write( other, ValueCodecs.STRING );
+        buffer.flip();
+        try{
+            new PropDecoder( buffer ).read( prop, ValueCodecs.STRING );
+            Assert.fail( "Decoding into a journaled property should fail" );
+        }
+        catch( IllegalStateException ex ){
+        }
+        Assert.assertEquals( "Failed decode should leave the property alone", "four", prop.get() );
+        Assert.assertEquals( "Failed decode should leave the uuid alone", "0f4e3cb5-8d51-4a43-9a80-07a0c5e39a29", prop.uuid() );
+        journal.close();
+        
+        journal = new PropJournal( directory );
+        Prop<String> recovered = new Prop( null, null, true );
+        recovered.uuid( prop.uuid() );
+        journal.attach( recovered, ValueCodecs.STRING );
+        Assert.assertEquals( "Writes after the retention change should be journaled", "four", recovered.get() );
+        journal.close();
+    }
+    
+    @Test
+    public void testDigest() throws Exception {
+        PropJournal journal = new PropJournal( directory );
+        Prop<String> journaled = new Prop( null, null, true );
+        journaled.uuid( "5b0a4d3e-54c1-4f7a-8d6e-2f1c9b7a3e10" );
+        journaled.retention( RetentionPolicy.lastVersions( 3 ) );
+        journal.attach( journaled, ValueCodecs.STRING );
+        Prop<String> heap = new Prop( null, null, true );
+        heap.retention( RetentionPolicy.lastVersions( 3 ) );
+        
+        for( int i = 0; i < 10; i++ ){
+            journaled.set( "v" + i, "user" + ( i % 2 ), i );
+            heap.set( "v" + i, "user" + ( i % 2 ), i );
+            Assert.assertEquals( "Journaled digest should match the heap digest", PropMerge.digest( heap ), PropMerge.digest( journaled ) );
+        }
+        journal.close();
+    }
+    
+    @Test
+    public void testAttachWhileWriting() throws Exception {
+        final int THREADS = 4;
+        PropJournal journal = new PropJournal( directory );
+        final ConcurrentProp<Integer> prop = new ConcurrentProp( null, -1, true );
+        prop.uuid( "3e9b7c1d-2a4f-4b6e-8c0d-5f1a7e9b3c2d" );
+        
+        final AtomicInteger writes = new AtomicInteger();
+        final AtomicBoolean attached = new AtomicBoolean();
+        Thread[] writers = new Thread[ THREADS ];
+        for( int t = 0; t < THREADS; t++ ){
+            writers[ t ] = new Thread( () -> {
+                //keep writing for a while after the attach as well
+                int after = 0;
+                while( after < 1000 ){
+                    prop.set( writes.incrementAndGet() );
+                    if( attached.get() ){
+                        after++;
+                    }
+                }
+            } );
+            writers[ t ].start();
+        }
+        while( writes.get() < 10000 ){
+            Thread.yield();
+        }
+        journal.attach( prop, ValueCodecs.INTEGER );
+        attached.set( true );
+        for( Thread writer : writers ){
+            writer.join();
+        }
+        
+        //the initial value and every write but the last are versions
+        Assert.assertEquals( "No write should be lost while attaching", writes.get(), prop.versionCount() );
+        Integer last = prop.get();
+        journal.close();
+        
+        journal = new PropJournal( directory );
+        ConcurrentProp<Integer> recovered = new ConcurrentProp( null, null, true );
+        recovered.uuid( prop.uuid() );
+        journal.attach( recovered, ValueCodecs.INTEGER );
+        Assert.assertEquals( "Every write should be journaled", writes.get(), recovered.versionCount() );
+        Assert.assertEquals( "Wrong recovered value", last, recovered.get() );
+        journal.close();
+    }
+    
+    @Test( expected = IllegalArgumentException.class )
+    public void testNotRecording() throws IOException {
+        PropJournal journal = new PropJournal( directory );
+        try{
+            journal.attach( new Prop( null, null, false ), ValueCodecs.STRING );
+        }
+        finally{
+            journal.close();
+        }
+    }
+}
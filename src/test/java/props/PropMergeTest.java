@@ -0,0 +1,279 @@
+package props;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PropMergeTest
+{
+    @Test
+    public void testLastWriterWins() throws Exception {
+        Prop<String> a = new Prop( null, null, true );
+        Prop<String> b = new Prop( null, null, true );
+        DefaultPropListener listener = new DefaultPropListener();
+        a.addListener( listener );
+        
+        a.set( "Thomas", "AJ", 1 );
+        b.set( "Jacob", "Sue", 2 );
+        
+        Assert.assertTrue( "Newer version should win", a.merge( b ) );
+        Assert.assertEquals( "Wrong value", "Jacob", a.get() );
+        Assert.assertEquals( "Wrong timestamp", 2, a.timestamp() );
+        Assert.assertEquals( "Wrong modifiedBy", "Sue", a.modifiedBy() );
+        Assert.assertEquals( "Listener should be notified", 2, listener.count() );
+        Assert.assertEquals( "Losing version should be recorded", "Thomas", a.versionAt( 0 ).value() );
+        
+        Assert.assertFalse( "Older version should lose", b.merge( a ) );
+        Assert.assertEquals( "Wrong value", "Jacob", b.get() );
+        Assert.assertEquals( "Histories should converge", a.versions(), b.versions() );
+        Assert.assertFalse( "Merging again should do nothing", a.merge( b ) );
+        Assert.assertEquals( "Merging again should not record", 1, a.versionCount() );
+    }
+    
+    @Test
+    public void testTieBreaking() throws Exception {
+        Prop<String> a = new Prop( null, null, true );
+        Prop<String> b = new Prop( null, null, true );
+        a.set( "Thomas", "AJ", 5 );
+        b.set( "Jacob", "Sue", 5 );
+        
+        Prop<String> c = new Prop( null, null, true );
+        Prop<String> d = new Prop( null, null, true );
+        c.set( "Thomas", "AJ", 5 );
+        d.set( "Jacob", "Sue", 5 );
+        
+        a.merge( b );
+        d.merge( c );
+        Assert.assertEquals( "Replicas should pick the same winner", a.get(), d.get() );
+        Assert.assertEquals( "Greater modifiedBy should win", "Sue", a.modifiedBy() );
+        
+        Assert.assertTrue( "Unset should lose", PropMerge.compare( null, a.currentVersion() ) < 0 );
+        Assert.assertEquals( "Equal versions should tie", 0, PropMerge.compare( new Version( "x", 1, "y" ), new Version( "x", 1, "y" ) ) );
+        Version first = new Version( "x", 1, "y" );
+        Version second = new Version( "z", 1, "y" );
+        Assert.assertEquals( "Ties should be antisymmetric", -PropMerge.compare( first, second ), PropMerge.compare( second, first ) );
+    }
+    
+    @Test
+    public void testTieBreakingCollidingValues() throws Exception {
+        Version<Collider> low = new Version( new Collider( 1 ), 5, "AJ" );
+        Version<Collider> high = new Version( new Collider( 2 ), 5, "AJ" );
+        Assert.assertTrue( "Comparable values should break the tie", PropMerge.compare( low, high ) < 0 );
+        Assert.assertTrue( "Comparable values should break the tie", PropMerge.compare( high, low ) > 0 );
+        
+        Prop<Collider> a = new Prop( null, null, true );
+        Prop<Collider> b = new Prop( null, null, true );
+        a.set( low.value(), "AJ", 5 );
+        b.set( high.value(), "AJ", 5 );
+        a.merge( b );
+        b.merge( a );
+        Assert.assertSame( "Replicas should pick the same winner", a.get(), b.get() );
+        
+        Version<Object> other = new Version( new OtherCollider(), 5, "AJ" );
+        Assert.assertTrue( "Classes should break the tie", PropMerge.compare( (Version)low, other ) != 0 );
+        Assert.assertEquals( "Ties should be antisymmetric", -PropMerge.compare( (Version)low, other ), PropMerge.compare( other, (Version)low ) );
+    }
+    
+    @Test
+    public void testHistoriesMergeAsSortedRuns() throws Exception {
+        Prop<Integer> a = new Prop( null, null, true );
+        Prop<Integer> b = new Prop( null, null, true );
+        for( int i = 0; i < 10; i++ ){
+            if( i % 2 == 0 ){
+                a.set( i, "a", i );
+            }
+            else{
+                b.set( i, "b", i );
+            }
+        }
+        
+        a.merge( b );
+        b.merge( a );
+        Assert.assertEquals( "Wrong value", 9, (int)a.get() );
+        Assert.assertEquals( "Replicas should converge", a.versions(), b.versions() );
+        List<Integer> values = new ArrayList();
+        for( Version<Integer> version : a.versions() ){
+            values.add( version.value() );
+        }
+        Assert.assertEquals( "Histories should interleave", Arrays.asList( 0, 1, 2, 3, 4, 5, 6, 7, 8 ), values );
+    }
+    
+    @Test
+    public void testMergeIsCommutative() throws Exception {
+        Prop<String>[] replicas = new Prop[ 3 ];
+        for( int i = 0; i < replicas.length; i++ ){
+            replicas[ i ] = new Prop( null, null, true );
+            replicas[ i ].set( "v" + i, "node" + i, 10 + i % 2 );
+            replicas[ i ].set( "w" + i, "node" + i, 20 - i );
+        }
+        Prop<String> forward = new Prop( null, null, true );
+        Prop<String> backward = new Prop( null, null, true );
+        for( int i = 0; i < replicas.length; i++ ){
+            forward.merge( replicas[ i ] );
+            backward.merge( replicas[ replicas.length - 1 - i ] );
+        }
+        Assert.assertEquals( "Wrong winner", "w0", forward.get() );
+        Assert.assertEquals( "Order should not matter", forward.currentVersion(), backward.currentVersion() );
+        Assert.assertEquals( "Order should not matter", forward.versions(), backward.versions() );
+        Assert.assertEquals( "Wrong digest", PropMerge.digest( forward ), PropMerge.digest( backward ) );
+    }
+    
+    @Test
+    public void testDigestCoversEveryVersion() throws Exception {
+        Prop<String> a = new Prop( null, null, true );
+        Prop<String> b = new Prop( null, null, true );
+        a.set( "p", "node", 1 );
+        a.set( "q", "node", 5 );
+        a.set( "s", "node", 9 );
+        b.set( "r", "node", 2 );
+        b.set( "q", "node", 5 );
+        b.set( "s", "node", 9 );
+        Assert.assertNotEquals( "Different older versions should change the digest", PropMerge.digest( a ), PropMerge.digest( b ) );
+        
+        Assert.assertEquals( "Differing replicas should be merged", 1, PropMerge.sync( Arrays.asList( a ), Arrays.asList( b ) ) );
+        Assert.assertEquals( "Histories should converge", a.versions(), b.versions() );
+        Assert.assertEquals( "Merged replicas should have the same digest", PropMerge.digest( a ), PropMerge.digest( b ) );
+        Assert.assertEquals( "Converged replicas should not be merged again", 0, PropMerge.sync( Arrays.asList( a ), Arrays.asList( b ) ) );
+    }
+    
+    @Test
+    public void testDigestFollowsRetention() throws Exception {
+        RetentionPolicy[] policies = { RetentionPolicy.lastVersions( 3 ), RetentionPolicy.downsampled( 2, 10, 5 ) };
+        for( RetentionPolicy policy : policies ){
+            IntProp trimmed = new IntProp();
+            trimmed.retention( policy );
+            for( int i = 0; i < 100; i++ ){
+                trimmed.set( i, "user" + ( i % 3 ), i );
+            }
+            
+            //the same versions, recorded without anything to discard
+            IntProp rebuilt = new IntProp();
+            for( Version<Integer> version : trimmed.versions() ){
+                rebuilt.set( version.value(), version.modifiedBy(), version.timestamp() );
+            }
+            rebuilt.set( trimmed.get(), trimmed.modifiedBy(), trimmed.timestamp() );
+            Assert.assertEquals( "Wrong history", trimmed.versions(), rebuilt.versions() );
+            Assert.assertEquals( "Discarded versions should leave the digest", PropMerge.digest( rebuilt ), PropMerge.digest( trimmed ) );
+        }
+    }
+    
+    @Test
+    public void testRetainedVersionsAreNotResurrected() throws Exception {
+        Prop<Integer> a = new Prop( null, null, true );
+        a.retention( RetentionPolicy.lastVersions( 2 ) );
+        Prop<Integer> b = new Prop( null, null, true );
+        for( int i = 0; i < 6; i++ ){
+            a.set( i, "a", i );
+            b.set( i, "a", i );
+        }
+        b.set( 6, "b", 6 );
+        
+        a.merge( b );
+        Assert.assertEquals( "Wrong value", 6, (int)a.get() );
+        Assert.assertEquals( "Wrong version count", 2, a.versionCount() );
+        Assert.assertEquals( "Wrong oldest version", 4, (int)a.versionAt( 0 ).value() );
+    }
+    
+    @Test
+    public void testPrimitiveAndConcurrentProps() throws Exception {
+        IntProp a = new IntProp( null, null, true );
+        IntProp b = new IntProp( null, null, true );
+        List<Integer> seen = new ArrayList();
+        a.addListener( ( IntPropListener )( property, value, previousValue ) -> seen.add( value ) );
+        a.set( 1, "a", 1 );
+        b.set( 2, "b", 2 );
+        a.merge( b );
+        Assert.assertEquals( "Wrong primitive value", 2, a.getAsInt() );
+        Assert.assertEquals( "Primitive listener should be notified", Arrays.asList( 1, 2 ), seen );
+        
+        ConcurrentProp<String> c = new ConcurrentProp();
+        ConcurrentProp<String> d = new ConcurrentProp();
+        c.set( "Thomas", "c", 1 );
+        d.set( "Jacob", "d", 2 );
+        c.merge( d );
+        Assert.assertEquals( "Wrong current version", d.current(), c.current() );
+        Assert.assertEquals( "Wrong concurrent history", "Thomas", c.versionAt( 0 ).value() );
+    }
+    
+    @Test
+    public void testMergeUpdatesHybridLogicalClock() throws Exception {
+        HybridLogicalClock behind = new HybridLogicalClock( 1, () -> 1000 );
+        HybridLogicalClock ahead = new HybridLogicalClock( 2, () -> 5000 );
+        Prop<String> a = new Prop( null, null, true );
+        Prop<String> b = new Prop( null, null, true );
+        a.clock( behind );
+        b.clock( ahead );
+        
+        b.set( "Jacob" );
+        a.merge( b );
+        a.set( "Thomas" );
+        Assert.assertTrue( "Local write should follow the merged one", a.timestamp() > b.timestamp() );
+        b.merge( a );
+        Assert.assertEquals( "Later local write should win", "Thomas", b.get() );
+    }
+    
+    @Test
+    public void testAntiEntropy() throws Exception {
+        PropertyModel<Pojo> model = PropertyModel.of( Pojo.class );
+        Pojo local = new Pojo();
+        Pojo remote = new Pojo();
+        local.name.set( "Thomas", "local", 1 );
+        remote.name.set( "Thomas", "local", 1 );
+        local.age.set( 7, "local", 2 );
+        remote.age.set( 8, "remote", 3 );
+        
+        long[] localDigests = model.digests( local );
+        long[] remoteDigests = model.digests( remote );
+        Assert.assertArrayEquals( "Only age should differ", new int[]{ model.indexOf( "age" ) }, PropMerge.differences( localDigests, remoteDigests ) );
+        
+        Assert.assertEquals( "Wrong number of merged props", 1, model.sync( local, remote ) );
+        Assert.assertEquals( "Wrong merged value", 8, (int)local.age.get() );
+        Assert.assertEquals( "Wrong merged history", 7, (int)remote.age.versionAt( 0 ).value() );
+        Assert.assertArrayEquals( "Replicas should converge", model.digests( local ), model.digests( remote ) );
+        Assert.assertEquals( "Converged replicas should not merge", 0, model.sync( local, remote ) );
+    }
+    
+    //values that differ but share a hash code and a string
+    private static final class Collider implements Comparable<Collider>
+    {
+        private final int value;
+        
+        Collider( int value ){
+            this.value = value;
+        }
+        
+        public int compareTo( Collider other ){
+            return Integer.compare( value, other.value );
+        }
+        
+        @Override
+        public boolean equals( Object other ){
+            return other instanceof Collider && ((Collider)other).value == value;
+        }
+        
+        @Override
+        public int hashCode(){
+            return 0;
+        }
+        
+        @Override
+        public String toString(){
+            return "collider";
+        }
+    }
+    
+    private static final class OtherCollider
+    {
+        @Override
+        public int hashCode(){
+            return 0;
+        }
+        
+        @Override
+        public String toString(){
+            return "collider";
+        }
+    }
+}
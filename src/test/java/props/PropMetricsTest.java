@@ -0,0 +1,135 @@
+package props;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PropMetricsTest
+{
+    @Test
+    public void testCounters() throws Exception {
+        PropMetrics metrics = new PropMetrics();
+        Prop<String> name = new Prop( null, null, true );
+        IntProp age = new IntProp( null, null, true );
+        name.metrics( metrics );
+        age.metrics( metrics );
+        Assert.assertSame( "Wrong metrics", metrics, name.metrics() );
+        Assert.assertEquals( "Wrong property count", 2, metrics.getProperties() );
+        
+        DefaultPropListener listener = new DefaultPropListener();
+        name.addListener( listener );
+        name.addListener( new DefaultPropListener() );
+        
+        name.set( "Thomas" );
+        name.set( "Jacob" );
+        age.set( 1 );
+        age.set( 2 );
+        age.set( 3 );
+        
+        Assert.assertEquals( "Wrong set count", 5, metrics.getSets() );
+        Assert.assertEquals( "Wrong event count", 2, metrics.getEvents() );
+        Assert.assertEquals( "Wrong recorded version count", 3, metrics.getVersionsRecorded() );
+        Assert.assertEquals( "Wrong history size", 3, metrics.getHistorySize() );
+        
+        ListenerLatency latency = metrics.latency( DefaultPropListener.class );
+        Assert.assertEquals( "Wrong listener", DefaultPropListener.class.getName(), latency.getListener() );
+        Assert.assertEquals( "Wrong notification count", 4, latency.getCount() );
+        Assert.assertTrue( "Wrong maximum", latency.getMaxNanos() <= latency.getTotalNanos() );
+        Assert.assertTrue( "Wrong percentile", latency.getP50Nanos() <= latency.getP99Nanos() );
+        Assert.assertEquals( "Listener should not be slow", 0, latency.getSlowCount() );
+        
+        age.retention( RetentionPolicy.lastVersions( 1 ) );
+        Assert.assertEquals( "Wrong history size after retention", 2, metrics.getHistorySize() );
+        
+        name.metrics( null );
+        name.set( "Thomas" );
+        Assert.assertEquals( "Property should no longer be counted", 5, metrics.getSets() );
+        Assert.assertEquals( "Wrong property count", 1, metrics.getProperties() );
+        
+        metrics.reset();
+        Assert.assertEquals( "Sets should be reset", 0, metrics.getSets() );
+        Assert.assertEquals( "Latency should be reset", 0, latency.getCount() );
+    }
+    
+    @Test
+    public void testSlowListener() throws Exception {
+        PropMetrics metrics = new PropMetrics( 5, TimeUnit.MILLISECONDS );
+        Prop<Integer> prop = new Prop( null, 0, false );
+        prop.metrics( metrics );
+        prop.addListener( new SlowListener() );
+        prop.addWeakListener( new DefaultPropListener() );
+        
+        prop.set( 1 );
+        prop.set( 2 );
+        
+        Assert.assertEquals( "Wrong slow notification count", 2, metrics.getSlowNotifications() );
+        Assert.assertEquals( "Wrong slow count", 2, metrics.latency( SlowListener.class ).getSlowCount() );
+        Assert.assertTrue( "Wrong maximum", metrics.latency( SlowListener.class ).getMaxNanos() >= TimeUnit.MILLISECONDS.toNanos( 10 ) );
+        Assert.assertTrue( "Wrong percentile", metrics.latency( SlowListener.class ).getP99Nanos() >= TimeUnit.MILLISECONDS.toNanos( 10 ) );
+        Assert.assertNotNull( "Weak listeners should be named after the listener", metrics.latency( DefaultPropListener.class ) );
+    }
+    
+    @Test
+    public void testAsyncListeners() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try{
+            AsyncDispatcher dispatcher = new AsyncDispatcher( executor, 100, BackpressurePolicy.BLOCK );
+            PropMetrics metrics = new PropMetrics();
+            Prop<Integer> prop = new Prop( null, 0, false );
+            prop.metrics( metrics );
+            prop.dispatcher( dispatcher );
+            prop.addListener( new DefaultPropListener() );
+            
+            for( int i = 0; i < 10; i++ ){
+                prop.set( i );
+            }
+            Assert.assertTrue( "Events were not delivered", dispatcher.awaitIdle( 10, TimeUnit.SECONDS ) );
+            Assert.assertEquals( "Wrong notification count", 10, metrics.latency( DefaultPropListener.class ).getCount() );
+        }
+        finally{
+            executor.shutdownNow();
+        }
+    }
+    
+    @Test
+    public void testJmx() throws Exception {
+        PropMetrics metrics = new PropMetrics().register( "PropMetricsTest" );
+        try{
+            Prop<Integer> prop = new Prop( null, 0, true );
+            prop.metrics( metrics );
+            prop.addListener( new DefaultPropListener() );
+            prop.set( 1 );
+            
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName( "props:type=PropMetrics,name=\"PropMetricsTest\"" );
+            Assert.assertEquals( "Wrong set count", 1L, server.getAttribute( name, "Sets" ) );
+            Assert.assertEquals( "Wrong history size", 1L, server.getAttribute( name, "HistorySize" ) );
+            
+            CompositeData[] listeners = (CompositeData[])server.getAttribute( name, "Listeners" );
+            Assert.assertEquals( "Wrong listener count", 1, listeners.length );
+            Assert.assertEquals( "Wrong listener", DefaultPropListener.class.getName(), listeners[0].get( "listener" ) );
+            Assert.assertEquals( "Wrong notification count", 1L, listeners[0].get( "count" ) );
+        }
+        finally{
+            metrics.unregister();
+        }
+    }
+    
+    private static class SlowListener implements PropListener
+    {
+        public void propertyChanged( PropChangedEvent event ){
+            try{
+                Thread.sleep( 10 );
+            }
+            catch( InterruptedException ex ){
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package props;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PropPublisherTest
+{
+    private ExecutorService executor;
+    
+    @Before
+    public void setUp(){
+        executor = Executors.newFixedThreadPool( 4 );
+    }
+    
+    @After
+    public void tearDown(){
+        executor.shutdownNow();
+    }
+    
+    @Test
+    public void testDemand() throws Exception {
+        Prop<Integer> prop = new Prop( null, 0, false );
+        PropPublisher<Integer> publisher = prop.publisher( executor, 100, BackpressurePolicy.BLOCK );
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher.subscribe( subscriber );
+        Assert.assertTrue( "Subscriber was not subscribed", subscriber.subscribed.await( 10, TimeUnit.SECONDS ) );
+        Assert.assertEquals( "Wrong subscriber count", 1, publisher.subscribers() );
+        
+        for( int i = 1; i <= 10; i++ ){
+            prop.set( i );
+        }
+        Thread.sleep( 50 );
+        Assert.assertEquals( "Nothing was requested", 0, subscriber.values.size() );
+        
+        subscriber.request( 3 );
+        subscriber.await( 3 );
+        Thread.sleep( 50 );
+        Assert.assertEquals( "Wrong values", List.of( 1, 2, 3 ), subscriber.values );
+        Assert.assertEquals( "Wrong previous value", (Integer)2, subscriber.events.get( 2 ).previousValue() );
+        
+        subscriber.request( Long.MAX_VALUE );
+        subscriber.request( Long.MAX_VALUE );
+        subscriber.await( 10 );
+        prop.set( 11 );
+        subscriber.await( 11 );
+        for( int i = 0; i < 11; i++ ){
+            Assert.assertEquals( "Events out of order", i + 1, (int)subscriber.values.get( i ) );
+        }
+        
+        subscriber.subscription.cancel();
+        Assert.assertEquals( "Cancelled subscriber should be removed", 0, publisher.subscribers() );
+        Assert.assertEquals( "Cancelled subscriber should stop listening", 0, prop.listeners().length );
+    }
+    
+    @Test
+    public void testLatestOnly() throws Exception {
+        Prop<Integer> prop = new Prop( null, 0, false );
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        prop.publisher( executor, 1, BackpressurePolicy.COALESCE ).subscribe( subscriber );
+        subscriber.subscribed.await( 10, TimeUnit.SECONDS );
+        
+        for( int i = 1; i <= 1000; i++ ){
+            prop.set( i );
+        }
+        subscriber.request( 10 );
+        subscriber.await( 1 );
+        Thread.sleep( 50 );
+        
+        Assert.assertEquals( "Only the latest value should be delivered", List.of( 1000 ), subscriber.values );
+        Assert.assertEquals( "Wrong previous value", (Integer)0, subscriber.events.get( 0 ).previousValue() );
+    }
+    
+    @Test
+    public void testBoundedBuffer() throws Exception {
+        Prop<Integer> prop = new Prop( null, 0, false );
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        prop.publisher( executor, 3, BackpressurePolicy.DROP_OLDEST ).subscribe( subscriber );
+        subscriber.subscribed.await( 10, TimeUnit.SECONDS );
+        
+        for( int i = 1; i <= 1000; i++ ){
+            prop.set( i );
+        }
+        subscriber.request( 10 );
+        subscriber.await( 3 );
+        Thread.sleep( 50 );
+        
+        Assert.assertEquals( "The most recent events should be kept", List.of( 998, 999, 1000 ), subscriber.values );
+    }
+    
+    @Test
+    public void testMergeAndClose() throws Exception {
+        Prop<Integer> a = new Prop( null, 0, false );
+        Prop<Integer> b = new ConcurrentProp( null, 0, false );
+        PropPublisher<Integer> publisher = new PropPublisher( executor, 10, BackpressurePolicy.BLOCK, a, b );
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher.subscribe( subscriber );
+        subscriber.request( Long.MAX_VALUE );
+        subscriber.subscribed.await( 10, TimeUnit.SECONDS );
+        
+        a.set( 1 );
+        b.set( 2 );
+        a.set( 3 );
+        publisher.close();
+        a.set( 4 );
+        
+        Assert.assertTrue( "Subscriber was not completed", subscriber.completed.await( 10, TimeUnit.SECONDS ) );
+        Assert.assertEquals( "Wrong values", List.of( 1, 2, 3 ), subscriber.values );
+        Assert.assertSame( "Wrong property", b, subscriber.events.get( 1 ).property() );
+        Assert.assertEquals( "Closed publisher should stop listening", 0, a.listeners().length );
+        Assert.assertEquals( "Closed publisher should stop listening", 0, b.listeners().length );
+        
+        RecordingSubscriber late = new RecordingSubscriber();
+        publisher.subscribe( late );
+        Assert.assertTrue( "Late subscriber was not completed", late.completed.await( 10, TimeUnit.SECONDS ) );
+    }
+    
+    @Test
+    public void testInvalidRequest() throws Exception {
+        Prop<Integer> prop = new Prop( null, 0, false );
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        prop.publisher( executor, 10, BackpressurePolicy.BLOCK ).subscribe( subscriber );
+        subscriber.subscribed.await( 10, TimeUnit.SECONDS );
+        
+        subscriber.request( 0 );
+        Assert.assertTrue( "Subscriber did not receive an error", subscriber.failed.await( 10, TimeUnit.SECONDS ) );
+        Assert.assertTrue( "Wrong error", subscriber.error instanceof IllegalArgumentException );
+        Assert.assertEquals( "Failed subscriber should stop listening", 0, prop.listeners().length );
+    }
+    
+    private static class RecordingSubscriber implements Flow.Subscriber<PropChangedEvent<Integer>>
+    {
+        private final CountDownLatch subscribed = new CountDownLatch( 1 );
+        private final CountDownLatch completed = new CountDownLatch( 1 );
+        private final CountDownLatch failed = new CountDownLatch( 1 );
+        private final List<PropChangedEvent<Integer>> events = Collections.synchronizedList( new ArrayList() );
+        private final List<Integer> values = Collections.synchronizedList( new ArrayList() );
+        private volatile Flow.Subscription subscription;
+        private volatile Throwable error;
+        
+        public void onSubscribe( Flow.Subscription subscription ){
+            this.subscription = subscription;
+            subscribed.countDown();
+        }
+        
+        public void onNext( PropChangedEvent<Integer> event ){
+            events.add( event );
+            values.add( event.value() );
+        }
+        
+        public void onError( Throwable error ){
+            this.error = error;
+            failed.countDown();
+        }
+        
+        public void onComplete(){
+            completed.countDown();
+        }
+        
+        void request( long n ) throws InterruptedException {
+            subscribed.await( 10, TimeUnit.SECONDS );
+            subscription.request( n );
+        }
+        
+        void await( int count ) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 10000;
+            while( values.size() < count && System.currentTimeMillis() < deadline ){
+                Thread.sleep( 1 );
+            }
+            Assert.assertTrue( "Events were not delivered", values.size() >= count );
+        }
+    }
+}
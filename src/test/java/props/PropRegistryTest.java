@@ -0,0 +1,168 @@
+package props;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PropRegistryTest
+{
+    @Test
+    public void testRegisterAndGet() throws Exception {
+        PropRegistry registry = new PropRegistry();
+        Prop<String> prop = new Prop( null, "Thomas", true );
+        registry.register( prop );
+        
+        UUID uuid = UUID.fromString( prop.uuid() );
+        Assert.assertSame( "Wrong prop by String", prop, registry.get( prop.uuid() ) );
+        Assert.assertNull( "Uuids should be matched by case", registry.get( prop.uuid().toUpperCase() ) );
+        Assert.assertSame( "Wrong prop by UUID", prop, registry.get( uuid ) );
+        Assert.assertSame( "Wrong prop by bits", prop, registry.get( uuid.getMostSignificantBits(), uuid.getLeastSignificantBits() ) );
+        Assert.assertNull( "Unknown uuid should not be found", registry.get( UUID.randomUUID().toString() ) );
+        Assert.assertNull( "Null uuid should not be found", registry.get( (String)null ) );
+        Assert.assertEquals( "Wrong size", 1, registry.size() );
+        
+        registry.unregister( new Prop( null, "Jacob", true ) );
+        Assert.assertSame( "Other props should not unregister", prop, registry.get( prop.uuid() ) );
+        registry.unregister( prop );
+        Assert.assertNull( "Unregistered prop should not be found", registry.get( prop.uuid() ) );
+        Assert.assertEquals( "Wrong size", 0, registry.size() );
+    }
+    
+    @Test
+    public void testNonCanonicalUuids() throws Exception {
+        PropRegistry registry = new PropRegistry();
+        Prop<String> prop = new Prop( null, "Thomas", true );
+        prop.uuid( "order-42/status" );
+        registry.register( prop );
+        
+        Assert.assertSame( "Wrong prop", prop, registry.get( "order-42/status" ) );
+        Assert.assertSame( "Wrong resolved prop", prop, registry.resolve( "order-42/status" )[ 0 ] );
+        registry.unregister( prop );
+        Assert.assertNull( "Unregistered prop should not be found", registry.get( "order-42/status" ) );
+    }
+    
+    @Test
+    public void testUuidsDifferingInCase() throws Exception {
+        PropRegistry registry = new PropRegistry();
+        Prop<String> lower = new Prop( null, "Thomas", true );
+        Prop<String> upper = new Prop( null, "Jacob", true );
+        upper.uuid( lower.uuid().toUpperCase() );
+        registry.register( lower );
+        registry.register( upper );
+        
+        Assert.assertEquals( "Neither prop should replace the other", 2, registry.size() );
+        Assert.assertSame( "Wrong lower case prop", lower, registry.get( lower.uuid() ) );
+        Assert.assertSame( "Wrong upper case prop", upper, registry.get( upper.uuid() ) );
+        Assert.assertSame( "UUID should find the canonical form", lower, registry.get( UUID.fromString( upper.uuid() ) ) );
+        Assert.assertArrayEquals( "Wrong resolved props", new Prop<?>[]{ upper, lower }, registry.resolve( upper.uuid(), lower.uuid() ) );
+        
+        registry.unregister( upper );
+        Assert.assertSame( "Lower case prop should stay registered", lower, registry.get( lower.uuid() ) );
+    }
+    
+    @Test
+    public void testResolve() throws Exception {
+        PropRegistry registry = new PropRegistry( 8 );
+        List<Prop<Integer>> props = new ArrayList();
+        String[] uuids = new String[ 5000 ];
+        for( int i = 0; i < uuids.length; i++ ){
+            Prop<Integer> prop = new Prop( null, i, false );
+            props.add( prop );
+            if( i % 10 != 0 ){
+                registry.register( prop );
+            }
+            uuids[ i ] = prop.uuid();
+        }
+        
+        Prop<?>[] resolved = registry.resolve( uuids );
+        for( int i = 0; i < uuids.length; i++ ){
+            if( i % 10 != 0 ){
+                Assert.assertSame( "Wrong prop at " + i, props.get( i ), resolved[ i ] );
+            }
+            else{
+                Assert.assertNull( "Unregistered prop at " + i, resolved[ i ] );
+            }
+        }
+        Assert.assertEquals( "Wrong size", 4500, registry.size() );
+        
+        long[] bits = new long[ uuids.length * 2 ];
+        for( int i = 0; i < uuids.length; i++ ){
+            UUID uuid = UUID.fromString( uuids[ i ] );
+            bits[ i * 2 ] = uuid.getMostSignificantBits();
+            bits[ i * 2 + 1 ] = uuid.getLeastSignificantBits();
+        }
+        Assert.assertArrayEquals( "Binary resolve should match", resolved, registry.resolve( bits ) );
+    }
+    
+    @Test
+    public void testPropsAreHeldWeakly() throws Exception {
+        PropRegistry registry = new PropRegistry();
+        String[] uuid = new String[ 1 ];
+        WeakReference<Prop<?>> reference = registerCollectable( registry, uuid );
+        
+        for( int i = 0; i < 100 && reference.get() != null; i++ ){
+            System.gc();
+            Thread.sleep( 10 );
+        }
+        Assert.assertNull( "Prop was not collected", reference.get() );
+        Assert.assertNull( "Collected prop should not be found", registry.get( uuid[ 0 ] ) );
+        
+        //the next registration removes the collected entry
+        for( int i = 0; i < 100 && registry.size() > 0; i++ ){
+            Thread.sleep( 10 );
+            registry.unregister( new Prop( null, null, false ) );
+        }
+        Assert.assertEquals( "Collected entry should be removed", 0, registry.size() );
+    }
+    
+    @Test
+    public void testConcurrentRegistration() throws Exception {
+        PropRegistry registry = new PropRegistry( 4 );
+        int threads = 4;
+        int count = 5000;
+        List<List<Prop<Integer>>> registered = new ArrayList();
+        AtomicInteger misses = new AtomicInteger();
+        List<Thread> workers = new ArrayList();
+        for( int t = 0; t < threads; t++ ){
+            List<Prop<Integer>> props = new ArrayList();
+            registered.add( props );
+            Thread worker = new Thread( () -> {
+                for( int i = 0; i < count; i++ ){
+                    Prop<Integer> prop = new Prop( null, i, false );
+                    props.add( prop );
+                    registry.register( prop );
+                    if( registry.get( prop.uuid() ) != prop ){
+                        misses.incrementAndGet();
+                    }
+                    if( i % 2 == 0 ){
+                        registry.unregister( prop );
+                    }
+                }
+            } );
+            workers.add( worker );
+            worker.start();
+        }
+        for( Thread worker : workers ){
+            worker.join();
+        }
+        
+        Assert.assertEquals( "Every registered prop should be found", 0, misses.get() );
+        Assert.assertEquals( "Wrong size", threads * count / 2, registry.size() );
+        for( List<Prop<Integer>> props : registered ){
+            for( int i = 0; i < count; i++ ){
+                Assert.assertSame( "Wrong prop", i % 2 == 0 ? null : props.get( i ), registry.get( props.get( i ).uuid() ) );
+            }
+        }
+    }
+    
+    private static WeakReference<Prop<?>> registerCollectable( PropRegistry registry, String[] uuid ){
+        Prop<String> prop = new Prop( null, "Thomas", false );
+        registry.register( prop );
+        uuid[ 0 ] = prop.uuid();
+        return new WeakReference( prop );
+    }
+}
@@ -1,5 +1,8 @@
 package props;
 
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.UUID;
 import org.joda.time.DateTime;
@@ -298,4 +301,109 @@ public class PropTest
         prop.parent( "12345" );
         Assert.assertEquals( "Wrong parent", "12345", prop.parent() );
     }
+    
+    @Test
+    public void testUuids() throws Exception {
+        Prop<String> first = new Prop();
+        Prop<String> second = new Prop();
+        
+        String uuid = first.uuid();
+        Assert.assertNotNull( "UUID was null", uuid );
+        Assert.assertEquals( "UUID changed between calls", uuid, first.uuid() );
+        Assert.assertNotEquals( "UUIDs were not unique", uuid, second.uuid() );
+        
+        UUID parsed = UUID.fromString( uuid );
+        Assert.assertEquals( "Wrong UUID version", 4, parsed.version() );
+        Assert.assertEquals( "Wrong UUID variant", 2, parsed.variant() );
+        
+        first.uuid( "12345" );
+        Assert.assertEquals( "Wrong uuid", "12345", first.uuid() );
+        
+        Prop<String> unused = new Prop();
+        unused.removeListeners();
+        unused.removeListener( new DefaultPropListener() );
+        Assert.assertNotNull( "Versions were null", unused.versions() );
+        Assert.assertEquals( "Wrong version count", 0, unused.versions().size() );
+    }
+    
+    @Test
+    public void testListenerOrder() throws Exception {
+        final List<String> notified = new ArrayList();
+        PropListener first = new PropListener(){
+            public void propertyChanged( PropChangedEvent event ) {
+                notified.add( "first" );
+            }
+        };
+        PropListener second = new PropListener(){
+            public void propertyChanged( PropChangedEvent event ) {
+                notified.add( "second" );
+            }
+        };
+        
+        final Prop<String> prop = new Prop();
+        prop.addListener( first );
+        prop.addListener( second );
+        prop.addListener( first );
+        
+        prop.set( "Thomas" );
+        Assert.assertEquals( "Wrong notification order", Arrays.asList( "first", "second", "first" ), notified );
+        
+        //removes the earliest registration, as List.remove() did
+        notified.clear();
+        prop.removeListener( first );
+        prop.set( "AJ" );
+        Assert.assertEquals( "Wrong notification order", Arrays.asList( "first", "second" ), notified );
+        
+        //listeners added during a notification are not notified until the next change
+        notified.clear();
+        final DefaultPropListener late = new DefaultPropListener();
+        prop.addListener( new PropListener(){
+            public void propertyChanged( PropChangedEvent event ) {
+                prop.addListener( late );
+            }
+        } );
+        prop.set( "Mary" );
+        Assert.assertEquals( "Wrong notification count", 0, late.count() );
+        prop.set( "Sue" );
+        Assert.assertEquals( "Wrong notification count", 1, late.count() );
+    }
+    
+    @Test
+    public void testModifiedByHistory() throws Exception {
+        Prop<Integer> prop = new Prop();
+        for( int i = 0; i <= 3000; i++ ){
+            //separate instances of each user ID, and some nulls
+            String user = i % 7 == 0 ? null : new String( "user" + ( i % 1500 ) );
+            prop.set( i, user, i );
+        }
+        
+        List<Version<Integer>> versions = prop.versions();
+        Assert.assertEquals( "Wrong version count", 3000, versions.size() );
+        for( int i = 0; i < versions.size(); i++ ){
+            String expected = i % 7 == 0 ? null : "user" + ( i % 1500 );
+            Assert.assertEquals( "Wrong user id", expected, versions.get( i ).modifiedBy() );
+        }
+        Assert.assertSame( "User ids should be shared", versions.get( 1 ).modifiedBy(), versions.get( 1501 ).modifiedBy() );
+    }
+    
+    @Test
+    public void testModifiedByReleased() throws Exception {
+        Prop<Integer> prop = new Prop();
+        prop.retention( RetentionPolicy.lastVersions( 4 ) );
+        String user = new String( "departed" );
+        WeakReference<String> released = new WeakReference( user );
+        prop.set( 1, user, 1 );
+        prop.set( 2, user, 2 );
+        user = null;
+        for( int i = 3; i < 10; i++ ){
+            prop.set( i, "staying", i );
+        }
+        
+        for( int i = 0; i < 100 && released.get() != null; i++ ){
+            System.gc();
+            Thread.sleep( 10 );
+        }
+        Assert.assertNull( "Identifiers no longer in any history record should be collected", released.get() );
+        Assert.assertEquals( "Recorded identifiers should be kept", "staying", prop.versions().get( 0 ).modifiedBy() );
+    }
 }
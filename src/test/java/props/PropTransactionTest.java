@@ -0,0 +1,231 @@
+package props;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PropTransactionTest
+{
+    @Test
+    public void testCommit() throws Exception {
+        ConcurrentProp<Long> balance = new ConcurrentProp( null, 100L, true );
+        ConcurrentProp<String> last = new ConcurrentProp( null, "t0", true );
+
+        PropTransaction transaction = new PropTransaction( "teller" );
+        long value = transaction.get( balance );
+        transaction.set( balance, value - 30 );
+        transaction.set( last, "t1" );
+        Assert.assertEquals( "Transaction should see its own write", Long.valueOf( 70 ), transaction.get( balance ) );
+        Assert.assertEquals( "Writes should wait for the commit", Long.valueOf( 100 ), balance.get() );
+
+        Assert.assertTrue( "Transaction should commit", transaction.commit() );
+        Assert.assertEquals( "Wrong balance", Long.valueOf( 70 ), balance.get() );
+        Assert.assertEquals( "Wrong last transaction", "t1", last.get() );
+        Assert.assertEquals( "Wrong modifiedBy", "teller", balance.modifiedBy() );
+        Assert.assertEquals( "Previous version should be recorded", Long.valueOf( 100 ), balance.versions().get( 0 ).value() );
+        Assert.assertEquals( "Previous version should be recorded", "t0", last.versions().get( 0 ).value() );
+    }
+
+    @Test
+    public void testConflict() throws Exception {
+        ConcurrentProp<Long> balance = new ConcurrentProp( null, 100L, true );
+        ConcurrentProp<String> last = new ConcurrentProp( null, "t0", true );
+
+        PropTransaction transaction = new PropTransaction();
+        transaction.set( balance, transaction.get( balance ) - 30 );
+        transaction.set( last, "t1" );
+        balance.set( 50L );
+
+        Assert.assertFalse( "Conflicting transaction should not commit", transaction.commit() );
+        Assert.assertEquals( "Balance should keep the other write", Long.valueOf( 50 ), balance.get() );
+        Assert.assertEquals( "No write should be published", "t0", last.get() );
+        Assert.assertEquals( "No version should be recorded", 0, last.versionCount() );
+
+        transaction.set( balance, transaction.get( balance ) - 30 );
+        Assert.assertTrue( "Reset transaction should commit", transaction.commit() );
+        Assert.assertEquals( "Wrong balance", Long.valueOf( 20 ), balance.get() );
+    }
+
+    @Test
+    public void testConsistentSnapshot() throws Exception {
+        ConcurrentProp<Integer> a = new ConcurrentProp( null, 1, false );
+        ConcurrentProp<Integer> b = new ConcurrentProp( null, 1, false );
+
+        PropTransaction transaction = new PropTransaction();
+        transaction.get( a );
+        a.set( 2 );
+        try{
+            transaction.get( b );
+            Assert.fail( "Reading after a conflicting write should throw" );
+        }
+        catch( PropTransaction.ConflictException ex ){
+        }
+        Assert.assertFalse( "Conflicted transaction should not commit", transaction.commit() );
+
+        transaction.get( a );
+        Assert.assertTrue( "Read only transaction should commit", transaction.commit() );
+    }
+
+    @Test
+    public void testWriteSkew() throws Exception {
+        ConcurrentProp<Integer> a = new ConcurrentProp( null, 1, false );
+        ConcurrentProp<Integer> b = new ConcurrentProp( null, 1, false );
+
+        //each transaction keeps a + b >= 1 on its own
+        PropTransaction first = new PropTransaction();
+        PropTransaction second = new PropTransaction();
+        if( first.get( a ) + first.get( b ) >= 2 ){
+            first.set( a, 0 );
+        }
+        if( second.get( a ) + second.get( b ) >= 2 ){
+            second.set( b, 0 );
+        }
+
+        Assert.assertTrue( "First transaction should commit", first.commit() );
+        Assert.assertFalse( "Second transaction read a prop the first wrote", second.commit() );
+        Assert.assertEquals( "Invariant should hold", 1, a.get() + b.get() );
+    }
+
+    @Test
+    public void testListenersSeeAllWrites() throws Exception {
+        final ConcurrentProp<Long> balance = new ConcurrentProp( null, 100L, false );
+        final ConcurrentProp<String> last = new ConcurrentProp( null, "t0", false );
+        final List<String> seen = new ArrayList();
+        balance.addListener( event -> seen.add( event.value() + "/" + last.get() ) );
+        last.addListener( event -> seen.add( balance.get() + "/" + event.value() ) );
+
+        PropTransaction.run( tx -> {
+            tx.set( balance, tx.get( balance ) + 1 );
+            tx.set( last, "t1" );
+        } );
+        Assert.assertEquals( "Listeners should see every write", 2, seen.size() );
+        for( String event : seen ){
+            Assert.assertEquals( "Listener should see both writes", "101/t1", event );
+        }
+    }
+
+    @Test
+    public void testComputedPropRecomputedOnce() throws Exception {
+        final ConcurrentProp<Integer> a = new ConcurrentProp( null, 1, false );
+        final ConcurrentProp<Integer> b = new ConcurrentProp( null, 1, false );
+        final AtomicInteger computations = new AtomicInteger();
+        ComputedProp<Integer> sum = new ComputedProp( () -> {
+            computations.incrementAndGet();
+            return a.get() + b.get();
+        }, a, b );
+        final List<Integer> sums = new ArrayList();
+        sum.addListener( event -> sums.add( (Integer)event.value() ) );
+        computations.set( 0 );
+
+        PropTransaction.run( tx -> {
+            tx.set( a, 5 );
+            tx.set( b, 5 );
+        } );
+        Assert.assertEquals( "Sum should only see the committed state", 1, sums.size() );
+        Assert.assertEquals( "Wrong sum", Integer.valueOf( 10 ), sums.get( 0 ) );
+        Assert.assertEquals( "Sum should be computed once", 1, computations.get() );
+    }
+
+    @Test
+    public void testBlockedCommitReleasesLocks() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try{
+            AsyncDispatcher dispatcher = new AsyncDispatcher( executor, 1, BackpressurePolicy.BLOCK );
+            final ConcurrentProp<Integer> a = new ConcurrentProp( null, 0, true );
+            final ConcurrentProp<Integer> b = new ConcurrentProp( null, 0, true );
+            a.dispatcher( dispatcher );
+            b.dispatcher( dispatcher );
+            final List<Integer> sizes = Collections.synchronizedList( new ArrayList() );
+            //reading the histories needs the locks the transaction held
+            a.addListener( event -> sizes.add( b.versions().size() ) );
+            b.addListener( event -> sizes.add( a.versions().size() ) );
+
+            Thread writer = new Thread( () -> {
+                for( int i = 1; i <= 100; i++ ){
+                    final int value = i;
+                    PropTransaction.run( tx -> {
+                        tx.set( a, value );
+                        tx.set( b, value );
+                    } );
+                }
+            } );
+            writer.start();
+            writer.join( 10000 );
+            Assert.assertFalse( "Transactions should not deadlock with the listeners", writer.isAlive() );
+            Assert.assertTrue( "Events were not delivered", dispatcher.awaitIdle( 10, TimeUnit.SECONDS ) );
+            Assert.assertEquals( "Wrong notification count", 200, sizes.size() );
+        }
+        finally{
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testCall() throws Exception {
+        ConcurrentProp<Integer> counter = new ConcurrentProp( null, 41, false );
+        int previous = PropTransaction.call( tx -> {
+            int value = tx.get( counter );
+            tx.set( counter, value + 1 );
+            return value;
+        } );
+        Assert.assertEquals( "Wrong result", 41, previous );
+        Assert.assertEquals( "Wrong value", Integer.valueOf( 42 ), counter.get() );
+    }
+
+    @Test
+    public void testConcurrentTransfers() throws Exception {
+        final int THREADS = 4;
+        final int TRANSFERS = 20000;
+        final List<ConcurrentProp<Long>> accounts = new ArrayList();
+        final List<ConcurrentProp<Integer>> counts = new ArrayList();
+        for( int i = 0; i < 8; i++ ){
+            accounts.add( new ConcurrentProp( null, 1000L, false ) );
+            counts.add( new ConcurrentProp( null, 0, false ) );
+        }
+
+        final CountDownLatch start = new CountDownLatch( 1 );
+        Thread[] threads = new Thread[ THREADS ];
+        for( int t = 0; t < THREADS; t++ ){
+            final Random random = new Random( t );
+            threads[ t ] = new Thread( () -> {
+                try{
+                    start.await();
+                }
+                catch( InterruptedException ex ){
+                    return;
+                }
+                for( int i = 0; i < TRANSFERS; i++ ){
+                    final int from = random.nextInt( accounts.size() );
+                    final int to = ( from + 1 + random.nextInt( accounts.size() - 1 ) ) % accounts.size();
+                    PropTransaction.run( tx -> {
+                        tx.set( accounts.get( from ), tx.get( accounts.get( from ) ) - 1 );
+                        tx.set( accounts.get( to ), tx.get( accounts.get( to ) ) + 1 );
+                        tx.set( counts.get( from ), tx.get( counts.get( from ) ) + 1 );
+                    } );
+                }
+            } );
+            threads[ t ].start();
+        }
+        start.countDown();
+        for( Thread thread : threads ){
+            thread.join();
+        }
+
+        long total = 0;
+        int transfers = 0;
+        for( int i = 0; i < accounts.size(); i++ ){
+            total += accounts.get( i ).get();
+            transfers += counts.get( i ).get();
+        }
+        Assert.assertEquals( "Transfers should not create or lose money", 8000, total );
+        Assert.assertEquals( "Every transfer should commit once", THREADS * TRANSFERS, transfers );
+    }
+}
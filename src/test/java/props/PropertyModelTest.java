@@ -0,0 +1,91 @@
+package props;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PropertyModelTest
+{
+    @Test
+    public void testModel() throws Exception {
+        PropertyModel<Pojo> model = PropertyModel.of( Pojo.class );
+        Assert.assertSame( "Model should be cached", model, PropertyModel.of( Pojo.class ) );
+        Assert.assertEquals( "Wrong fields", Arrays.asList( "name", "age" ), model.names() );
+        Assert.assertEquals( "Wrong index", 1, model.indexOf( "age" ) );
+        Assert.assertEquals( "Wrong index", -1, model.indexOf( "missing" ) );
+        
+        Pojo pojo = new Pojo( "Thomas", 36 );
+        Assert.assertSame( "Wrong prop", pojo.age, model.get( pojo, 1 ) );
+        Assert.assertEquals( "Wrong props", Arrays.asList( pojo.name, pojo.age ), model.props( pojo ) );
+        
+        List<Version<?>> snapshot = model.snapshot( pojo );
+        Assert.assertEquals( "Wrong value", "Thomas", snapshot.get( 0 ).value() );
+        Assert.assertEquals( "Wrong value", 36, snapshot.get( 1 ).value() );
+        Assert.assertEquals( "Wrong timestamp", pojo.age.timestamp(), snapshot.get( 1 ).timestamp() );
+    }
+    
+    @Test
+    public void testBulkOperations() throws Exception {
+        PropertyModel<Entity> model = PropertyModel.of( Entity.class );
+        Assert.assertEquals( "Wrong fields", Arrays.asList( "id", "name", "score", "missing", "hidden" ), model.names() );
+        Assert.assertEquals( "Wrong prop type", DoubleProp.class, model.propType( 2 ) );
+        
+        Entity entity = new Entity();
+        model.wireParent( entity );
+        Assert.assertSame( "Wrong parent", entity, entity.id.parent() );
+        Assert.assertSame( "Wrong parent", entity, entity.hidden.parent() );
+        
+        DefaultPropListener listener = new DefaultPropListener();
+        model.addListener( entity, listener );
+        entity.name.set( "AJ" );
+        entity.score.set( 2.5 );
+        entity.hidden.compareAndSet( null, "secret" );
+        Assert.assertEquals( "Wrong notification count", 3, listener.count() );
+        
+        List<Version<?>> snapshot = model.snapshot( entity );
+        Assert.assertNull( "Unset prop should be null", snapshot.get( 0 ) );
+        Assert.assertEquals( "Wrong value", 2.5, snapshot.get( 2 ).value() );
+        Assert.assertNull( "Null field should be null", snapshot.get( 3 ) );
+        Assert.assertEquals( "Wrong value", "secret", snapshot.get( 4 ).value() );
+        
+        model.removeListener( entity, listener );
+        entity.name.set( "Sue" );
+        Assert.assertEquals( "Listener should be removed", 3, listener.count() );
+    }
+    
+    @Test
+    public void testTracker() throws Exception {
+        Pojo pojo = new Pojo();
+        ChangeTracker tracker = PropertyModel.of( Pojo.class ).tracker( pojo );
+        pojo.age.set( 5 );
+        Assert.assertEquals( "Wrong dirty props", Arrays.asList( pojo.age ), tracker.drainDirty() );
+        
+        //the codecs follow the fields' value types, so deltas can be written
+        pojo.name.set( "Thomas" );
+        pojo.age.set( 36 );
+        ByteBuffer buffer = ByteBuffer.allocate( 256 );
+        Assert.assertEquals( "Wrong delta size", 2, tracker.writeDelta( buffer ) );
+        buffer.flip();
+        Pojo replica = new Pojo();
+        PropertyModel.of( Pojo.class ).tracker( replica ).applyDelta( buffer );
+        Assert.assertEquals( "Wrong name", "Thomas", replica.name.get() );
+        Assert.assertEquals( "Wrong age", Integer.valueOf( 36 ), replica.age.get() );
+    }
+    
+    private static class Base
+    {
+        static final Prop<String> SHARED = new Prop();
+        final Prop<Integer> id = new Prop();
+    }
+    
+    private static class Entity extends Base
+    {
+        public final Prop<String> name = new Prop();
+        String notAProp = "";
+        final DoubleProp score = new DoubleProp();
+        Prop<String> missing;
+        private final ConcurrentProp<String> hidden = new ConcurrentProp();
+    }
+}
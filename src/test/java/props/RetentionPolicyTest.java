@@ -0,0 +1,92 @@
+package props;
+
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RetentionPolicyTest
+{
+    @Test
+    public void testUnbounded() throws Exception {
+        Prop<Integer> prop = new Prop();
+        Assert.assertSame( "Wrong default policy", RetentionPolicy.unbounded(), prop.retention() );
+        
+        for( int i = 0; i <= 1000; i++ ){
+            prop.set( i, "user", i );
+        }
+        
+        List<Version<Integer>> versions = prop.versions();
+        Assert.assertEquals( "Wrong version count", 1000, versions.size() );
+        for( int i = 0; i < versions.size(); i++ ){
+            Assert.assertEquals( "Wrong version value", new Integer( i ), versions.get( i ).value() );
+        }
+    }
+    
+    @Test
+    public void testLastVersions() throws Exception {
+        Prop<Integer> prop = new Prop();
+        prop.retention( RetentionPolicy.lastVersions( 5 ) );
+        
+        for( int i = 0; i <= 100; i++ ){
+            prop.set( i, "user", i );
+        }
+        
+        assertValues( prop.versions(), 95, 96, 97, 98, 99 );
+        Assert.assertEquals( "Wrong value", new Integer( 100 ), prop.get() );
+    }
+    
+    @Test
+    public void testNewerThan() throws Exception {
+        Prop<Integer> prop = new Prop();
+        prop.retention( RetentionPolicy.newerThan( 10, 1000 ) );
+        
+        for( int i = 0; i <= 100; i++ ){
+            prop.set( i, "user", i * 2 );
+        }
+        
+        //the newest version is 99 at 198ms, so versions from 188ms are kept
+        assertValues( prop.versions(), 94, 95, 96, 97, 98, 99 );
+        
+        prop.retention( RetentionPolicy.newerThan( 10, 3 ) );
+        assertValues( prop.versions(), 97, 98, 99 );
+    }
+    
+    @Test
+    public void testDownsampled() throws Exception {
+        Prop<Integer> prop = new Prop();
+        prop.retention( RetentionPolicy.downsampled( 3, 10, 6 ) );
+        
+        //one version per millisecond
+        for( int i = 0; i <= 50; i++ ){
+            prop.set( i, "user", i );
+        }
+        
+        //the 3 most recent versions, and the last version of each of the newest
+        //older 10ms intervals, 46 being the last version of the 40ms interval so far
+        assertValues( prop.versions(), 29, 39, 46, 47, 48, 49 );
+    }
+    
+    @Test
+    public void testConcurrentProp() throws Exception {
+        ConcurrentProp<Integer> prop = new ConcurrentProp();
+        prop.retention( RetentionPolicy.lastVersions( 2 ) );
+        
+        for( int i = 0; i < 10; i++ ){
+            prop.set( i );
+        }
+        
+        assertValues( prop.versions(), 7, 8 );
+    }
+    
+    @Test( expected = IllegalArgumentException.class )
+    public void testInvalidPolicy() throws Exception {
+        RetentionPolicy.lastVersions( 0 );
+    }
+    
+    private static void assertValues( List<Version<Integer>> versions, int... expected ){
+        Assert.assertEquals( "Wrong version count", expected.length, versions.size() );
+        for( int i = 0; i < expected.length; i++ ){
+            Assert.assertEquals( "Wrong version value", new Integer( expected[i] ), versions.get( i ).value() );
+        }
+    }
+}
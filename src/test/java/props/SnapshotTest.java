@@ -0,0 +1,131 @@
+package props;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SnapshotTest
+{
+    @Test
+    public void testAsOf() throws Exception {
+        Prop<String> prop = new Prop( null, null, true );
+        Assert.assertNull( "Unset prop has no version", prop.asOf( 100 ) );
+        
+        prop.set( "a", "AJ", 10 );
+        prop.set( "b", "Jacob", 20 );
+        prop.set( "c", "Thomas", 30 );
+        
+        Assert.assertNull( "Prop was not set yet", prop.asOf( 9 ) );
+        Assert.assertEquals( "Wrong value", "a", prop.asOf( 10 ).value() );
+        Assert.assertEquals( "Wrong value", "a", prop.asOf( 19 ).value() );
+        Assert.assertEquals( "Wrong value", "b", prop.asOf( 20 ).value() );
+        Assert.assertEquals( "Wrong modified by", "Jacob", prop.asOf( 29 ).modifiedBy() );
+        Assert.assertEquals( "Wrong value", "c", prop.asOf( 30 ).value() );
+        Assert.assertEquals( "Wrong value", "c", prop.asOf( Long.MAX_VALUE ).value() );
+        
+        prop.retention( RetentionPolicy.lastVersions( 1 ) );
+        Assert.assertEquals( "Wrong value", "b", prop.asOf( 25 ).value() );
+        Assert.assertNull( "History does not reach back", prop.asOf( 15 ) );
+    }
+    
+    @Test
+    public void testAsOfPrimitiveAndConcurrent() throws Exception {
+        IntProp count = new IntProp( null, null, true );
+        count.set( 1, 10 );
+        count.set( 2, 20 );
+        Assert.assertEquals( "Wrong value", (Integer)1, count.asOf( 15 ).value() );
+        Assert.assertEquals( "Wrong value", (Integer)2, count.asOf( 20 ).value() );
+        
+        ConcurrentProp<String> name = new ConcurrentProp( null, null, true );
+        name.set( "a", "AJ", 10 );
+        name.set( "b", "AJ", 20 );
+        Assert.assertSame( "Current version should be shared", name.current(), name.asOf( 20 ) );
+        Assert.assertEquals( "Wrong value", "a", name.asOf( 15 ).value() );
+    }
+    
+    @Test
+    public void testCapture() throws Exception {
+        PropertyModel<Entity> model = PropertyModel.of( Entity.class );
+        Entity entity = new Entity();
+        entity.name.set( "Thomas", "AJ", 10 );
+        entity.age.set( 36, "AJ", 10 );
+        
+        EntitySnapshot<Entity> first = model.capture( entity );
+        Assert.assertEquals( "Wrong value", "Thomas", first.value( "name" ) );
+        Assert.assertEquals( "Wrong value", 36, first.value( "age" ) );
+        Assert.assertNull( "Unset prop should be null", first.version( "score" ) );
+        Assert.assertSame( "Unchanged snapshot should be reused", first, model.capture( entity, first ) );
+        
+        entity.age.set( 37, "AJ", 20 );
+        EntitySnapshot<Entity> second = model.capture( entity, first );
+        Assert.assertSame( "Unchanged version should be shared", first.version( "name" ), second.version( "name" ) );
+        Assert.assertArrayEquals( "Wrong changes", new int[]{ model.indexOf( "age" ) }, second.changedSince( first ) );
+        Assert.assertEquals( "Earlier snapshot should not change", 36, first.value( "age" ) );
+        Assert.assertEquals( "Wrong value", 37, second.value( "age" ) );
+        
+        try{
+            first.value( "missing" );
+            Assert.fail( "Unknown names should be rejected" );
+        }
+        catch( IllegalArgumentException ex ){
+            //expected
+        }
+    }
+    
+    @Test
+    public void testSnapshotAsOf() throws Exception {
+        PropertyModel<Entity> model = PropertyModel.of( Entity.class );
+        Entity entity = new Entity();
+        entity.name.set( "Thomas", "AJ", 10 );
+        entity.age.set( 36, "AJ", 15 );
+        entity.name.set( "Jacob", "AJ", 20 );
+        entity.age.set( 37, "AJ", 25 );
+        entity.score.set( 1.5, "AJ", 30 );
+        
+        EntitySnapshot<Entity> snapshot = model.snapshotAsOf( entity, 22 );
+        Assert.assertEquals( "Wrong value", "Jacob", snapshot.value( "name" ) );
+        Assert.assertEquals( "Wrong value", 36, snapshot.value( "age" ) );
+        Assert.assertNull( "Score was not set yet", snapshot.value( "score" ) );
+        Assert.assertEquals( "Wrong toString", "EntitySnapshot[name=Jacob, age=36, score=null]", snapshot.toString() );
+        
+        EntitySnapshot<Entity> now = model.snapshotAsOf( entity, 30 );
+        Assert.assertArrayEquals( "Wrong changes", new int[]{ 1, 2 }, now.changedSince( snapshot ) );
+    }
+    
+    @Test
+    public void testConcurrentReaders() throws Exception {
+        final PropertyModel<Entity> model = PropertyModel.of( Entity.class );
+        final Entity entity = new Entity();
+        entity.name.set( "Thomas" );
+        final EntitySnapshot<Entity> snapshot = model.capture( entity );
+        
+        final CountDownLatch done = new CountDownLatch( 1 );
+        final AtomicReference<Object> seen = new AtomicReference();
+        Thread reader = new Thread(){
+            public void run(){
+                try{
+                    done.await();
+                    seen.set( snapshot.value( "name" ) );
+                }
+                catch( InterruptedException ex ){
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        reader.start();
+        for( int i = 0; i < 1000; i++ ){
+            entity.name.set( "Writer " + i );
+        }
+        done.countDown();
+        reader.join();
+        Assert.assertEquals( "Snapshot should not see later writes", "Thomas", seen.get() );
+    }
+    
+    public static class Entity
+    {
+        final ConcurrentProp<String> name = new ConcurrentProp( null, null, true );
+        final IntProp age = new IntProp( null, null, true );
+        final DoubleProp score = new DoubleProp( null, null, true );
+    }
+}
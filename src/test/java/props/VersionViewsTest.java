@@ -0,0 +1,132 @@
+package props;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class VersionViewsTest
+{
+    @Test
+    public void testViews() throws Exception {
+        Prop<Integer> prop = newProp( 100 );
+        
+        List<Version<Integer>> view = prop.versionsView();
+        Assert.assertEquals( "Wrong version count", 100, view.size() );
+        Assert.assertEquals( "Wrong version count", 100, prop.versionCount() );
+        Assert.assertEquals( "Wrong version value", prop.versions(), view );
+        
+        Assert.assertEquals( "Wrong version value", new Integer( 0 ), prop.versionAt( 0 ).value() );
+        Assert.assertEquals( "Wrong version value", new Integer( 99 ), prop.versionAt( 99 ).value() );
+        
+        assertValues( prop.latestVersions( 3 ), 97, 98, 99 );
+        Assert.assertEquals( "Wrong version count", 100, prop.latestVersions( 1000 ).size() );
+        Assert.assertTrue( "Versions should be empty", prop.latestVersions( 0 ).isEmpty() );
+        
+        List<Integer> values = prop.versionStream()
+            .filter( v -> v.value() % 25 == 0 )
+            .map( Version::value )
+            .collect( Collectors.toList() );
+        Assert.assertEquals( "Wrong stream", Arrays.asList( 0, 25, 50, 75 ), values );
+    }
+    
+    @Test
+    public void testVersionsBetween() throws Exception {
+        //timestamps are 10 times the value
+        Prop<Integer> prop = newProp( 100 );
+        
+        assertValues( prop.versionsBetween( 200, 240 ), 20, 21, 22, 23 );
+        assertValues( prop.versionsBetween( 195, 215 ), 20, 21 );
+        assertValues( prop.versionsBetween( -100, 20 ), 0, 1 );
+        Assert.assertEquals( "Wrong version count", 3, prop.versionsBetween( 965, Long.MAX_VALUE ).size() );
+        Assert.assertTrue( "Versions should be empty", prop.versionsBetween( 2000, 3000 ).isEmpty() );
+        Assert.assertTrue( "Versions should be empty", prop.versionsBetween( 240, 200 ).isEmpty() );
+        
+        //duplicate timestamps are all included
+        Prop<String> names = new Prop();
+        names.set( "a", 1 );
+        names.set( "b", 2 );
+        names.set( "c", 2 );
+        names.set( "d", 2 );
+        names.set( "e", 3 );
+        Assert.assertEquals( "Wrong version count", 3, names.versionsBetween( 2, 3 ).size() );
+    }
+    
+    @Test
+    public void testRetainedViews() throws Exception {
+        Prop<Integer> prop = new Prop();
+        prop.retention( RetentionPolicy.lastVersions( 10 ) );
+        for( int i = 0; i <= 25; i++ ){
+            prop.set( i, i * 10 );
+        }
+        
+        assertValues( prop.latestVersions( 2 ), 23, 24 );
+        assertValues( prop.versionsBetween( 0, 170 ), 15, 16 );
+        Assert.assertEquals( "Wrong version value", new Integer( 15 ), prop.versionAt( 0 ).value() );
+    }
+    
+    @Test( expected = ConcurrentModificationException.class )
+    public void testStaleView() throws Exception {
+        Prop<Integer> prop = newProp( 10 );
+        List<Version<Integer>> view = prop.latestVersions( 5 );
+        prop.set( 1000 );
+        view.get( 0 );
+    }
+    
+    @Test( expected = UnsupportedOperationException.class )
+    public void testUnmodifiable() throws Exception {
+        newProp( 10 ).versionsView().remove( 0 );
+    }
+    
+    @Test( expected = IndexOutOfBoundsException.class )
+    public void testVersionAt() throws Exception {
+        newProp( 10 ).versionAt( 10 );
+    }
+    
+    @Test
+    public void testNoVersioning() throws Exception {
+        Prop<Integer> prop = new Prop( null, 1, false );
+        prop.set( 2 );
+        prop.set( 3 );
+        Assert.assertTrue( "Versions should be empty", prop.versionsView().isEmpty() );
+        Assert.assertTrue( "Versions should be empty", prop.latestVersions( 5 ).isEmpty() );
+        Assert.assertEquals( "Versions should be empty", 0, prop.versionStream().count() );
+        
+        ConcurrentProp<Integer> concurrent = new ConcurrentProp( null, 1, false );
+        concurrent.set( 2 );
+        Assert.assertTrue( "Versions should be empty", concurrent.versionsView().isEmpty() );
+    }
+    
+    @Test
+    public void testConcurrentProp() throws Exception {
+        ConcurrentProp<Integer> prop = new ConcurrentProp();
+        for( int i = 0; i <= 10; i++ ){
+            prop.set( i, i * 10 );
+        }
+        
+        //copies, so they remain valid after further changes
+        List<Version<Integer>> latest = prop.latestVersions( 2 );
+        List<Version<Integer>> between = prop.versionsBetween( 0, 20 );
+        prop.set( 11 );
+        assertValues( latest, 8, 9 );
+        assertValues( between, 0, 1 );
+        Assert.assertEquals( "Wrong version value", new Integer( 10 ), prop.versionAt( 10 ).value() );
+    }
+    
+    private static Prop<Integer> newProp( int versions ){
+        Prop<Integer> prop = new Prop();
+        for( int i = 0; i <= versions; i++ ){
+            prop.set( i, i * 10 );
+        }
+        return prop;
+    }
+    
+    private static void assertValues( List<Version<Integer>> versions, int... expected ){
+        Assert.assertEquals( "Wrong version count", expected.length, versions.size() );
+        for( int i = 0; i < expected.length; i++ ){
+            Assert.assertEquals( "Wrong version value", new Integer( expected[i] ), versions.get( i ).value() );
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package props;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class WeakListenerTest
+{
+    @Test
+    public void testWeakListenerIsNotified() throws Exception {
+        DefaultPropListener listener = new DefaultPropListener();
+        Prop<Integer> prop = new Prop( null, null, false );
+        prop.addWeakListener( listener );
+        
+        prop.set( 1 );
+        prop.set( 2 );
+        Assert.assertEquals( "Wrong notification count", 2, listener.count() );
+        Assert.assertEquals( "Wrong value", 2, listener.current() );
+        Assert.assertEquals( "Wrong previous value", 1, listener.previous() );
+    }
+    
+    @Test
+    public void testRemoveWeakListener() throws Exception {
+        DefaultPropListener listener = new DefaultPropListener();
+        DefaultPropListener other = new DefaultPropListener();
+        Prop<Integer> prop = new Prop( null, null, false );
+        prop.addWeakListener( listener );
+        prop.addListener( other );
+        
+        prop.removeListener( listener );
+        Assert.assertEquals( "Weak listener should be removed", 1, prop.listeners().length );
+        
+        prop.set( 1 );
+        Assert.assertEquals( "Removed listener should not be notified", 0, listener.count() );
+        Assert.assertEquals( "Wrong notification count", 1, other.count() );
+    }
+    
+    @Test
+    public void testCollectedListenerIsPrunedOnDispatch() throws Exception {
+        Prop<Integer> prop = new Prop( null, null, false );
+        DefaultPropListener strong = new DefaultPropListener();
+        prop.addListener( strong );
+        WeakReference<PropListener> weak = addCollectable( prop );
+        Assert.assertEquals( "Wrong listener count", 2, prop.listeners().length );
+        
+        collect( weak );
+        prop.set( 1 );
+        Assert.assertEquals( "Collected listener should be pruned", 1, prop.listeners().length );
+        Assert.assertEquals( "Wrong notification count", 1, strong.count() );
+    }
+    
+    @Test
+    public void testCollectedListenerIsPrunedOnAdd() throws Exception {
+        Prop<Integer> prop = new ConcurrentProp( null, null, false );
+        WeakReference<PropListener> first = addCollectable( prop );
+        WeakReference<PropListener> second = addCollectable( prop );
+        collect( first );
+        collect( second );
+        
+        DefaultPropListener listener = new DefaultPropListener();
+        prop.addListener( listener );
+        Assert.assertEquals( "Collected listeners should be pruned", 1, prop.listeners().length );
+        Assert.assertSame( "Wrong listener", listener, prop.listeners()[0] );
+    }
+    
+    @Test
+    public void testCollectedListenerIsPrunedByWriter() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try{
+            AsyncDispatcher dispatcher = new AsyncDispatcher( executor, 16, BackpressurePolicy.BLOCK );
+            Prop<Integer> prop = new Prop( null, null, false );
+            prop.dispatcher( dispatcher );
+            DefaultPropListener strong = new DefaultPropListener();
+            prop.addListener( strong );
+            WeakReference<PropListener> weak = addCollectable( prop );
+            
+            collect( weak );
+            prop.set( 1 );
+            Assert.assertTrue( "Event was not delivered", dispatcher.awaitIdle( 10, TimeUnit.SECONDS ) );
+            Assert.assertEquals( "The dispatcher's thread should not change the listeners", 2, prop.listeners().length );
+            
+            prop.set( 2 );
+            Assert.assertEquals( "Collected listener should be pruned by the writer", 1, prop.listeners().length );
+            Assert.assertTrue( "Event was not delivered", dispatcher.awaitIdle( 10, TimeUnit.SECONDS ) );
+            Assert.assertEquals( "Wrong notification count", 2, strong.count() );
+        }
+        finally{
+            executor.shutdownNow();
+        }
+    }
+    
+    private static WeakReference<PropListener> addCollectable( Prop<?> prop ){
+        PropListener listener = new DefaultPropListener();
+        prop.addWeakListener( listener );
+        return new WeakReference( listener );
+    }
+    
+    private static void collect( WeakReference<?> reference ) throws InterruptedException {
+        for( int i = 0; i < 100 && reference.get() != null; i++ ){
+            System.gc();
+            Thread.sleep( 10 );
+        }
+        Assert.assertNull( "Listener was not collected", reference.get() );
+    }
+}